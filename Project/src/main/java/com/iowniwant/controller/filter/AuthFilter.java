@@ -9,7 +9,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
-@WebFilter(displayName = "AuthFilter", urlPatterns = {"/showGoalsServlet"})
+@WebFilter(displayName = "AuthFilter", urlPatterns = {"/showGoalsServlet", "/goalsPageServlet", "/goalSummaryServlet", "/savingsPlanServlet", "/searchGoalsServlet", "/suggestTitlesServlet", "/findGoalsServlet", "/importGoalsServlet"}, asyncSupported = true)
 public class AuthFilter implements Filter {
     private static final Logger log = LoggerFactory.getLogger(AuthFilter.class);
 
@@ -0,0 +1,49 @@
+package com.iowniwant.controller.filter;
+
+import com.iowniwant.util.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Runs every request in a @see UnitOfWork: all DAO calls of the request
+ * share one connection and transaction, which is committed when the
+ * request completes and rolled back if it throws.
+ */
+@WebFilter(displayName = "UnitOfWorkFilter", urlPatterns = {"/*"}, asyncSupported = true)
+public class UnitOfWorkFilter implements Filter {
+    private static final Logger log = LoggerFactory.getLogger(UnitOfWorkFilter.class);
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        log.trace("initialize filter content");
+    }
+
+    /**
+     * @param request - the request to pass along the chain.
+     * @param response - the response to pass along the chain.
+     * @throws IOException
+     * @throws ServletException if the transaction could not be committed.
+     * Binds a unit of work to the request thread for the rest of the chain.
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain filterChain)
+            throws IOException, ServletException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            filterChain.doFilter(request, response);
+            work.commit();
+        } catch (SQLException e) {
+            log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+            throw new ServletException("Could not commit the request's transaction", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        log.trace("destroy filter content");
+    }
+}
@@ -0,0 +1,24 @@
+package com.iowniwant.controller.listener;
+
+import com.iowniwant.util.DataBaseExecutor;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Shuts the threads of the @see DataBaseExecutor down with the
+ * application, so an undeployed application leaves none behind.
+ */
+@WebListener
+public class DataBaseExecutorListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        DataBaseExecutor.getInstance().shutdown();
+    }
+}
@@ -0,0 +1,62 @@
+package com.iowniwant.controller.listener;
+
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.util.DataBaseManager;
+import com.iowniwant.util.MigrationRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.sql.SQLException;
+
+/**
+ * Migrates the schema of the primary DataBase and of every shard while
+ * the application is deployed, unless the <code>migration.on.startup</code>
+ * setting is false. Only the jdbc engine has a schema. A failed migration
+ * keeps the application from getting ready and is tried again with the
+ * warm-up, see @see WarmUpListener.
+ * @see MigrationRunner
+ */
+@WebListener
+public class MigrationListener implements ServletContextListener {
+    private static final Logger log = LoggerFactory.getLogger(MigrationListener.class);
+    private static boolean migrated;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        migrate();
+    }
+
+    /**
+     * Migrates once per deployment, until it succeeded. Listeners run in no
+     * fixed order, so the ones reading the DataBase at deploy time call it
+     * first as well.
+     * @return whether the schema is up to date or needs no migration.
+     */
+    static synchronized boolean migrate() {
+        if (migrated)
+            return true;
+        DataBaseManager dbManager = DataBaseManager.getInstance();
+        if (!DaoFactory.getInstance().isJdbc() || !Boolean.parseBoolean(dbManager.getSetting("migration.on.startup", "true"))) {
+            migrated = true;
+            return true;
+        }
+        try {
+            MigrationRunner.fromClasspath(MigrationRunner.LOCATION).migrateAll(dbManager);
+            migrated = true;
+        } catch (SQLException | IllegalStateException e) {
+            // the warm-up reports the application not ready until it succeeds
+            log.error("could not migrate the schema", e);
+        }
+        return migrated;
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        synchronized (MigrationListener.class) {
+            migrated = false;
+        }
+    }
+}
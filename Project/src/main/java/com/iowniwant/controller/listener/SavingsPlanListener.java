@@ -0,0 +1,85 @@
+package com.iowniwant.controller.listener;
+
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.util.DataBaseManager;
+import com.iowniwant.util.SavingsPlanBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.util.Calendar;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the @see SavingsPlanBatch every night at the hour of the
+ * <code>planner.batch.hour</code> setting, a negative hour disables it.
+ * Every run schedules the next one for that hour of the local time, which
+ * a fixed rate of a day would miss by an hour across a DST change. Only
+ * the jdbc engine has a table to write the plans to.
+ */
+@WebListener
+public class SavingsPlanListener implements ServletContextListener {
+    private static final Logger log = LoggerFactory.getLogger(SavingsPlanListener.class);
+    private static final int DEFAULT_HOUR = 3;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        int hour = DataBaseManager.getInstance().getIntSetting("planner.batch.hour", DEFAULT_HOUR);
+        if (hour < 0 || !DaoFactory.getInstance().isJdbc()) {
+            log.info("savings plan batch disabled");
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "savings-plan-batch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        schedule(scheduler, hour);
+    }
+
+    private static void schedule(final ScheduledExecutorService scheduler, final int hour) {
+        long delay = millisUntil(hour);
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    SavingsPlanBatch.configured().run();
+                } catch (RuntimeException e) {
+                    // a failed night must not cancel the following ones
+                    log.error("savings plan batch failed", e);
+                } finally {
+                    if (!scheduler.isShutdown())
+                        schedule(scheduler, hour);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+        log.info("savings plan batch scheduled in {}ms", delay);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+
+    private static long millisUntil(int hour) {
+        Calendar next = Calendar.getInstance();
+        next.set(Calendar.HOUR_OF_DAY, hour);
+        next.set(Calendar.MINUTE, 0);
+        next.set(Calendar.SECOND, 0);
+        next.set(Calendar.MILLISECOND, 0);
+        if (next.getTimeInMillis() <= System.currentTimeMillis())
+            next.add(Calendar.DAY_OF_MONTH, 1);
+        return next.getTimeInMillis() - System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,35 @@
+package com.iowniwant.controller.listener;
+
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.search.GoalSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Builds the @see GoalSearchIndex from all goals while the application is
+ * deployed, before any request can write a goal.
+ */
+@WebListener
+public class SearchIndexListener implements ServletContextListener {
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        MigrationListener.migrate();
+        try {
+            GoalSearchIndex.getInstance().rebuild(DaoFactory.getInstance().getGoalDao());
+        } catch (IllegalStateException e) {
+            // searches find nothing until the next deploy, the rest works
+            log.error("could not build the search index", e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        GoalSearchIndex.getInstance().clear();
+    }
+}
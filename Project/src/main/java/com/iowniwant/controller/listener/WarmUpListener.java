@@ -0,0 +1,87 @@
+package com.iowniwant.controller.listener;
+
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.util.DataBaseManager;
+import com.iowniwant.util.DataBaseWarmUp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Warms the DataBase access up while the application is deployed and
+ * publishes the outcome as the <code>ready</code> ServletContext attribute;
+ * it is not ready while the schema could not be migrated. A failed warm-up,
+ * e.g. while the DataBase was briefly unreachable, is run again by
+ * @see #isReady(ServletContext), at most once per <code>warmup.retry.ms</code>.
+ * @see DataBaseWarmUp
+ */
+@WebListener
+public class WarmUpListener implements ServletContextListener {
+    private static final Logger log = LoggerFactory.getLogger(WarmUpListener.class);
+    public static final String READY_ATTRIBUTE = "ready";
+    private static final int DEFAULT_ITERATIONS = 50;
+    private static final int DEFAULT_RETRY_MS = 10000;
+    private static long lastAttempt;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+        context.setAttribute(READY_ATTRIBUTE, Boolean.FALSE);
+        synchronized (WarmUpListener.class) {
+            warmUp(context, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @param context context of the application.
+     * @return whether the application is ready, after warming it up
+     * again if the last attempt failed and is old enough.
+     */
+    public static boolean isReady(ServletContext context) {
+        return isReady(context, System.currentTimeMillis());
+    }
+
+    static boolean isReady(ServletContext context, long now) {
+        Object ready = context.getAttribute(READY_ATTRIBUTE);
+        // null before the deployment and after it
+        if (!Boolean.FALSE.equals(ready))
+            return Boolean.TRUE.equals(ready);
+        synchronized (WarmUpListener.class) {
+            if (Boolean.TRUE.equals(context.getAttribute(READY_ATTRIBUTE)))
+                return true;
+            if (now - lastAttempt < DataBaseManager.getInstance().getIntSetting("warmup.retry.ms", DEFAULT_RETRY_MS))
+                return false;
+            log.info("retrying the warm-up");
+            return warmUp(context, now);
+        }
+    }
+
+    private static boolean warmUp(ServletContext context, long now) {
+        lastAttempt = now;
+        if (!DaoFactory.getInstance().isJdbc()) {
+            // nothing to warm up, the DAOs do not touch the DataBase
+            log.info("application ready, {} engine needs no warm-up", DaoFactory.getInstance().getEngine());
+            context.setAttribute(READY_ATTRIBUTE, Boolean.TRUE);
+            return true;
+        }
+        DataBaseManager dbManager = DataBaseManager.getInstance();
+        int iterations = dbManager.getIntSetting("warmup.iterations", DEFAULT_ITERATIONS);
+        boolean ready = MigrationListener.migrate() && new DataBaseWarmUp(dbManager, iterations).run();
+
+        context.setAttribute(READY_ATTRIBUTE, ready);
+        log.info("application ready: {}", ready);
+        return ready;
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        event.getServletContext().removeAttribute(READY_ATTRIBUTE);
+        synchronized (WarmUpListener.class) {
+            lastAttempt = 0;
+        }
+    }
+}
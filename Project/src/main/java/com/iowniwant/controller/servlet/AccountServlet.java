@@ -1,27 +1,38 @@
 package com.iowniwant.controller.servlet;
 
-import com.google.gson.Gson;
-import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.dao.AbstractGoalSummaryDAO;
+import com.iowniwant.dao.AsyncDAO;
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.dao.implementation.AsyncDaoImpl;
+import com.iowniwant.model.GoalSummary;
 import com.iowniwant.model.User;
+import com.iowniwant.util.DataBaseManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Fills the user's profile info, with the information
- * from the DataBase.
+ * from the DataBase. The user and the totals of his goals
+ * are fetched at the same time; the totals are kept per user,
+ * so the goals themselves are not read. The fetch of the user is
+ * awaited no longer than the <code>async.dao.timeout.ms</code> setting,
+ * which also bounds its query on the DataBase.
  */
-@WebServlet(name = "AccountServlet", urlPatterns = "/accountServlet")
+@WebServlet(name = "AccountServlet", urlPatterns = "/accountServlet", asyncSupported = true)
 public class AccountServlet extends HttpServlet {
     private static final Logger log = LoggerFactory.getLogger(AccountServlet.class);
-    private UserDao userDao = UserDao.getInstance();
+    private static final int DEFAULT_FETCH_TIMEOUT_MILLIS = 5000;
+    private AsyncDAO<User> userDao = new AsyncDaoImpl<>(DaoFactory.getInstance().getUserDao());
+    private AbstractGoalSummaryDAO goalSummaryDao = DaoFactory.getInstance().getGoalSummaryDao();
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -30,22 +41,32 @@ public class AccountServlet extends HttpServlet {
     }
 
     @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    protected void doPost(final HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
+        final Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
         log.debug("user_id from servletContext: {}", userId);
 
-        User user = userDao.getById(userId);
-        log.debug("user from DataBase: {}", user);
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() throws Exception {
+                // the summary is read on this thread while the user is fetched
+                CompletableFuture<User> userFuture = userDao.getById(userId);
+                GoalSummary summary = goalSummaryDao.getByUserId(userId);
 
-        request.setAttribute("user", user);
+                // a fetch running late is ended by its own query timeout, see AsyncDaoImpl
+                User user = userFuture.get(DataBaseManager.getInstance()
+                        .getIntSetting("async.dao.timeout.ms", DEFAULT_FETCH_TIMEOUT_MILLIS), TimeUnit.MILLISECONDS);
+                log.debug("user from DataBase: {}, goals: {}", user, summary);
 
-        String json = new Gson().toJson(user);
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        response.getWriter().write(json);
+                request.setAttribute("user", user);
+                request.setAttribute("goals_count", summary == null ? 0 : summary.getGoalCount());
+                request.setAttribute("goals_cost", summary == null ? 0 : summary.getTotalCost());
+                request.setAttribute("goals_max_cost", summary == null ? 0 : summary.getMaxCost());
+                request.setAttribute("months_to_afford", summary == null ? null : summary.getMonthsToAfford());
 
-        log.trace("sending data to account page");
-        request.getRequestDispatcher("/account-page.jsp").forward(request, response);
+                log.trace("sending data to account page");
+                return AsyncSupport.Outcome.forward("/account-page.jsp");
+            }
+        });
     }
 }
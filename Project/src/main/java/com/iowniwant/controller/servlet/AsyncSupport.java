@@ -0,0 +1,294 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.util.DataBaseExecutor;
+import com.iowniwant.util.DataBaseManager;
+import com.iowniwant.util.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the DataBase work of a request on the
+ * @see DataBaseExecutor instead of the container thread. The container
+ * thread returns as soon as the work is queued; the worker runs it within
+ * a @see UnitOfWork and then forwards, redirects or writes the response
+ * body without blocking through a WriteListener. When the executor is
+ * saturated the request is answered with 503 at once, and so is a request
+ * whose work outlasts the <code>async.timeout.ms</code> setting; the late
+ * answer of its worker is dropped.
+ * <p>
+ * Requests that do not support asynchronous processing, e.g. because a
+ * filter in the chain does not, run the same work on the calling thread.
+ */
+public final class AsyncSupport {
+    private static final Logger log = LoggerFactory.getLogger(AsyncSupport.class);
+    private static final int DEFAULT_TIMEOUT_MILLIS = 30000;
+    private static final int CHUNK_SIZE = 8192;
+
+    private AsyncSupport() {}
+
+    /**
+     * DataBase work of a request.
+     */
+    public interface Action {
+        /**
+         * @return what to answer the request with.
+         * @throws Exception if the request could not be served, answered with 500.
+         */
+        Outcome perform() throws Exception;
+    }
+
+    /**
+     * How a request is answered once its work is done.
+     */
+    public static final class Outcome {
+        private static final Outcome NONE = new Outcome(null, null, null, null);
+
+        private final String contentType;
+        private final String body;
+        private final String forward;
+        private final String redirect;
+
+        private Outcome(String contentType, String body, String forward, String redirect) {
+            this.contentType = contentType;
+            this.body = body;
+            this.forward = forward;
+            this.redirect = redirect;
+        }
+
+        /**
+         * @param contentType content type of the body.
+         * @param body text written as UTF-8.
+         */
+        public static Outcome body(String contentType, String body) {
+            return new Outcome(contentType, body, null, null);
+        }
+
+        /**
+         * @param path context relative path the request is forwarded to.
+         */
+        public static Outcome forward(String path) {
+            return new Outcome(null, null, path, null);
+        }
+
+        /**
+         * @param location location the client is redirected to.
+         */
+        public static Outcome redirect(String location) {
+            return new Outcome(null, null, null, location);
+        }
+
+        /**
+         * @return outcome leaving the response empty.
+         */
+        public static Outcome none() {
+            return NONE;
+        }
+    }
+
+    /**
+     * Performs the action asynchronously if the request allows it,
+     * otherwise on the calling thread.
+     * @param request request to be served.
+     * @param response response of the request.
+     * @param action DataBase work of the request.
+     * @throws ServletException if the action failed on the calling thread.
+     * @throws IOException if the response could not be written.
+     */
+    public static void execute(HttpServletRequest request, HttpServletResponse response, Action action)
+            throws ServletException, IOException {
+        execute(request, response, action, DataBaseExecutor.getInstance().getExecutor());
+    }
+
+    static void execute(final HttpServletRequest request, final HttpServletResponse response,
+                        final Action action, Executor executor) throws ServletException, IOException {
+        if (!request.isAsyncSupported()) {
+            Outcome outcome;
+            try {
+                outcome = action.perform();
+            } catch (IOException | ServletException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ServletException(e);
+            }
+            answer(request, response, outcome);
+            return;
+        }
+
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(DataBaseManager.getInstance()
+                .getIntSetting("async.timeout.ms", DEFAULT_TIMEOUT_MILLIS));
+        // set by whoever completes or dispatches the request first: the worker or the container
+        final AtomicBoolean completed = new AtomicBoolean();
+        asyncContext.addListener(new TimeoutListener(request.getRequestURI(), response, completed));
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    perform(asyncContext, request, response, action, completed);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("database executor saturated, rejecting {}", request.getRequestURI());
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is busy, try again later");
+            complete(asyncContext, completed);
+        }
+    }
+
+    private static void perform(AsyncContext asyncContext, HttpServletRequest request,
+                                HttpServletResponse response, Action action, AtomicBoolean completed) {
+        String uri = request.getRequestURI();
+        Outcome outcome;
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            outcome = action.perform();
+            work.commit();
+        } catch (Exception e) {
+            log.error("could not serve " + uri, e);
+            fail(asyncContext, response, completed);
+            return;
+        }
+        if (completed.get()) {
+            log.warn("dropping the answer to {}, the request has timed out", uri);
+            return;
+        }
+        try {
+            if (outcome.forward != null) {
+                if (completed.compareAndSet(false, true))
+                    asyncContext.dispatch(outcome.forward);
+            } else if (outcome.body != null) {
+                writeBody(asyncContext, response, outcome, completed);
+            } else {
+                if (outcome.redirect != null)
+                    response.sendRedirect(outcome.redirect);
+                complete(asyncContext, completed);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("could not answer " + uri, e);
+            fail(asyncContext, response, completed);
+        }
+    }
+
+    private static void answer(HttpServletRequest request, HttpServletResponse response, Outcome outcome)
+            throws ServletException, IOException {
+        if (outcome.forward != null) {
+            request.getRequestDispatcher(outcome.forward).forward(request, response);
+        } else if (outcome.body != null) {
+            response.setContentType(outcome.contentType);
+            response.setCharacterEncoding("UTF-8");
+            response.getWriter().write(outcome.body);
+        } else if (outcome.redirect != null) {
+            response.sendRedirect(outcome.redirect);
+        }
+    }
+
+    private static void writeBody(final AsyncContext asyncContext, HttpServletResponse response,
+                                  Outcome outcome, final AtomicBoolean completed) throws IOException {
+        final byte[] bytes = outcome.body.getBytes(StandardCharsets.UTF_8);
+        response.setContentType(outcome.contentType);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(bytes.length);
+
+        final ServletOutputStream out = response.getOutputStream();
+        out.setWriteListener(new WriteListener() {
+            private int offset;
+
+            @Override
+            public void onWritePossible() throws IOException {
+                // write only while the container can take it without blocking
+                while (out.isReady()) {
+                    if (offset == bytes.length) {
+                        complete(asyncContext, completed);
+                        return;
+                    }
+                    int length = Math.min(CHUNK_SIZE, bytes.length - offset);
+                    out.write(bytes, offset, length);
+                    offset += length;
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                log.debug("client went away: {}", t.getMessage());
+                complete(asyncContext, completed);
+            }
+        });
+    }
+
+    private static void fail(AsyncContext asyncContext, HttpServletResponse response, AtomicBoolean completed) {
+        if (completed.get())
+            return;
+        try {
+            if (!response.isCommitted())
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        } catch (IOException ignored) {
+        } finally {
+            complete(asyncContext, completed);
+        }
+    }
+
+    /**
+     * Completes the request unless it was completed or dispatched before.
+     */
+    private static void complete(AsyncContext asyncContext, AtomicBoolean completed) {
+        if (completed.compareAndSet(false, true))
+            asyncContext.complete();
+    }
+
+    /**
+     * Answers a request with 503 when its work outlasts the timeout, and
+     * completes a request whose connection failed; the worker finds it
+     * completed then and leaves it alone.
+     */
+    private static final class TimeoutListener implements AsyncListener {
+        private final String uri;
+        private final HttpServletResponse response;
+        private final AtomicBoolean completed;
+
+        TimeoutListener(String uri, HttpServletResponse response, AtomicBoolean completed) {
+            this.uri = uri;
+            this.response = response;
+            this.completed = completed;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if (!completed.compareAndSet(false, true))
+                return;
+            log.warn("request {} timed out", uri);
+            try {
+                if (!response.isCommitted())
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Request timed out, try again later");
+            } finally {
+                event.getAsyncContext().complete();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            log.debug("request {} failed: {}", uri, event.getThrowable());
+            complete(event.getAsyncContext(), completed);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            completed.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
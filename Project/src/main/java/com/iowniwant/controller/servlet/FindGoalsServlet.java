@@ -0,0 +1,97 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalQuery;
+import com.iowniwant.model.Page;
+import com.iowniwant.util.Cursors;
+import com.iowniwant.util.GoalJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.sql.Date;
+
+/**
+ * Sends one page of the logged user's goals as JSON, sorted by the
+ * <code>sort</code> parameter (cost, pubdate or title) in the
+ * <code>order</code> asc or desc, optionally within the cost range
+ * <code>minCost</code>..<code>maxCost</code> and the pubdate range
+ * <code>from</code> (inclusive) .. <code>to</code> (exclusive), dates
+ * written yyyy-mm-dd. The <code>cursor</code> of a page continues the
+ * listing with the same parameters.
+ */
+@WebServlet(name = "FindGoalsServlet", urlPatterns = "/findGoalsServlet", asyncSupported = true)
+public class FindGoalsServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(FindGoalsServlet.class);
+    private AbstractGoalDAO goalDao = DaoFactory.getInstance().getGoalDao();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        final Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
+
+        // malformed parameters are rejected before any DataBase work is queued
+        final GoalQuery query;
+        try {
+            query = queryOf(request);
+        } catch (IllegalArgumentException e) {
+            log.debug("rejecting goal query: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        log.debug("finding goals for user: {}, query: {}", userId, query);
+
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                Page<Goal> page = goalDao.findGoals(userId, query);
+                log.debug("goals found: {}", page);
+                return AsyncSupport.Outcome.body("application/json", GoalJson.toJson(page));
+            }
+        });
+    }
+
+    /**
+     * @return query of the request parameters.
+     * @throws IllegalArgumentException if a parameter is malformed.
+     */
+    static GoalQuery queryOf(HttpServletRequest request) {
+        GoalQuery query = new GoalQuery();
+        String sort = request.getParameter("sort");
+        if (sort != null)
+            query.setSort(GoalQuery.Sort.of(sort));
+        String order = request.getParameter("order");
+        if (order != null && !"asc".equals(order) && !"desc".equals(order))
+            throw new IllegalArgumentException("Unknown order: " + order);
+        query.setDescending("desc".equals(order));
+        String minCost = request.getParameter("minCost");
+        if (minCost != null)
+            query.setMinCost(Double.valueOf(minCost));
+        String maxCost = request.getParameter("maxCost");
+        if (maxCost != null)
+            query.setMaxCost(Double.valueOf(maxCost));
+        String from = request.getParameter("from");
+        if (from != null)
+            query.setFrom(Date.valueOf(from));
+        String to = request.getParameter("to");
+        if (to != null)
+            query.setTo(Date.valueOf(to));
+        String limit = request.getParameter("limit");
+        if (limit != null)
+            query.setLimit(Integer.parseInt(limit));
+
+        String cursor = request.getParameter("cursor");
+        Cursors.Keyset after = Cursors.decode(cursor, query.getSort().name());
+        if (after != null && after.getValue() != null)
+            query.getSort().parse(after.getValue());
+        query.setCursor(cursor);
+        return query;
+    }
+}
@@ -0,0 +1,42 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.dao.AbstractGoalSummaryDAO;
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.model.GoalSummary;
+import com.iowniwant.util.GoalJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Sends the goal totals of the logged user as JSON: how many goals he
+ * has, what they cost together and at most, and how many months of his
+ * salary they take.
+ */
+@WebServlet(name = "GoalSummaryServlet", urlPatterns = "/goalSummaryServlet", asyncSupported = true)
+public class GoalSummaryServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(GoalSummaryServlet.class);
+    private AbstractGoalSummaryDAO goalSummaryDao = DaoFactory.getInstance().getGoalSummaryDao();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        final Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
+        log.debug("fetching goal summary for user: {}", userId);
+
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                GoalSummary summary = goalSummaryDao.getByUserId(userId);
+                log.debug("goal summary fetched: {}", summary);
+                return AsyncSupport.Outcome.body("application/json", GoalJson.toJson(summary));
+            }
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.Page;
+import com.iowniwant.util.Cursors;
+import com.iowniwant.util.GoalJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Sends one page of the logged user's goals as JSON, starting after
+ * the position encoded in the <code>cursor</code> parameter. Used by the
+ * goals page to load more goals on demand.
+ */
+@WebServlet(name = "GoalsPageServlet", urlPatterns = "/goalsPageServlet", asyncSupported = true)
+public class GoalsPageServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(GoalsPageServlet.class);
+    private AbstractGoalDAO goalDao = DaoFactory.getInstance().getGoalDao();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        final Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
+        final String cursor = request.getParameter("cursor");
+        String limit = request.getParameter("limit");
+        log.debug("fetching goals page for user: {}, cursor: {}", userId, cursor);
+
+        // malformed parameters are rejected before any DataBase work is queued
+        final int pageSize;
+        try {
+            pageSize = limit == null ? AbstractGoalDAO.DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+            Cursors.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            log.debug("rejecting page request: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                Page<Goal> page = goalDao.getGoalsPage(userId, cursor, pageSize);
+                log.debug("goals page fetched: {}", page);
+                return AsyncSupport.Outcome.body("application/json", GoalJson.toJson(page));
+            }
+        });
+    }
+}
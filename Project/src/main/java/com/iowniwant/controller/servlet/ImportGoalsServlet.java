@@ -0,0 +1,67 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.model.ImportReport;
+import com.iowniwant.model.User;
+import com.iowniwant.util.GoalImporter;
+import com.iowniwant.util.GoalJson;
+import com.iowniwant.util.GoalRowReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Imports the goals of the logged user from the request body, CSV with a
+ * header (<code>text/csv</code>) or one JSON object per line
+ * (<code>application/x-ndjson</code>), see @see GoalRowReader. The body is
+ * loaded while it is read and answered with the @see ImportReport as JSON,
+ * with status 500 if the import stopped before the end of the body.
+ */
+@WebServlet(name = "ImportGoalsServlet", urlPatterns = "/importGoalsServlet", asyncSupported = true)
+public class ImportGoalsServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(ImportGoalsServlet.class);
+    private GoalImporter importer = GoalImporter.configured();
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
+        log.debug("importing goals of user: {}, type: {}", userId, request.getContentType());
+
+        GoalRowReader.Format format;
+        try {
+            format = GoalRowReader.Format.of(request.getContentType());
+        } catch (IllegalArgumentException e) {
+            log.debug("rejecting import: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (request.getCharacterEncoding() == null)
+            request.setCharacterEncoding("UTF-8");
+        User user = new User();
+        user.setId(userId);
+
+        // runs on the request thread, not through AsyncSupport: reading the body
+        // takes as long as the client sends it, longer than the async timeout,
+        // and would hold a thread of the database executor meanwhile
+        ImportReport report;
+        try {
+            report = importer.load(userId,
+                    new GoalRowReader(request.getReader(), format, user, importer.newReport()));
+        } catch (IllegalArgumentException e) {
+            log.debug("rejecting import: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (report.getFailure() != null)
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(GoalJson.toJson(report));
+    }
+}
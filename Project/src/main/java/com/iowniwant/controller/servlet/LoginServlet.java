@@ -1,6 +1,7 @@
 package com.iowniwant.controller.servlet;
 
-import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.DaoFactory;
 import com.iowniwant.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,10 +22,10 @@ import static com.iowniwant.util.UserValidation.*;
  * to welcome page if validation is passed, otherwise redirects to
  * login page.
  */
-@WebServlet(name = "LoginServlet", urlPatterns = {"/loginServlet"})
+@WebServlet(name = "LoginServlet", urlPatterns = {"/loginServlet"}, asyncSupported = true)
 public class LoginServlet extends HttpServlet {
     private static final Logger log = LoggerFactory.getLogger(LoginServlet.class);
-    private UserDao userDao = UserDao.getInstance();
+    private AbstractUserDAO userDao = DaoFactory.getInstance().getUserDao();
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -33,38 +34,38 @@ public class LoginServlet extends HttpServlet {
     }
 
     @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response)
             throws ServletException, IOException {
 
-        String username = request.getParameter("userName");
-        String password = request.getParameter("password");
+        final String username = request.getParameter("userName");
+        final String password = request.getParameter("password");
 
-        response.setContentType("text/plain");
-        response.setCharacterEncoding("UTF-8");
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                if (!isUserValid(username, password))
+                    return AsyncSupport.Outcome.body("text/plain", "fail");
 
-        if (isUserValid(username, password)) {
+                User user = userDao.getByNick(username);
 
-            User user = userDao.getByNick(username);
+                request.getServletContext().setAttribute("user_id", user.getId());
+                log.debug("user_id: {} successfully persisted in ServletContext", user.getId());
 
-            request.getServletContext().setAttribute("user_id", user.getId());
-            log.debug("user_id: {} successfully persisted in ServletContext", user.getId());
+                request.getServletContext().setAttribute("token", "logged");
+                log.trace("token successfully persisted in ServletContext");
 
-            request.getServletContext().setAttribute("token", "logged");
-            log.trace("token successfully persisted in ServletContext");
+                Cookie userCookie = new Cookie("ioiw.username", username);
+                Cookie passCookie = new Cookie("ioiw.password", password);
 
-            Cookie userCookie = new Cookie("ioiw.username", username);
-            Cookie passCookie = new Cookie("ioiw.password", password);
+                response.addCookie(userCookie);
+                response.addCookie(passCookie);
 
-            response.addCookie(userCookie);
-            response.addCookie(passCookie);
+                log.debug("setting username: {} to userCookie: {}", username, userCookie.getName());
+                log.debug("setting password: {} to passCookie: {}", password, passCookie.getName());
 
-            log.debug("setting username: {} to userCookie: {}", username, userCookie.getName());
-            log.debug("setting password: {} to passCookie: {}", password, passCookie.getName());
-
-            log.trace("redirection to goals page");
-            response.getWriter().write("success");
-        } else {
-            response.getWriter().write("fail");
-        }
+                log.trace("redirection to goals page");
+                return AsyncSupport.Outcome.body("text/plain", "success");
+            }
+        });
     }
 }
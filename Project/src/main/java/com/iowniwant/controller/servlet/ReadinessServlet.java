@@ -0,0 +1,32 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.controller.listener.WarmUpListener;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Answers 200 once the warm-up finished successfully and 503 before,
+ * for load balancers to hold traffic back until then. A failed warm-up
+ * is retried by the checks, see @see WarmUpListener#isReady(ServletContext).
+ * @see WarmUpListener
+ */
+@WebServlet(name = "ReadinessServlet", urlPatterns = {"/readyServlet"})
+public class ReadinessServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        if (WarmUpListener.isReady(request.getServletContext())) {
+            response.getWriter().print("ready");
+        } else {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "warming up");
+        }
+    }
+}
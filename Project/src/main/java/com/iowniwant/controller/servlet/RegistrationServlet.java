@@ -1,6 +1,7 @@
 package com.iowniwant.controller.servlet;
 
-import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.DaoFactory;
 import com.iowniwant.model.User;
 
 import javax.servlet.ServletException;
@@ -15,27 +16,30 @@ import java.io.IOException;
  * creates User object and persists it to the DataBase, redirects user
  * to goals page.
  */
-@WebServlet(name = "RegistrationServlet", urlPatterns = "/registrationServlet")
+@WebServlet(name = "RegistrationServlet", urlPatterns = "/registrationServlet", asyncSupported = true)
 public class RegistrationServlet extends HttpServlet {
-    private UserDao userDao = UserDao.getInstance();
+    private AbstractUserDAO userDao = DaoFactory.getInstance().getUserDao();
 
     @Override
-    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+    protected void doPost(final HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
         String firstName = request.getParameter("firstName");
         String lastName = request.getParameter("lastName");
-        String userName = request.getParameter("userName");
+        final String userName = request.getParameter("userName");
         String email = request.getParameter("email");
-        String password = request.getParameter("password");
-
-        User user = new User(firstName, lastName, userName, password, email);
-        userDao.create(user);
-
-        request.setAttribute("userName", userName);
-        request.setAttribute("password", password);
-
-        request.getServletContext().getRequestDispatcher("/loginServlet")
-                .forward(request, response);
+        final String password = request.getParameter("password");
+
+        final User user = new User(firstName, lastName, userName, password, email);
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                userDao.create(user);
+
+                request.setAttribute("userName", userName);
+                request.setAttribute("password", password);
+                return AsyncSupport.Outcome.forward("/loginServlet");
+            }
+        });
     }
 }
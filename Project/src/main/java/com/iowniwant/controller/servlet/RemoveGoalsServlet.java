@@ -1,6 +1,7 @@
 package com.iowniwant.controller.servlet;
 
-import com.iowniwant.dao.implementation.GoalDao;
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.DaoFactory;
 import com.iowniwant.model.Goal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,22 +16,28 @@ import java.io.IOException;
 /**
  * Removes goal with the given ID from the DataBase.
  */
-@WebServlet(name = "RemoveGoalsServlet", urlPatterns = "/removeGoalsServlet")
+@WebServlet(name = "RemoveGoalsServlet", urlPatterns = "/removeGoalsServlet", asyncSupported = true)
 public class RemoveGoalsServlet extends HttpServlet {
     private static Logger log = LoggerFactory.getLogger(RemoveGoalsServlet.class);
-    private GoalDao goalDao = GoalDao.getInstance();
+    private AbstractGoalDAO goalDao = DaoFactory.getInstance().getGoalDao();
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        Integer id = Integer.parseInt(request.getParameter("id").trim());
+        final Integer id = Integer.parseInt(request.getParameter("id").trim());
         log.debug("getting id of the goal to be deleted id: {}", id);
 
-        // fetching goal_view using goal_id
-        Goal goal = goalDao.getById(id);
-        log.debug("deleting goal : {}", goal);
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                // fetching goal_view using goal_id
+                Goal goal = goalDao.getById(id);
+                log.debug("deleting goal : {}", goal);
 
-        // removing goal from DataBase
-        goalDao.delete(id);
+                // removing goal from DataBase
+                goalDao.delete(id);
+                return AsyncSupport.Outcome.none();
+            }
+        });
     }
 }
@@ -0,0 +1,63 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.SavingsPlan;
+import com.iowniwant.model.User;
+import com.iowniwant.util.GoalJson;
+import com.iowniwant.util.SavingsPlanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sends the savings plan of the logged user as JSON, his goals paid in the
+ * order named by the <code>order</code> parameter: <code>cost</code>, the
+ * default, or <code>date</code>. The plan is computed on request from the
+ * cached user and goal list, see @see SavingsPlanner.
+ */
+@WebServlet(name = "SavingsPlanServlet", urlPatterns = "/savingsPlanServlet", asyncSupported = true)
+public class SavingsPlanServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(SavingsPlanServlet.class);
+    private AbstractUserDAO userDao = DaoFactory.getInstance().getUserDao();
+    private AbstractGoalDAO goalDao = DaoFactory.getInstance().getGoalDao();
+    private SavingsPlanner planner = SavingsPlanner.configured();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        final Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
+        String orderName = request.getParameter("order");
+        log.debug("planning savings for user: {}, order: {}", userId, orderName);
+
+        final Comparator<Goal> order;
+        try {
+            order = SavingsPlanner.order(orderName);
+        } catch (IllegalArgumentException e) {
+            log.debug("rejecting plan request: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                User user = userDao.getById(userId);
+                List<Goal> goals = goalDao.getGoalsByUserId(userId);
+                SavingsPlan plan = user == null ? null : planner.plan(user, goals, order);
+                log.debug("savings plan computed: {}", plan);
+                return AsyncSupport.Outcome.body("application/json", GoalJson.toJson(plan));
+            }
+        });
+    }
+}
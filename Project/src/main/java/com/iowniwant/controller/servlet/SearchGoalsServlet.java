@@ -0,0 +1,52 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.model.Goal;
+import com.iowniwant.search.GoalSearchIndex;
+import com.iowniwant.util.GoalJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sends the logged user's goals matching the words of the <code>q</code>
+ * parameter as JSON, the most relevant first. The search runs on the
+ * in-memory @see GoalSearchIndex and never reaches the DataBase, so it is
+ * answered on the request thread.
+ */
+@WebServlet(name = "SearchGoalsServlet", urlPatterns = "/searchGoalsServlet")
+public class SearchGoalsServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(SearchGoalsServlet.class);
+    private GoalSearchIndex index = GoalSearchIndex.getInstance();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
+        String query = request.getParameter("q");
+        String limit = request.getParameter("limit");
+
+        int size;
+        try {
+            size = limit == null ? AbstractGoalDAO.DEFAULT_PAGE_SIZE
+                    : Math.min(Integer.parseInt(limit), AbstractGoalDAO.MAX_PAGE_SIZE);
+        } catch (NumberFormatException e) {
+            log.debug("rejecting search request: {}", e.getMessage());
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        List<Goal> goals = index.search(userId, query, size);
+        log.debug("search for user: {}, query: {}, found: {}", userId, query, goals.size());
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(GoalJson.toJson(goals));
+    }
+}
@@ -1,7 +1,9 @@
 package com.iowniwant.controller.servlet;
 
-import com.iowniwant.dao.implementation.GoalDao;
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.DaoFactory;
 import com.iowniwant.model.Goal;
+import com.iowniwant.model.Page;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,27 +13,34 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 
 /**
- * Fetches goals for user who's id was obtained by ServletContext,
- * forwards obtained goals to goals page.
+ * Fetches the first page of goals for user who's id was obtained by
+ * ServletContext, forwards obtained goals to goals page. Further pages
+ * are loaded by the page itself.
+ * @see GoalsPageServlet
  */
-@WebServlet(name = "ShowGoalsServlet", urlPatterns = {"/showGoalsServlet"})
+@WebServlet(name = "ShowGoalsServlet", urlPatterns = {"/showGoalsServlet"}, asyncSupported = true)
 public class ShowGoalsServlet extends HttpServlet {
     private static final Logger log = LoggerFactory.getLogger(ShowGoalsServlet.class);
-    private GoalDao goalDao = GoalDao.getInstance();
+    private AbstractGoalDAO goalDao = DaoFactory.getInstance().getGoalDao();
 
     @Override
-    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+    protected void doGet(final HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        Integer user_id = (Integer) request.getServletContext().getAttribute("user_id");
+        final Integer user_id = (Integer) request.getServletContext().getAttribute("user_id");
         log.debug("fetching goals for user with id: {}", user_id);
 
-        List<Goal> list = goalDao.getGoalsByUserId(user_id);
-        log.debug("goals fetched: {}", list);
-        request.setAttribute("goals_list", list);
-        request.getRequestDispatcher("/goals-page.jsp").forward(request, response);
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                Page<Goal> page = goalDao.getGoalsPage(user_id, null, AbstractGoalDAO.DEFAULT_PAGE_SIZE);
+                log.debug("goals fetched: {}", page);
+                request.setAttribute("goals_list", page.getItems());
+                request.setAttribute("next_cursor", page.getNextCursor());
+                return AsyncSupport.Outcome.forward("/goals-page.jsp");
+            }
+        });
     }
 }
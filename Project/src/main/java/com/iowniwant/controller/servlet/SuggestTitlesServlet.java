@@ -0,0 +1,46 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.search.GoalSearchIndex;
+import com.iowniwant.util.DataBaseManager;
+import com.iowniwant.util.GoalJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sends completions of the goal title typed so far, the <code>prefix</code>
+ * parameter, as a JSON array: the logged user's own titles first, then
+ * titles of at least <code>search.suggest.min.users</code> users. Served
+ * from the @see GoalSearchIndex on the request thread, without the DataBase,
+ * as it is called on every keystroke of the new goal form.
+ */
+@WebServlet(name = "SuggestTitlesServlet", urlPatterns = "/suggestTitlesServlet")
+public class SuggestTitlesServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(SuggestTitlesServlet.class);
+    private static final int DEFAULT_LIMIT = 8;
+    private static final int DEFAULT_MIN_USERS = 3;
+
+    private GoalSearchIndex index = GoalSearchIndex.getInstance();
+    private int minUsers = DataBaseManager.getInstance()
+            .getIntSetting("search.suggest.min.users", DEFAULT_MIN_USERS);
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        Integer userId = (Integer) request.getServletContext().getAttribute("user_id");
+        String prefix = request.getParameter("prefix");
+
+        List<String> titles = index.completeTitle(userId, prefix, DEFAULT_LIMIT, minUsers);
+        log.trace("completing title for user: {}, prefix: {}, found: {}", userId, prefix, titles.size());
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(GoalJson.toJson(titles));
+    }
+}
@@ -1,6 +1,7 @@
 package com.iowniwant.controller.servlet;
 
-import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.DaoFactory;
 import com.iowniwant.model.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,38 +16,43 @@ import java.io.IOException;
 /**
  * Updates users private data.
  */
-@WebServlet(name = "UpdateAccountServlet", urlPatterns = "/updateAccountServlet")
+@WebServlet(name = "UpdateAccountServlet", urlPatterns = "/updateAccountServlet", asyncSupported = true)
 public class UpdateAccountServlet extends HttpServlet {
     private static final Logger log = LoggerFactory.getLogger(UpdateAccountServlet.class);
-    private UserDao userDao = UserDao.getInstance();
+    private AbstractUserDAO userDao = DaoFactory.getInstance().getUserDao();
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        Integer user_id = (Integer) request.getServletContext().getAttribute("user_id");
+        final Integer user_id = (Integer) request.getServletContext().getAttribute("user_id");
         log.debug("user_id from servletContext: {}", user_id);
 
-        User user = userDao.getById(user_id);
-        log.debug("user from database: {}", user);
-
-        String firstName = request.getParameter("firstName");
-        String lastName = request.getParameter("lastName");
-        String userName = request.getParameter("userName");
-        String email = request.getParameter("email");
-        Double monthSalary = Double.valueOf(request.getParameter("monthSalary"));
-        String password = request.getParameter("confirm_password");
-
-        user.setFirstName(firstName);
-        user.setLastName(lastName);
-        user.setEmail(email);
-        user.setMonthSalary(monthSalary);
-        user.setUserName(userName);
-        if (password != null) {
-            user.setPassword(password);
-        }
-
-        userDao.update(user);
-        log.debug("user after Update: {}", user);
-        response.sendRedirect("showGoalsServlet");
+        final String firstName = request.getParameter("firstName");
+        final String lastName = request.getParameter("lastName");
+        final String userName = request.getParameter("userName");
+        final String email = request.getParameter("email");
+        final Double monthSalary = Double.valueOf(request.getParameter("monthSalary"));
+        final String password = request.getParameter("confirm_password");
+
+        AsyncSupport.execute(request, response, new AsyncSupport.Action() {
+            @Override
+            public AsyncSupport.Outcome perform() {
+                User user = userDao.getById(user_id);
+                log.debug("user from database: {}", user);
+
+                user.setFirstName(firstName);
+                user.setLastName(lastName);
+                user.setEmail(email);
+                user.setMonthSalary(monthSalary);
+                user.setUserName(userName);
+                if (password != null) {
+                    user.setPassword(password);
+                }
+
+                userDao.update(user);
+                log.debug("user after Update: {}", user);
+                return AsyncSupport.Outcome.redirect("showGoalsServlet");
+            }
+        });
     }
 }
@@ -1,5 +1,6 @@
 package com.iowniwant.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -36,9 +37,48 @@ public interface AbstractDAO<T> {
      */
     T getById(Integer id);
 
+    /**
+     * Makes transient objects persistent in one transaction, sending them
+     * to the DataBase in batches of the configured chunk size.
+     * @param entities transient objects of type T.
+     * @return generated identifiers in the order of the given objects,
+     * or null if SQLException was thrown and nothing was persisted.
+     */
+    List<Integer> createAll(Collection<T> entities);
+
+    /**
+     * Updates detached objects in one transaction, sending them to the
+     * DataBase in batches of the configured chunk size.
+     * @param entities detached objects of type T.
+     * @return true if all objects were updated, false if nothing was.
+     */
+    boolean updateAll(Collection<T> entities);
+
+    /**
+     * Removes the objects with the given identifiers in one transaction,
+     * one statement per chunk of identifiers.
+     * @param ids identifiers of the objects to be removed.
+     * @return true if all objects were removed, false if nothing was.
+     */
+    boolean deleteAll(Collection<Integer> ids);
+
     /**
      * Fetches all persistent objects from the DataBase.
      * @return List of persistent objects of type T.
      */
     List<T> getAll();
+
+    /**
+     * Streams all persistent objects from the DataBase to the handler,
+     * reading them through a cursor instead of materializing a List.
+     * @param handler receives every persistent object of type T.
+     */
+    void getAll(EntityHandler<? super T> handler);
+
+    /**
+     * Opens a cursor over all persistent objects in the DataBase.
+     * Memory use does not depend on the number of objects.
+     * @return iterator over persistent objects of type T, to be closed by the caller.
+     */
+    CloseableIterator<T> iterateAll();
 }
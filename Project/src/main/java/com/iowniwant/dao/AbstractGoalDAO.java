@@ -0,0 +1,49 @@
+package com.iowniwant.dao;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalQuery;
+import com.iowniwant.model.Page;
+
+import java.util.List;
+
+/**
+ * Operations on Goals beyond the basic CRUD ones. Goals are always
+ * returned together with their user.
+ */
+public interface AbstractGoalDAO extends AbstractDAO<Goal> {
+    int DEFAULT_PAGE_SIZE = 20;
+    int MAX_PAGE_SIZE = 100;
+
+    /**
+     * @param userId User identifier.
+     * @return unmodifiable List of the user's Goals ordered by goal_id.
+     */
+    List<Goal> getGoalsByUserId(Integer userId);
+
+    /**
+     * Returns one page of the user's Goals, ordered by goal_id.
+     * @param userId User identifier.
+     * @param cursor cursor of the page from the previous call, or null for the first page.
+     * @param limit maximum number of Goals on the page, capped at MAX_PAGE_SIZE.
+     * @return page of Goals with the cursor of the next page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    Page<Goal> getGoalsPage(Integer userId, String cursor, int limit);
+
+    /**
+     * Returns one page of the user's Goals matching the query, in its sort
+     * order. The cursor of the query must come from a page of the same sort.
+     * @param userId User identifier.
+     * @param query sort, ranges, cursor and limit of the listing.
+     * @return page of Goals with the cursor of the next page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    Page<Goal> findGoals(Integer userId, GoalQuery query);
+
+    /**
+     * Drops whatever the DAO cached of the user's Goals, after they were
+     * written around it, e.g. by a bulk import.
+     * @param userId User identifier.
+     */
+    void invalidateGoalsOf(Integer userId);
+}
@@ -0,0 +1,16 @@
+package com.iowniwant.dao;
+
+import com.iowniwant.model.GoalSummary;
+
+/**
+ * Reads the goal totals of a user. The totals are kept up to date as
+ * goals are written, reading them never goes through the goals.
+ */
+public interface AbstractGoalSummaryDAO {
+
+    /**
+     * @param userId User identifier.
+     * @return summary of the user's goals, or null if there is no such user.
+     */
+    GoalSummary getByUserId(Integer userId);
+}
@@ -0,0 +1,18 @@
+package com.iowniwant.dao;
+
+import com.iowniwant.model.Task;
+
+import java.util.List;
+
+/**
+ * Operations on Tasks beyond the basic CRUD ones. Tasks are always
+ * returned together with their goal.
+ */
+public interface AbstractTaskDAO extends AbstractDAO<Task> {
+
+    /**
+     * @param goalId Goal identifier.
+     * @return the goal's Tasks ordered by task_id, empty if there is no such goal.
+     */
+    List<Task> getTasksByGoalId(Integer goalId);
+}
@@ -0,0 +1,15 @@
+package com.iowniwant.dao;
+
+import com.iowniwant.model.User;
+
+/**
+ * Operations on Users beyond the basic CRUD ones.
+ */
+public interface AbstractUserDAO extends AbstractDAO<User> {
+
+    /**
+     * @param nickname nickname of the user.
+     * @return persistent User with the given nickname or null if there is no such user.
+     */
+    User getByNick(String nickname);
+}
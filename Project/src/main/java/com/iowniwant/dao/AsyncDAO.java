@@ -0,0 +1,50 @@
+package com.iowniwant.dao;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of @see AbstractDAO. Every call returns at once
+ * and completes its future on an executor, so independent reads of one
+ * request can run at the same time and be combined afterwards.
+ * <p>
+ * The calls run outside the caller's unit of work, on their own
+ * connections: they neither see its uncommitted writes nor take part in
+ * its transaction.
+ * @param <T> the type of object to be manipulated.
+ */
+public interface AsyncDAO<T> {
+
+    /**
+     * Makes transient object persistent.
+     * @param entity transient object of type T.
+     * @return future of the persistent object, completing with null if SQLException was thrown.
+     */
+    CompletableFuture<T> create(T entity);
+
+    /**
+     * Makes persistent object transient.
+     * @param id objects id, which is used to identify it.
+     * @return future completing once the object was removed.
+     */
+    CompletableFuture<Void> delete(Integer id);
+
+    /**
+     * Makes detached object persistent.
+     * @param entity detached object of type T.
+     * @return future of the persistent object, completing with null if there is no such object.
+     */
+    CompletableFuture<T> update(T entity);
+
+    /**
+     * @param id object identifier.
+     * @return future of the persistent object with given identifier,
+     * completing with null if there is no such object.
+     */
+    CompletableFuture<T> getById(Integer id);
+
+    /**
+     * @return future of the List of all persistent objects of type T.
+     */
+    CompletableFuture<List<T>> getAll();
+}
@@ -0,0 +1,18 @@
+package com.iowniwant.dao;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator over persistent objects that holds DataBase resources until
+ * it is exhausted or closed. Must be closed when not read to the end.
+ * @param <T> the type of the iterated objects.
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Releases the underlying cursor and connection. Never throws.
+     */
+    @Override
+    void close();
+}
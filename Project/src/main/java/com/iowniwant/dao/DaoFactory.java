@@ -0,0 +1,98 @@
+package com.iowniwant.dao;
+
+import com.iowniwant.dao.implementation.GoalDao;
+import com.iowniwant.dao.implementation.GoalSummaryDao;
+import com.iowniwant.dao.implementation.TaskDao;
+import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.dao.log.LogStore;
+import com.iowniwant.dao.memory.MemoryGoalDao;
+import com.iowniwant.dao.memory.MemoryGoalSummaryDao;
+import com.iowniwant.dao.memory.MemoryStore;
+import com.iowniwant.dao.memory.MemoryTaskDao;
+import com.iowniwant.dao.memory.MemoryUserDao;
+import com.iowniwant.search.GoalSearchIndex;
+import com.iowniwant.search.IndexingGoalDao;
+import com.iowniwant.util.DataBaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out the DAOs of the storage engine named by the
+ * <code>dao.engine</code> setting: <code>jdbc</code> keeps the data in the
+ * DataBase, <code>memory</code> in the heap of this JVM and <code>log</code>
+ * in a log of files on the local disk, see @see LogStore. Goal writes of
+ * every engine also reach the @see GoalSearchIndex.
+ */
+public class DaoFactory {
+    private static final Logger log = LoggerFactory.getLogger(DaoFactory.class);
+    public static final String JDBC = "jdbc";
+    public static final String MEMORY = "memory";
+    public static final String LOG = "log";
+
+    private final String engine;
+    private final AbstractUserDAO userDao;
+    private final AbstractGoalDAO goalDao;
+    private final AbstractTaskDAO taskDao;
+    private final AbstractGoalSummaryDAO goalSummaryDao;
+
+    /**
+     * Provides DaoFactory instance.
+     * @return the same DaoFactory object each time its invoked.
+     */
+    public static DaoFactory getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private DaoFactory() {
+        engine = DataBaseManager.getInstance().getSetting("dao.engine", JDBC).trim().toLowerCase();
+        log.info("using {} storage engine", engine);
+        if (JDBC.equals(engine)) {
+            userDao = UserDao.getInstance();
+            goalDao = new IndexingGoalDao(GoalDao.getInstance(), GoalSearchIndex.getInstance());
+            taskDao = TaskDao.getInstance();
+            goalSummaryDao = GoalSummaryDao.getInstance();
+        } else if (MEMORY.equals(engine) || LOG.equals(engine)) {
+            MemoryStore store = MEMORY.equals(engine) ? MemoryStore.getInstance() : LogStore.getInstance();
+            userDao = new MemoryUserDao(store);
+            goalDao = new IndexingGoalDao(new MemoryGoalDao(store), GoalSearchIndex.getInstance());
+            taskDao = new MemoryTaskDao(store);
+            goalSummaryDao = new MemoryGoalSummaryDao(store);
+        } else {
+            throw new IllegalStateException("Unknown dao.engine: " + engine);
+        }
+    }
+
+    private static class Holder {
+        private static final DaoFactory INSTANCE = new DaoFactory();
+    }
+
+    /**
+     * @return name of the storage engine in use.
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return true if the DAOs keep their data in the DataBase.
+     */
+    public boolean isJdbc() {
+        return JDBC.equals(engine);
+    }
+
+    public AbstractUserDAO getUserDao() {
+        return userDao;
+    }
+
+    public AbstractGoalDAO getGoalDao() {
+        return goalDao;
+    }
+
+    public AbstractTaskDAO getTaskDao() {
+        return taskDao;
+    }
+
+    public AbstractGoalSummaryDAO getGoalSummaryDao() {
+        return goalSummaryDao;
+    }
+}
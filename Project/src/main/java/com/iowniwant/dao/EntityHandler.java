@@ -0,0 +1,14 @@
+package com.iowniwant.dao;
+
+/**
+ * Receives persistent objects one at a time while they are streamed
+ * from the DataBase.
+ * @param <T> the type of the streamed objects.
+ */
+public interface EntityHandler<T> {
+
+    /**
+     * @param entity the next persistent object of the stream.
+     */
+    void handle(T entity);
+}
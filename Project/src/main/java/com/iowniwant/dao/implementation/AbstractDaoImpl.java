@@ -1,50 +1,86 @@
 package com.iowniwant.dao.implementation;
 
 import com.iowniwant.dao.AbstractDAO;
+import com.iowniwant.dao.CloseableIterator;
+import com.iowniwant.dao.EntityHandler;
+import com.iowniwant.util.DataBaseExecutor;
 import com.iowniwant.util.DataBaseManager;
+import com.iowniwant.util.UnitOfWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Implements basic CRUD operations using
  * @see DataBaseManager to get connection to the DataBase.
+ * Keeps no per-call state in fields: every JDBC handle lives on the stack
+ * of the invoking thread, so a single instance may serve concurrent requests.
+ * Reads take their connection from @see DataBaseManager#getReadConnection(),
+ * which may route them to a replica. Writes pin their owning user to the
+ * primary once they committed, see @see DataBaseManager#pinToPrimary(Integer).
+ * <p>
+ * When the data is sharded, calls whose owning user is known, see
+ * @see #getShardKey(Serializable) and @see #getShardKeyOfId(Integer), go to
+ * the user's shard; the others go to every shard, only the one holding the
+ * row finds it. getAll gathers the shards in parallel.
  * @param <T> type of object that implements
  * @see Serializable interface.
  */
 
 abstract class AbstractDaoImpl<T extends Serializable> implements AbstractDAO<T> {
     private static final Logger log = LoggerFactory.getLogger(AbstractDaoImpl.class);
-    DataBaseManager dbManager = DataBaseManager.getInstance();
-    private Connection connection;
-    private PreparedStatement prepStatement;
-    private ResultSet resultSet;
+    private static final int DEFAULT_FETCH_SIZE = 500;
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+    /**
+     * Seconds a statement run by this thread may take, 0 for no limit. Set by
+     * @see AsyncDaoImpl for the calls it runs, whose futures cannot interrupt them.
+     */
+    static final ThreadLocal<Integer> QUERY_TIMEOUT = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return 0;
+        }
+    };
+    final DataBaseManager dbManager = DataBaseManager.getInstance();
 
     /**
      * {@inheritDoc}
      */
     @Override
     public T create(T entity) {
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        pin(getShardKey(entity));
         try {
-            connection = dbManager.getConnection();
+            connection = dbManager.getConnectionFor(getShardKey(entity));
             String query = getCreateQuery();
-            prepStatement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+            prepStatement = limit(connection.prepareStatement(query));
             fillCreateStatement(prepStatement, entity);
-            int i = prepStatement.executeUpdate();
-            log.debug("is creation executed : {}", i == 1);
-
-            resultSet = prepStatement.getGeneratedKeys();
+            // the insert returns the complete row, no second round trip needed
+            resultSet = prepStatement.executeQuery();
             if (resultSet.next()) {
-                int generatedID = resultSet.getInt(1);
-                log.debug("creating entity with id: {}", generatedID);
-                return getById(generatedID);
+                T created = newCreatedRowMapper(entity).mapRow(resultSet);
+                log.debug("created entity: {}", created);
+                return created;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         } finally {
             if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
             if (prepStatement != null)      try { prepStatement.close(); } catch (SQLException ignored) {}
@@ -58,15 +94,34 @@ abstract class AbstractDaoImpl<T extends Serializable> implements AbstractDAO<T>
      */
     @Override
     public void delete(Integer id) {
+        pin(getShardKeyOfId(id));
+        for (Integer shard : shardsOf(getShardKeyOfId(id))) {
+            delete(shardConnection(shard), id);
+        }
+    }
+
+    /**
+     * Applies the query timeout of the current thread, see @see #QUERY_TIMEOUT.
+     * @param statement statement to be limited.
+     * @return the same statement.
+     */
+    private static PreparedStatement limit(PreparedStatement statement) throws SQLException {
+        int seconds = QUERY_TIMEOUT.get();
+        if (seconds > 0)
+            statement.setQueryTimeout(seconds);
+        return statement;
+    }
+
+    private void delete(Connection connection, Integer id) {
+        PreparedStatement prepStatement = null;
         try {
-            connection = dbManager.getConnection();
             String query = getDeleteQuery();
-            prepStatement = connection.prepareStatement(query);
+            prepStatement = limit(connection.prepareStatement(query));
             prepStatement.setInt(1, id);
             log.debug("deleting entity with id: {}", id);
             prepStatement.execute();
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         } finally {
             if (prepStatement != null)      try { prepStatement.close(); } catch (SQLException ignored) {}
             if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
@@ -78,15 +133,25 @@ abstract class AbstractDaoImpl<T extends Serializable> implements AbstractDAO<T>
      */
     @Override
     public T update(T entity) {
+        T updated = null;
+        pin(getShardKey(entity));
+        for (Integer shard : shardsOf(getShardKey(entity))) {
+            if (update(shardConnection(shard), entity) != null)
+                updated = entity;
+        }
+        return updated;
+    }
+
+    private T update(Connection connection, T entity) {
+        PreparedStatement prepStatement = null;
         try {
-            connection = dbManager.getConnection();
             String query = getUpdateQuery();
-            prepStatement = connection.prepareStatement(query);
+            prepStatement = limit(connection.prepareStatement(query));
             fillUpdateStatement(prepStatement, entity);
-            prepStatement.executeUpdate();
-            return entity;
+            // no row of that id, e.g. on the other shards of a fan-out
+            return prepStatement.executeUpdate() == 0 ? null : entity;
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         } finally {
             if (prepStatement != null) try { prepStatement.close(); } catch (SQLException ignored) {}
             if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
@@ -99,17 +164,30 @@ abstract class AbstractDaoImpl<T extends Serializable> implements AbstractDAO<T>
      */
     @Override
     public T getById(Integer id) {
+        Integer key = getShardKeyOfId(id);
+        if (key != null || !dbManager.isSharded())
+            return getById(getReadConnectionFor(key), id);
+        for (int shard = 0; shard < dbManager.getShardCount(); shard++) {
+            T entity = getById(dbManager.getShardConnection(shard), id);
+            if (entity != null)
+                return entity;
+        }
+        return null;
+    }
+
+    private T getById(Connection connection, Integer id) {
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
         try {
-            connection = dbManager.getConnection();
             String query = getGetByIdQuery();
-            prepStatement = connection.prepareStatement(query);
+            prepStatement = limit(connection.prepareStatement(query));
             prepStatement.setInt(1, id);
             resultSet = prepStatement.executeQuery();
             if (resultSet.next()) {
-                return getEntity(resultSet);
+                return newRowMapper().mapRow(resultSet);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         } finally {
             if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
             if (prepStatement != null)  try { prepStatement.close(); } catch (SQLException ignored) {}
@@ -123,17 +201,65 @@ abstract class AbstractDaoImpl<T extends Serializable> implements AbstractDAO<T>
      */
     @Override
     public List<T> getAll() {
+        if (!dbManager.isSharded())
+            return getAll(dbManager.getReadConnection());
+        return gatherAll();
+    }
+
+    /**
+     * Reads every shard on the fetch executor of @see DataBaseExecutor.
+     * Within a unit of work, or if the executor is saturated, the shards
+     * are read on the calling thread instead.
+     * @return objects of all shards, shard after shard.
+     */
+    private List<T> gatherAll() {
+        List<Future<List<T>>> parts = new ArrayList<>();
+        for (int shard = 0; shard < dbManager.getShardCount(); shard++) {
+            final int index = shard;
+            FutureTask<List<T>> part = new FutureTask<>(new Callable<List<T>>() {
+                @Override
+                public List<T> call() {
+                    return getAll(dbManager.getShardConnection(index));
+                }
+            });
+            try {
+                if (UnitOfWork.current() != null)
+                    part.run();
+                else
+                    DataBaseExecutor.getInstance().getFetchExecutor().execute(part);
+            } catch (RejectedExecutionException e) {
+                part.run();
+            }
+            parts.add(part);
+        }
         List<T> list = new ArrayList<>();
         try {
-            connection = dbManager.getConnection();
+            for (Future<List<T>> part : parts) {
+                list.addAll(part.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while gathering shards", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not read a shard", e.getCause());
+        }
+        return list;
+    }
+
+    private List<T> getAll(Connection connection) {
+        List<T> list = new ArrayList<>();
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
             String query = getGetAllQuery();
-            prepStatement = connection.prepareStatement(query);
+            prepStatement = limit(connection.prepareStatement(query));
             resultSet = prepStatement.executeQuery();
+            RowMapper<T> mapper = newRowMapper();
             while (resultSet.next()) {
-                list.add(getEntity(resultSet));
+                list.add(mapper.mapRow(resultSet));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         } finally {
             if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
             if (prepStatement != null) try { prepStatement.close(); } catch (SQLException ignored) {}
@@ -142,12 +268,423 @@ abstract class AbstractDaoImpl<T extends Serializable> implements AbstractDAO<T>
         return list;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Integer> createAll(Collection<T> entities) {
+        for (T entity : entities) {
+            pin(getShardKey(entity));
+        }
+        if (!dbManager.isSharded())
+            return createAll((Integer) null, entities);
+        // ids are generated per shard, put them back into the order of the entities
+        List<T> ordered = new ArrayList<>(entities);
+        Map<Integer, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            Integer shard = shardOf(getShardKey(ordered.get(i)));
+            if (!positions.containsKey(shard))
+                positions.put(shard, new ArrayList<Integer>());
+            positions.get(shard).add(i);
+        }
+        Integer[] ids = new Integer[ordered.size()];
+        boolean done = true;
+        for (Map.Entry<Integer, List<Integer>> group : positions.entrySet()) {
+            List<T> shardEntities = new ArrayList<>(group.getValue().size());
+            for (int position : group.getValue()) {
+                shardEntities.add(ordered.get(position));
+            }
+            List<Integer> shardIds = createAll(group.getKey(), shardEntities);
+            if (shardIds == null) {
+                done = false;
+                continue;
+            }
+            for (int i = 0; i < shardIds.size(); i++) {
+                ids[group.getValue().get(i)] = shardIds.get(i);
+            }
+        }
+        return done ? Arrays.asList(ids) : null;
+    }
+
+    private List<Integer> createAll(Integer shard, Collection<T> entities) {
+        final List<Integer> ids = new ArrayList<>(entities.size());
+        boolean done = executeBatch(shard, getBatchCreateQuery(), entities, true, new BatchFiller<T>() {
+            @Override
+            public void fill(PreparedStatement prepStatement, List<T> chunk) throws SQLException {
+                for (T entity : chunk) {
+                    fillCreateStatement(prepStatement, entity);
+                    prepStatement.addBatch();
+                }
+            }
+
+            @Override
+            public void collect(ResultSet generatedKeys) throws SQLException {
+                while (generatedKeys.next()) {
+                    ids.add(generatedKeys.getInt(1));
+                }
+            }
+        });
+        log.debug("batch creation executed: {}, ids: {}", done, ids);
+        return done ? ids : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updateAll(Collection<T> entities) {
+        for (T entity : entities) {
+            pin(getShardKey(entity));
+        }
+        BatchFiller<T> filler = new BatchFiller<T>() {
+            @Override
+            public void fill(PreparedStatement prepStatement, List<T> chunk) throws SQLException {
+                for (T entity : chunk) {
+                    fillUpdateStatement(prepStatement, entity);
+                    prepStatement.addBatch();
+                }
+            }
+        };
+        if (!dbManager.isSharded())
+            return executeBatch(null, getUpdateQuery(), entities, false, filler);
+        Map<Integer, List<T>> groups = new LinkedHashMap<>();
+        for (T entity : entities) {
+            for (Integer shard : shardsOf(getShardKey(entity))) {
+                if (!groups.containsKey(shard))
+                    groups.put(shard, new ArrayList<T>());
+                groups.get(shard).add(entity);
+            }
+        }
+        boolean done = true;
+        for (Map.Entry<Integer, List<T>> group : groups.entrySet()) {
+            done &= executeBatch(group.getKey(), getUpdateQuery(),
+                    group.getValue(), false, filler);
+        }
+        return done;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteAll(Collection<Integer> ids) {
+        log.debug("deleting entities with ids: {}", ids);
+        for (Integer id : ids) {
+            pin(getShardKeyOfId(id));
+        }
+        BatchFiller<Integer> filler = new BatchFiller<Integer>() {
+            @Override
+            public void fill(PreparedStatement prepStatement, List<Integer> chunk) throws SQLException {
+                Array array = prepStatement.getConnection().createArrayOf("integer", chunk.toArray());
+                prepStatement.setArray(1, array);
+                prepStatement.addBatch();
+            }
+        };
+        if (!dbManager.isSharded())
+            return executeBatch(null, getDeleteAllQuery(), ids, false, filler);
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            for (Integer shard : shardsOf(getShardKeyOfId(id))) {
+                if (!groups.containsKey(shard))
+                    groups.put(shard, new ArrayList<Integer>());
+                groups.get(shard).add(id);
+            }
+        }
+        boolean done = true;
+        for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+            done &= executeBatch(group.getKey(), getDeleteAllQuery(),
+                    group.getValue(), false, filler);
+        }
+        return done;
+    }
+
+    /**
+     * @param key owning user of the data or null if unknown.
+     * @return positions of the shards the data may live on: the user's shard,
+     * every shard if the user is unknown, a single null standing for the
+     * primary if the data is not sharded.
+     */
+    private List<Integer> shardsOf(Integer key) {
+        if (!dbManager.isSharded())
+            return Collections.singletonList(null);
+        if (key != null)
+            return Collections.singletonList(dbManager.getShardOf(key));
+        List<Integer> shards = new ArrayList<>();
+        for (int shard = 0; shard < dbManager.getShardCount(); shard++) {
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    /**
+     * @param key owning user of the data or null if unknown.
+     * @return connection @see #getById(Integer) reads the row with.
+     */
+    Connection getReadConnectionFor(Integer key) {
+        return dbManager.getReadConnectionFor(key);
+    }
+
+    /**
+     * Pins the owning user of written data to the primary once the write
+     * committed, for the following reads to see it.
+     * @param key owning user of the data or null if unknown.
+     */
+    private void pin(final Integer key) {
+        if (key == null)
+            return;
+        UnitOfWork.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                dbManager.pinToPrimary(key);
+            }
+        });
+    }
+
+    /**
+     * New rows of an unknown owner go to the primary, like a single create.
+     */
+    private Integer shardOf(Integer key) {
+        return key == null ? null : dbManager.getShardOf(key);
+    }
+
+    /**
+     * @param shard position of the shard, null for the primary.
+     */
+    private Connection shardConnection(Integer shard) {
+        return shard == null ? dbManager.getConnection() : dbManager.getShardConnection(shard);
+    }
+
+    /**
+     * Sends the items to the DataBase chunk by chunk within one transaction,
+     * which is rolled back as a whole if any chunk fails.
+     * @param shard position of the shard the transaction runs on, null for the primary.
+     * @param query statement executed for every item or chunk.
+     * @param items items to be sent.
+     * @param generatedKeys whether the statement returns generated keys.
+     * @param filler adds the batch entries of one chunk.
+     * @return true if the transaction was committed.
+     */
+    private <E> boolean executeBatch(Integer shard, String query, Collection<E> items,
+                                     boolean generatedKeys, BatchFiller<E> filler) {
+        if (items.isEmpty())
+            return true;
+        int chunkSize = getChunkSize();
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        try {
+            connection = shardConnection(shard);
+            connection.setAutoCommit(false);
+            prepStatement = generatedKeys
+                    ? connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)
+                    : connection.prepareStatement(query);
+            List<E> chunk = new ArrayList<>(Math.min(chunkSize, items.size()));
+            for (E item : items) {
+                chunk.add(item);
+                if (chunk.size() == chunkSize) {
+                    executeChunk(prepStatement, chunk, generatedKeys, filler);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                executeChunk(prepStatement, chunk, generatedKeys, filler);
+            }
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            if (connection != null) try { connection.rollback(); } catch (SQLException ignored) {}
+            failed(e);
+        } finally {
+            if (prepStatement != null) try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.setAutoCommit(true); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+        return false;
+    }
+
+    private <E> void executeChunk(PreparedStatement prepStatement, List<E> chunk, boolean generatedKeys,
+                                  BatchFiller<E> filler) throws SQLException {
+        filler.fill(prepStatement, chunk);
+        prepStatement.executeBatch();
+        log.debug("executed batch of {}", chunk.size());
+        if (generatedKeys) {
+            ResultSet keys = prepStatement.getGeneratedKeys();
+            try {
+                filler.collect(keys);
+            } finally {
+                keys.close();
+            }
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Reports a failed statement. PostgreSQL aborts the transaction the
+     * statement ran in, so the active @see UnitOfWork is marked
+     * rollback-only: its later statements fail anyway, and committing it
+     * must not report the request as done.
+     * @param e the failure of the statement.
+     */
+    static void failed(SQLException e) {
+        e.printStackTrace();
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null)
+            work.setRollbackOnly();
+    }
+
+    /**
+     * @return number of rows sent per batch, the <code>batch.chunk.size</code> setting.
+     */
+    int getChunkSize() {
+        return Math.max(1, dbManager.getIntSetting("batch.chunk.size", DEFAULT_CHUNK_SIZE));
+    }
+
+    /**
+     * Adds the entries of one chunk to a batch statement.
+     * @param <E> type of the batched items.
+     */
+    private abstract static class BatchFiller<E> {
+        abstract void fill(PreparedStatement prepStatement, List<E> chunk) throws SQLException;
+
+        void collect(ResultSet generatedKeys) throws SQLException {
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void getAll(EntityHandler<? super T> handler) {
+        CloseableIterator<T> iterator = iterateAll();
+        try {
+            while (iterator.hasNext()) {
+                handler.handle(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The number of rows fetched per round trip is the
+     * <code>stream.fetch.size</code> setting.
+     * @throws IllegalStateException if the query could not be executed.
+     */
+    @Override
+    public CloseableIterator<T> iterateAll() {
+        if (!dbManager.isSharded())
+            return iterate(dbManager.getReadConnection());
+        return new CloseableIterator<T>() {
+            // the cursor of one shard is open at a time
+            private int shard = -1;
+            private CloseableIterator<T> current;
+
+            @Override
+            public boolean hasNext() {
+                while (current == null || !current.hasNext()) {
+                    if (current != null)
+                        current.close();
+                    current = null;
+                    if (shard + 1 >= dbManager.getShardCount())
+                        return false;
+                    current = iterate(dbManager.getShardConnection(++shard));
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                if (current != null)
+                    current.close();
+                current = null;
+                shard = dbManager.getShardCount();
+            }
+        };
+    }
+
+    private CloseableIterator<T> iterate(Connection connection) {
+        int fetchSize = dbManager.getIntSetting("stream.fetch.size", DEFAULT_FETCH_SIZE);
+        log.debug("streaming all entities, fetch size: {}", fetchSize);
+        try {
+            return new ResultSetIterator<>(connection, getGetAllQuery(),
+                    fetchSize, newStreamingRowMapper());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not open streaming query", e);
+        }
+    }
+
+    /**
+     * Tells which user owns the object, used to pick the shard when the
+     * data is sharded. Unknown by default.
+     * @param entity object of type T.
+     * @return identifier of the owning user or null if unknown.
+     */
+    Integer getShardKey(T entity) {
+        return null;
+    }
+
+    /**
+     * Tells which user owns the object with the given identifier. Unknown
+     * by default, the identifier alone does not tell.
+     * @param id object identifier.
+     * @return identifier of the owning user or null if unknown.
+     */
+    Integer getShardKeyOfId(Integer id) {
+        return null;
+    }
+
+    /**
+     * Provides the mapper for the rows of a single query. By default every
+     * row is handed to getEntity; DAOs that fetch related entities in the same
+     * statement override it to share state between the rows of one query.
+     * @return a new mapper, used for one query only.
+     */
+    RowMapper<T> newRowMapper() {
+        return new RowMapper<T>() {
+            @Override
+            public T mapRow(ResultSet resultSet) {
+                return getEntity(resultSet);
+            }
+        };
+    }
+
+    /**
+     * Provides the mapper for the row returned by the create query.
+     * @param entity the transient object being persisted.
+     * @return a new mapper, used for the created row only.
+     */
+    RowMapper<T> newCreatedRowMapper(T entity) {
+        return newRowMapper();
+    }
+
+    /**
+     * Provides the mapper for a streamed query, which may see any number
+     * of rows, so it must not accumulate state per row.
+     * @return a new mapper, used for one streamed query only.
+     */
+    RowMapper<T> newStreamingRowMapper() {
+        return newRowMapper();
+    }
+
     public abstract void fillCreateStatement(PreparedStatement prepStatement, T entity);
     public abstract void fillUpdateStatement(PreparedStatement prepStatement, T entity);
     public abstract T getEntity(ResultSet resultSet);
 
     public abstract String getCreateQuery();
+    public abstract String getBatchCreateQuery();
     public abstract String getDeleteQuery();
+    public abstract String getDeleteAllQuery();
     public abstract String getUpdateQuery();
     public abstract String getGetByIdQuery();
     public abstract String getGetAllQuery();
@@ -0,0 +1,133 @@
+package com.iowniwant.dao.implementation;
+
+import com.iowniwant.dao.AbstractDAO;
+import com.iowniwant.dao.AsyncDAO;
+import com.iowniwant.util.DataBaseExecutor;
+import com.iowniwant.util.DataBaseManager;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the calls of a blocking @see AbstractDAO on an executor. By default
+ * that is the fetch executor of @see DataBaseExecutor, bounded like the
+ * connection pool; when it is saturated the returned future fails with a
+ * RejectedExecutionException instead of the call throwing.
+ * <p>
+ * Cancelling a returned future does not stop the call. Instead the
+ * statements of the call run with a query timeout derived from the
+ * <code>async.dao.timeout.ms</code> setting, rounded up to whole seconds.
+ * @param <T> the type of object to be manipulated.
+ */
+public class AsyncDaoImpl<T> implements AsyncDAO<T> {
+    private static final int DEFAULT_TIMEOUT_MILLIS = 5000;
+    private final AbstractDAO<T> dao;
+    private final Executor executor;
+    private final int queryTimeoutSeconds;
+
+    /**
+     * @param dao blocking DAO doing the work.
+     */
+    public AsyncDaoImpl(AbstractDAO<T> dao) {
+        this(dao, DataBaseExecutor.getInstance().getFetchExecutor());
+    }
+
+    /**
+     * @param dao blocking DAO doing the work.
+     * @param executor executor the calls run on.
+     */
+    public AsyncDaoImpl(AbstractDAO<T> dao, Executor executor) {
+        this.dao = dao;
+        this.executor = executor;
+        int timeout = DataBaseManager.getInstance().getIntSetting("async.dao.timeout.ms", DEFAULT_TIMEOUT_MILLIS);
+        this.queryTimeoutSeconds = (timeout + 999) / 1000;
+    }
+
+    @Override
+    public CompletableFuture<T> create(final T entity) {
+        return submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return dao.create(entity);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(final Integer id) {
+        return submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                dao.delete(id);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<T> update(final T entity) {
+        return submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return dao.update(entity);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<T> getById(final Integer id) {
+        return submit(new Callable<T>() {
+            @Override
+            public T call() {
+                return dao.getById(id);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<T>> getAll() {
+        return submit(new Callable<List<T>>() {
+            @Override
+            public List<T> call() {
+                return dao.getAll();
+            }
+        });
+    }
+
+    /**
+     * Runs the call on the executor.
+     * @param call blocking DAO call.
+     * @return future completing with the result of the call or the exception it threw.
+     */
+    protected <R> CompletableFuture<R> submit(final Callable<R> call) {
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    AbstractDaoImpl.QUERY_TIMEOUT.set(queryTimeoutSeconds);
+                    try {
+                        future.complete(call.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    } finally {
+                        AbstractDaoImpl.QUERY_TIMEOUT.remove();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * @return blocking DAO doing the work.
+     */
+    protected AbstractDAO<T> getDao() {
+        return dao;
+    }
+}
@@ -1,33 +1,78 @@
 package com.iowniwant.dao.implementation;
 
+import com.iowniwant.dao.AbstractGoalDAO;
 import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalQuery;
+import com.iowniwant.model.Page;
 import com.iowniwant.model.User;
+import com.iowniwant.util.Cursors;
+import com.iowniwant.util.LruCache;
+import com.iowniwant.util.UnitOfWork;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Fills the <code>PreparedStatement</code> with given
  * @see Goal entity fields.
+ * The Goals of a user are cached as one immutable list, ordered by goal_id.
+ * A created Goal is inserted into the cached list of its user at its place
+ * by goal_id; updates and deletes drop the list, since deleting renumbers
+ * the following goals. The owner of every cached goal is kept aside, so a
+ * write knowing only goal ids finds the list to drop without a scan.
+ * Within a @see com.iowniwant.util.UnitOfWork writes drop the list instead,
+ * once right away and once more after the transaction completed.
+ * The cache is bounded by the total number of cached Goals across users,
+ * and filled from the primary, never from a replica that may lag behind.
+ * Callers get copies of the cached Goals and their users, never the cached
+ * instances themselves.
  */
-public class GoalDao extends AbstractDaoImpl<Goal> {
-    private static GoalDao instance;
-    private GoalDao() {}
+public class GoalDao extends AbstractDaoImpl<Goal> implements AbstractGoalDAO {
+    private static final int DEFAULT_CACHE_GOALS = 20000;
+    private static final int DEFAULT_CACHE_TTL_MILLIS = 60000;
+
+    private final LruCache<Integer, List<Goal>> goalsByUser;
+    // user of every cached goal, guarded by the monitor of goalsByUser
+    private final Map<Integer, Integer> ownerByGoal = new HashMap<>();
+
+    private GoalDao() {
+        goalsByUser = new LruCache<Integer, List<Goal>>(
+                dbManager.getIntSetting("goal.cache.max.goals", DEFAULT_CACHE_GOALS),
+                dbManager.getIntSetting("goal.cache.ttl.ms", DEFAULT_CACHE_TTL_MILLIS)) {
+            @Override
+            protected int weigh(List<Goal> goals) {
+                // an empty list still takes an entry
+                return goals.size() + 1;
+            }
+
+            @Override
+            protected void removed(Integer userId, List<Goal> goals) {
+                for (Goal goal : goals) {
+                    ownerByGoal.remove(goal.getId());
+                }
+            }
+        };
+    }
+
+    private static class Holder {
+        private static final GoalDao INSTANCE = new GoalDao();
+    }
 
     /**
      * Provides GoalDao instance.
      * @return Every time the same GoalDao object is invoked.
      */
-    public static GoalDao getInstance (){
-        if (instance == null) {
-            instance = new GoalDao();
-        }
-        return instance;
+    public static GoalDao getInstance() {
+        return Holder.INSTANCE;
     }
 
-    private UserDao userDao = UserDao.getInstance();
-
     /**
      * Fills the <code>PreparedStatement</code> with the given Goal entity fields
      * in order to persist the Goal in the DataBase
@@ -44,7 +89,7 @@ public class GoalDao extends AbstractDaoImpl<Goal> {
             prepStatement.setString(5, entity.getNotes());
             prepStatement.setInt(6, entity.getUser().getId());
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
 
     }
@@ -65,12 +110,13 @@ public class GoalDao extends AbstractDaoImpl<Goal> {
             prepStatement.setString(5, entity.getNotes());
             prepStatement.setInt(6, entity.getId());
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
     }
 
     /**
-     * Creates Goal entity providing <code>resultSet</code> and a user to the
+     * Creates Goal entity providing <code>resultSet</code> and the user joined
+     * to the same row to the
      * @see Goal class constructor.
      * @param resultSet a table of data representing a database result set.
      * @return Goal entity.
@@ -78,40 +124,142 @@ public class GoalDao extends AbstractDaoImpl<Goal> {
     @Override
     public Goal getEntity(ResultSet resultSet) {
         try {
-            int user_id = resultSet.getInt("user_id");
-            User user = userDao.getById(user_id);
-            return new Goal(resultSet, user);
+            return newRowMapper().mapRow(resultSet);
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
         return null;
     }
 
+    /**
+     * Goal queries join <code>iowniwant.user</code>, so the owner is read from
+     * the same row. Rows of one query that belong to the same user share a
+     * single User instance, kept in a per-query identity map.
+     * @return mapper building Goals together with their users.
+     */
+    @Override
+    RowMapper<Goal> newRowMapper() {
+        return new RowMapper<Goal>() {
+            private final Map<Integer, User> users = new HashMap<>();
+
+            @Override
+            public Goal mapRow(ResultSet resultSet) throws SQLException {
+                int user_id = resultSet.getInt("user_id");
+                User user = users.get(user_id);
+                if (user == null) {
+                    user = new User(resultSet);
+                    users.put(user_id, user);
+                }
+                return new Goal(resultSet, user);
+            }
+        };
+    }
+
+    /**
+     * A stream may cover any number of users, so instead of an identity map
+     * only the user of the previous row is remembered: consecutive rows of
+     * the same user still share one instance while memory stays constant.
+     * @return mapper building Goals together with their users.
+     */
+    @Override
+    RowMapper<Goal> newStreamingRowMapper() {
+        return new RowMapper<Goal>() {
+            private User last;
+
+            @Override
+            public Goal mapRow(ResultSet resultSet) throws SQLException {
+                int user_id = resultSet.getInt("user_id");
+                if (last == null || last.getId() != user_id) {
+                    last = new User(resultSet);
+                }
+                return new Goal(resultSet, last);
+            }
+        };
+    }
+
+    /**
+     * Goals live on the shard of their user.
+     * @param entity goal of the user.
+     * @return identifier of the goal's user or null if it has none.
+     */
+    @Override
+    Integer getShardKey(Goal entity) {
+        return entity.getUser() == null ? null : entity.getUser().getId();
+    }
+
     /**
      * Returns a List of all Goals associated with user,
-     * who's id is the userId parameter.
+     * who's id is the userId parameter, served from the cache if possible.
      * @param userId User identifier.
-     * @return List of Goals.
+     * @return unmodifiable List of Goals ordered by goal_id.
      */
+    @Override
     public List<Goal> getGoalsByUserId(Integer userId) {
+        List<Goal> cached = goalsByUser.get(userId);
+        if (cached != null)
+            return copyOf(cached);
+        long generation = goalsByUser.generation();
+        List<Goal> goals = Collections.unmodifiableList(loadGoalsByUserId(userId));
+        if (!UnitOfWork.isDirty())
+            remember(userId, goals, generation);
+        return copyOf(goals);
+    }
+
+    /**
+     * Caches the goals of the user unless the cache was invalidated since
+     * the generation was read, as the goals may predate the invalidation.
+     */
+    private void remember(Integer userId, List<Goal> goals, long generation) {
+        synchronized (goalsByUser) {
+            if (!goalsByUser.putIfCurrent(userId, goals, generation) || goalsByUser.peek(userId) != goals)
+                return;
+            for (Goal goal : goals) {
+                ownerByGoal.put(goal.getId(), userId);
+            }
+        }
+    }
+
+    /**
+     * @return copies of the goals, those of one user sharing one copy of the user.
+     */
+    private static List<Goal> copyOf(List<Goal> goals) {
+        List<Goal> copies = new ArrayList<>(goals.size());
+        Map<Integer, User> users = new HashMap<>();
+        for (Goal goal : goals) {
+            User user = goal.getUser();
+            if (user != null) {
+                User copy = users.get(user.getId());
+                if (copy == null) {
+                    copy = new User(user);
+                    users.put(user.getId(), copy);
+                }
+                user = copy;
+            }
+            copies.add(new Goal(goal, user));
+        }
+        return Collections.unmodifiableList(copies);
+    }
+
+    private List<Goal> loadGoalsByUserId(Integer userId) {
         List<Goal> goals = new ArrayList<>();
-        User user = userDao.getById(userId);
 
         Connection connection = null;
         PreparedStatement prepStatement = null;
         ResultSet resultSet = null;
         try {
-            connection = dbManager.getConnection();
+            // cached, so not read from a replica that may lag behind
+            connection = dbManager.getConnectionFor(userId);
             String query = getGoalByUserId();
             prepStatement = connection.prepareStatement(query);
             prepStatement.setInt(1, userId);
 
             resultSet = prepStatement.executeQuery();
+            RowMapper<Goal> mapper = newRowMapper();
             while (resultSet.next()) {
-                goals.add(new Goal(resultSet, user));
+                goals.add(mapper.mapRow(resultSet));
             }
         } catch (SQLException e){
-            e.printStackTrace();
+            failed(e);
         } finally {
             if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
             if (prepStatement != null)      try { prepStatement.close(); } catch (SQLException ignored) {}
@@ -122,20 +270,380 @@ public class GoalDao extends AbstractDaoImpl<Goal> {
     }
 
     /**
-     * @return query to retrieve all Goals_Views from the DataBase using user_id.
+     * Returns one page of the Goals associated with user, ordered by goal_id.
+     * Pages are sliced from the cached list of the user if it is cached.
+     * Otherwise the page is read on its own, seeking past the goal encoded
+     * in the cursor instead of skipping rows, so every page costs the same
+     * regardless of its position, and no page loads all goals of the user.
+     * @param userId User identifier.
+     * @param cursor cursor of the requested page, null for the first one.
+     * @param limit maximum number of Goals on the page, capped at MAX_PAGE_SIZE.
+     * @return page of Goals with the cursor of the following page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    @Override
+    public Page<Goal> getGoalsPage(Integer userId, String cursor, int limit) {
+        int afterId = Cursors.decode(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<Goal> cached = goalsByUser.get(userId);
+        if (cached != null)
+            return slice(cached, cursor == null ? Integer.MIN_VALUE : afterId, pageSize);
+
+        List<Goal> goals = new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dbManager.getReadConnectionFor(userId);
+            prepStatement = connection.prepareStatement(getGoalPageByUserId());
+            prepStatement.setInt(1, userId);
+            prepStatement.setInt(2, afterId);
+            // one extra row tells whether another page follows
+            prepStatement.setInt(3, pageSize + 1);
+
+            resultSet = prepStatement.executeQuery();
+            RowMapper<Goal> mapper = newRowMapper();
+            while (resultSet.next()) {
+                goals.add(mapper.mapRow(resultSet));
+            }
+        } catch (SQLException e){
+            failed(e);
+        } finally {
+            if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
+            if (prepStatement != null)      try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+
+        if (goals.size() <= pageSize)
+            return new Page<>(goals, null);
+        goals = goals.subList(0, pageSize);
+        return new Page<>(goals, Cursors.encode(goals.get(pageSize - 1).getId()));
+    }
+
+    private static Page<Goal> slice(List<Goal> goals, int afterId, int pageSize) {
+        // goals are ordered by goal_id, binary search for the first one after the cursor
+        int low = 0, high = goals.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (goals.get(mid).getId() <= afterId) low = mid + 1;
+            else                                   high = mid;
+        }
+        int end = Math.min(low + pageSize, goals.size());
+        List<Goal> items = copyOf(goals.subList(low, end));
+        if (end == goals.size())
+            return new Page<>(items, null);
+        return new Page<>(items, Cursors.encode(items.get(items.size() - 1).getId()));
+    }
+
+    /**
+     * Reads the page straight from the DataBase, past the cache: each sort
+     * order has its (user_id, column, goal_id) index, and a page continues
+     * right after the sort value and goal_id of the previous one, so it is
+     * read in index order without counting the goals before it.
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<Goal> findGoals(Integer userId, GoalQuery query) {
+        GoalQuery.Sort sort = query.getSort();
+        int pageSize = query.getLimit() < 1 ? DEFAULT_PAGE_SIZE : Math.min(query.getLimit(), MAX_PAGE_SIZE);
+        List<Object> params = new ArrayList<>();
+        String sql = findQuery(userId, query, params);
+        params.add(pageSize + 1);
+
+        List<Goal> goals = new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dbManager.getReadConnectionFor(userId);
+            prepStatement = connection.prepareStatement(sql);
+            for (int i = 0; i < params.size(); i++) {
+                prepStatement.setObject(i + 1, params.get(i));
+            }
+
+            resultSet = prepStatement.executeQuery();
+            RowMapper<Goal> mapper = newRowMapper();
+            while (resultSet.next()) {
+                goals.add(mapper.mapRow(resultSet));
+            }
+        } catch (SQLException e){
+            failed(e);
+        } finally {
+            if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
+            if (prepStatement != null)      try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+
+        if (goals.size() <= pageSize)
+            return new Page<>(goals, null);
+        goals = goals.subList(0, pageSize);
+        Goal last = goals.get(pageSize - 1);
+        return new Page<>(goals, Cursors.encode(sort.name(), sort.format(last), last.getId()));
+    }
+
+    /**
+     * Builds the listing query of findGoals without its limit.
+     * @param userId User identifier.
+     * @param query sort, ranges and cursor of the listing.
+     * @param params receives the values of the query parameters, in order.
+     * @return query with one more parameter left, the limit.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    String findQuery(Integer userId, GoalQuery query, List<Object> params) {
+        GoalQuery.Sort sort = query.getSort();
+        String column = sort.getColumn();
+        Cursors.Keyset after = Cursors.decode(query.getCursor(), sort.name());
+        // a date range leaves out the goals without pubdate
+        boolean nullable = sort.isNullable() && !query.hasDateRange();
+
+        String base = getFindGoalByUserId().trim();
+        StringBuilder sql = new StringBuilder(base.endsWith(";") ? base.substring(0, base.length() - 1) : base);
+        params.add(userId);
+        // costs are REAL, bound as such so that a bound matches the cost it was read from
+        if (query.getMinCost() != null) {
+            sql.append(" AND g.cost >= ?");
+            params.add(query.getMinCost().floatValue());
+        }
+        if (query.getMaxCost() != null) {
+            sql.append(" AND g.cost <= ?");
+            params.add(query.getMaxCost().floatValue());
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND g.pubdate >= ?");
+            params.add(query.getFrom());
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND g.pubdate < ?");
+            params.add(query.getTo());
+        }
+        if (after != null) {
+            // goals without the property come last in ascending order, first in descending order
+            if (after.getValue() == null) {
+                sql.append(query.isDescending()
+                        ? " AND (" + column + " IS NOT NULL OR g.goal_id < ?)"
+                        : " AND " + column + " IS NULL AND g.goal_id > ?");
+            } else {
+                Object value = sort.parse(after.getValue());
+                if (value instanceof Double)
+                    value = ((Double) value).floatValue();
+                params.add(value);
+                params.add(value);
+                // spelled out rather than as a row comparison, so that the bound on the
+                // column is an index condition on every DataBase
+                String keyset = query.isDescending()
+                        ? column + " <= ? AND (" + column + " < ? OR g.goal_id < ?)"
+                        : column + " >= ? AND (" + column + " > ? OR g.goal_id > ?)";
+                sql.append(nullable && !query.isDescending()
+                        ? " AND (" + keyset + " OR " + column + " IS NULL)"
+                        : " AND " + keyset);
+            }
+            params.add(after.getLastId());
+        }
+        if (query.isDescending())
+            sql.append(" ORDER BY ").append(column).append(" DESC NULLS FIRST, g.goal_id DESC");
+        else
+            sql.append(" ORDER BY ").append(column).append(" ASC NULLS LAST, g.goal_id");
+        return sql.append(" LIMIT ?").toString();
+    }
+
+    /**
+     * Persists the Goal and inserts a copy into the cached list of its user.
+     * Goals created concurrently may arrive out of goal_id order, each one
+     * is put at its place by goal_id.
+     * {@inheritDoc}
+     */
+    @Override
+    public Goal create(Goal entity) {
+        Goal created = super.create(entity);
+        if (created != null && created.getUser() != null) {
+            int userId = created.getUser().getId();
+            if (UnitOfWork.current() != null) {
+                // not committed yet, other threads must not see it
+                invalidateGoalsOf(userId);
+                return created;
+            }
+            synchronized (goalsByUser) {
+                List<Goal> cached = goalsByUser.peek(userId);
+                if (cached != null) {
+                    int position = cached.size();
+                    while (position > 0 && cached.get(position - 1).getId() > created.getId()) {
+                        position--;
+                    }
+                    List<Goal> goals = new ArrayList<>(cached.size() + 1);
+                    goals.addAll(cached);
+                    goals.add(position, copyOf(Collections.singletonList(created)).get(0));
+                    goalsByUser.put(userId, Collections.unmodifiableList(goals));
+                    for (Goal goal : goals) {
+                        ownerByGoal.put(goal.getId(), userId);
+                    }
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Goal update(Goal entity) {
+        try {
+            return super.update(entity);
+        } finally {
+            invalidateOwnerOf(Collections.singleton(entity.getId()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Integer id) {
+        try {
+            super.delete(id);
+        } finally {
+            invalidateOwnerOf(Collections.singleton(id));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Integer> createAll(Collection<Goal> entities) {
+        try {
+            return super.createAll(entities);
+        } finally {
+            for (Goal entity : entities) {
+                if (entity.getUser() != null)
+                    invalidateGoalsOf(entity.getUser().getId());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updateAll(Collection<Goal> entities) {
+        try {
+            return super.updateAll(entities);
+        } finally {
+            List<Integer> ids = new ArrayList<>(entities.size());
+            for (Goal entity : entities) {
+                ids.add(entity.getId());
+            }
+            invalidateOwnerOf(ids);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteAll(Collection<Integer> ids) {
+        try {
+            return super.deleteAll(ids);
+        } finally {
+            invalidateOwnerOf(ids);
+        }
+    }
+
+    /**
+     * Drops the cached Goals of the user, e.g. after the user itself changed,
+     * now and again once the active unit of work completed.
+     * @param userId User identifier.
+     */
+    @Override
+    public void invalidateGoalsOf(final Integer userId) {
+        goalsByUser.invalidate(userId);
+        UnitOfWork.afterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                goalsByUser.invalidate(userId);
+            }
+        });
+    }
+
+    /**
+     * @return cache of Goal lists by user, exposing its hit, miss and eviction counters.
+     */
+    public LruCache<Integer, List<Goal>> getCache() {
+        return goalsByUser;
+    }
+
+    /**
+     * Drops every cached Goal list.
+     */
+    public void clearCache() {
+        goalsByUser.clear();
+    }
+
+    /**
+     * Only goal ids are known to update and delete, the cached lists
+     * holding one of them are found through the owners of the cached goals.
+     */
+    private void invalidateOwnerOf(Collection<Integer> goalIds) {
+        final Set<Integer> ids = new HashSet<>(goalIds);
+        invalidateOwners(ids);
+        UnitOfWork.afterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                invalidateOwners(ids);
+            }
+        });
+    }
+
+    private void invalidateOwners(Set<Integer> goalIds) {
+        synchronized (goalsByUser) {
+            for (Integer goalId : goalIds) {
+                Integer userId = ownerByGoal.get(goalId);
+                if (userId != null)
+                    goalsByUser.invalidate(userId);
+            }
+        }
+    }
+
+    /**
+     * @return query to retrieve a page of Goals joined with their user using user_id and the last seen goal_id.
+     */
+    private String getGoalPageByUserId() {
+        return dbManager.getQuery("get.goal.view.page.by.user.id");
+    }
+
+    /**
+     * @return query to retrieve Goals joined with their user using user_id, without order, for findQuery to complete.
+     */
+    private String getFindGoalByUserId() {
+        return dbManager.getQuery("find.goal.view.by.user.id");
+    }
+
+    /**
+     * @return query to retrieve all Goals joined with their user from the DataBase using user_id.
      */
     private String getGoalByUserId() {
         return dbManager.getQuery("get.goal.view.by.user.id");
     }
 
     /**
-     * @return query to insert Goal into the DataBase.
+     * @return query to insert Goal into the DataBase, returning the created row with its user and view id.
      */
     @Override
     public String getCreateQuery() {
         return dbManager.getQuery("create.goal");
     }
 
+    /**
+     * @return plain insert of a Goal, used for JDBC batches.
+     */
+    @Override
+    public String getBatchCreateQuery() {
+        return dbManager.getQuery("batch.create.goal");
+    }
+
     /**
      * @return query to delete Goal from the DataBase using goal_id.
      */
@@ -144,6 +652,14 @@ public class GoalDao extends AbstractDaoImpl<Goal> {
         return dbManager.getQuery("delete.goal.by.id");
     }
 
+    /**
+     * @return query to delete Goals from the DataBase using an array of ids.
+     */
+    @Override
+    public String getDeleteAllQuery() {
+        return dbManager.getQuery("delete.goal.by.ids");
+    }
+
     /**
      * @return query to update Goal in the DataBase using goal_id.
      */
@@ -161,7 +677,7 @@ public class GoalDao extends AbstractDaoImpl<Goal> {
     }
 
     /**
-     * @return query to retrieve Goal_View from the DataBase using goal_id.
+     * @return query to retrieve Goal from the DataBase using goal_id.
      */
     @Override
     public String getGetByIdQuery() {
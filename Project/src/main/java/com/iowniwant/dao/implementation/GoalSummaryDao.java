@@ -0,0 +1,58 @@
+package com.iowniwant.dao.implementation;
+
+import com.iowniwant.dao.AbstractGoalSummaryDAO;
+import com.iowniwant.model.GoalSummary;
+import com.iowniwant.util.DataBaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the <code>iowniwant.goal_summary</code> row of a user, which the
+ * goal triggers keep current, together with the salary from his user row.
+ * Both are primary key lookups on the shard of the user.
+ */
+public class GoalSummaryDao implements AbstractGoalSummaryDAO {
+    private final DataBaseManager dbManager = DataBaseManager.getInstance();
+
+    private GoalSummaryDao() {}
+
+    private static class Holder {
+        private static final GoalSummaryDao INSTANCE = new GoalSummaryDao();
+    }
+
+    /**
+     * Provides GoalSummaryDao instance.
+     * @return Every time the same GoalSummaryDao object is invoked.
+     */
+    public static GoalSummaryDao getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public GoalSummary getByUserId(Integer userId) {
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dbManager.getReadConnectionFor(userId);
+            prepStatement = connection.prepareStatement(dbManager.getQuery("get.goal.summary.by.user.id"));
+            prepStatement.setInt(1, userId);
+            resultSet = prepStatement.executeQuery();
+            if (resultSet.next()) {
+                return new GoalSummary(resultSet.getInt("user_id"), resultSet.getInt("goal_count"),
+                        resultSet.getDouble("total_cost"), resultSet.getDouble("max_cost"),
+                        resultSet.getDouble("month_salary"));
+            }
+        } catch (SQLException e) {
+            AbstractDaoImpl.failed(e);
+        } finally {
+            if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
+            if (prepStatement != null)  try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+        return null;
+    }
+}
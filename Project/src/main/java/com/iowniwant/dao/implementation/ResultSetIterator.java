@@ -0,0 +1,109 @@
+package com.iowniwant.dao.implementation;
+
+import com.iowniwant.dao.CloseableIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates a forward-only result set opened inside a read-only transaction,
+ * so that the driver fetches rows in chunks from a server-side cursor.
+ * Owns the statement and the connection and releases them once the rows
+ * are exhausted or the iterator is closed.
+ * @param <T> type of the mapped entities.
+ */
+class ResultSetIterator<T> implements CloseableIterator<T> {
+    private static final Logger log = LoggerFactory.getLogger(ResultSetIterator.class);
+
+    private final Connection connection;
+    private final PreparedStatement prepStatement;
+    private final ResultSet resultSet;
+    private final RowMapper<T> mapper;
+    private T next;
+    private boolean closed;
+
+    /**
+     * Opens the cursor for the given query.
+     * @param connection connection owned by the iterator from now on.
+     * @param query query to be streamed.
+     * @param fetchSize number of rows the driver fetches per round trip.
+     * @param mapper mapper of the rows.
+     * @throws SQLException if the query could not be executed; the connection is closed then.
+     */
+    ResultSetIterator(Connection connection, String query, int fetchSize, RowMapper<T> mapper)
+            throws SQLException {
+        this.connection = connection;
+        this.mapper = mapper;
+        PreparedStatement statement = null;
+        try {
+            // PostgreSQL only uses a cursor outside of auto-commit mode
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(query,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            this.prepStatement = statement;
+            this.resultSet = statement.executeQuery();
+        } catch (SQLException e) {
+            if (statement != null) try { statement.close(); } catch (SQLException ignored) {}
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null)
+            return true;
+        if (closed)
+            return false;
+        try {
+            if (resultSet.next()) {
+                next = mapper.mapRow(resultSet);
+                return true;
+            }
+        } catch (SQLException e) {
+            close();
+            throw new IllegalStateException("Streaming query failed", e);
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        T entity = next;
+        next = null;
+        return entity;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        log.debug("closing streaming cursor");
+        try { resultSet.close(); } catch (SQLException ignored) {}
+        try { prepStatement.close(); } catch (SQLException ignored) {}
+        release();
+    }
+
+    private void release() {
+        try {
+            connection.commit();
+            connection.setAutoCommit(true);
+        } catch (SQLException ignored) {}
+        try { connection.close(); } catch (SQLException ignored) {}
+    }
+}
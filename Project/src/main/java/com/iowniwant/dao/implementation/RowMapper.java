@@ -0,0 +1,20 @@
+package com.iowniwant.dao.implementation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Turns the current row of a <code>ResultSet</code> into an entity.
+ * A mapper lives for the duration of one query, so it may keep state
+ * shared between the rows of that query.
+ * @param <T> type of the mapped entity.
+ */
+interface RowMapper<T> {
+
+    /**
+     * @param resultSet result set positioned on the row to be mapped.
+     * @return entity built from the current row.
+     * @throws SQLException if a column could not be read.
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+}
@@ -1,14 +1,35 @@
 package com.iowniwant.dao.implementation;
 
+import com.iowniwant.dao.AbstractTaskDAO;
 import com.iowniwant.model.Goal;
 import com.iowniwant.model.Task;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
-public class TaskDao extends AbstractDaoImpl<Task> {
+/**
+ * Fills the PreparedStatement with given
+ * @see Task entity fields.
+ */
+public class TaskDao extends AbstractDaoImpl<Task> implements AbstractTaskDAO {
     private TaskDao() {}
+
+    private static class Holder {
+        private static final TaskDao INSTANCE = new TaskDao();
+    }
+
+    /**
+     * Provides TaskDao instance.
+     * @return the same TaskDao object each time its invoked.
+     */
+    public static TaskDao getInstance() {
+        return Holder.INSTANCE;
+    }
+
     private GoalDao goalDao = GoalDao.getInstance();
 
     /**
@@ -23,7 +44,7 @@ public class TaskDao extends AbstractDaoImpl<Task> {
             prepStatement.setString(1, entity.getDescription());
             prepStatement.setInt(2, entity.getGoal().getId());
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
     }
 
@@ -39,7 +60,7 @@ public class TaskDao extends AbstractDaoImpl<Task> {
             prepStatement.setString(1, entity.getDescription());
             prepStatement.setInt(2, entity.getId());
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
     }
 
@@ -50,19 +71,93 @@ public class TaskDao extends AbstractDaoImpl<Task> {
             Goal goal = goalDao.getById(goal_id);
             return new Task(resultSet, goal);
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
         return null;
     }
 
     /**
-     * @return query to insert Task into the DataBase.
+     * The created row belongs to the goal the new task was given,
+     * so that goal is attached instead of being fetched again.
+     * @param entity the task being persisted.
+     * @return mapper attaching the task's own goal.
+     */
+    @Override
+    RowMapper<Task> newCreatedRowMapper(final Task entity) {
+        return new RowMapper<Task>() {
+            @Override
+            public Task mapRow(ResultSet resultSet) throws SQLException {
+                return new Task(resultSet, entity.getGoal());
+            }
+        };
+    }
+
+    /**
+     * Tasks live on the shard of their goal's user.
+     * @param entity task of the goal.
+     * @return identifier of the user owning the task's goal or null if unknown.
+     */
+    @Override
+    Integer getShardKey(Task entity) {
+        Goal goal = entity.getGoal();
+        return goal == null || goal.getUser() == null ? null : goal.getUser().getId();
+    }
+
+    /**
+     * Fetches the goal once and attaches it to all of its Tasks.
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Task> getTasksByGoalId(Integer goalId) {
+        List<Task> tasks = new ArrayList<>();
+        Goal goal = goalDao.getById(goalId);
+        if (goal == null)
+            return tasks;
+
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dbManager.getReadConnectionFor(goal.getUser() == null ? null : goal.getUser().getId());
+            prepStatement = connection.prepareStatement(getTaskByGoalId());
+            prepStatement.setInt(1, goalId);
+            resultSet = prepStatement.executeQuery();
+            while (resultSet.next()) {
+                tasks.add(new Task(resultSet, goal));
+            }
+        } catch (SQLException e) {
+            failed(e);
+        } finally {
+            if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
+            if (prepStatement != null)  try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+        return tasks;
+    }
+
+    /**
+     * @return query to retrieve the Tasks of a Goal ordered by task_id.
+     */
+    private String getTaskByGoalId() {
+        return dbManager.getQuery("get.task.view.by.goal.id");
+    }
+
+    /**
+     * @return query to insert Task into the DataBase, returning the created row with its view id.
      */
     @Override
     public String getCreateQuery() {
         return dbManager.getQuery("create.task");
     }
 
+    /**
+     * @return plain insert of a Task, used for JDBC batches.
+     */
+    @Override
+    public String getBatchCreateQuery() {
+        return dbManager.getQuery("batch.create.task");
+    }
+
     /**
      * @return query to delete Task from the DataBase using task_id.
      */
@@ -71,6 +166,14 @@ public class TaskDao extends AbstractDaoImpl<Task> {
         return dbManager.getQuery("delete.task.by.id");
     }
 
+    /**
+     * @return query to delete Tasks from the DataBase using an array of ids.
+     */
+    @Override
+    public String getDeleteAllQuery() {
+        return dbManager.getQuery("delete.task.by.ids");
+    }
+
     /**
      * @return query to update Task in the DataBase using task_id.
      */
@@ -88,7 +191,7 @@ public class TaskDao extends AbstractDaoImpl<Task> {
     }
 
     /**
-     * @return query to retrieve Task_View from the DataBase using task_id.
+     * @return query to retrieve Task from the DataBase using task_id.
      */
     @Override
     public String getGetByIdQuery() {
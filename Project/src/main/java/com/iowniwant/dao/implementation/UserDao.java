@@ -1,29 +1,59 @@
 package com.iowniwant.dao.implementation;
 
+import com.iowniwant.dao.AbstractUserDAO;
 import com.iowniwant.model.User;
+import com.iowniwant.util.LruCache;
+import com.iowniwant.util.UnitOfWork;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Fills the PreparedStatement with given
  * @see User entity fields.
+ * Lookups by id and by nickname are served from a bounded cache, which
+ * update and delete invalidate. Callers always get their own copy of the
+ * cached User, so mutating it does not leak into other requests. A lookup
+ * racing an update does not cache what it read, as the row may predate
+ * the update, see @see LruCache#putIfCurrent(Object, Object, long).
+ * Lookups missing the cache read the primary, never a replica that may
+ * lag behind.
+ * <p>
+ * When the users are sharded, the user directory on the primary hands out
+ * the id of a new user before the row is written to the shard that id maps
+ * to, and resolves nicknames to ids for getByNick. Unsharded, the triggers
+ * of migration V8 keep the directory in step with the users, so that
+ * sharding can be turned on later.
  */
-public class UserDao extends AbstractDaoImpl<User> {
-    private static UserDao instance;
-    private UserDao() {}
+public class UserDao extends AbstractDaoImpl<User> implements AbstractUserDAO {
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+    private static final int DEFAULT_CACHE_TTL_MILLIS = 60000;
+
+    private final LruCache<Integer, User> usersById;
+    private final LruCache<String, Integer> idsByNick;
+
+    private UserDao() {
+        int size = dbManager.getIntSetting("user.cache.max.size", DEFAULT_CACHE_SIZE);
+        int ttl = dbManager.getIntSetting("user.cache.ttl.ms", DEFAULT_CACHE_TTL_MILLIS);
+        usersById = new LruCache<>(size, ttl);
+        idsByNick = new LruCache<>(size, ttl);
+    }
+
+    private static class Holder {
+        private static final UserDao INSTANCE = new UserDao();
+    }
 
     /**
      * Provides UserDao instance.
      * @return the same UserDao object each time its invoked.
      */
-    public static UserDao getInstance (){
-        if (instance == null) {
-            instance = new UserDao();
-        }
-        return instance;
+    public static UserDao getInstance() {
+        return Holder.INSTANCE;
     }
 
     /**
@@ -42,7 +72,7 @@ public class UserDao extends AbstractDaoImpl<User> {
             prepStatement.setString(5, entity.getEmail());
             prepStatement.setDouble(6, entity.getMonthSalary());
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
     }
 
@@ -63,7 +93,7 @@ public class UserDao extends AbstractDaoImpl<User> {
             prepStatement.setDouble(6, entity.getMonthSalary());
             prepStatement.setInt(7, entity.getId());
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
     }
 
@@ -78,22 +108,230 @@ public class UserDao extends AbstractDaoImpl<User> {
         try {
             return new User(resultSet);
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         }
         return null;
     }
 
     /**
-     * Returns persistent object with given identifier.
+     * Registers the user in the directory first when the users are sharded.
+     * {@inheritDoc}
+     */
+    @Override
+    public User create(User entity) {
+        if (!dbManager.isSharded())
+            return super.create(entity);
+        Integer id = register(entity.getUserName());
+        if (id == null)
+            return null;
+        User created = createOnShard(id, entity);
+        if (created == null)
+            updateDirectory(getDeleteDirectoryQuery(), id);
+        return created;
+    }
+
+    /**
+     * New users need their id from the directory when the users are sharded,
+     * they are created one by one then.
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Integer> createAll(Collection<User> entities) {
+        if (!dbManager.isSharded())
+            return super.createAll(entities);
+        List<Integer> ids = new ArrayList<>(entities.size());
+        for (User entity : entities) {
+            User created = create(entity);
+            if (created == null)
+                return null;
+            ids.add(created.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Users live on the shard their own id maps to.
+     * @param entity user.
+     * @return identifier of the user.
+     */
+    @Override
+    Integer getShardKey(User entity) {
+        return entity.getId();
+    }
+
+    @Override
+    Integer getShardKeyOfId(Integer id) {
+        return id;
+    }
+
+    /**
+     * Users read by id are cached, they are read from the primary: a
+     * lagging replica would have the cache serve a stale row until it expires.
+     */
+    @Override
+    Connection getReadConnectionFor(Integer key) {
+        return dbManager.getConnectionFor(key);
+    }
+
+    /**
+     * Returns the cached User, loading it from the DataBase on a miss.
+     * {@inheritDoc}
+     */
+    @Override
+    public User getById(Integer id) {
+        User cached = usersById.get(id);
+        if (cached != null)
+            return new User(cached);
+        long generation = usersById.generation();
+        User user = super.getById(id);
+        remember(user, generation);
+        return copyOf(user);
+    }
+
+    /**
+     * Returns persistent object with given identifier, served from the
+     * cache when the nickname was looked up before.
      * @param nickname object identifier.
      * @return persistent User object with the given identifier or null if
      * there is no such persistent object.
      */
+    @Override
     public User getByNick(String nickname) {
+        Integer id = idsByNick.get(nickname);
+        User cached = id == null ? null : usersById.get(id);
+        // the nickname may have moved to another user since it was cached
+        if (cached != null && nickname.equals(cached.getUserName()))
+            return new User(cached);
+        long generation = usersById.generation();
+        User user = loadByNick(nickname);
+        remember(user, generation);
+        return copyOf(user);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public User update(User entity) {
+        try {
+            User updated = super.update(entity);
+            if (updated != null && dbManager.isSharded())
+                updateDirectory(getUpdateDirectoryQuery(), entity.getUserName(), entity.getId());
+            return updated;
+        } finally {
+            forget(entity.getId());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Integer id) {
+        try {
+            super.delete(id);
+            if (dbManager.isSharded())
+                updateDirectory(getDeleteDirectoryQuery(), id);
+        } finally {
+            forget(id);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updateAll(Collection<User> entities) {
+        try {
+            boolean done = super.updateAll(entities);
+            if (done && dbManager.isSharded()) {
+                for (User entity : entities) {
+                    updateDirectory(getUpdateDirectoryQuery(), entity.getUserName(), entity.getId());
+                }
+            }
+            return done;
+        } finally {
+            for (User entity : entities) {
+                forget(entity.getId());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteAll(Collection<Integer> ids) {
+        try {
+            boolean done = super.deleteAll(ids);
+            if (done && dbManager.isSharded()) {
+                for (Integer id : ids) {
+                    updateDirectory(getDeleteDirectoryQuery(), id);
+                }
+            }
+            return done;
+        } finally {
+            for (Integer id : ids) {
+                forget(id);
+            }
+        }
+    }
+
+    /**
+     * @return cache of Users by id, exposing its hit, miss and eviction counters.
+     */
+    public LruCache<Integer, User> getCache() {
+        return usersById;
+    }
+
+    /**
+     * Drops every cached User, e.g. when the DataBase was changed behind the DAO's back.
+     */
+    public void clearCache() {
+        usersById.clear();
+        idsByNick.clear();
+    }
+
+    /**
+     * @param generation generation of the cache read before the user was loaded.
+     */
+    private void remember(User user, long generation) {
+        if (user == null || UnitOfWork.isDirty())
+            return;
+        if (usersById.putIfCurrent(user.getId(), new User(user), generation))
+            idsByNick.put(user.getUserName(), user.getId());
+    }
+
+    /**
+     * Drops the user now and again once the active unit of work completed,
+     * so that no reader caches the row in between.
+     */
+    private void forget(final Integer id) {
+        usersById.invalidate(id);
+        UnitOfWork.afterCompletion(new Runnable() {
+            @Override
+            public void run() {
+                usersById.invalidate(id);
+            }
+        });
+        // cached goals carry their owner
+        GoalDao.getInstance().invalidateGoalsOf(id);
+    }
+
+    private static User copyOf(User user) {
+        return user == null ? null : new User(user);
+    }
+
+    private User loadByNick(String nickname) {
+        if (dbManager.isSharded()) {
+            Integer id = lookUpDirectory(nickname);
+            return id == null ? null : super.getById(id);
+        }
         Connection connection = null;
         PreparedStatement prepStatement = null;
         ResultSet resultSet = null;
         try {
+            // cached like the reads by id, and read right after the user registered
             connection = dbManager.getConnection();
             String query = getGetByNickQuery();
             prepStatement = connection.prepareStatement(query);
@@ -103,7 +341,7 @@ public class UserDao extends AbstractDaoImpl<User> {
                 return getEntity(resultSet);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            failed(e);
         } finally {
             if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
             if (prepStatement != null)  try { prepStatement.close(); } catch (SQLException ignored) {}
@@ -114,13 +352,149 @@ public class UserDao extends AbstractDaoImpl<User> {
     }
 
     /**
-     * @return query to insert User into the DataBase.
+     * @param nickname nickname of the new user.
+     * @return id handed out by the directory or null if SQLException was thrown,
+     * e.g. because the nickname is taken.
+     */
+    private Integer register(String nickname) {
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dbManager.getConnection();
+            prepStatement = connection.prepareStatement(getCreateDirectoryQuery());
+            prepStatement.setString(1, nickname);
+            resultSet = prepStatement.executeQuery();
+            if (resultSet.next())
+                return resultSet.getInt(1);
+        } catch (SQLException e) {
+            failed(e);
+        } finally {
+            if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
+            if (prepStatement != null)  try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+        return null;
+    }
+
+    private User createOnShard(Integer id, User entity) {
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dbManager.getConnectionFor(id);
+            prepStatement = connection.prepareStatement(getCreateWithIdQuery());
+            prepStatement.setInt(1, id);
+            prepStatement.setString(2, entity.getFirstName());
+            prepStatement.setString(3, entity.getLastName());
+            prepStatement.setString(4, entity.getUserName());
+            prepStatement.setString(5, entity.getPassword());
+            prepStatement.setString(6, entity.getEmail());
+            prepStatement.setDouble(7, entity.getMonthSalary());
+            resultSet = prepStatement.executeQuery();
+            if (resultSet.next())
+                return getEntity(resultSet);
+        } catch (SQLException e) {
+            failed(e);
+        } finally {
+            if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
+            if (prepStatement != null)  try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+        return null;
+    }
+
+    private Integer lookUpDirectory(String nickname) {
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
+            // a replica may not know a user who just registered
+            connection = dbManager.getConnection();
+            prepStatement = connection.prepareStatement(getGetDirectoryByNickQuery());
+            prepStatement.setString(1, nickname);
+            resultSet = prepStatement.executeQuery();
+            if (resultSet.next())
+                return resultSet.getInt(1);
+        } catch (SQLException e) {
+            failed(e);
+        } finally {
+            if (resultSet != null)  try { resultSet.close(); } catch (SQLException ignored) {}
+            if (prepStatement != null)  try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+        return null;
+    }
+
+    private void updateDirectory(String query, Object... parameters) {
+        Connection connection = null;
+        PreparedStatement prepStatement = null;
+        try {
+            connection = dbManager.getConnection();
+            prepStatement = connection.prepareStatement(query);
+            for (int i = 0; i < parameters.length; i++) {
+                prepStatement.setObject(i + 1, parameters[i]);
+            }
+            prepStatement.executeUpdate();
+        } catch (SQLException e) {
+            failed(e);
+        } finally {
+            if (prepStatement != null)  try { prepStatement.close(); } catch (SQLException ignored) {}
+            if (connection != null) try { connection.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * @return query to insert User with an id handed out by the directory, returning the created row.
+     */
+    private String getCreateWithIdQuery() {
+        return dbManager.getQuery("create.user.with.id");
+    }
+
+    /**
+     * @return query to register a nickname in the user directory, returning the new user_id.
+     */
+    private String getCreateDirectoryQuery() {
+        return dbManager.getQuery("create.user.directory");
+    }
+
+    /**
+     * @return query to change the nickname registered for a user_id.
+     */
+    private String getUpdateDirectoryQuery() {
+        return dbManager.getQuery("update.user.directory");
+    }
+
+    /**
+     * @return query to remove a user_id from the user directory.
+     */
+    private String getDeleteDirectoryQuery() {
+        return dbManager.getQuery("delete.user.directory.by.id");
+    }
+
+    /**
+     * @return query to resolve a nickname to its user_id.
+     */
+    private String getGetDirectoryByNickQuery() {
+        return dbManager.getQuery("get.user.directory.by.nick");
+    }
+
+    /**
+     * @return query to insert User into the DataBase, returning the created row.
      */
     @Override
     public String getCreateQuery() {
         return dbManager.getQuery("create.user");
     }
 
+    /**
+     * @return plain insert of a User, used for JDBC batches.
+     */
+    @Override
+    public String getBatchCreateQuery() {
+        return dbManager.getQuery("batch.create.user");
+    }
+
     /**
      * @return query to delete User from the DataBase.
      */
@@ -129,6 +503,14 @@ public class UserDao extends AbstractDaoImpl<User> {
         return dbManager.getQuery("delete.user.by.id");
     }
 
+    /**
+     * @return query to delete Users from the DataBase using an array of ids.
+     */
+    @Override
+    public String getDeleteAllQuery() {
+        return dbManager.getQuery("delete.user.by.ids");
+    }
+
     /**
      * @return query to update User in the DataBase.
      */
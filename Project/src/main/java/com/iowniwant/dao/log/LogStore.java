@@ -0,0 +1,226 @@
+package com.iowniwant.dao.log;
+
+import com.iowniwant.dao.memory.MemoryStore;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.Task;
+import com.iowniwant.model.User;
+import com.iowniwant.util.DataBaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @see MemoryStore whose users, goals and tasks live in a memory-mapped
+ * @see SegmentLog on the local disk instead of the heap, so that the
+ * in-memory DAOs keep their data across restarts without a DataBase.
+ * Only the positions of the records and the indexes of the store are held
+ * in the heap; they are rebuilt from the log when it is opened, which
+ * also cuts off a record a crash left half written.
+ * <p>
+ * Every write appends a record. Segments whose records have mostly been
+ * superseded are compacted in the background: their remaining records are
+ * appended anew and the segment file is deleted. Compaction holds the
+ * write lock of the store for one segment at a time.
+ * <p>
+ * Records are durable once the process has written them, a crash of the
+ * process loses nothing. Whether they survive a crash of the machine
+ * depends on <code>log.sync.writes</code>; without it they are forced to
+ * the disk when a segment is full and when the store is closed. A batch
+ * of writes is not atomic on the disk, a crash keeps its first records.
+ */
+public class LogStore extends MemoryStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(LogStore.class);
+    private static final byte USERS = 1;
+    private static final byte GOALS = 2;
+    private static final byte TASKS = 3;
+    private static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+    private static final int DEFAULT_COMPACTION_INTERVAL_MILLIS = 60000;
+
+    private final SegmentLog segments;
+    private final LogTable<User> userTable;
+    private final LogTable<Goal> goalTable;
+    private final LogTable<Task> taskTable;
+    private final double compactionRatio;
+    private ScheduledExecutorService compactor;
+
+    /**
+     * Provides the LogStore configured by the <code>log.*</code> settings,
+     * compacted in the background and closed when the JVM shuts down.
+     * @return the same LogStore object each time its invoked.
+     * @throws IllegalStateException if the log could not be opened.
+     */
+    public static LogStore getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final LogStore INSTANCE = openConfigured();
+    }
+
+    private static LogStore openConfigured() {
+        DataBaseManager dbManager = DataBaseManager.getInstance();
+        File directory = new File(dbManager.getSetting("log.directory", "iowniwant-log"));
+        try {
+            final LogStore store = open(directory,
+                    dbManager.getIntSetting("log.segment.bytes", DEFAULT_SEGMENT_BYTES),
+                    Double.parseDouble(dbManager.getSetting("log.compaction.ratio", "0.5")),
+                    Boolean.parseBoolean(dbManager.getSetting("log.sync.writes", "false")));
+            store.startCompaction(dbManager.getIntSetting("log.compaction.interval.ms",
+                    DEFAULT_COMPACTION_INTERVAL_MILLIS));
+            Runtime.getRuntime().addShutdownHook(new Thread("log-shutdown") {
+                @Override
+                public void run() {
+                    store.close();
+                }
+            });
+            return store;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open the log in " + directory.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Opens the log in the directory, creating it if needed, and replays it.
+     * @param directory directory holding the segment files.
+     * @param segmentBytes size of a segment file.
+     * @param compactionRatio segments with a smaller share of live records are compacted.
+     * @param sync whether every write is forced to the disk before it returns.
+     * @return store holding the entities of the log.
+     * @throws IOException if the segment files could not be opened.
+     */
+    public static LogStore open(File directory, int segmentBytes, double compactionRatio,
+                                boolean sync) throws IOException {
+        SegmentLog segments = new SegmentLog(directory, segmentBytes, sync);
+        LogStore store = new LogStore(segments, compactionRatio);
+        store.recover();
+        return store;
+    }
+
+    private LogStore(SegmentLog segments, double compactionRatio) {
+        this(segments, new LogTable<>(USERS, RecordCodec.USER, segments),
+                new LogTable<>(GOALS, RecordCodec.GOAL, segments),
+                new LogTable<>(TASKS, RecordCodec.TASK, segments), compactionRatio);
+    }
+
+    private LogStore(SegmentLog segments, LogTable<User> users, LogTable<Goal> goals,
+                     LogTable<Task> tasks, double compactionRatio) {
+        super(users, goals, tasks);
+        this.segments = segments;
+        this.userTable = users;
+        this.goalTable = goals;
+        this.taskTable = tasks;
+        this.compactionRatio = compactionRatio;
+    }
+
+    private void recover() {
+        final int[] lastIds = new int[TASKS + 1];
+        segments.replay(new SegmentLog.RecordVisitor() {
+            @Override
+            public void visit(long position, ByteBuffer body) {
+                byte kind = LogTable.kindOf(body);
+                tableOf(kind).recover(position, body);
+                // deleted ids count as well, they are not handed out again
+                lastIds[kind] = Math.max(lastIds[kind], body.getInt(2));
+            }
+        });
+        reindex(lastIds[USERS], lastIds[GOALS], lastIds[TASKS]);
+        log.info("log opened: {} users, {} goals, {} tasks",
+                userTable.size(), goalTable.size(), taskTable.size());
+    }
+
+    /**
+     * Compacts every sealed segment whose share of live records fell below
+     * the compaction ratio.
+     * @return number of segments compacted.
+     */
+    public int compact() {
+        int compacted = 0;
+        for (int number : segments.sealedSegments()) {
+            lock.writeLock().lock();
+            try {
+                if (segments.contains(number) && segments.liveRatio(number) < compactionRatio) {
+                    segments.scan(number, new SegmentLog.RecordVisitor() {
+                        @Override
+                        public void visit(long position, ByteBuffer body) {
+                            tableOf(LogTable.kindOf(body)).compact(position, body);
+                        }
+                    });
+                    // the records appended anew must be durable before their old copies go
+                    segments.flush();
+                    segments.drop(number);
+                    compacted++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (compacted > 0)
+            log.debug("compacted {} segments", compacted);
+        return compacted;
+    }
+
+    /**
+     * Runs compaction on a background thread until the store is closed.
+     * @param intervalMillis time between two compaction runs.
+     */
+    public synchronized void startCompaction(long intervalMillis) {
+        if (compactor != null)
+            return;
+        compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "log-compaction");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        compactor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    log.error("compaction failed", e);
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the compaction and forces the log to the disk.
+     */
+    @Override
+    public synchronized void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+            compactor = null;
+        }
+        lock.writeLock().lock();
+        try {
+            segments.flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private LogTable<?> tableOf(byte kind) {
+        switch (kind) {
+            case USERS:
+                return userTable;
+            case GOALS:
+                return goalTable;
+            case TASKS:
+                return taskTable;
+            default:
+                throw new IllegalStateException("Unknown record kind " + kind);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.iowniwant.dao.log;
+
+import com.iowniwant.dao.memory.IntObjectMap;
+import com.iowniwant.dao.memory.IntTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Table of one kind of entity kept in a @see SegmentLog. Only the
+ * position of the latest record of every id is held in the heap; the
+ * entity is decoded from the mapped segment whenever it is read.
+ * <p>
+ * A record body is the kind of the entity, the operation and the id,
+ * followed by the entity for a put, or for a delete by the segment of the
+ * record it removes. Older puts of the id can only lie in that segment or
+ * before it, so the delete matters while any of them, other than the
+ * segment of the delete itself, still exists.
+ * @param <V> type of the entities.
+ */
+class LogTable<V> implements IntTable<V> {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    private static final int PAYLOAD = 6;
+
+    private final byte kind;
+    private final RecordCodec<V> codec;
+    private final SegmentLog log;
+    private final IntObjectMap<Long> positions = new IntObjectMap<>();
+
+    LogTable(byte kind, RecordCodec<V> codec, SegmentLog log) {
+        this.kind = kind;
+        this.codec = codec;
+        this.log = log;
+    }
+
+    @Override
+    public int size() {
+        return positions.size();
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return positions.containsKey(key);
+    }
+
+    @Override
+    public V get(int key) {
+        Long position = positions.get(key);
+        return position == null ? null : decode(key, position);
+    }
+
+    @Override
+    public V put(int key, V value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(kind);
+            out.writeByte(PUT);
+            out.writeInt(key);
+            codec.write(out, value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        Long previous = positions.put(key, append(bytes.toByteArray()));
+        return previous == null ? null : superseded(key, previous);
+    }
+
+    @Override
+    public V remove(int key) {
+        Long previous = positions.get(key);
+        if (previous == null)
+            return null;
+        ByteBuffer body = ByteBuffer.allocate(PAYLOAD + 4);
+        body.put(kind).put(DELETE).putInt(key).putInt(SegmentLog.segmentOf(previous));
+        append(body.array());
+        positions.remove(key);
+        return superseded(key, previous);
+    }
+
+    @Override
+    public int[] keys() {
+        return positions.keys();
+    }
+
+    /**
+     * Deletes the entities one by one, the log keeps no other kind of record.
+     */
+    @Override
+    public void clear() {
+        for (int key : positions.keys()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Applies a record found while the log is replayed.
+     * @param position position of the record.
+     * @param body body of the record.
+     */
+    void recover(long position, ByteBuffer body) {
+        int key = body.getInt(2);
+        Long previous = body.get(1) == PUT ? positions.put(key, position) : positions.remove(key);
+        if (previous != null)
+            log.release(previous);
+        if (body.get(1) == DELETE && !shadows(position, body))
+            log.release(position);
+    }
+
+    /**
+     * Appends a record of a segment being compacted anew if it still matters.
+     * @param position position of the record.
+     * @param body body of the record.
+     */
+    void compact(long position, ByteBuffer body) {
+        int key = body.getInt(2);
+        Long current = positions.get(key);
+        if (body.get(1) == PUT) {
+            if (current != null && current == position)
+                positions.put(key, append(copy(body)));
+        } else if (current == null && shadows(position, body)) {
+            append(copy(body));
+        }
+    }
+
+    /**
+     * @return whether a segment that may hold an older put of the id of the
+     * delete is left, not counting the segment of the delete itself.
+     */
+    private boolean shadows(long position, ByteBuffer body) {
+        int newest = Math.min(body.getInt(PAYLOAD), SegmentLog.segmentOf(position) - 1);
+        return log.oldestSegment() <= newest;
+    }
+
+    static byte kindOf(ByteBuffer body) {
+        return body.get(0);
+    }
+
+    /**
+     * @return the superseded entity, after its record was released.
+     */
+    private V superseded(int key, long position) {
+        V entity = decode(key, position);
+        log.release(position);
+        return entity;
+    }
+
+    private V decode(int key, long position) {
+        ByteBuffer body = log.read(position);
+        body.position(PAYLOAD);
+        return codec.read(body, key);
+    }
+
+    private long append(byte[] body) {
+        try {
+            return log.append(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot append to the log", e);
+        }
+    }
+
+    private static byte[] copy(ByteBuffer body) {
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.iowniwant.dao.log;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.Task;
+import com.iowniwant.model.User;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+
+/**
+ * Turns entities into the payload of their log records and back. Goals
+ * and tasks store only the id of their parent, they are read back with a
+ * parent holding nothing but that id.
+ * @param <V> type of the entities.
+ */
+abstract class RecordCodec<V> {
+
+    abstract void write(DataOutput out, V entity) throws IOException;
+
+    /**
+     * @param in payload, positioned at its start.
+     * @param id identifier of the entity, which is kept outside the payload.
+     */
+    abstract V read(ByteBuffer in, int id);
+
+    static final RecordCodec<User> USER = new RecordCodec<User>() {
+        @Override
+        void write(DataOutput out, User user) throws IOException {
+            writeString(out, user.getFirstName());
+            writeString(out, user.getLastName());
+            writeString(out, user.getUserName());
+            writeString(out, user.getPassword());
+            writeString(out, user.getEmail());
+            out.writeDouble(user.getMonthSalary());
+        }
+
+        @Override
+        User read(ByteBuffer in, int id) {
+            User user = new User(readString(in), readString(in), readString(in), readString(in), readString(in));
+            user.setMonthSalary(in.getDouble());
+            user.setId(id);
+            return user;
+        }
+    };
+
+    static final RecordCodec<Goal> GOAL = new RecordCodec<Goal>() {
+        @Override
+        void write(DataOutput out, Goal goal) throws IOException {
+            out.writeInt(goal.getUser().getId());
+            writeString(out, goal.getTitle());
+            out.writeDouble(goal.getCost());
+            writeString(out, goal.getDescription());
+            out.writeLong(goal.getPubdate() == null ? Long.MIN_VALUE : goal.getPubdate().getTime());
+            writeString(out, goal.getNotes());
+        }
+
+        @Override
+        Goal read(ByteBuffer in, int id) {
+            User user = new User();
+            user.setId(in.getInt());
+            String title = readString(in);
+            double cost = in.getDouble();
+            String description = readString(in);
+            long pubdate = in.getLong();
+            Goal goal = new Goal(title, cost, description,
+                    pubdate == Long.MIN_VALUE ? null : new Date(pubdate), readString(in), user);
+            goal.setId(id);
+            return goal;
+        }
+    };
+
+    static final RecordCodec<Task> TASK = new RecordCodec<Task>() {
+        @Override
+        void write(DataOutput out, Task task) throws IOException {
+            out.writeInt(task.getGoal().getId());
+            writeString(out, task.getDescription());
+        }
+
+        @Override
+        Task read(ByteBuffer in, int id) {
+            Goal goal = new Goal();
+            goal.setId(in.getInt());
+            Task task = new Task(readString(in), goal);
+            task.setId(id);
+            return task;
+        }
+    };
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,280 @@
+package com.iowniwant.dao.log;
+
+import com.iowniwant.dao.memory.IntObjectMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of records spread over fixed-size segment files, each
+ * one memory-mapped for its whole life. Records are appended to the last
+ * segment; once it is full a new one is started and the previous one is
+ * sealed and never written again. A record is addressed by its position,
+ * the number of its segment in the high and its offset in the low half.
+ * <p>
+ * Every record is framed as its length, the CRC32 of its body and the
+ * body. A segment ends at the first record of length zero, which is what
+ * the unwritten rest of a new file holds; a record cut short by a crash
+ * fails its checksum and ends the segment as well.
+ * <p>
+ * Not thread safe: appends, compaction and reads of positions that may
+ * move must be guarded by the caller, reads of the mapped bytes may run
+ * concurrently with each other.
+ */
+class SegmentLog {
+    private static final Logger log = LoggerFactory.getLogger(SegmentLog.class);
+    private static final String SUFFIX = ".log";
+    private static final int HEADER = 8;
+
+    /**
+     * Receives the records of a segment.
+     */
+    interface RecordVisitor {
+
+        /**
+         * @param position position of the record.
+         * @param body body of the record, positioned at its start.
+         */
+        void visit(long position, ByteBuffer body);
+    }
+
+    private static class Segment {
+        final int number;
+        final File file;
+        final MappedByteBuffer buffer;
+        int end;
+        int live;
+
+        Segment(int number, File file, MappedByteBuffer buffer) {
+            this.number = number;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private final File directory;
+    private final int segmentBytes;
+    private final boolean sync;
+    private final IntObjectMap<Segment> segments = new IntObjectMap<>();
+    private Segment active;
+
+    /**
+     * @param directory directory holding the segment files, created if missing.
+     * @param segmentBytes size of a new segment file.
+     * @param sync whether every append is forced to the disk before it returns.
+     * @throws IOException if the segment files could not be opened.
+     */
+    SegmentLog(File directory, int segmentBytes, boolean sync) throws IOException {
+        if (segmentBytes <= HEADER)
+            throw new IllegalArgumentException("Segment too small: " + segmentBytes);
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.sync = sync;
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create " + directory);
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX)) {
+                int number = Integer.parseInt(name.substring(0, name.length() - SUFFIX.length()));
+                Segment segment = new Segment(number, file, map(file, file.length()));
+                segments.put(number, segment);
+                if (active == null || number > active.number)
+                    active = segment;
+            }
+        }
+        if (active == null)
+            active = create(1, segmentBytes);
+    }
+
+    /**
+     * Visits the valid records of all segments, oldest first. A record
+     * failing its checksum ends its segment: in the last segment it is
+     * the write a crash cut short and the following bytes are cleared,
+     * in an earlier one the rest of that segment is lost.
+     * Also counts every record as live, see @see #release.
+     * @param visitor receives the records.
+     */
+    void replay(RecordVisitor visitor) {
+        for (int number : numbers()) {
+            Segment segment = segments.get(number);
+            segment.end = scan(segment, visitor);
+            segment.live = segment.end;
+            if (segment.end < segment.buffer.capacity() && segment.buffer.getInt(segment.end) != 0) {
+                if (segment == active) {
+                    log.warn("discarding torn record at {} of {}", segment.end, segment.file);
+                    clear(segment.buffer, segment.end);
+                } else {
+                    log.error("corrupt record at {} of {}, rest of the segment skipped", segment.end, segment.file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the valid records of one segment in the order they were written.
+     * @param number number of the segment.
+     * @param visitor receives the records.
+     */
+    void scan(int number, RecordVisitor visitor) {
+        scan(segments.get(number), visitor);
+    }
+
+    /**
+     * Appends a record to the active segment, starting a new one if it is full.
+     * @param body body of the record.
+     * @return position of the record.
+     * @throws IOException if a new segment could not be created.
+     */
+    long append(byte[] body) throws IOException {
+        int length = HEADER + body.length;
+        if (active.end + length > active.buffer.capacity()) {
+            active.buffer.force();
+            active = create(active.number + 1, Math.max(segmentBytes, length + HEADER));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        int offset = active.end;
+        ByteBuffer buffer = active.buffer.duplicate();
+        buffer.position(offset + 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(body);
+        // the length goes last, a record is not there before it is complete
+        buffer.putInt(offset, body.length);
+        active.end += length;
+        active.live += length;
+        if (sync)
+            active.buffer.force();
+        return (long) active.number << 32 | offset;
+    }
+
+    /**
+     * @param position position of a record.
+     * @return read-only body of the record, positioned at its start.
+     */
+    ByteBuffer read(long position) {
+        Segment segment = segments.get(segmentOf(position));
+        int offset = (int) position;
+        ByteBuffer body = segment.buffer.asReadOnlyBuffer();
+        body.position(offset + HEADER);
+        body.limit(offset + HEADER + segment.buffer.getInt(offset));
+        return body.slice();
+    }
+
+    /**
+     * Marks a record as superseded, its segment may be compacted once most
+     * of it is.
+     * @param position position of the record.
+     */
+    void release(long position) {
+        Segment segment = segments.get(segmentOf(position));
+        if (segment != null)
+            segment.live -= HEADER + segment.buffer.getInt((int) position);
+    }
+
+    /**
+     * @return numbers of the segments that are no longer written to, oldest first.
+     */
+    int[] sealedSegments() {
+        int[] numbers = numbers();
+        return Arrays.copyOf(numbers, numbers.length - 1);
+    }
+
+    /**
+     * @return share of the written bytes of the segment held by live records.
+     */
+    double liveRatio(int number) {
+        Segment segment = segments.get(number);
+        return segment.end == 0 ? 0 : (double) segment.live / segment.end;
+    }
+
+    boolean contains(int number) {
+        return segments.containsKey(number);
+    }
+
+    /**
+     * @return number of the oldest segment still on disk.
+     */
+    int oldestSegment() {
+        return numbers()[0];
+    }
+
+    /**
+     * Deletes a sealed segment, after its live records were appended anew.
+     * @param number number of the segment.
+     */
+    void drop(int number) {
+        Segment segment = segments.remove(number);
+        // the mapping goes away once the buffer is collected, deleting the file does not wait for it
+        if (!segment.file.delete())
+            log.warn("could not delete {}", segment.file);
+    }
+
+    /**
+     * Forces the active segment to the disk.
+     */
+    void flush() {
+        active.buffer.force();
+    }
+
+    static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private int scan(Segment segment, RecordVisitor visitor) {
+        ByteBuffer buffer = segment.buffer.asReadOnlyBuffer();
+        int offset = 0;
+        while (offset + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER + length > buffer.capacity())
+                break;
+            buffer.limit(offset + HEADER + length);
+            buffer.position(offset + HEADER);
+            ByteBuffer body = buffer.slice();
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(offset + 4))
+                break;
+            visitor.visit((long) segment.number << 32 | offset, body);
+            buffer.limit(buffer.capacity());
+            offset += HEADER + length;
+        }
+        return offset;
+    }
+
+    private int[] numbers() {
+        int[] numbers = segments.keys();
+        Arrays.sort(numbers);
+        return numbers;
+    }
+
+    private Segment create(int number, int size) throws IOException {
+        File file = new File(directory, String.format("%010d%s", number, SUFFIX));
+        Segment segment = new Segment(number, file, map(file, size));
+        segments.put(number, segment);
+        log.debug("started segment {}", file);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static void clear(ByteBuffer buffer, int from) {
+        for (int i = from; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+}
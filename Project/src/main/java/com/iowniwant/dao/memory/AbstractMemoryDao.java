@@ -0,0 +1,232 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.dao.AbstractDAO;
+import com.iowniwant.dao.CloseableIterator;
+import com.iowniwant.dao.EntityHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Implements the CRUD operations of @see AbstractDAO on a @see MemoryStore,
+ * with the semantics of the JDBC DAOs: a write the DataBase constraints
+ * would reject leaves the store unchanged, and the batch operations apply
+ * either all of their entities or none.
+ * <p>
+ * Subclasses touch the store only from the hooks below, which are called
+ * with the lock of the store held.
+ * @param <T> the type of object to be manipulated.
+ */
+abstract class AbstractMemoryDao<T> implements AbstractDAO<T> {
+    private static final Logger log = LoggerFactory.getLogger(AbstractMemoryDao.class);
+    final MemoryStore store;
+
+    AbstractMemoryDao(MemoryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Stores a copy of the entity under a new id.
+     * @return id of the stored entity or 0 if a constraint rejected it.
+     */
+    abstract int insert(T entity);
+
+    /**
+     * @return true if the entity exists and may be overwritten by the given one.
+     */
+    abstract boolean canReplace(T entity);
+
+    abstract void replace(T entity);
+
+    /**
+     * @return false if the entity exists and is still referenced, absent ids may be removed.
+     */
+    abstract boolean canRemove(int id);
+
+    abstract void remove(int id);
+
+    /**
+     * @return copy of the stored entity or null if there is none.
+     */
+    abstract T copyOf(int id);
+
+    /**
+     * @return ids of all stored entities, ascending.
+     */
+    abstract int[] ids();
+
+    @Override
+    public T create(T entity) {
+        store.lock.writeLock().lock();
+        try {
+            int id = insert(entity);
+            return id == 0 ? null : copyOf(id);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(Integer id) {
+        store.lock.writeLock().lock();
+        try {
+            if (canRemove(id))
+                remove(id);
+            else
+                log.warn("{} is still referenced, not deleted", id);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public T update(T entity) {
+        store.lock.writeLock().lock();
+        try {
+            if (!canReplace(entity))
+                return null;
+            replace(entity);
+            return entity;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public T getById(Integer id) {
+        store.lock.readLock().lock();
+        try {
+            return copyOf(id);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Integer> createAll(Collection<T> entities) {
+        List<Integer> ids = new ArrayList<>(entities.size());
+        store.lock.writeLock().lock();
+        try {
+            for (T entity : entities) {
+                int id = insert(entity);
+                if (id == 0) {
+                    // undo in reverse, the created entities are not referenced yet
+                    for (int i = ids.size() - 1; i >= 0; i--) {
+                        remove(ids.get(i));
+                    }
+                    return null;
+                }
+                ids.add(id);
+            }
+            return ids;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updateAll(Collection<T> entities) {
+        store.lock.writeLock().lock();
+        try {
+            for (T entity : entities) {
+                if (!canReplace(entity))
+                    return false;
+            }
+            for (T entity : entities) {
+                replace(entity);
+            }
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteAll(Collection<Integer> ids) {
+        store.lock.writeLock().lock();
+        try {
+            for (Integer id : ids) {
+                if (!canRemove(id))
+                    return false;
+            }
+            for (Integer id : ids) {
+                remove(id);
+            }
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return copies of all entities ordered by id.
+     */
+    @Override
+    public List<T> getAll() {
+        store.lock.readLock().lock();
+        try {
+            int[] ids = ids();
+            List<T> entities = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                entities.add(copyOf(id));
+            }
+            return entities;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The handler runs on a snapshot, outside the lock, so it may write
+     * through the DAOs itself.
+     * {@inheritDoc}
+     */
+    @Override
+    public void getAll(EntityHandler<? super T> handler) {
+        for (T entity : getAll()) {
+            handler.handle(entity);
+        }
+    }
+
+    /**
+     * Iterates a snapshot of the entities, there is nothing to release.
+     * {@inheritDoc}
+     */
+    @Override
+    public CloseableIterator<T> iterateAll() {
+        final Iterator<T> snapshot = getAll().iterator();
+        return new CloseableIterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return snapshot.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return snapshot.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * @return the ids sorted ascending.
+     */
+    static int[] sorted(int[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,56 @@
+package com.iowniwant.dao.memory;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running totals of the goals of one user: their number, the sum of their
+ * costs and the highest one. The costs are counted in a sorted multiset,
+ * so the highest cost is found again in logarithmic time once the goal
+ * holding it goes away.
+ * Not thread safe, @see MemoryStore guards it.
+ */
+class GoalTotals {
+    private final TreeMap<Double, Integer> costs = new TreeMap<>();
+    private int count;
+    private double total;
+
+    void add(double cost) {
+        Integer same = costs.get(cost);
+        costs.put(cost, same == null ? 1 : same + 1);
+        count++;
+        total += cost;
+    }
+
+    void remove(double cost) {
+        Integer same = costs.get(cost);
+        if (same == null)
+            return;
+        if (same == 1)
+            costs.remove(cost);
+        else
+            costs.put(cost, same - 1);
+        count--;
+        total -= cost;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int count() {
+        return count;
+    }
+
+    double total() {
+        return total;
+    }
+
+    /**
+     * @return the highest cost, 0 if there are no goals.
+     */
+    double max() {
+        Map.Entry<Double, Integer> highest = costs.lastEntry();
+        return highest == null ? 0 : highest.getKey();
+    }
+}
@@ -0,0 +1,72 @@
+package com.iowniwant.dao.memory;
+
+import java.util.Arrays;
+
+/**
+ * Ascending set of ints backed by an array, used as the secondary index
+ * from a user to his goals and from a goal to its tasks. Ids are handed
+ * out in ascending order, so adding one usually appends it.
+ * Not thread safe, @see MemoryStore guards it.
+ */
+class IntList {
+    private int[] elements = new int[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        return elements[index];
+    }
+
+    /**
+     * @return position of the value or a negative number if it is absent.
+     */
+    int indexOf(int value) {
+        return Arrays.binarySearch(elements, 0, size, value);
+    }
+
+    /**
+     * @return position of the first value greater than the given one, size if there is none.
+     */
+    int indexAfter(int value) {
+        int index = indexOf(value);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * @return false if the value was present already.
+     */
+    boolean add(int value) {
+        int index = size == 0 || elements[size - 1] < value ? size : indexOf(value);
+        if (index < 0)
+            index = -index - 1;
+        else if (index < size)
+            return false;
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, size * 2);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return false if the value was absent.
+     */
+    boolean remove(int value) {
+        int index = indexOf(value);
+        if (index < 0)
+            return false;
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return true;
+    }
+}
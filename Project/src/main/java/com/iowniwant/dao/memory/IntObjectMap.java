@@ -0,0 +1,148 @@
+package com.iowniwant.dao.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash map from int keys to objects, without boxing the keys. Entries
+ * live in two parallel arrays probed linearly; a removed entry pulls the
+ * following entries of its run back, so no tombstones pile up.
+ * Not thread safe, @see MemoryStore guards it.
+ * @param <V> type of the values, never null.
+ */
+public class IntObjectMap<V> implements IntTable<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    public IntObjectMap() {
+        keys = new int[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return values[find(key)] != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        return (V) values[find(key)];
+    }
+
+    /**
+     * @return the previous value of the key or null if there was none.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("Null value for key " + key);
+        int slot = find(key);
+        V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if (previous == null && ++size > keys.length * 3 / 4)
+            resize(keys.length * 2);
+        return previous;
+    }
+
+    /**
+     * @return the removed value or null if there was none.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        V removed = (V) values[slot];
+        if (removed == null)
+            return null;
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = mix(keys[next]) & mask;
+            // the entry may move into the gap unless its home lies between the gap and itself
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * @return the keys in no particular order.
+     */
+    @Override
+    public int[] keys() {
+        int[] result = new int[size];
+        int next = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null)
+                result[next++] = keys[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return the values in no particular order.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null)
+                result.add((V) value);
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Sequential ids would otherwise fill one run of neighbouring slots.
+     */
+    private static int mix(int key) {
+        int h = key * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,35 @@
+package com.iowniwant.dao.memory;
+
+/**
+ * Table of entities keyed by their int ids, as kept by a @see MemoryStore.
+ * Implementations are not thread safe, the store guards them.
+ * @param <V> type of the entities, never null.
+ */
+public interface IntTable<V> {
+
+    int size();
+
+    boolean containsKey(int key);
+
+    /**
+     * @return the entity of the key or null if there is none.
+     */
+    V get(int key);
+
+    /**
+     * @return the previous entity of the key or null if there was none.
+     */
+    V put(int key, V value);
+
+    /**
+     * @return the removed entity or null if there was none.
+     */
+    V remove(int key);
+
+    /**
+     * @return the keys in no particular order.
+     */
+    int[] keys();
+
+    void clear();
+}
@@ -0,0 +1,210 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalQuery;
+import com.iowniwant.model.Page;
+import com.iowniwant.model.User;
+import com.iowniwant.util.Cursors;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps Goals in a @see MemoryStore, indexed by the id of their user.
+ * A goal needs an existing user and cannot be deleted while it has tasks.
+ * The user of a goal is fixed at its creation, like in the DataBase.
+ */
+public class MemoryGoalDao extends AbstractMemoryDao<Goal> implements AbstractGoalDAO {
+
+    /**
+     * @param store store holding the goals, shared with the user and task DAOs.
+     */
+    public MemoryGoalDao(MemoryStore store) {
+        super(store);
+    }
+
+    /**
+     * All Goals of the list share one copy of the user.
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Goal> getGoalsByUserId(Integer userId) {
+        store.lock.readLock().lock();
+        try {
+            IntList ids = store.goalsByUser.get(userId);
+            if (ids == null)
+                return Collections.emptyList();
+            return Collections.unmodifiableList(copyOf(store.copyOfUser(userId), ids, 0, ids.size()));
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Goal> getGoalsPage(Integer userId, String cursor, int limit) {
+        int afterId = Cursors.decode(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        store.lock.readLock().lock();
+        try {
+            IntList ids = store.goalsByUser.get(userId);
+            if (ids == null)
+                return new Page<>(new ArrayList<Goal>(), null);
+            int from = cursor == null ? 0 : ids.indexAfter(afterId);
+            int to = Math.min(from + pageSize, ids.size());
+            List<Goal> goals = copyOf(store.copyOfUser(userId), ids, from, to);
+            return new Page<>(goals, to < ids.size() ? Cursors.encode(ids.get(to - 1)) : null);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Filters and sorts the user's goals on every call, a user holds few.
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<Goal> findGoals(Integer userId, final GoalQuery query) {
+        final GoalQuery.Sort sort = query.getSort();
+        Cursors.Keyset after = Cursors.decode(query.getCursor(), sort.name());
+        Comparable<?> afterKey = after == null || after.getValue() == null ? null : sort.parse(after.getValue());
+        int pageSize = query.getLimit() < 1 ? DEFAULT_PAGE_SIZE : Math.min(query.getLimit(), MAX_PAGE_SIZE);
+        store.lock.readLock().lock();
+        try {
+            final IntList ids = store.goalsByUser.get(userId);
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; ids != null && i < ids.size(); i++) {
+                Goal goal = store.goals.get(ids.get(i));
+                if (matches(query, goal)
+                        && (after == null || compare(query, sort.keyOf(goal), goal.getId(), afterKey, after.getLastId()) > 0))
+                    positions.add(i);
+            }
+            Collections.sort(positions, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer v, Integer w) {
+                    Goal x = store.goals.get(ids.get(v));
+                    Goal y = store.goals.get(ids.get(w));
+                    return MemoryGoalDao.compare(query, sort.keyOf(x), x.getId(), sort.keyOf(y), y.getId());
+                }
+            });
+            User user = store.copyOfUser(userId);
+            List<Goal> goals = new ArrayList<>();
+            for (int i = 0; i < positions.size() && i < pageSize; i++) {
+                Goal goal = MemoryStore.copy(store.goals.get(ids.get(positions.get(i))), user);
+                goal.setV_id(positions.get(i) + 1);
+                goals.add(goal);
+            }
+            if (positions.size() <= pageSize)
+                return new Page<>(goals, null);
+            Goal last = goals.get(pageSize - 1);
+            return new Page<>(goals, Cursors.encode(sort.name(), sort.format(last), last.getId()));
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nothing is cached, the store is the only copy of the goals.
+     */
+    @Override
+    public void invalidateGoalsOf(Integer userId) {
+    }
+
+    private static boolean matches(GoalQuery query, Goal goal) {
+        if (query.getMinCost() != null && goal.getCost() < query.getMinCost())
+            return false;
+        if (query.getMaxCost() != null && goal.getCost() > query.getMaxCost())
+            return false;
+        if (!query.hasDateRange())
+            return true;
+        Date day = (Date) GoalQuery.Sort.PUBDATE.keyOf(goal);
+        if (day == null || query.getFrom() != null && day.before(query.getFrom()))
+            return false;
+        return query.getTo() == null || day.before(query.getTo());
+    }
+
+    /**
+     * Orders goals like the DataBase listing does: by key, goals without
+     * key last, then by id; the other way round when descending.
+     */
+    private static int compare(GoalQuery query, Comparable<?> v, int vId, Comparable<?> w, int wId) {
+        int comp;
+        if (v == null || w == null)
+            comp = v == null ? (w == null ? 0 : 1) : -1;
+        else
+            comp = comparable(v).compareTo(w);
+        if (comp == 0)
+            comp = Integer.compare(vId, wId);
+        return query.isDescending() ? -comp : comp;
+    }
+
+    /**
+     * Both keys come from the same @see GoalQuery.Sort, so they compare with each other.
+     */
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Comparable<?> key) {
+        return (Comparable<Object>) key;
+    }
+
+    private List<Goal> copyOf(User user, IntList ids, int from, int to) {
+        List<Goal> goals = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            Goal goal = MemoryStore.copy(store.goals.get(ids.get(i)), user);
+            goal.setV_id(i + 1);
+            goals.add(goal);
+        }
+        return goals;
+    }
+
+    @Override
+    int insert(Goal entity) {
+        if (entity.getUser() == null || !store.users.containsKey(entity.getUser().getId()))
+            return 0;
+        Goal goal = MemoryStore.copy(entity, store.users.get(entity.getUser().getId()));
+        goal.setId(store.nextGoalId());
+        store.goals.put(goal.getId(), goal);
+        MemoryStore.index(store.goalsByUser, goal.getUser().getId(), goal.getId());
+        store.addCost(goal.getUser().getId(), goal.getCost());
+        return goal.getId();
+    }
+
+    @Override
+    boolean canReplace(Goal entity) {
+        return store.goals.containsKey(entity.getId());
+    }
+
+    @Override
+    void replace(Goal entity) {
+        Goal previous = store.goals.get(entity.getId());
+        store.goals.put(entity.getId(), MemoryStore.copy(entity, previous.getUser()));
+        store.removeCost(previous.getUser().getId(), previous.getCost());
+        store.addCost(previous.getUser().getId(), entity.getCost());
+    }
+
+    @Override
+    boolean canRemove(int id) {
+        return MemoryStore.count(store.tasksByGoal, id) == 0;
+    }
+
+    @Override
+    void remove(int id) {
+        Goal removed = store.goals.remove(id);
+        if (removed != null) {
+            MemoryStore.unindex(store.goalsByUser, removed.getUser().getId(), id);
+            store.removeCost(removed.getUser().getId(), removed.getCost());
+        }
+    }
+
+    @Override
+    Goal copyOf(int id) {
+        return store.copyOfGoal(id);
+    }
+
+    @Override
+    int[] ids() {
+        return sorted(store.goals.keys());
+    }
+}
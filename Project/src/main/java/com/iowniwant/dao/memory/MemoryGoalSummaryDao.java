@@ -0,0 +1,36 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.dao.AbstractGoalSummaryDAO;
+import com.iowniwant.model.GoalSummary;
+import com.iowniwant.model.User;
+
+/**
+ * Reads the goal totals a @see MemoryStore keeps per user, together with
+ * the current salary of the user.
+ */
+public class MemoryGoalSummaryDao implements AbstractGoalSummaryDAO {
+    private final MemoryStore store;
+
+    /**
+     * @param store store holding the users and goals.
+     */
+    public MemoryGoalSummaryDao(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public GoalSummary getByUserId(Integer userId) {
+        store.lock.readLock().lock();
+        try {
+            User user = store.users.get(userId);
+            if (user == null)
+                return null;
+            GoalTotals totals = store.totalsByUser.get(userId);
+            if (totals == null)
+                return new GoalSummary(userId, 0, 0, 0, user.getMonthSalary());
+            return new GoalSummary(userId, totals.count(), totals.total(), totals.max(), user.getMonthSalary());
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+}
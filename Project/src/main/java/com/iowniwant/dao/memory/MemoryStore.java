@@ -0,0 +1,231 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.Task;
+import com.iowniwant.model.User;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps users, goals and tasks in tables keyed by their int ids, with
+ * the goals indexed by user_id and the tasks by goal_id, and the goal
+ * totals of every user kept current as goals are written. The tables are
+ * held in the heap unless a subclass provides its own. One read-write
+ * lock guards all of it: reads run concurrently, a write excludes
+ * everything else, so a write spanning entities is atomic.
+ * <p>
+ * Entities are copied on the way in and out, the stored ones are never
+ * handed out. Stored goals and tasks keep their parent only for its id,
+ * the parent is attached from the store when they are read.
+ */
+public class MemoryStore {
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    final IntTable<User> users;
+    final Map<String, Integer> userIdsByNick = new HashMap<>();
+    final IntTable<Goal> goals;
+    final IntObjectMap<IntList> goalsByUser = new IntObjectMap<>();
+    final IntTable<Task> tasks;
+    final IntObjectMap<IntList> tasksByGoal = new IntObjectMap<>();
+    final IntObjectMap<GoalTotals> totalsByUser = new IntObjectMap<>();
+
+    private int lastUserId;
+    private int lastGoalId;
+    private int lastTaskId;
+
+    /**
+     * Creates an empty store keeping the entities in the heap.
+     */
+    public MemoryStore() {
+        this(new IntObjectMap<User>(), new IntObjectMap<Goal>(), new IntObjectMap<Task>());
+    }
+
+    /**
+     * Creates a store over the given tables, which may hold entities
+     * already; call reindex before the store is used.
+     * @param users table of the users.
+     * @param goals table of the goals, their user is only read for its id.
+     * @param tasks table of the tasks, their goal is only read for its id.
+     */
+    protected MemoryStore(IntTable<User> users, IntTable<Goal> goals, IntTable<Task> tasks) {
+        this.users = users;
+        this.goals = goals;
+        this.tasks = tasks;
+    }
+
+    /**
+     * Provides the MemoryStore shared by the in-memory DAOs of the application.
+     * @return the same MemoryStore object each time its invoked.
+     */
+    public static MemoryStore getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        private static final MemoryStore INSTANCE = new MemoryStore();
+    }
+
+    /**
+     * Removes all entities and restarts the ids.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            users.clear();
+            userIdsByNick.clear();
+            goals.clear();
+            goalsByUser.clear();
+            tasks.clear();
+            tasksByGoal.clear();
+            totalsByUser.clear();
+            lastUserId = lastGoalId = lastTaskId = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the nickname and parent indexes from the tables and moves the
+     * ids past the ones in use.
+     * @param lastUserId highest user id handed out before, known to the caller.
+     * @param lastGoalId highest goal id handed out before, known to the caller.
+     * @param lastTaskId highest task id handed out before, known to the caller.
+     */
+    protected void reindex(int lastUserId, int lastGoalId, int lastTaskId) {
+        lock.writeLock().lock();
+        try {
+            userIdsByNick.clear();
+            goalsByUser.clear();
+            tasksByGoal.clear();
+            totalsByUser.clear();
+            this.lastUserId = lastUserId;
+            this.lastGoalId = lastGoalId;
+            this.lastTaskId = lastTaskId;
+            for (int id : users.keys()) {
+                userIdsByNick.put(users.get(id).getUserName(), id);
+                this.lastUserId = Math.max(this.lastUserId, id);
+            }
+            for (int id : goals.keys()) {
+                Goal goal = goals.get(id);
+                index(goalsByUser, goal.getUser().getId(), id);
+                addCost(goal.getUser().getId(), goal.getCost());
+                this.lastGoalId = Math.max(this.lastGoalId, id);
+            }
+            for (int id : tasks.keys()) {
+                index(tasksByGoal, tasks.get(id).getGoal().getId(), id);
+                this.lastTaskId = Math.max(this.lastTaskId, id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int nextUserId() {
+        return ++lastUserId;
+    }
+
+    int nextGoalId() {
+        return ++lastGoalId;
+    }
+
+    int nextTaskId() {
+        return ++lastTaskId;
+    }
+
+    /**
+     * Adds the id to the index entry of the key, creating the entry if needed.
+     */
+    static void index(IntObjectMap<IntList> index, int key, int id) {
+        IntList ids = index.get(key);
+        if (ids == null) {
+            ids = new IntList();
+            index.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    /**
+     * Removes the id from the index entry of the key, dropping the entry once empty.
+     */
+    static void unindex(IntObjectMap<IntList> index, int key, int id) {
+        IntList ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty())
+            index.remove(key);
+    }
+
+    /**
+     * Counts a goal of the user into his totals.
+     */
+    void addCost(int userId, double cost) {
+        GoalTotals totals = totalsByUser.get(userId);
+        if (totals == null) {
+            totals = new GoalTotals();
+            totalsByUser.put(userId, totals);
+        }
+        totals.add(cost);
+    }
+
+    /**
+     * Takes a goal of the user out of his totals, dropping them once empty.
+     */
+    void removeCost(int userId, double cost) {
+        GoalTotals totals = totalsByUser.get(userId);
+        if (totals == null)
+            return;
+        totals.remove(cost);
+        if (totals.isEmpty())
+            totalsByUser.remove(userId);
+    }
+
+    /**
+     * @return number of ids in the index entry of the key.
+     */
+    static int count(IntObjectMap<IntList> index, int key) {
+        IntList ids = index.get(key);
+        return ids == null ? 0 : ids.size();
+    }
+
+    User copyOfUser(int id) {
+        User user = users.get(id);
+        return user == null ? null : new User(user);
+    }
+
+    /**
+     * Numbers the goal within the goals of its user, the way the
+     * DataBase triggers keep v_goal_id dense.
+     * @return copy of the stored goal together with a copy of its user.
+     */
+    Goal copyOfGoal(int id) {
+        Goal stored = goals.get(id);
+        if (stored == null)
+            return null;
+        int userId = stored.getUser().getId();
+        Goal goal = copy(stored, copyOfUser(userId));
+        goal.setV_id(goalsByUser.get(userId).indexOf(id) + 1);
+        return goal;
+    }
+
+    /**
+     * @return copy of the stored task together with a copy of its goal.
+     */
+    Task copyOfTask(int id) {
+        Task stored = tasks.get(id);
+        if (stored == null)
+            return null;
+        int goalId = stored.getGoal().getId();
+        Task task = new Task(stored.getDescription(), copyOfGoal(goalId));
+        task.setId(id);
+        task.setV_id(tasksByGoal.get(goalId).indexOf(id) + 1);
+        return task;
+    }
+
+    static Goal copy(Goal goal, User user) {
+        Goal copy = new Goal(goal.getTitle(), goal.getCost(), goal.getDescription(),
+                goal.getPubdate(), goal.getNotes(), user);
+        copy.setId(goal.getId());
+        return copy;
+    }
+}
@@ -0,0 +1,92 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.dao.AbstractTaskDAO;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps Tasks in a @see MemoryStore, indexed by the id of their goal.
+ * A task needs an existing goal, which is fixed at its creation.
+ */
+public class MemoryTaskDao extends AbstractMemoryDao<Task> implements AbstractTaskDAO {
+
+    /**
+     * @param store store holding the tasks, shared with the user and goal DAOs.
+     */
+    public MemoryTaskDao(MemoryStore store) {
+        super(store);
+    }
+
+    /**
+     * All Tasks of the list share one copy of the goal.
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Task> getTasksByGoalId(Integer goalId) {
+        List<Task> tasks = new ArrayList<>();
+        store.lock.readLock().lock();
+        try {
+            IntList ids = store.tasksByGoal.get(goalId);
+            if (ids == null)
+                return tasks;
+            Goal goal = store.copyOfGoal(goalId);
+            for (int i = 0; i < ids.size(); i++) {
+                Task task = new Task(store.tasks.get(ids.get(i)).getDescription(), goal);
+                task.setId(ids.get(i));
+                task.setV_id(i + 1);
+                tasks.add(task);
+            }
+            return tasks;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    int insert(Task entity) {
+        if (entity.getGoal() == null || !store.goals.containsKey(entity.getGoal().getId()))
+            return 0;
+        Task task = new Task(entity.getDescription(), store.goals.get(entity.getGoal().getId()));
+        task.setId(store.nextTaskId());
+        store.tasks.put(task.getId(), task);
+        MemoryStore.index(store.tasksByGoal, task.getGoal().getId(), task.getId());
+        return task.getId();
+    }
+
+    @Override
+    boolean canReplace(Task entity) {
+        return store.tasks.containsKey(entity.getId());
+    }
+
+    @Override
+    void replace(Task entity) {
+        Task task = new Task(entity.getDescription(), store.tasks.get(entity.getId()).getGoal());
+        task.setId(entity.getId());
+        store.tasks.put(task.getId(), task);
+    }
+
+    @Override
+    boolean canRemove(int id) {
+        return true;
+    }
+
+    @Override
+    void remove(int id) {
+        Task removed = store.tasks.remove(id);
+        if (removed != null)
+            MemoryStore.unindex(store.tasksByGoal, removed.getGoal().getId(), id);
+    }
+
+    @Override
+    Task copyOf(int id) {
+        return store.copyOfTask(id);
+    }
+
+    @Override
+    int[] ids() {
+        return sorted(store.tasks.keys());
+    }
+}
@@ -0,0 +1,77 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.model.User;
+
+/**
+ * Keeps Users in a @see MemoryStore. Nicknames are unique, and a user
+ * cannot be deleted while he has goals.
+ */
+public class MemoryUserDao extends AbstractMemoryDao<User> implements AbstractUserDAO {
+
+    /**
+     * @param store store holding the users, shared with the goal and task DAOs.
+     */
+    public MemoryUserDao(MemoryStore store) {
+        super(store);
+    }
+
+    @Override
+    public User getByNick(String nickname) {
+        store.lock.readLock().lock();
+        try {
+            Integer id = store.userIdsByNick.get(nickname);
+            return id == null ? null : store.copyOfUser(id);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    int insert(User entity) {
+        if (entity.getUserName() == null || store.userIdsByNick.containsKey(entity.getUserName()))
+            return 0;
+        User user = new User(entity);
+        user.setId(store.nextUserId());
+        store.users.put(user.getId(), user);
+        store.userIdsByNick.put(user.getUserName(), user.getId());
+        return user.getId();
+    }
+
+    @Override
+    boolean canReplace(User entity) {
+        if (entity.getUserName() == null || !store.users.containsKey(entity.getId()))
+            return false;
+        Integer owner = store.userIdsByNick.get(entity.getUserName());
+        return owner == null || owner == entity.getId();
+    }
+
+    @Override
+    void replace(User entity) {
+        User previous = store.users.put(entity.getId(), new User(entity));
+        store.userIdsByNick.remove(previous.getUserName());
+        store.userIdsByNick.put(entity.getUserName(), entity.getId());
+    }
+
+    @Override
+    boolean canRemove(int id) {
+        return MemoryStore.count(store.goalsByUser, id) == 0;
+    }
+
+    @Override
+    void remove(int id) {
+        User removed = store.users.remove(id);
+        if (removed != null)
+            store.userIdsByNick.remove(removed.getUserName());
+    }
+
+    @Override
+    User copyOf(int id) {
+        return store.copyOfUser(id);
+    }
+
+    @Override
+    int[] ids() {
+        return sorted(store.users.keys());
+    }
+}
@@ -47,6 +47,22 @@ public class Goal implements Serializable, Comparable<Goal> {
         this.user = user;
     }
 
+    /**
+     * Initialize goal as a copy of the given one.
+     * @param other goal to be copied.
+     * @param user owner of the copy, e.g. a copy of the owner of the given goal.
+     */
+    public Goal(Goal other, User user) {
+        this.id = other.id;
+        this.v_id = other.v_id;
+        this.title = other.title;
+        this.cost = other.cost;
+        this.description = other.description;
+        this.pubdate = other.pubdate == null ? null : new Date(other.pubdate.getTime());
+        this.notes = other.notes;
+        this.user = user;
+    }
+
     /**
      * Initialize goal using data from the obtained resultSet.
      * @param resultSet a table of data, obtained from the DataBase
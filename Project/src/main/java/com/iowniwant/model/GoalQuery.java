@@ -0,0 +1,228 @@
+package com.iowniwant.model;
+
+import java.io.Serializable;
+import java.sql.Date;
+import java.util.Locale;
+
+/**
+ * The GoalQuery class is a mutable data type describing which goals of a
+ * user to list and in which order: sorted by cost, pubdate or title,
+ * optionally limited to a cost range and a pubdate range, one page at a
+ * time. Goals with equal sort values are ordered by their id; goals
+ * without pubdate come last in ascending and first in descending order.
+ */
+public class GoalQuery implements Serializable {
+
+    /**
+     * Goal property a listing is sorted by.
+     */
+    public enum Sort {
+        COST("g.cost", false) {
+            @Override
+            public Comparable<?> keyOf(Goal goal) {
+                return goal.getCost();
+            }
+
+            @Override
+            public Comparable<?> parse(String value) {
+                return Double.valueOf(value);
+            }
+        },
+        PUBDATE("g.pubdate", true) {
+            @Override
+            public Comparable<?> keyOf(Goal goal) {
+                // whole days, as the DataBase keeps them
+                return goal.getPubdate() == null ? null : Date.valueOf(goal.getPubdate().toString());
+            }
+
+            @Override
+            public Comparable<?> parse(String value) {
+                return Date.valueOf(value);
+            }
+        },
+        TITLE("g.title", false) {
+            @Override
+            public Comparable<?> keyOf(Goal goal) {
+                return goal.getTitle();
+            }
+
+            @Override
+            public Comparable<?> parse(String value) {
+                return value;
+            }
+        };
+
+        private final String column;
+        private final boolean nullable;
+
+        Sort(String column, boolean nullable) {
+            this.column = column;
+            this.nullable = nullable;
+        }
+
+        /**
+         * @param name name of the sort, in any case.
+         * @return the sort of that name.
+         * @throws IllegalArgumentException if there is no sort of that name.
+         */
+        public static Sort of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Unknown goal sort: " + name);
+            }
+        }
+
+        /**
+         * @return column of <code>iowniwant.goal</code>, aliased g, holding the sorted property.
+         */
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * @return whether goals may lack the property.
+         */
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        /**
+         * @param goal a goal.
+         * @return the sorted property of the goal, may be null if nullable.
+         */
+        public abstract Comparable<?> keyOf(Goal goal);
+
+        /**
+         * @param goal a goal.
+         * @return the sorted property of the goal as read by parse, null if it has none.
+         */
+        public String format(Goal goal) {
+            Comparable<?> key = keyOf(goal);
+            return key == null ? null : key.toString();
+        }
+
+        /**
+         * @param value property written by format.
+         * @return the property.
+         * @throws IllegalArgumentException if the value is malformed.
+         */
+        public abstract Comparable<?> parse(String value);
+    }
+
+    private Sort sort = Sort.COST;
+    private boolean descending;
+    private Double minCost;
+    private Double maxCost;
+    private Date from;
+    private Date to;
+    private String cursor;
+    private int limit;
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public void setSort(Sort sort) {
+        this.sort = sort;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public void setDescending(boolean descending) {
+        this.descending = descending;
+    }
+
+    /**
+     * @return lowest cost listed, or null for no lower bound.
+     */
+    public Double getMinCost() {
+        return minCost;
+    }
+
+    public void setMinCost(Double minCost) {
+        this.minCost = minCost;
+    }
+
+    /**
+     * @return highest cost listed, or null for no upper bound.
+     */
+    public Double getMaxCost() {
+        return maxCost;
+    }
+
+    public void setMaxCost(Double maxCost) {
+        this.maxCost = maxCost;
+    }
+
+    /**
+     * @return first pubdate listed, or null for no lower bound.
+     */
+    public Date getFrom() {
+        return from;
+    }
+
+    public void setFrom(Date from) {
+        this.from = from;
+    }
+
+    /**
+     * @return pubdate the listing stops before, or null for no upper bound.
+     */
+    public Date getTo() {
+        return to;
+    }
+
+    public void setTo(Date to) {
+        this.to = to;
+    }
+
+    /**
+     * @return cursor of the page from the previous call with the same query, or null for the first page.
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return maximum number of goals on the page, 0 for the default page size.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return true if a pubdate range is set, goals without pubdate are not listed then.
+     */
+    public boolean hasDateRange() {
+        return from != null || to != null;
+    }
+
+    /**
+     * Returns a string representation of this query.
+     * @return a string representation of this query.
+     */
+    @Override
+    public String toString() {
+        return "GoalQuery{" +
+                "sort=" + sort +
+                ", descending=" + descending +
+                ", minCost=" + minCost +
+                ", maxCost=" + maxCost +
+                ", from=" + from +
+                ", to=" + to +
+                ", cursor='" + cursor + '\'' +
+                ", limit=" + limit +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package com.iowniwant.model;
+
+import java.io.Serializable;
+
+/**
+ * The GoalSummary class is an immutable data type holding the totals of
+ * the goals of one @see User, and how long his salary takes to pay them.
+ */
+public class GoalSummary implements Serializable {
+
+    private final int userId;
+    private final int goalCount;
+    private final double totalCost;
+    private final double maxCost;
+    private final double monthSalary;
+    private final Integer monthsToAfford;
+
+    /**
+     * Initialize a summary with the user's goal totals and current salary.
+     * @param userId user identifier.
+     * @param goalCount number of the user's goals.
+     * @param totalCost sum of the costs of the user's goals.
+     * @param maxCost highest cost of the user's goals, 0 if he has none.
+     * @param monthSalary user's month salary.
+     */
+    public GoalSummary(int userId, int goalCount, double totalCost, double maxCost, double monthSalary) {
+        this.userId = userId;
+        this.goalCount = goalCount;
+        this.totalCost = totalCost;
+        this.maxCost = maxCost;
+        this.monthSalary = monthSalary;
+        if (monthSalary > 0)
+            this.monthsToAfford = (int) Math.ceil(totalCost / monthSalary);
+        else
+            this.monthsToAfford = totalCost > 0 ? null : Integer.valueOf(0);
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getGoalCount() {
+        return goalCount;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public double getMaxCost() {
+        return maxCost;
+    }
+
+    public double getMonthSalary() {
+        return monthSalary;
+    }
+
+    /**
+     * @return whole months of salary the goals cost, or null if there is
+     * no salary to ever pay them.
+     */
+    public Integer getMonthsToAfford() {
+        return monthsToAfford;
+    }
+
+    /**
+     * Returns a string representation of this summary.
+     * @return a string representation of this summary.
+     */
+    @Override
+    public String toString() {
+        return "GoalSummary{" +
+                "userId=" + userId +
+                ", goalCount=" + goalCount +
+                ", totalCost=" + totalCost +
+                ", maxCost=" + maxCost +
+                ", monthSalary=" + monthSalary +
+                ", monthsToAfford=" + monthsToAfford +
+                '}';
+    }
+}
@@ -0,0 +1,124 @@
+package com.iowniwant.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ImportReport class is a mutable data type holding the outcome of a
+ * bulk goal import: how many rows were loaded, how many were rejected and
+ * why, the first rejections only. Rows are numbered by the line of the
+ * body they start on.
+ */
+public class ImportReport implements Serializable {
+
+    private final transient int maxErrors;
+    private int imported;
+    private int rejected;
+    private final List<RowError> errors = new ArrayList<>();
+    private String failure;
+
+    /**
+     * @param maxErrors number of rejections reported in detail.
+     */
+    public ImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Counts rows loaded and committed.
+     * @param rows number of rows.
+     */
+    public void imported(int rows) {
+        imported += rows;
+    }
+
+    /**
+     * Counts a rejected row.
+     * @param row line the row starts on.
+     * @param message why the row was rejected.
+     */
+    public void reject(long row, String message) {
+        rejected++;
+        if (errors.size() < maxErrors)
+            errors.add(new RowError(row, message));
+    }
+
+    /**
+     * Records why the import stopped before the end of the body; the rows
+     * imported before stay imported.
+     * @param message reason of the stop.
+     */
+    public void fail(String message) {
+        failure = message;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return the first rejections, in row order.
+     */
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return reason the import stopped early, null if it read the whole body.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns a string representation of this report.
+     * @return a string representation of this report.
+     */
+    @Override
+    public String toString() {
+        return "ImportReport{" +
+                "imported=" + imported +
+                ", rejected=" + rejected +
+                ", failure='" + failure + '\'' +
+                '}';
+    }
+
+    /**
+     * Why one row was rejected.
+     */
+    public static class RowError implements Serializable {
+        private final long row;
+        private final String message;
+
+        /**
+         * @param row line the row starts on.
+         * @param message why the row was rejected.
+         */
+        public RowError(long row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "RowError{" +
+                    "row=" + row +
+                    ", message='" + message + '\'' +
+                    '}';
+        }
+    }
+}
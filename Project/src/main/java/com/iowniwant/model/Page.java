@@ -0,0 +1,53 @@
+package com.iowniwant.model;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Page class is an immutable data type holding one slice of an
+ * ordered listing together with the opaque cursor of the next slice.
+ * @param <T> type of the listed objects.
+ */
+public class Page<T> implements Serializable {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    /**
+     * Initialize a page with its items and the cursor of the following page.
+     * @param items objects of this page, in listing order.
+     * @param nextCursor cursor to fetch the next page with, or null if this page is the last one.
+     */
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return true if there are objects past this page.
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * Returns a string representation of this page.
+     * @return a string representation of this page.
+     */
+    @Override
+    public String toString() {
+        return "Page{" +
+                "items=" + items +
+                ", nextCursor='" + nextCursor + '\'' +
+                '}';
+    }
+}
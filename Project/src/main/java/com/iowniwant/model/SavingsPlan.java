@@ -0,0 +1,170 @@
+package com.iowniwant.model;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The SavingsPlan class is an immutable data type holding how the month
+ * salary of a @see User pays for his goals, one goal after the other:
+ * which goal each month's money goes to, and the month every goal is paid.
+ * Months are numbered from 1, the first month of saving.
+ */
+public class SavingsPlan implements Serializable {
+
+    private final int userId;
+    private final double monthSalary;
+    private final List<Funding> goals;
+    private final List<Installment> schedule;
+
+    /**
+     * Initialize a plan with its goals and their installments.
+     * @param userId user identifier.
+     * @param monthSalary salary saved every month.
+     * @param goals goals in the order they are paid.
+     * @param schedule installments by month, then by goal order.
+     */
+    public SavingsPlan(int userId, double monthSalary, List<Funding> goals, List<Installment> schedule) {
+        this.userId = userId;
+        this.monthSalary = monthSalary;
+        this.goals = Collections.unmodifiableList(goals);
+        this.schedule = Collections.unmodifiableList(schedule);
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public double getMonthSalary() {
+        return monthSalary;
+    }
+
+    public List<Funding> getGoals() {
+        return goals;
+    }
+
+    public List<Installment> getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * @return true if every goal gets paid within the planned months.
+     */
+    public boolean isComplete() {
+        for (Funding goal : goals) {
+            if (goal.getFundedMonth() == null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a string representation of this plan.
+     * @return a string representation of this plan.
+     */
+    @Override
+    public String toString() {
+        return "SavingsPlan{" +
+                "userId=" + userId +
+                ", monthSalary=" + monthSalary +
+                ", goals=" + goals +
+                ", installments=" + schedule.size() +
+                '}';
+    }
+
+    /**
+     * When one goal starts and ends being paid.
+     */
+    public static class Funding implements Serializable {
+        private final int goalId;
+        private final String title;
+        private final double cost;
+        private final Integer startMonth;
+        private final Integer fundedMonth;
+
+        /**
+         * @param goalId goal identifier.
+         * @param title goal's title.
+         * @param cost goal's cost.
+         * @param startMonth month of the first installment, null if it is not reached.
+         * @param fundedMonth month the goal is paid, null if it is not reached.
+         */
+        public Funding(int goalId, String title, double cost, Integer startMonth, Integer fundedMonth) {
+            this.goalId = goalId;
+            this.title = title;
+            this.cost = cost;
+            this.startMonth = startMonth;
+            this.fundedMonth = fundedMonth;
+        }
+
+        public int getGoalId() {
+            return goalId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        public Integer getStartMonth() {
+            return startMonth;
+        }
+
+        public Integer getFundedMonth() {
+            return fundedMonth;
+        }
+
+        @Override
+        public String toString() {
+            return "Funding{" +
+                    "goalId=" + goalId +
+                    ", startMonth=" + startMonth +
+                    ", fundedMonth=" + fundedMonth +
+                    '}';
+        }
+    }
+
+    /**
+     * Money of one month going to one goal.
+     */
+    public static class Installment implements Serializable {
+        private final int month;
+        private final int goalId;
+        private final double amount;
+
+        /**
+         * @param month month of the installment.
+         * @param goalId goal the money goes to.
+         * @param amount money going to the goal.
+         */
+        public Installment(int month, int goalId, double amount) {
+            this.month = month;
+            this.goalId = goalId;
+            this.amount = amount;
+        }
+
+        public int getMonth() {
+            return month;
+        }
+
+        public int getGoalId() {
+            return goalId;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        @Override
+        public String toString() {
+            return "Installment{" +
+                    "month=" + month +
+                    ", goalId=" + goalId +
+                    ", amount=" + amount +
+                    '}';
+        }
+    }
+}
@@ -63,6 +63,20 @@ public class User implements Serializable, Comparable<User> {
         this.monthSalary = resultSet.getDouble("month_salary");
     }
 
+    /**
+     * Initialize user as a copy of the given one.
+     * @param other user to be copied.
+     */
+    public User(User other) {
+        this.id = other.id;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.userName = other.userName;
+        this.password = other.password;
+        this.email = other.email;
+        this.monthSalary = other.monthSalary;
+    }
+
     public int getId() {
         return id;
     }
@@ -0,0 +1,238 @@
+package com.iowniwant.search;
+
+import com.iowniwant.dao.AbstractDAO;
+import com.iowniwant.dao.CloseableIterator;
+import com.iowniwant.model.Goal;
+import com.iowniwant.util.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Full-text index over the title, description and notes of the goals,
+ * partitioned by user: a search only ever looks at the index of one user,
+ * however many goals the others have. The index is kept in the heap, built
+ * from all goals at startup and changed by the goal writes once they are
+ * committed, see @see IndexingGoalDao.
+ * <p>
+ * Goal titles are completed from a @see TitleTrie of the user, and from a
+ * trie of the titles of all users counting how many users have a goal of
+ * that title.
+ * <p>
+ * The index keeps its own copy of every goal and hands out copies of
+ * those. The copies carry no ordinal, goals are told apart by their id.
+ */
+public class GoalSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(GoalSearchIndex.class);
+
+    private final ConcurrentMap<Integer, Partition> partitions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Integer> owners = new ConcurrentHashMap<>();
+    private final TitleTrie popularTitles = new TitleTrie();
+    private final ReentrantReadWriteLock popularLock = new ReentrantReadWriteLock();
+    private final Partition.TitleListener titleListener = new Partition.TitleListener() {
+        @Override
+        public void firstUse(String key, String title) {
+            popularLock.writeLock().lock();
+            try {
+                popularTitles.add(key, title);
+            } finally {
+                popularLock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void lastUse(String key) {
+            popularLock.writeLock().lock();
+            try {
+                popularTitles.remove(key);
+            } finally {
+                popularLock.writeLock().unlock();
+            }
+        }
+    };
+
+    GoalSearchIndex() {}
+
+    private static class Holder {
+        private static final GoalSearchIndex INSTANCE = new GoalSearchIndex();
+    }
+
+    /**
+     * Provides GoalSearchIndex instance.
+     * @return the same GoalSearchIndex object each time its invoked.
+     */
+    public static GoalSearchIndex getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Indexes the goal once the active unit of work committed. A goal
+     * without user keeps the user it was indexed with, and is ignored if
+     * it was not indexed yet.
+     * @param goalId identifier of the goal.
+     * @param goal goal as written, copied right away.
+     */
+    public void put(int goalId, Goal goal) {
+        final Goal copy = copyOf(goal);
+        copy.setId(goalId);
+        UnitOfWork.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                apply(copy);
+            }
+        });
+    }
+
+    /**
+     * Drops the goal from the index once the active unit of work committed.
+     * @param goalId identifier of the goal.
+     */
+    public void remove(final int goalId) {
+        UnitOfWork.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                Integer userId = owners.remove(goalId);
+                Partition partition = userId == null ? null : partitions.get(userId);
+                if (partition != null)
+                    partition.remove(goalId);
+            }
+        });
+    }
+
+    private void apply(Goal goal) {
+        Integer userId = goal.getUser() == null ? owners.get(goal.getId()) : Integer.valueOf(goal.getUser().getId());
+        if (userId == null)
+            return;
+        Partition partition = partitionOf(userId);
+        if (goal.getUser() == null) {
+            Goal previous = partition.get(goal.getId());
+            if (previous == null)
+                return;
+            goal.setUser(previous.getUser());
+        }
+        owners.put(goal.getId(), userId);
+        partition.put(goal);
+    }
+
+    private Partition partitionOf(int userId) {
+        Partition partition = partitions.get(userId);
+        if (partition == null) {
+            Partition created = new Partition(titleListener);
+            partition = partitions.putIfAbsent(userId, created);
+            if (partition == null)
+                partition = created;
+        }
+        return partition;
+    }
+
+    /**
+     * @param userId identifier of the user whose goals are searched.
+     * @param query words to look for, in any order.
+     * @param limit maximum number of goals.
+     * @return goals holding any of the words, the most relevant first.
+     */
+    public List<Goal> search(Integer userId, String query, int limit) {
+        List<String> terms = Tokenizer.tokens(query);
+        Partition partition = userId == null ? null : partitions.get(userId);
+        List<Goal> goals = new ArrayList<>();
+        if (partition == null || terms.isEmpty() || limit < 1)
+            return goals;
+        for (Goal goal : partition.search(terms, limit)) {
+            goals.add(copyOf(goal));
+        }
+        return goals;
+    }
+
+    /**
+     * Completes a goal title, the user's own titles first, then the titles
+     * most users have a goal of.
+     * @param userId identifier of the user typing.
+     * @param prefix typed beginning of the title.
+     * @param limit maximum number of titles.
+     * @param minUsers fewest users a title of others needs, 0 for the user's own titles only.
+     * @return titles starting with the prefix, none for an empty prefix.
+     */
+    public List<String> completeTitle(Integer userId, String prefix, int limit, int minUsers) {
+        List<String> titles = new ArrayList<>();
+        if (TitleTrie.keyOf(prefix).isEmpty() || limit < 1)
+            return titles;
+        Partition partition = userId == null ? null : partitions.get(userId);
+        if (partition != null)
+            titles.addAll(partition.completeTitle(prefix, limit));
+        if (titles.size() == limit || minUsers < 1)
+            return titles;
+        List<String> popular;
+        popularLock.readLock().lock();
+        try {
+            popular = popularTitles.complete(prefix, limit + titles.size(), minUsers);
+        } finally {
+            popularLock.readLock().unlock();
+        }
+        Set<String> known = new HashSet<>();
+        for (String title : titles) {
+            known.add(TitleTrie.keyOf(title));
+        }
+        for (String title : popular) {
+            if (titles.size() < limit && known.add(TitleTrie.keyOf(title)))
+                titles.add(title);
+        }
+        return titles;
+    }
+
+    /**
+     * Replaces the index with the goals of the DAO, streamed one at a time.
+     * Meant to be run before the first write reaches the index.
+     * @param goalDao DAO holding all goals.
+     * @return number of goals indexed.
+     */
+    public int rebuild(AbstractDAO<Goal> goalDao) {
+        long start = System.currentTimeMillis();
+        clear();
+        int count = 0;
+        CloseableIterator<Goal> goals = goalDao.iterateAll();
+        try {
+            while (goals.hasNext()) {
+                Goal goal = goals.next();
+                if (goal.getUser() == null)
+                    continue;
+                apply(copyOf(goal));
+                count++;
+            }
+        } finally {
+            goals.close();
+        }
+        log.info("indexed {} goals of {} users in {}ms", count, partitions.size(),
+                System.currentTimeMillis() - start);
+        return count;
+    }
+
+    /**
+     * Empties the index.
+     */
+    public void clear() {
+        partitions.clear();
+        owners.clear();
+        popularLock.writeLock().lock();
+        try {
+            popularTitles.clear();
+        } finally {
+            popularLock.writeLock().unlock();
+        }
+    }
+
+    private static Goal copyOf(Goal goal) {
+        Date pubdate = goal.getPubdate() == null ? null : new Date(goal.getPubdate().getTime());
+        Goal copy = new Goal(goal.getTitle(), goal.getCost(), goal.getDescription(), pubdate,
+                goal.getNotes(), goal.getUser());
+        copy.setId(goal.getId());
+        return copy;
+    }
+}
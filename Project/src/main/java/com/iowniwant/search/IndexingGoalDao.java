@@ -0,0 +1,133 @@
+package com.iowniwant.search;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.CloseableIterator;
+import com.iowniwant.dao.EntityHandler;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalQuery;
+import com.iowniwant.model.Page;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Goal DAO of any storage engine that passes its successful writes on to
+ * the @see GoalSearchIndex. Reads go to the wrapped DAO untouched.
+ */
+public class IndexingGoalDao implements AbstractGoalDAO {
+    private final AbstractGoalDAO goalDao;
+    private final GoalSearchIndex index;
+
+    /**
+     * @param goalDao DAO the goals are kept by.
+     * @param index index following the writes.
+     */
+    public IndexingGoalDao(AbstractGoalDAO goalDao, GoalSearchIndex index) {
+        this.goalDao = goalDao;
+        this.index = index;
+    }
+
+    @Override
+    public Goal create(Goal entity) {
+        Goal created = goalDao.create(entity);
+        if (created != null)
+            index.put(created.getId(), created);
+        return created;
+    }
+
+    /**
+     * Deletes through @see #deleteAll(Collection), which tells whether the
+     * goal went without reading it back from a possibly lagging replica. A
+     * goal that is still there after the delete, e.g. because it has tasks,
+     * stays in the index.
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(Integer id) {
+        deleteAll(Collections.singletonList(id));
+    }
+
+    @Override
+    public Goal update(Goal entity) {
+        Goal updated = goalDao.update(entity);
+        if (updated != null)
+            index.put(updated.getId(), updated);
+        return updated;
+    }
+
+    @Override
+    public Goal getById(Integer id) {
+        return goalDao.getById(id);
+    }
+
+    @Override
+    public List<Integer> createAll(Collection<Goal> entities) {
+        List<Integer> ids = goalDao.createAll(entities);
+        if (ids != null) {
+            Iterator<Integer> id = ids.iterator();
+            for (Goal entity : entities) {
+                index.put(id.next(), entity);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean updateAll(Collection<Goal> entities) {
+        boolean updated = goalDao.updateAll(entities);
+        if (updated) {
+            for (Goal entity : entities) {
+                index.put(entity.getId(), entity);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean deleteAll(Collection<Integer> ids) {
+        boolean removed = goalDao.deleteAll(ids);
+        if (removed) {
+            for (Integer id : ids) {
+                index.remove(id);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public List<Goal> getAll() {
+        return goalDao.getAll();
+    }
+
+    @Override
+    public void getAll(EntityHandler<? super Goal> handler) {
+        goalDao.getAll(handler);
+    }
+
+    @Override
+    public CloseableIterator<Goal> iterateAll() {
+        return goalDao.iterateAll();
+    }
+
+    @Override
+    public List<Goal> getGoalsByUserId(Integer userId) {
+        return goalDao.getGoalsByUserId(userId);
+    }
+
+    @Override
+    public Page<Goal> getGoalsPage(Integer userId, String cursor, int limit) {
+        return goalDao.getGoalsPage(userId, cursor, limit);
+    }
+
+    @Override
+    public Page<Goal> findGoals(Integer userId, GoalQuery query) {
+        return goalDao.findGoals(userId, query);
+    }
+
+    @Override
+    public void invalidateGoalsOf(Integer userId) {
+        goalDao.invalidateGoalsOf(userId);
+    }
+}
@@ -0,0 +1,234 @@
+package com.iowniwant.search;
+
+import com.iowniwant.model.Goal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of the goals of one user. Every term maps to the goals
+ * holding it and how often, title terms counting
+ * {@link #TITLE_WEIGHT} times. Searches rank the goals with BM25 and only
+ * visit the postings of the query terms. The titles of the goals are kept
+ * in a @see TitleTrie for completion as well.
+ */
+class Partition {
+    static final int TITLE_WEIGHT = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private final TitleTrie titles = new TitleTrie();
+    private final TitleListener titleListener;
+    private long totalLength;
+
+    /**
+     * @param titleListener told when the user starts or stops using a title.
+     */
+    Partition(TitleListener titleListener) {
+        this.titleListener = titleListener;
+    }
+
+    /**
+     * Adds the goal, replacing the previous version of it.
+     * @param goal copy of the goal owned by the index.
+     */
+    void put(Goal goal) {
+        Document document = new Document(goal);
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.put(goal.getId(), document);
+            unindex(previous);
+            String key = TitleTrie.keyOf(goal.getTitle());
+            if (previous == null || !key.equals(TitleTrie.keyOf(previous.goal.getTitle()))) {
+                if (previous != null)
+                    removeTitle(previous.goal.getTitle());
+                if (!key.isEmpty() && titles.add(key, goal.getTitle()) == 1)
+                    titleListener.firstUse(key, goal.getTitle());
+            }
+            for (Map.Entry<String, Integer> term : document.frequencies.entrySet()) {
+                Map<Integer, Integer> goals = postings.get(term.getKey());
+                if (goals == null) {
+                    goals = new HashMap<>();
+                    postings.put(term.getKey(), goals);
+                }
+                goals.put(goal.getId(), term.getValue());
+            }
+            totalLength += document.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param goalId goal identifier.
+     * @return the indexed goal or null if it is not indexed.
+     */
+    Goal get(int goalId) {
+        lock.readLock().lock();
+        try {
+            Document document = documents.get(goalId);
+            return document == null ? null : document.goal;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param goalId goal identifier.
+     */
+    void remove(int goalId) {
+        lock.writeLock().lock();
+        try {
+            Document removed = documents.remove(goalId);
+            unindex(removed);
+            if (removed != null)
+                removeTitle(removed.goal.getTitle());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeTitle(String title) {
+        String key = TitleTrie.keyOf(title);
+        if (!key.isEmpty() && titles.remove(key) == 0)
+            titleListener.lastUse(key);
+    }
+
+    private void unindex(Document document) {
+        if (document == null)
+            return;
+        for (String term : document.frequencies.keySet()) {
+            Map<Integer, Integer> goals = postings.get(term);
+            goals.remove(document.goal.getId());
+            if (goals.isEmpty())
+                postings.remove(term);
+        }
+        totalLength -= document.length;
+    }
+
+    /**
+     * @param prefix typed beginning of a title.
+     * @param limit maximum number of titles.
+     * @return titles of the user's goals starting with the prefix, the most used first.
+     */
+    List<String> completeTitle(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            return titles.complete(prefix, limit, 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param terms query terms, repeated terms count once.
+     * @param limit maximum number of goals.
+     * @return indexed goals holding any of the terms, best first, ties by goal identifier.
+     */
+    List<Goal> search(Collection<String> terms, int limit) {
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty())
+                return new ArrayList<>();
+            int count = documents.size();
+            double averageLength = Math.max(1.0, (double) totalLength / count);
+            Map<Integer, double[]> scores = new HashMap<>();
+            for (String term : new LinkedHashSet<>(terms)) {
+                Map<Integer, Integer> goals = postings.get(term);
+                if (goals == null)
+                    continue;
+                double idf = Math.log(1 + (count - goals.size() + 0.5) / (goals.size() + 0.5));
+                for (Map.Entry<Integer, Integer> posting : goals.entrySet()) {
+                    int frequency = posting.getValue();
+                    double norm = K1 * (1 - B + B * documents.get(posting.getKey()).length / averageLength);
+                    double[] score = scores.get(posting.getKey());
+                    if (score == null) {
+                        score = new double[1];
+                        scores.put(posting.getKey(), score);
+                    }
+                    score[0] += idf * frequency * (K1 + 1) / (frequency + norm);
+                }
+            }
+            return top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Goal> top(Map<Integer, double[]> scores, int limit) {
+        // the worst of the best goals so far is at the head
+        PriorityQueue<Map.Entry<Integer, double[]>> best = new PriorityQueue<>(limit + 1,
+                new Comparator<Map.Entry<Integer, double[]>>() {
+                    @Override
+                    public int compare(Map.Entry<Integer, double[]> v, Map.Entry<Integer, double[]> w) {
+                        int comp = Double.compare(v.getValue()[0], w.getValue()[0]);
+                        return comp != 0 ? comp : Integer.compare(w.getKey(), v.getKey());
+                    }
+                });
+        for (Map.Entry<Integer, double[]> score : scores.entrySet()) {
+            best.add(score);
+            if (best.size() > limit)
+                best.poll();
+        }
+        Goal[] goals = new Goal[best.size()];
+        for (int i = goals.length - 1; i >= 0; i--) {
+            goals[i] = documents.get(best.poll().getKey()).goal;
+        }
+        return new ArrayList<>(Arrays.asList(goals));
+    }
+
+    /**
+     * Told about the titles of a user, under the lock of the partition.
+     */
+    interface TitleListener {
+
+        /**
+         * @param key key of a title the user had no goal with so far.
+         * @param title the title as written.
+         */
+        void firstUse(String key, String title);
+
+        /**
+         * @param key key of a title the user has no goal with any more.
+         */
+        void lastUse(String key);
+    }
+
+    /**
+     * Indexed version of a goal with its weighted term frequencies.
+     */
+    private static class Document {
+        private final Goal goal;
+        private final Map<String, Integer> frequencies = new HashMap<>();
+        private final int length;
+
+        Document(Goal goal) {
+            this.goal = goal;
+            int length = 0;
+            length += count(goal.getTitle(), TITLE_WEIGHT);
+            length += count(goal.getDescription(), 1);
+            length += count(goal.getNotes(), 1);
+            this.length = length;
+        }
+
+        private int count(String text, int weight) {
+            List<String> tokens = Tokenizer.tokens(text);
+            for (String token : tokens) {
+                Integer frequency = frequencies.get(token);
+                frequencies.put(token, frequency == null ? weight : frequency + weight);
+            }
+            return tokens.size() * weight;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.iowniwant.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * Radix trie of goal titles counting how often every title is used. Edges
+ * carry whole runs of characters, so a title costs one node at most plus
+ * one split, and children are kept in a small array sorted by their first
+ * character. Every node knows the highest count below it, completions are
+ * found best first without visiting the rest of the subtree.
+ * <p>
+ * Titles are matched on their key: trimmed, lower cased, with runs of
+ * white space collapsed. A completion is shown as the title was first
+ * written. Not thread-safe, guarded by its owner.
+ */
+class TitleTrie {
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node("");
+
+    /**
+     * @param title goal title, may be null.
+     * @return key the title is matched on, empty if there is nothing to match.
+     */
+    static String keyOf(String title) {
+        if (title == null)
+            return "";
+        return title.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Counts one more use of the title.
+     * @param key key of the title, not empty.
+     * @param title title as written.
+     * @return uses of the title, this one included.
+     */
+    int add(String key, String title) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        path.add(node);
+        while (i < key.length()) {
+            int index = node.indexOf(key.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                node.insert(-index - 1, leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                Node split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.children = new Node[]{child};
+                split.best = child.best;
+                node.children[index] = split;
+                child = split;
+            }
+            node = child;
+            i += common;
+            path.add(node);
+        }
+        if (node.count++ == 0)
+            node.title = title;
+        updateBest(path);
+        return node.count;
+    }
+
+    /**
+     * Counts one use of the title less.
+     * @param key key of the title.
+     * @return uses of the title left, -1 if it was not used.
+     */
+    int remove(String key) {
+        List<Node> path = find(key, true);
+        if (path == null)
+            return -1;
+        Node node = path.get(path.size() - 1);
+        if (node.count == 0)
+            return -1;
+        int left = --node.count;
+        if (left == 0) {
+            node.title = null;
+            prune(path);
+        }
+        updateBest(path);
+        return left;
+    }
+
+    /**
+     * @param prefix typed prefix, matched like a title key.
+     * @param limit maximum number of titles.
+     * @param minCount fewest uses a title needs to be completed.
+     * @return titles starting with the prefix, the most used first, ties in key order.
+     */
+    List<String> complete(String prefix, int limit, int minCount) {
+        List<String> titles = new ArrayList<>();
+        String key = keyOf(prefix);
+        List<Node> path = find(key, false);
+        if (path == null || limit < 1)
+            return titles;
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(16, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate v, Candidate w) {
+                if (v.rank != w.rank)
+                    return Integer.compare(w.rank, v.rank);
+                // a title sorts before the titles below it, whose keys it prefixes
+                return v.key.compareTo(w.key);
+            }
+        });
+        StringBuilder reached = new StringBuilder();
+        for (Node node : path) {
+            reached.append(node.label);
+        }
+        queue.add(new Candidate(path.get(path.size() - 1), false, reached.toString()));
+        while (!queue.isEmpty() && titles.size() < limit) {
+            Candidate candidate = queue.poll();
+            if (candidate.rank < minCount)
+                break;
+            if (candidate.terminal) {
+                titles.add(candidate.node.title);
+                continue;
+            }
+            Node node = candidate.node;
+            if (node.count > 0)
+                queue.add(new Candidate(node, true, candidate.key));
+            for (Node child : node.children) {
+                queue.add(new Candidate(child, false, candidate.key + child.label));
+            }
+        }
+        return titles;
+    }
+
+    /**
+     * Forgets every title.
+     */
+    void clear() {
+        root.children = NO_CHILDREN;
+        root.best = 0;
+    }
+
+    /**
+     * @param key key to look up.
+     * @param exact whether the key must end on a node; otherwise it may
+     * end within the label of the last node.
+     * @return nodes from the root to the one of the key, or null if there is none.
+     */
+    private List<Node> find(String key, boolean exact) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int index = node.indexOf(key.charAt(i));
+            if (index < 0)
+                return null;
+            node = node.children[index];
+            int common = commonPrefix(node.label, key, i);
+            if (common < node.label.length() && (exact || i + common < key.length()))
+                return null;
+            i += common;
+            path.add(node);
+        }
+        return path;
+    }
+
+    /**
+     * Drops the last node of the path once it holds nothing, and merges a
+     * node left with a single child into it.
+     */
+    private void prune(List<Node> path) {
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node node = path.get(depth);
+            Node parent = path.get(depth - 1);
+            if (node.count == 0 && node.children.length == 0) {
+                parent.delete(node);
+                path.remove(depth);
+            } else if (node.count == 0 && node.children.length == 1) {
+                Node child = node.children[0];
+                child.label = node.label + child.label;
+                parent.children[parent.indexOf(child.label.charAt(0))] = child;
+                path.set(depth, child);
+                break;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static void updateBest(List<Node> path) {
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            Node node = path.get(depth);
+            int best = node.count;
+            for (Node child : node.children) {
+                best = Math.max(best, child.best);
+            }
+            node.best = best;
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int length = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < length && label.charAt(i) == key.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static class Node {
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private String title;
+        private int count;
+        private int best;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return index of the child starting with the character, or
+         * (-(insertion point) - 1) if there is none.
+         */
+        int indexOf(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char c = children[mid].label.charAt(0);
+                if (c < first)      low = mid + 1;
+                else if (c > first) high = mid - 1;
+                else                return mid;
+            }
+            return -(low + 1);
+        }
+
+        void insert(int index, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        void delete(Node child) {
+            int index = indexOf(child.label.charAt(0));
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, shrunk.length - index);
+            children = shrunk;
+        }
+    }
+
+    /**
+     * Node of the best first search: either the title of the node, ranked
+     * by its count, or the subtree below it, ranked by its best count.
+     */
+    private static class Candidate {
+        private final Node node;
+        private final boolean terminal;
+        private final int rank;
+        private final String key;
+
+        Candidate(Node node, boolean terminal, String key) {
+            this.node = node;
+            this.terminal = terminal;
+            this.rank = terminal ? node.count : node.best;
+            this.key = key;
+        }
+    }
+}
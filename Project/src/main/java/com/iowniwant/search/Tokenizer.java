@@ -0,0 +1,36 @@
+package com.iowniwant.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cuts goal texts into search terms: runs of letters and digits, lower
+ * cased. There is no stemming, a term matches the same word only.
+ */
+public class Tokenizer {
+
+    private Tokenizer() {}
+
+    /**
+     * @param text text to be cut, may be null.
+     * @return terms of the text in order, repeated as often as they occur.
+     */
+    public static List<String> tokens(String text) {
+        if (text == null || text.isEmpty())
+            return Collections.emptyList();
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
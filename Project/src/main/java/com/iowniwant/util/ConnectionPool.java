@@ -0,0 +1,364 @@
+package com.iowniwant.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of physical JDBC connections, used by
+ * @see DataBaseManager when the container does not bind a DataSource.
+ * Connections handed out are proxies: closing them returns the physical
+ * connection to the pool. Idle connections are validated on borrow and
+ * evicted in the background once they exceed the idle timeout, never
+ * going below the configured minimum size.
+ */
+public class ConnectionPool implements DataSource, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    /**
+     * Initialize the pool using the <code>pool.*</code> entries of the given properties.
+     * @param properties pool settings, see database.properties.
+     */
+    public ConnectionPool(Properties properties) {
+        this.url = properties.getProperty("pool.url");
+        this.user = properties.getProperty("pool.user");
+        this.password = properties.getProperty("pool.password");
+        this.minSize = Integer.parseInt(properties.getProperty("pool.min.size", "0"));
+        this.maxSize = Integer.parseInt(properties.getProperty("pool.max.size", "10"));
+        this.acquireTimeoutMillis = Long.parseLong(properties.getProperty("pool.acquire.timeout.ms", "5000"));
+        this.idleTimeoutMillis = Long.parseLong(properties.getProperty("pool.idle.timeout.ms", "300000"));
+        this.validationTimeoutSeconds = Integer.parseInt(properties.getProperty("pool.validation.timeout.s", "2"));
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize)
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        this.permits = new Semaphore(maxSize, true);
+
+        String driver = properties.getProperty("pool.driver");
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException e) {
+                log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+            }
+        }
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "connection-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(idleTimeoutMillis / 2, 1000);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        log.debug("connection pool created: min {}, max {}, url {}", minSize, maxSize, url);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the acquire timeout when all
+     * <code>pool.max.size</code> connections are in use.
+     * @return a pooled connection, closing it returns it to the pool.
+     * @throws SQLException if no connection became available in time or
+     * a new physical connection could not be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLException("Connection pool is closed");
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + acquireTimeoutMillis + "ms waiting for a connection");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+        try {
+            return borrow().proxy();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Lease borrow() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled.physical)) {
+                return pooled.lease();
+            }
+            log.debug("discarding broken idle connection");
+            discard(pooled);
+        }
+        return open().lease();
+    }
+
+    private PooledConnection open() throws SQLException {
+        PooledConnection pooled = new PooledConnection(openConnection());
+        total.incrementAndGet();
+        log.debug("opened physical connection, total {}", total.get());
+        return pooled;
+    }
+
+    private boolean isUsable(Connection physical) {
+        try {
+            return physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a new physical connection using the configured url and credentials.
+     * @return physical connection to the DataBase.
+     * @throws SQLException if the connection could not be opened.
+     */
+    protected Connection openConnection() throws SQLException {
+        // unset credentials are left to the driver, e.g. to a .pgpass file
+        Properties info = new Properties();
+        if (user != null)
+            info.setProperty("user", user);
+        if (password != null)
+            info.setProperty("password", password);
+        return DriverManager.getConnection(url, info);
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        total.decrementAndGet();
+        try { pooled.physical.close(); } catch (SQLException ignored) {}
+    }
+
+    /**
+     * Opens physical connections until the pool holds at least
+     * <code>pool.min.size</code> of them.
+     * @throws SQLException if a connection could not be opened.
+     */
+    public void fill() throws SQLException {
+        while (!closed && total.get() < minSize) {
+            PooledConnection pooled = open();
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerLast(pooled);
+        }
+    }
+
+    /**
+     * Closes idle connections unused for longer than the idle timeout,
+     * the oldest ones first, keeping at least the minimum size open.
+     */
+    void evictIdle() {
+        long deadline = System.currentTimeMillis() - idleTimeoutMillis;
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && total.get() > minSize) {
+            PooledConnection pooled = oldestFirst.next();
+            if (pooled.lastUsed <= deadline && idle.removeFirstOccurrence(pooled)) {
+                log.debug("evicting idle connection");
+                discard(pooled);
+            }
+        }
+    }
+
+    /**
+     * @return number of connections currently borrowed.
+     */
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    /**
+     * @return number of open connections waiting in the pool.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return number of open physical connections, borrowed or idle.
+     */
+    public int getTotalCount() {
+        return total.get();
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Closes all idle connections; borrowed ones are closed when given back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+        log.debug("connection pool closed");
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool is bound to the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * Physical connection together with its pool bookkeeping.
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastUsed;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Lease lease() {
+            return new Lease(this);
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection; closing it gives the
+     * physical connection back exactly once.
+     */
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+            }
+            if (returned)
+                throw new SQLException("Connection has been returned to the pool");
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.iowniwant.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset pagination positions into opaque cursors handed to the
+ * client, and decodes them back. Clients should only pass cursors around,
+ * never build or inspect them. A position is either the last id of a
+ * listing ordered by id, or the last sort value and id of a listing with
+ * a named sort order. Cursors are URL-safe base64 without padding, as
+ * they travel in query strings.
+ */
+public class Cursors {
+    private static final String PREFIX = "k1:";
+    private static final String KEYSET_PREFIX = "k2:";
+
+    private Cursors() {}
+
+    /**
+     * @param lastId identifier of the last object on the current page.
+     * @return opaque cursor pointing past that object.
+     */
+    public static String encode(int lastId) {
+        return toBase64(PREFIX + lastId);
+    }
+
+    /**
+     * @param cursor cursor previously produced by encode, or null for the first page.
+     * @return identifier the next page starts after, 0 for the first page.
+     * @throws IllegalArgumentException if the cursor was not produced by encode.
+     */
+    public static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return 0;
+        try {
+            String value = fromBase64(cursor);
+            if (!value.startsWith(PREFIX))
+                throw new IllegalArgumentException("Malformed cursor: " + cursor);
+            return Integer.parseInt(value.substring(PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * @param sort name of the sort order of the listing.
+     * @param value sort value of the last object on the current page, null if it has none.
+     * @param lastId identifier of the last object on the current page.
+     * @return opaque cursor pointing past that object.
+     */
+    public static String encode(String sort, String value, int lastId) {
+        String position = KEYSET_PREFIX + sort + ":" + lastId + ":" + (value == null ? "" : "=" + value);
+        return toBase64(position);
+    }
+
+    /**
+     * @param cursor cursor previously produced by encode, or null for the first page.
+     * @param sort name of the sort order the cursor must belong to.
+     * @return position the next page starts after, null for the first page.
+     * @throws IllegalArgumentException if the cursor was not produced by encode for that sort.
+     */
+    public static Keyset decode(String cursor, String sort) {
+        if (cursor == null || cursor.isEmpty())
+            return null;
+        String value = fromBase64(cursor);
+        String prefix = KEYSET_PREFIX + sort + ":";
+        int separator = value.indexOf(':', prefix.length());
+        if (!value.startsWith(prefix) || separator < 0)
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        try {
+            int lastId = Integer.parseInt(value.substring(prefix.length(), separator));
+            String last = value.substring(separator + 1);
+            if (!last.isEmpty() && !last.startsWith("="))
+                throw new IllegalArgumentException("Malformed cursor: " + cursor);
+            return new Keyset(last.isEmpty() ? null : last.substring(1), lastId);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+
+    private static String toBase64(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is not base64.
+     */
+    private static String fromBase64(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Position in a listing with a named sort order.
+     */
+    public static class Keyset {
+        private final String value;
+        private final int lastId;
+
+        Keyset(String value, int lastId) {
+            this.value = value;
+            this.lastId = lastId;
+        }
+
+        /**
+         * @return sort value of the last object, null if it has none.
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public int getLastId() {
+            return lastId;
+        }
+    }
+}
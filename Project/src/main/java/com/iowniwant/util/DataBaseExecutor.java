@@ -0,0 +1,112 @@
+package com.iowniwant.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of threads doing DataBase work on behalf of asynchronous
+ * requests, with a short queue in front: once that is full new work is
+ * rejected right away instead of piling up behind a slow DataBase.
+ * <p>
+ * A second pool runs the single DAO calls that request workers fan out
+ * through the asynchronous DAOs. Keeping them apart means a worker waiting
+ * for its fetches never waits behind other requests, or behind itself.
+ * Both pools together have as many threads as the connection pool has
+ * connections: the fetch pool <code>async.dao.threads</code> of them, the
+ * workers the others. A worker holding the connection of its unit of work
+ * while it waits for a fetch thus never takes the connection that fetch
+ * needs. Requests served on container threads borrow from the same pool,
+ * so a thread may still wait for a connection, up to
+ * <code>pool.acquire.timeout.ms</code>.
+ */
+public class DataBaseExecutor {
+    private static final Logger log = LoggerFactory.getLogger(DataBaseExecutor.class);
+    private static final int DEFAULT_THREADS = 10;
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor fetchExecutor;
+
+    private DataBaseExecutor() {
+        DataBaseManager dbManager = DataBaseManager.getInstance();
+        int connections = Math.max(2, dbManager.getIntSetting("pool.max.size", DEFAULT_THREADS));
+        int fetchThreads = Math.min(connections - 1,
+                Math.max(1, dbManager.getIntSetting("async.dao.threads", connections / 2)));
+        int threads = connections - fetchThreads;
+        int queueSize = dbManager.getIntSetting("async.queue.size", 2 * threads);
+        executor = newPool("db-worker-", threads, queueSize);
+        fetchExecutor = newPool("db-fetch-", fetchThreads,
+                dbManager.getIntSetting("async.dao.queue.size", queueSize));
+        log.debug("database executor created: {} workers, {} fetch threads, queue of {}",
+                threads, fetchThreads, queueSize);
+    }
+
+    private static ThreadPoolExecutor newPool(final String namePrefix, int threads, int queueSize) {
+        final AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static class Holder {
+        private static final DataBaseExecutor INSTANCE = new DataBaseExecutor();
+    }
+
+    /**
+     * Provides DataBaseExecutor instance.
+     * @return the same DataBaseExecutor object each time its invoked.
+     */
+    public static DataBaseExecutor getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * @return executor rejecting work with a RejectedExecutionException when saturated.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return executor of the asynchronous DAOs, rejecting work with a
+     * RejectedExecutionException when saturated.
+     */
+    public ExecutorService getFetchExecutor() {
+        return fetchExecutor;
+    }
+
+    /**
+     * @return number of tasks waiting for a free worker.
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Stops both pools when the application is undeployed: queued work is
+     * dropped, running work is interrupted.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        fetchExecutor.shutdownNow();
+        log.debug("database executor shut down");
+    }
+}
@@ -11,48 +11,334 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 
 /**
  * Provides connection to the DataBase, manages queries access.
+ * Writes go to the primary DataSource; reads may be routed to the
+ * replicas named by the <code>replica.data.sources</code> setting. Reads
+ * of a user's data stay on the primary for <code>replica.pin.ms</code>
+ * after the data was written, see @see #pinToPrimary(Integer), so the
+ * user does not read a replica that has not caught up with the write.
+ * <p>
+ * If <code>shard.data.sources</code> names DataSources, the rows of a
+ * user, his goals and their tasks live on the shard the @see ShardRing
+ * assigns to the user_id. The primary DataSource then keeps the user
+ * directory only, which hands out user ids and resolves nicknames.
  */
 public class DataBaseManager {
     private static final Logger log = LoggerFactory.getLogger(DataBaseManager.class);
-    private static DataBaseManager instance;
-    private Properties queries;
-    private Connection connection;
+    private static final String DATA_SOURCE_NAME = "java:/jbdc/data-postgres";
+    private static final int DEFAULT_VIRTUAL_NODES = 128;
+    private static final String ENVIRONMENT_PREFIX = "IOWNIWANT_";
+    private static final int DEFAULT_PIN_MILLIS = 10000;
+    private static final int MAX_PINNED_USERS = 10000;
+    private final QueryRegistry queries;
+    private final Properties settings;
+    private volatile DataSource dataSource;
+    private volatile ReplicaRouter replicaRouter;
+    private volatile Shards shards;
+    // users whose reads go to the primary until their entry expires
+    private final LruCache<Integer, Boolean> pinnedUsers;
 
     /**
      * Provides DataBaseManager instance.
      * @return the same DataBaseManager object each time its invoked.
      */
     public static DataBaseManager getInstance() {
-        if (instance == null) {
-            instance = new DataBaseManager();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     private DataBaseManager() {
         log.trace("loading properties");
-        loadProperties();
+        queries = new QueryRegistry(loadResource("/queries.properties"));
+        settings = loadResource("/database.properties");
+        overrideFromEnvironment(settings, System.getenv());
+        pinnedUsers = new LruCache<>(MAX_PINNED_USERS, getIntSetting("replica.pin.ms", DEFAULT_PIN_MILLIS));
     }
 
     /**
-     * Establishes connection to the DataBase.
-     * @return connection to the DataBase.
+     * Lets the environment override the settings of the database.properties,
+     * so that credentials need not ship with the application: the variable
+     * IOWNIWANT_POOL_PASSWORD sets <code>pool.password</code>, and so on.
+     * @param settings settings to override.
+     * @param environment environment variables by name.
+     */
+    static void overrideFromEnvironment(Properties settings, Map<String, String> environment) {
+        for (Map.Entry<String, String> variable : environment.entrySet()) {
+            if (!variable.getKey().startsWith(ENVIRONMENT_PREFIX))
+                continue;
+            String name = variable.getKey().substring(ENVIRONMENT_PREFIX.length())
+                    .toLowerCase(Locale.ROOT).replace('_', '.');
+            settings.setProperty(name, variable.getValue());
+        }
+    }
+
+    private static class Holder {
+        private static final DataBaseManager INSTANCE = new DataBaseManager();
+    }
+
+    /**
+     * Establishes connection to the DataBase, or hands out the connection of
+     * the @see UnitOfWork active on the current thread.
+     * @return connection to the DataBase or null if it could not be obtained.
      */
     public Connection getConnection() {
         try {
-            Context context = new InitialContext();
-            DataSource ds = (DataSource) context.lookup("java:/jbdc/data-postgres");
-            connection = ds.getConnection();
+            UnitOfWork work = UnitOfWork.current();
+            if (work != null)
+                return work.getConnection();
+            Connection connection = getDataSource().getConnection();
             log.debug("Establishing connection");
-        } catch (SQLException | NamingException e) {
+            return connection;
+        } catch (SQLException e) {
             log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
             e.printStackTrace();
         }
-        return connection;
+        return null;
+    }
+
+    /**
+     * Establishes connection for read-only work. Inside a @see UnitOfWork
+     * that already holds a connection the reads share it, so the caller
+     * sees its own uncommitted writes. Otherwise the connection comes from
+     * a replica, or from the primary if there is no replica or none is
+     * reachable.
+     * @return connection to the DataBase or null if it could not be obtained.
+     */
+    public Connection getReadConnection() {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null && work.hasConnection())
+            return getConnection();
+        ReplicaRouter router = getReplicaRouter();
+        if (router.isEmpty())
+            return getConnection();
+        try {
+            return router.getConnection();
+        } catch (SQLException e) {
+            log.warn("no replica reachable, reading from primary: {}", e.getMessage());
+            return getConnection();
+        }
+    }
+
+    /**
+     * @return whether the data of the users is spread over shards.
+     */
+    public boolean isSharded() {
+        return !getShards().dataSources.isEmpty();
+    }
+
+    /**
+     * @return number of shards, one if the data is not sharded.
+     */
+    public int getShardCount() {
+        return Math.max(1, getShards().dataSources.size());
+    }
+
+    /**
+     * @param userId User identifier.
+     * @return position of the shard holding the user's data, 0 if the data is not sharded.
+     */
+    public int getShardOf(int userId) {
+        Shards current = getShards();
+        return current.ring == null ? 0 : current.ring.getShard(userId);
+    }
+
+    /**
+     * Establishes connection to a shard, shared with the @see UnitOfWork
+     * active on the current thread.
+     * @param shard position of the shard.
+     * @return connection to the shard or null if it could not be obtained.
+     */
+    public Connection getShardConnection(int shard) {
+        Shards current = getShards();
+        if (current.dataSources.isEmpty())
+            return getConnection();
+        try {
+            DataSource shardDataSource = current.dataSources.get(shard);
+            UnitOfWork work = UnitOfWork.current();
+            return work != null ? work.getConnection(shardDataSource) : shardDataSource.getConnection();
+        } catch (SQLException e) {
+            log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * @param userId User identifier or null if the owner of the data is unknown.
+     * @return connection for writing the user's data, to the primary if the
+     * data is not sharded or the user is unknown.
+     */
+    public Connection getConnectionFor(Integer userId) {
+        if (userId == null || !isSharded())
+            return getConnection();
+        return getShardConnection(getShardOf(userId));
+    }
+
+    /**
+     * Shards have no replicas, their reads go to the shard itself.
+     * @param userId User identifier or null if the owner of the data is unknown.
+     * @return connection for reading the user's data, see @see #getReadConnection()
+     * if the data is not sharded or the user is unknown, to the primary
+     * while the user is pinned to it.
+     */
+    public Connection getReadConnectionFor(Integer userId) {
+        if (userId == null)
+            return getReadConnection();
+        if (!isSharded())
+            return pinnedUsers.get(userId) != null ? getConnection() : getReadConnection();
+        return getShardConnection(getShardOf(userId));
+    }
+
+    /**
+     * Sends the reads of the user's data to the primary for the next
+     * <code>replica.pin.ms</code>, after the user's data was written.
+     * Replicas apply the write later than the primary.
+     * @param userId User identifier, ignored if null.
+     */
+    public void pinToPrimary(Integer userId) {
+        if (userId != null && !isSharded() && !getReplicaRouter().isEmpty())
+            pinnedUsers.put(userId, Boolean.TRUE);
+    }
+
+    private Shards getShards() {
+        Shards current = shards;
+        if (current == null) {
+            synchronized (this) {
+                current = shards;
+                if (current == null) {
+                    current = lookupShards();
+                    shards = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Unlike a replica, a configured shard that is not bound is an error:
+     * leaving it out would send its users to other shards.
+     */
+    private Shards lookupShards() {
+        List<DataSource> dataSources = new ArrayList<>();
+        for (String name : getSetting("shard.data.sources", "").split(",")) {
+            if (name.trim().isEmpty())
+                continue;
+            DataSource shard = null;
+            try {
+                shard = (DataSource) new InitialContext().lookup(name.trim());
+            } catch (NamingException e) {
+                log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+            }
+            if (shard == null)
+                throw new IllegalStateException("Shard DataSource " + name.trim() + " is not bound");
+            dataSources.add(shard);
+        }
+        if (!dataSources.isEmpty())
+            log.info("data is sharded over {} DataSources", dataSources.size());
+        return new Shards(dataSources, dataSources.isEmpty() ? null
+                : new ShardRing(dataSources.size(), getIntSetting("shard.virtual.nodes", DEFAULT_VIRTUAL_NODES)));
+    }
+
+    /**
+     * Resolves the replicas once, like the primary DataSource. Names
+     * that are not bound are skipped.
+     * @return router over the replica DataSources, empty if there is none.
+     */
+    public ReplicaRouter getReplicaRouter() {
+        ReplicaRouter router = replicaRouter;
+        if (router == null) {
+            synchronized (this) {
+                router = replicaRouter;
+                if (router == null) {
+                    router = lookupReplicas();
+                    replicaRouter = router;
+                }
+            }
+        }
+        return router;
+    }
+
+    private ReplicaRouter lookupReplicas() {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String name : getSetting("replica.data.sources", "").split(",")) {
+            if (name.trim().isEmpty())
+                continue;
+            try {
+                DataSource replica = (DataSource) new InitialContext().lookup(name.trim());
+                if (replica != null) {
+                    log.debug("using replica DataSource {}", name.trim());
+                    replicas.add(replica);
+                }
+            } catch (NamingException e) {
+                log.debug("no replica bound to {}", name.trim());
+            }
+        }
+        return new ReplicaRouter(replicas,
+                ReplicaRouter.Selection.of(getSetting("replica.selection", "round-robin")));
+    }
+
+    /**
+     * Resolves the DataSource once and reuses it for every later call:
+     * the one bound by the container if present, otherwise the built-in
+     * @see ConnectionPool configured by database.properties.
+     * @return DataSource all connections are obtained from.
+     */
+    public DataSource getDataSource() {
+        DataSource ds = dataSource;
+        if (ds == null) {
+            synchronized (this) {
+                ds = dataSource;
+                if (ds == null) {
+                    ds = lookupDataSource();
+                    dataSource = ds;
+                }
+            }
+        }
+        return ds;
+    }
+
+    private DataSource lookupDataSource() {
+        try {
+            Context context = new InitialContext();
+            DataSource ds = (DataSource) context.lookup(DATA_SOURCE_NAME);
+            if (ds != null) {
+                log.debug("using container DataSource {}", DATA_SOURCE_NAME);
+                return ds;
+            }
+        } catch (NamingException e) {
+            log.warn("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+        }
+        log.info("no DataSource bound to {}, starting built-in connection pool", DATA_SOURCE_NAME);
+        return new ConnectionPool(settings);
+    }
+
+    /**
+     * Forgets the resolved DataSource, so that the next connection request
+     * looks it up again, and so do the replicas. Closes the built-in pool
+     * if it was in use.
+     */
+    synchronized void resetDataSource() {
+        if (dataSource instanceof ConnectionPool)
+            ((ConnectionPool) dataSource).close();
+        dataSource = null;
+        replicaRouter = null;
+        shards = null;
+        pinnedUsers.clear();
+    }
+
+    /**
+     * Overrides a setting of the database.properties until the JVM exits.
+     * @param name setting name.
+     * @param value new value of the setting.
+     */
+    synchronized void overrideSetting(String name, String value) {
+        settings.setProperty(name, value);
     }
 
     /**
@@ -60,23 +346,57 @@ public class DataBaseManager {
      * @return query by the given identifier name.
      */
     public String getQuery(String name) {
-        log.debug("Requested query: {}", name);
-        if (queries == null)
-            loadProperties();
-        return queries.getProperty(name);
+        return queries.get(name);
+    }
+
+    /**
+     * @return all queries of the queries.properties.
+     */
+    public QueryRegistry getQueries() {
+        return queries;
+    }
+
+    /**
+     * @param name setting name from the database.properties.
+     * @param defaultValue value used when the setting is absent.
+     * @return integer value of the setting.
+     */
+    public int getIntSetting(String name, int defaultValue) {
+        String value = settings.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * @param name setting name from the database.properties.
+     * @param defaultValue value used when the setting is absent.
+     * @return value of the setting.
+     */
+    public String getSetting(String name, String defaultValue) {
+        return settings.getProperty(name, defaultValue);
+    }
+
+    private static class Shards {
+        private final List<DataSource> dataSources;
+        private final ShardRing ring;
+
+        Shards(List<DataSource> dataSources, ShardRing ring) {
+            this.dataSources = dataSources;
+            this.ring = ring;
+        }
     }
 
-    private void loadProperties() {
+    private Properties loadResource(String name) {
+        Properties properties = new Properties();
         InputStream is = null;
         try {
-            is = getClass().getResourceAsStream("/queries.properties");
-            queries = new Properties();
-            queries.load(is);
+            is = getClass().getResourceAsStream(name);
+            properties.load(is);
         } catch (IOException e) {
             log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
             e.printStackTrace();
         } finally {
             if (is != null)  try { is.close(); } catch (IOException ignored) {}
         }
+        return properties;
     }
 }
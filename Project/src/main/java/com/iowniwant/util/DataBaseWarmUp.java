@@ -0,0 +1,143 @@
+package com.iowniwant.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Prepares the application for its first requests: opens the built-in
+ * pool to its minimum size, checks every query of the
+ * @see QueryRegistry against the schema and runs the read-only ones with
+ * parameters a number of times, so that the driver and the JIT are warm
+ * when the first user arrives.
+ */
+public class DataBaseWarmUp {
+    private static final Logger log = LoggerFactory.getLogger(DataBaseWarmUp.class);
+    private static final String READ_ONLY_PREFIX = "get.";
+
+    private final DataBaseManager dbManager;
+    private final int iterations;
+
+    /**
+     * @param dbManager provides the DataSource and the queries.
+     * @param iterations how many times each read-only query is run.
+     */
+    public DataBaseWarmUp(DataBaseManager dbManager, int iterations) {
+        this.dbManager = dbManager;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Runs all warm-up steps.
+     * @return true if every query is valid and the DataBase was reachable.
+     */
+    public boolean run() {
+        long start = System.currentTimeMillis();
+        try {
+            fillPool();
+            List<String> invalid = validate();
+            if (!invalid.isEmpty()) {
+                log.error("invalid queries: {}", invalid);
+                return false;
+            }
+            exercise();
+            return true;
+        } catch (SQLException e) {
+            log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+            return false;
+        } finally {
+            log.info("warm-up finished in {}ms", System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Opens the built-in pool to its minimum size, a container
+     * DataSource is left to the container.
+     * @throws SQLException if a connection could not be opened.
+     */
+    public void fillPool() throws SQLException {
+        DataSource dataSource = dbManager.getDataSource();
+        if (dataSource instanceof ConnectionPool)
+            ((ConnectionPool) dataSource).fill();
+    }
+
+    /**
+     * Has the DataBase parse and describe every query without executing it.
+     * @return names of the queries the DataBase rejected.
+     * @throws SQLException if no connection could be obtained.
+     */
+    public List<String> validate() throws SQLException {
+        List<String> invalid = new ArrayList<>();
+        try (Connection connection = dbManager.getDataSource().getConnection()) {
+            for (String name : sortedNames()) {
+                try (PreparedStatement prepStatement = connection.prepareStatement(dbManager.getQuery(name))) {
+                    // forces the driver to send the statement to the server
+                    prepStatement.getParameterMetaData();
+                } catch (SQLException e) {
+                    log.error("query {} is invalid: {}", name, e.getMessage());
+                    invalid.add(name);
+                }
+            }
+        }
+        log.debug("validated {} queries", dbManager.getQueries().size());
+        return invalid;
+    }
+
+    /**
+     * Runs every read-only query with all parameters bound to NULL, which
+     * matches no rows but takes the same path through driver and server.
+     * Queries without parameters, e.g. <code>get.all.goal</code>, would read
+     * whole tables; @see #validate() already had them prepared, they are
+     * not run.
+     * @throws SQLException if no connection could be obtained.
+     */
+    public void exercise() throws SQLException {
+        try (Connection connection = dbManager.getDataSource().getConnection()) {
+            for (String name : sortedNames()) {
+                if (!name.startsWith(READ_ONLY_PREFIX))
+                    continue;
+                try (PreparedStatement prepStatement = connection.prepareStatement(dbManager.getQuery(name))) {
+                    ParameterMetaData parameters = prepStatement.getParameterMetaData();
+                    if (parameters.getParameterCount() == 0)
+                        continue;
+                    for (int i = 0; i < iterations; i++) {
+                        for (int p = 1; p <= parameters.getParameterCount(); p++) {
+                            prepStatement.setNull(p, parameterType(parameters, p));
+                        }
+                        try (ResultSet resultSet = prepStatement.executeQuery()) {
+                            while (resultSet.next()) {
+                                // drain
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    log.warn("could not warm up query {}: {}", name, e.getMessage());
+                }
+            }
+        }
+        log.debug("ran read-only queries {} times each", iterations);
+    }
+
+    private Set<String> sortedNames() {
+        return new TreeSet<>(dbManager.getQueries().names());
+    }
+
+    private static int parameterType(ParameterMetaData parameters, int index) {
+        try {
+            return parameters.getParameterType(index);
+        } catch (SQLException e) {
+            return Types.VARCHAR;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.iowniwant.util;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.DaoFactory;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.ImportReport;
+import com.iowniwant.model.Page;
+import com.iowniwant.search.GoalSearchIndex;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the goals of a bulk import into the storage of the goals chunk by
+ * chunk while they are read, see @see GoalRowReader. On PostgreSQL the
+ * rows are streamed through <code>COPY</code>, on other DataBases they are
+ * inserted in batches, and the memory and log engines get them through the
+ * DAO.
+ * <p>
+ * Every chunk is read into memory before a connection is taken for it, so
+ * a slow client holds no connection while it uploads, and is committed on
+ * its own: the triggers keeping the goal ordinals and summaries update the
+ * row of the user for every goal, which one transaction for the whole body
+ * would hold locked, and would grow to the size of the body. A failing
+ * chunk is rolled back and stops the import, the chunks before it stay
+ * imported.
+ */
+public class GoalImporter {
+    private static final Logger log = LoggerFactory.getLogger(GoalImporter.class);
+    private static final int DEFAULT_CHUNK_ROWS = 5000;
+    private static final int DEFAULT_MAX_ERRORS = 100;
+    // characters collected before they are handed to the COPY
+    private static final int BUFFER_CHARS = 64 * 1024;
+    // not a queries.properties entry, it is no statement the warm up could prepare
+    static final String COPY_SQL = "COPY iowniwant.goal (title, cost, description, pubdate, notes, user_id) " +
+            "FROM STDIN WITH (FORMAT csv)";
+
+    private final DataBaseManager dbManager;
+    private final AbstractGoalDAO goalDao;
+    private final GoalSearchIndex index;
+    private final boolean jdbc;
+    private final int chunkRows;
+    private final int maxErrors;
+
+    /**
+     * @param dbManager provides the connections of the jdbc engine.
+     * @param goalDao creates the goals of the other engines and reads the imported goals back.
+     * @param index indexes the goals loaded around the DAO.
+     * @param jdbc whether the goals are kept in the DataBase.
+     * @param chunkRows number of rows committed together.
+     * @param maxErrors number of rejected rows reported in detail.
+     */
+    public GoalImporter(DataBaseManager dbManager, AbstractGoalDAO goalDao, GoalSearchIndex index,
+                        boolean jdbc, int chunkRows, int maxErrors) {
+        this.dbManager = dbManager;
+        this.goalDao = goalDao;
+        this.index = index;
+        this.jdbc = jdbc;
+        this.chunkRows = Math.max(1, chunkRows);
+        this.maxErrors = Math.max(0, maxErrors);
+    }
+
+    /**
+     * @return importer into the configured storage engine, configured by
+     * the <code>import.*</code> settings.
+     */
+    public static GoalImporter configured() {
+        DataBaseManager dbManager = DataBaseManager.getInstance();
+        DaoFactory daoFactory = DaoFactory.getInstance();
+        return new GoalImporter(dbManager, daoFactory.getGoalDao(), GoalSearchIndex.getInstance(),
+                daoFactory.isJdbc(),
+                dbManager.getIntSetting("import.chunk.rows", DEFAULT_CHUNK_ROWS),
+                dbManager.getIntSetting("import.max.errors", DEFAULT_MAX_ERRORS));
+    }
+
+    /**
+     * @return empty report of an import, detailing the configured number of rejections.
+     */
+    public ImportReport newReport() {
+        return new ImportReport(maxErrors);
+    }
+
+    /**
+     * Loads every valid row of the body. Commits as it goes, outside the
+     * @see UnitOfWork of the caller, which is suspended meanwhile.
+     * @param userId identifier of the user owning the goals.
+     * @param rows goals of the body, rejecting the invalid rows into their report.
+     * @return report of the rows, failed if the body could not be read or written to the end.
+     * @throws IllegalArgumentException if the body has no valid CSV header.
+     */
+    public ImportReport load(Integer userId, GoalRowReader rows) {
+        long start = System.currentTimeMillis();
+        ImportReport report = rows.getReport();
+        UnitOfWork suspended = UnitOfWork.suspend();
+        try {
+            // a bad header is refused before a connection is taken
+            Goal first = rows.next();
+            if (first == null)
+                return report;
+            if (jdbc)
+                loadIntoDataBase(userId, first, rows, report);
+            else
+                loadThroughDao(first, rows, report);
+        } catch (IOException e) {
+            log.warn("import body of user {} could not be read: {}", userId, e.getMessage());
+            report.fail("Import body could not be read: " + e.getMessage());
+        } finally {
+            UnitOfWork.resume(suspended);
+        }
+        log.info("imported goals of user {} in {}ms: {}", userId, System.currentTimeMillis() - start, report);
+        return report;
+    }
+
+    private void loadIntoDataBase(Integer userId, Goal first, GoalRowReader rows, ImportReport report)
+            throws IOException {
+        Integer lastId = lastGoalId(userId);
+        if (lastId == null) {
+            report.fail("No connection to import goals");
+            return;
+        }
+        List<Goal> chunk = new ArrayList<>(chunkRows);
+        Goal goal = first;
+        try {
+            while (goal != null) {
+                // the whole chunk is read before a connection is taken, a
+                // slow client holds none and no transaction open
+                chunk.clear();
+                while (goal != null && chunk.size() < chunkRows) {
+                    chunk.add(goal);
+                    goal = rows.next();
+                }
+                if (!write(userId, chunk, report))
+                    return;
+            }
+        } finally {
+            if (report.getImported() > 0)
+                refresh(userId, lastId);
+        }
+    }
+
+    /**
+     * @return the highest goal id of the user before the import, null if the DataBase could not be read.
+     */
+    private Integer lastGoalId(Integer userId) {
+        Connection connection = dbManager.getConnectionFor(userId);
+        if (connection == null)
+            return null;
+        PreparedStatement prepStatement = null;
+        ResultSet resultSet = null;
+        try {
+            prepStatement = connection.prepareStatement(dbManager.getQuery("get.max.goal.id.by.user.id"));
+            prepStatement.setInt(1, userId);
+            resultSet = prepStatement.executeQuery();
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        } catch (SQLException e) {
+            log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+            return null;
+        } finally {
+            if (resultSet != null) try { resultSet.close(); } catch (SQLException ignored) {}
+            if (prepStatement != null) try { prepStatement.close(); } catch (SQLException ignored) {}
+            try { connection.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Writes and commits one chunk with a connection of its own.
+     * @return false if the chunk failed and the import stops.
+     */
+    private boolean write(Integer userId, List<Goal> chunk, ImportReport report) {
+        Connection connection = dbManager.getConnectionFor(userId);
+        if (connection == null) {
+            report.fail("No connection to import goals");
+            return false;
+        }
+        try {
+            connection.setAutoCommit(false);
+            if (connection.isWrapperFor(PGConnection.class))
+                copy(connection.unwrap(PGConnection.class).getCopyAPI(), chunk);
+            else
+                insert(connection, chunk);
+            connection.commit();
+            report.imported(chunk.size());
+            log.debug("imported {} goals", chunk.size());
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            try { connection.rollback(); } catch (SQLException ignored) {}
+            log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+            report.fail("Goals could not be written: " + e.getMessage());
+            return false;
+        } finally {
+            try { connection.setAutoCommit(true); } catch (SQLException ignored) {}
+            try { connection.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Streams the chunk as CSV into one <code>COPY</code>.
+     */
+    private void copy(CopyManager copyManager, List<Goal> chunk) throws SQLException {
+        StringBuilder buffer = new StringBuilder(BUFFER_CHARS + 1024);
+        CopyIn copyIn = copyManager.copyIn(COPY_SQL);
+        try {
+            for (Goal goal : chunk) {
+                appendRow(buffer, goal);
+                if (buffer.length() >= BUFFER_CHARS)
+                    flush(copyIn, buffer);
+            }
+            flush(copyIn, buffer);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) try { copyIn.cancelCopy(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Inserts the chunk with one batch, for DataBases without <code>COPY</code>.
+     */
+    private void insert(Connection connection, List<Goal> chunk) throws SQLException {
+        PreparedStatement insert = connection.prepareStatement(dbManager.getQuery("batch.create.goal"));
+        try {
+            for (Goal goal : chunk) {
+                insert.setString(1, goal.getTitle());
+                insert.setDouble(2, goal.getCost());
+                insert.setString(3, goal.getDescription());
+                insert.setObject(4, goal.getPubdate(), Types.DATE);
+                insert.setString(5, goal.getNotes());
+                insert.setInt(6, goal.getUser().getId());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } finally {
+            try { insert.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    private void loadThroughDao(Goal goal, GoalRowReader rows, ImportReport report) throws IOException {
+        List<Goal> chunk = new ArrayList<>(chunkRows);
+        while (goal != null) {
+            chunk.add(goal);
+            goal = rows.next();
+            if (chunk.size() == chunkRows || goal == null) {
+                if (goalDao.createAll(chunk) == null) {
+                    report.fail("Goals could not be written");
+                    return;
+                }
+                report.imported(chunk.size());
+                chunk = new ArrayList<>(chunkRows);
+            }
+        }
+    }
+
+    /**
+     * Drops the cached goals of the user and indexes the goals loaded
+     * around the DAO, those after the highest id the user had before.
+     */
+    private void refresh(Integer userId, int lastId) {
+        dbManager.pinToPrimary(userId);
+        goalDao.invalidateGoalsOf(userId);
+        String cursor = Cursors.encode(lastId);
+        do {
+            Page<Goal> page = goalDao.getGoalsPage(userId, cursor, AbstractGoalDAO.MAX_PAGE_SIZE);
+            for (Goal goal : page.getItems()) {
+                index.put(goal.getId(), goal);
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+    }
+
+    /**
+     * Appends the goal as a line of <code>COPY</code> CSV: texts quoted,
+     * their quotes doubled, and absent values left unquoted empty, which
+     * <code>COPY</code> reads as NULL.
+     */
+    static void appendRow(StringBuilder buffer, Goal goal) {
+        appendText(buffer, goal.getTitle());
+        buffer.append(',').append(goal.getCost()).append(',');
+        appendText(buffer, goal.getDescription());
+        buffer.append(',');
+        if (goal.getPubdate() != null)
+            buffer.append(goal.getPubdate());
+        buffer.append(',');
+        appendText(buffer, goal.getNotes());
+        buffer.append(',').append(goal.getUser().getId()).append('\n');
+    }
+
+    private static void appendText(StringBuilder buffer, String text) {
+        if (text == null)
+            return;
+        buffer.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"')
+                buffer.append('"');
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0)
+            return;
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.iowniwant.util;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.User;
+
+import java.lang.reflect.Type;
+import java.sql.Date;
+
+/**
+ * Serializes goals for the ajax endpoints. The owning user is left out:
+ * the client already knows who it is, and the user carries the password.
+ */
+public class GoalJson {
+    private static final Gson gson = new GsonBuilder()
+            .setExclusionStrategies(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes field) {
+                    return field.getDeclaringClass() == Goal.class && field.getDeclaredClass() == User.class;
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> clazz) {
+                    return false;
+                }
+            })
+            .registerTypeAdapter(Date.class, new JsonSerializer<Date>() {
+                @Override
+                public JsonElement serialize(Date date, Type type, JsonSerializationContext context) {
+                    // same yyyy-mm-dd form the goals page renders
+                    return new JsonPrimitive(date.toString());
+                }
+            })
+            .create();
+
+    private GoalJson() {}
+
+    /**
+     * @param object goal, page of goals or any structure holding them.
+     * @return JSON representation without the goals' users.
+     */
+    public static String toJson(Object object) {
+        return gson.toJson(object);
+    }
+}
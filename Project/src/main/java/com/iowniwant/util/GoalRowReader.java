@@ -0,0 +1,343 @@
+package com.iowniwant.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.ImportReport;
+import com.iowniwant.model.User;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the goals of a bulk import one row at a time from a CSV or JSON
+ * lines body, never holding more than the current row. CSV bodies start
+ * with a header naming their columns; JSON lines hold one object per line.
+ * Both know the fields title and cost, both required, and description,
+ * pubdate (yyyy-mm-dd) and notes. Rows that are not a valid goal are
+ * counted in the @see ImportReport and skipped.
+ * <p>
+ * A row is held only up to a cap, so that a body without line breaks
+ * cannot fill the heap: a CSV record keeps one field more than there are
+ * known ones, a JSON line one character more than MAX_LINE_LENGTH; such
+ * rows are rejected.
+ */
+public class GoalRowReader {
+    static final int MAX_TEXT_LENGTH = 255;
+    private static final List<String> FIELDS = Arrays.asList("title", "cost", "description", "pubdate", "notes");
+    // every field at its longest, escaped, with the names and punctuation of a JSON object
+    static final int MAX_LINE_LENGTH = 2 * FIELDS.size() * MAX_TEXT_LENGTH + 256;
+
+    /**
+     * Formats of an import body.
+     */
+    public enum Format {
+        CSV, JSON_LINES;
+
+        /**
+         * @param contentType content type of the body, parameters such as the charset ignored.
+         * @return the format of that content type.
+         * @throws IllegalArgumentException if the content type is none of the formats.
+         */
+        public static Format of(String contentType) {
+            String type = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            if (type.equals("text/csv"))
+                return CSV;
+            if (type.equals("application/x-ndjson") || type.equals("application/jsonl")
+                    || type.equals("application/json"))
+                return JSON_LINES;
+            throw new IllegalArgumentException("Unsupported import type: " + contentType);
+        }
+    }
+
+    private final BufferedReader in;
+    private final Format format;
+    private final User user;
+    private final ImportReport report;
+    private final JsonParser jsonParser = new JsonParser();
+    // line the next character is on, and the one the current row started on
+    private long line = 1;
+    private long rowLine;
+    private int[] columns;
+    // fields of the last CSV record, also those not kept
+    private int recordFields;
+
+    /**
+     * @param in body of the import.
+     * @param format format of the body.
+     * @param user owner of the imported goals.
+     * @param report receives the rejected rows.
+     */
+    public GoalRowReader(Reader in, Format format, User user, ImportReport report) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        this.format = format;
+        this.user = user;
+        this.report = report;
+    }
+
+    /**
+     * @return next valid goal of the body, null at its end.
+     * @throws IOException if the body could not be read.
+     * @throws IllegalArgumentException if a CSV header is missing or names unknown columns.
+     */
+    public Goal next() throws IOException {
+        while (true) {
+            List<String> fields = format == Format.CSV ? nextCsvRow() : nextJsonRow();
+            if (fields == null)
+                return null;
+            Goal goal = goalOf(fields);
+            if (goal != null)
+                return goal;
+        }
+    }
+
+    /**
+     * @return report the rejected rows are counted in.
+     */
+    public ImportReport getReport() {
+        return report;
+    }
+
+    /**
+     * @return fields of the next row in the order of FIELDS, null for an
+     * absent one, or null at the end of the body; rows that cannot be
+     * split into fields are rejected here.
+     */
+    private List<String> nextCsvRow() throws IOException {
+        if (columns == null)
+            readHeader();
+        while (true) {
+            List<String> record = readRecord();
+            if (record == null)
+                return null;
+            if (record.size() == 1 && record.get(0).isEmpty())
+                continue;
+            if (record.size() != columns.length) {
+                report.reject(rowLine, "expected " + columns.length + " fields, found " + recordFields);
+                continue;
+            }
+            List<String> fields = new ArrayList<>(Arrays.asList(new String[FIELDS.size()]));
+            for (int i = 0; i < columns.length; i++) {
+                fields.set(columns[i], record.get(i));
+            }
+            return fields;
+        }
+    }
+
+    private void readHeader() throws IOException {
+        List<String> header = readRecord();
+        if (header == null)
+            throw new IllegalArgumentException("CSV import without header");
+        columns = new int[header.size()];
+        boolean[] seen = new boolean[FIELDS.size()];
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            int field = FIELDS.indexOf(name);
+            if (field < 0 || seen[field])
+                throw new IllegalArgumentException("Unknown or repeated CSV column: " + name);
+            seen[field] = true;
+            columns[i] = field;
+        }
+        if (!seen[0] || !seen[1])
+            throw new IllegalArgumentException("CSV import needs the columns title and cost");
+    }
+
+    /**
+     * Reads one RFC 4180 record: fields separated by commas, quoted with
+     * double quotes when they hold commas, quotes or line breaks.
+     * @return fields of the record, null at the end of the body.
+     */
+    private List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        recordFields = 0;
+        rowLine = line;
+        while (true) {
+            int c = in.read();
+            if (c < 0) {
+                if (!any)
+                    return null;
+                addField(fields, field);
+                return fields;
+            }
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        append(field, '"');
+                    } else {
+                        quoted = false;
+                        if (next >= 0)
+                            in.reset();
+                    }
+                } else {
+                    if (c == '\n')
+                        line++;
+                    append(field, (char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                addField(fields, field);
+                field.setLength(0);
+            } else if (c == '\n') {
+                line++;
+                addField(fields, field);
+                return fields;
+            } else if (c != '\r') {
+                append(field, (char) c);
+            }
+        }
+    }
+
+    /**
+     * Keeps one field more than there are known ones, enough to reject the record.
+     */
+    private void addField(List<String> fields, StringBuilder field) {
+        recordFields++;
+        if (fields.size() <= FIELDS.size())
+            fields.add(field.toString());
+    }
+
+    private static void append(StringBuilder field, char c) {
+        // one character over the limit is enough to reject the field
+        if (field.length() <= MAX_TEXT_LENGTH)
+            field.append(c);
+    }
+
+    private List<String> nextJsonRow() throws IOException {
+        while (true) {
+            String text = readLine();
+            rowLine = line++;
+            if (text == null)
+                return null;
+            if (text.length() > MAX_LINE_LENGTH) {
+                report.reject(rowLine, "line longer than " + MAX_LINE_LENGTH + " characters");
+                continue;
+            }
+            if (text.trim().isEmpty())
+                continue;
+            JsonElement element;
+            try {
+                element = jsonParser.parse(text);
+            } catch (JsonParseException e) {
+                report.reject(rowLine, "not JSON");
+                continue;
+            }
+            if (!element.isJsonObject()) {
+                report.reject(rowLine, "not a JSON object");
+                continue;
+            }
+            List<String> fields = jsonFields(element.getAsJsonObject());
+            if (fields != null)
+                return fields;
+        }
+    }
+
+    /**
+     * Reads a line like @see BufferedReader#readLine(), but keeps at most
+     * one character over MAX_LINE_LENGTH of it, the rest is skipped.
+     * @return the line without its terminator, null at the end of the body.
+     */
+    private String readLine() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            if (text.length() <= MAX_LINE_LENGTH)
+                text.append((char) c);
+        }
+        if (c < 0 && text.length() == 0)
+            return null;
+        int end = text.length();
+        if (end > 0 && text.charAt(end - 1) == '\r' && end <= MAX_LINE_LENGTH)
+            text.setLength(end - 1);
+        return text.toString();
+    }
+
+    private List<String> jsonFields(JsonObject object) {
+        List<String> fields = new ArrayList<>(Arrays.asList(new String[FIELDS.size()]));
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            int field = FIELDS.indexOf(entry.getKey());
+            JsonElement value = entry.getValue();
+            if (field < 0) {
+                report.reject(rowLine, "unknown field " + entry.getKey());
+                return null;
+            }
+            if (value.isJsonNull())
+                continue;
+            if (!value.isJsonPrimitive()) {
+                report.reject(rowLine, entry.getKey() + " is not a value");
+                return null;
+            }
+            fields.set(field, value.getAsString());
+        }
+        return fields;
+    }
+
+    /**
+     * @param fields fields of the row in the order of FIELDS.
+     * @return goal of the row, null if it was rejected.
+     */
+    private Goal goalOf(List<String> fields) {
+        String title = text(fields.get(0));
+        String cost = text(fields.get(1));
+        String description = text(fields.get(2));
+        String pubdate = text(fields.get(3));
+        String notes = text(fields.get(4));
+        if (title == null)
+            return reject("title is missing");
+        if (title.length() > MAX_TEXT_LENGTH || description != null && description.length() > MAX_TEXT_LENGTH
+                || notes != null && notes.length() > MAX_TEXT_LENGTH)
+            return reject("text longer than " + MAX_TEXT_LENGTH + " characters");
+        if (title.indexOf(0) >= 0 || description != null && description.indexOf(0) >= 0
+                || notes != null && notes.indexOf(0) >= 0)
+            return reject("text holds a NUL character");
+        if (cost == null)
+            return reject("cost is missing");
+        double amount;
+        try {
+            amount = Double.parseDouble(cost);
+        } catch (NumberFormatException e) {
+            return reject("cost is not a number: " + cost);
+        }
+        if (!(amount >= 0) || amount > Float.MAX_VALUE)
+            return reject("cost out of range: " + cost);
+        Date date = null;
+        if (pubdate != null) {
+            try {
+                date = Date.valueOf(pubdate);
+            } catch (IllegalArgumentException e) {
+                return reject("pubdate is not yyyy-mm-dd: " + pubdate);
+            }
+        }
+        return new Goal(title, amount, description, date, notes, user);
+    }
+
+    private Goal reject(String message) {
+        report.reject(rowLine, message);
+        return null;
+    }
+
+    /**
+     * @return the value trimmed, null if it is absent or blank.
+     */
+    private static String text(String value) {
+        if (value == null)
+            return null;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
@@ -0,0 +1,250 @@
+package com.iowniwant.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache evicting the least recently used entries once
+ * the maximum size is reached. Every entry counts as one towards the size
+ * unless a subclass weighs its values differently. Entries also expire a
+ * fixed time after they were put, so a value is never served longer than
+ * the time to live even if nobody invalidates it. All methods are thread
+ * safe; holding the cache's monitor makes a sequence of calls atomic.
+ * <p>
+ * A value loaded while an invalidation runs may be older than the
+ * invalidation. Loaders read the @see #generation() before they load and
+ * cache with @see #putIfCurrent(Object, Object, long), which drops the
+ * value if anything was invalidated meanwhile.
+ * @param <K> type of the keys.
+ * @param <V> type of the cached values.
+ */
+public class LruCache<K, V> {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long weight;
+    private long generation;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize maximum total weight of the entries kept.
+     * @param ttlMillis time in milliseconds an entry stays valid after it was put.
+     */
+    public LruCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1 || ttlMillis < 0)
+            throw new IllegalArgumentException("Invalid cache bounds: size " + maxSize + ", ttl " + ttlMillis);
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        // access order turns iteration order into least recently used first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param key key of the entry.
+     * @return cached value or null if there is none or it has expired.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt <= now()) {
+            remove(key);
+            evictions.incrementAndGet();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Returns the cached value without counting a hit or miss and without
+     * making the entry the most recently used one.
+     * @param key key of the entry.
+     * @return cached value or null if there is none or it has expired.
+     */
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null || entry.expiresAt <= now() ? null : entry.value;
+    }
+
+    /**
+     * Caches the value, evicting the least recently used entries if the
+     * cache grew over its maximum size. A value heavier than the maximum
+     * size on its own is not cached at all.
+     * @param key key of the entry.
+     * @param value value to be cached, null values are not cached.
+     */
+    public synchronized void put(K key, V value) {
+        if (value == null)
+            return;
+        remove(key);
+        int valueWeight = weigh(value);
+        if (valueWeight > maxSize)
+            return;
+        entries.put(key, new Entry<>(value, valueWeight, now() + ttlMillis));
+        weight += valueWeight;
+        Iterator<Map.Entry<K, Entry<V>>> eldestFirst = entries.entrySet().iterator();
+        while (weight > maxSize) {
+            Map.Entry<K, Entry<V>> eldest = eldestFirst.next();
+            weight -= eldest.getValue().weight;
+            eldestFirst.remove();
+            evictions.incrementAndGet();
+            removed(eldest.getKey(), eldest.getValue().value);
+        }
+    }
+
+    /**
+     * Caches the value unless an entry was invalidated or the cache cleared
+     * since the generation was read.
+     * @param key key of the entry.
+     * @param value value to be cached, null values are not cached.
+     * @param generation @see #generation() read before the value was loaded.
+     * @return whether the value was cached.
+     */
+    public synchronized boolean putIfCurrent(K key, V value, long generation) {
+        if (generation != this.generation)
+            return false;
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * @return counter of the invalidations, advanced by every invalidate and clear.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * @param key key of the entry to be dropped.
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        remove(key);
+    }
+
+    /**
+     * Drops every entry whose value matches the predicate.
+     * @param predicate condition on the cached values.
+     */
+    public synchronized void invalidateIf(Predicate<? super V> predicate) {
+        generation++;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (predicate.apply(entry.getValue().value)) {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+                removed(entry.getKey(), entry.getValue().value);
+            }
+        }
+    }
+
+    /**
+     * Drops all entries, the counters are kept.
+     */
+    public synchronized void clear() {
+        generation++;
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            removed(entry.getKey(), entry.getValue().value);
+        }
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return total weight of the cached entries.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    private void remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+            removed(key, entry.value);
+        }
+    }
+
+    /**
+     * Called with the cache's monitor held whenever an entry leaves the
+     * cache: replaced, invalidated, evicted or expired. Does nothing by default.
+     * @param key key of the entry.
+     * @param value value of the entry.
+     */
+    protected void removed(K key, V value) {
+    }
+
+    /**
+     * @param value value to be cached.
+     * @return how much the value counts towards the maximum size, one by default.
+     */
+    protected int weigh(V value) {
+        return 1;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries dropped because of the size bound or their expiry.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return current time in milliseconds, used for expiry.
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "LruCache{" +
+                "size=" + size() +
+                ", weight=" + getWeight() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+
+    /**
+     * Condition used to invalidate entries by their values.
+     * @param <V> type of the cached values.
+     */
+    public interface Predicate<V> {
+        boolean apply(V value);
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final int weight;
+        private final long expiresAt;
+
+        Entry(V value, int weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
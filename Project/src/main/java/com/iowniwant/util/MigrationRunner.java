@@ -0,0 +1,488 @@
+package com.iowniwant.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Brings a DataBase schema up to date with the versioned scripts
+ * <code>V{n}__{description}.sql</code>, by default those of
+ * <code>db/migration</code> on the classpath. Applied versions are recorded
+ * in <code>iowniwant.schema_version</code> with the checksum of their
+ * script; a script changed after it was applied stops the run.
+ * <p>
+ * Every script runs in a transaction of its own, together with the row
+ * recording it, so scripts must not commit themselves. A runner started
+ * concurrently on another node waits on that row and skips the version
+ * once it is committed. A DataBase set up before the versions were
+ * recorded, by the schema script <code>initial-data.sql</code> was then,
+ * holds the schema of V1 without any version; the first run records V1
+ * as its baseline and applies the later ones. Runs at deploy time through
+ * @see com.iowniwant.controller.listener.MigrationListener, or from the
+ * command line by {@link #main(String[])}. The sample data of
+ * <code>initial-data.sql</code> is loaded once the schema is built.
+ * <p>
+ * The shipped scripts need PostgreSQL 10 or newer: the ordinal triggers of
+ * V2 are statement-level triggers reading transition tables.
+ */
+public class MigrationRunner {
+    private static final Logger log = LoggerFactory.getLogger(MigrationRunner.class);
+    public static final String LOCATION = "db/migration";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern DOLLAR_TAG = Pattern.compile("\\$([A-Za-z_][A-Za-z_0-9]*)?\\$");
+
+    private final List<Migration> migrations;
+
+    /**
+     * @param migrations scripts to apply, in any order.
+     * @throws IllegalStateException if two scripts have the same version.
+     */
+    public MigrationRunner(List<Migration> migrations) {
+        Map<Integer, Migration> byVersion = new TreeMap<>();
+        for (Migration migration : migrations) {
+            if (byVersion.put(migration.getVersion(), migration) != null)
+                throw new IllegalStateException("Two migrations of version " + migration.getVersion());
+        }
+        this.migrations = Collections.unmodifiableList(new ArrayList<>(byVersion.values()));
+    }
+
+    /**
+     * @param location directory of the scripts on the classpath, in a directory or a jar.
+     * @return runner of the scripts found there.
+     * @throws IllegalStateException if the scripts could not be read.
+     */
+    public static MigrationRunner fromClasspath(String location) {
+        ClassLoader loader = MigrationRunner.class.getClassLoader();
+        List<Migration> migrations = new ArrayList<>();
+        try {
+            Enumeration<URL> urls = loader.getResources(location);
+            while (urls.hasMoreElements()) {
+                for (String name : list(urls.nextElement(), location)) {
+                    Matcher matcher = SCRIPT_NAME.matcher(name);
+                    if (!matcher.matches())
+                        continue;
+                    InputStream in = loader.getResourceAsStream(location + "/" + name);
+                    try {
+                        migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                                matcher.group(2).replace('_', ' '), read(in)));
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the migrations of " + location, e);
+        }
+        return new MigrationRunner(migrations);
+    }
+
+    /**
+     * Migrates the primary DataBase and every shard of the DataBaseManager.
+     * @param dbManager provides the connections.
+     * @return number of scripts applied, over all DataBases.
+     * @throws SQLException if a script failed; the DataBases migrated before stay migrated.
+     */
+    public int migrateAll(DataBaseManager dbManager) throws SQLException {
+        int applied = migrate(required(dbManager.getConnection()));
+        if (dbManager.isSharded()) {
+            for (int shard = 0; shard < dbManager.getShardCount(); shard++) {
+                applied += migrate(required(dbManager.getShardConnection(shard)));
+            }
+        }
+        return applied;
+    }
+
+    private static Connection required(Connection connection) throws SQLException {
+        if (connection == null)
+            throw new SQLException("No connection to migrate");
+        return connection;
+    }
+
+    /**
+     * Applies the scripts the DataBase lacks, in version order, and closes the connection.
+     * @param connection connection to the DataBase.
+     * @return number of scripts applied.
+     * @throws SQLException if a script failed, the versions before it stay applied.
+     * @throws IllegalStateException if an applied script was changed, or a
+     * script is older than the latest applied one.
+     */
+    public int migrate(Connection connection) throws SQLException {
+        long start = System.currentTimeMillis();
+        try {
+            connection.setAutoCommit(true);
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute("CREATE SCHEMA IF NOT EXISTS iowniwant");
+                statement.execute("CREATE TABLE IF NOT EXISTS iowniwant.schema_version (" +
+                        "version INT NOT NULL, description VARCHAR(200) NOT NULL, checksum INT, " +
+                        "installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                        "execution_ms INT NOT NULL DEFAULT 0, " +
+                        "CONSTRAINT schema_version_pk PRIMARY KEY (version))");
+            } finally {
+                statement.close();
+            }
+            Map<Integer, Integer> applied = applied(connection);
+            if (applied.isEmpty() && !migrations.isEmpty() && migrations.get(0).getVersion() == 1
+                    && hasUserTable(connection)) {
+                baseline(connection, migrations.get(0));
+                applied = applied(connection);
+            }
+            int latest = validate(applied);
+            int count = 0;
+            for (Migration migration : migrations) {
+                if (applied.containsKey(migration.getVersion()))
+                    continue;
+                if (migration.getVersion() < latest)
+                    throw new IllegalStateException("Migration V" + migration.getVersion()
+                            + " is older than the applied V" + latest);
+                if (apply(connection, migration))
+                    count++;
+            }
+            log.info("{} migrations applied in {}ms", count, System.currentTimeMillis() - start);
+            return count;
+        } finally {
+            try { connection.setAutoCommit(true); } catch (SQLException ignored) {}
+            try { connection.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * @return checksums of the applied versions, null for the ones recorded without.
+     */
+    private static Map<Integer, Integer> applied(Connection connection) throws SQLException {
+        Map<Integer, Integer> applied = new HashMap<>();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = null;
+        try {
+            resultSet = statement.executeQuery("SELECT version, checksum FROM iowniwant.schema_version");
+            while (resultSet.next()) {
+                int version = resultSet.getInt(1);
+                int checksum = resultSet.getInt(2);
+                applied.put(version, resultSet.wasNull() ? null : checksum);
+            }
+        } finally {
+            if (resultSet != null) try { resultSet.close(); } catch (SQLException ignored) {}
+            try { statement.close(); } catch (SQLException ignored) {}
+        }
+        return applied;
+    }
+
+    /**
+     * @return whether the tables of V1 are there, checked by the one every later version builds on.
+     */
+    private static boolean hasUserTable(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = null;
+        try {
+            // the case of the stored names differs between DataBases
+            resultSet = statement.executeQuery("SELECT count(*) FROM information_schema.tables " +
+                    "WHERE lower(table_schema) = 'iowniwant' AND lower(table_name) = 'user'");
+            return resultSet.next() && resultSet.getInt(1) > 0;
+        } finally {
+            if (resultSet != null) try { resultSet.close(); } catch (SQLException ignored) {}
+            try { statement.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Records the first migration as applied without running it, without
+     * a checksum, as it was not this script that built the schema.
+     * A concurrent runner recording it as well is fine.
+     */
+    private static void baseline(Connection connection, Migration migration) throws SQLException {
+        PreparedStatement record = connection.prepareStatement(
+                "INSERT INTO iowniwant.schema_version (version, description) VALUES (?, ?)");
+        try {
+            record.setInt(1, migration.getVersion());
+            record.setString(2, migration.getDescription());
+            record.executeUpdate();
+            log.info("recorded the existing schema as migration V{}", migration.getVersion());
+        } catch (SQLException e) {
+            if (!applied(connection).containsKey(migration.getVersion()))
+                throw e;
+        } finally {
+            try { record.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * @return latest applied version, 0 if there is none.
+     */
+    private int validate(Map<Integer, Integer> applied) {
+        Map<Integer, Migration> known = new HashMap<>();
+        for (Migration migration : migrations) {
+            known.put(migration.getVersion(), migration);
+        }
+        int latest = 0;
+        for (Map.Entry<Integer, Integer> version : applied.entrySet()) {
+            latest = Math.max(latest, version.getKey());
+            Migration migration = known.get(version.getKey());
+            if (migration == null) {
+                // an older deployment against a newer schema
+                log.warn("applied migration V{} is unknown", version.getKey());
+            } else if (version.getValue() != null && version.getValue() != migration.getChecksum()) {
+                throw new IllegalStateException("Migration V" + version.getKey() + " was changed after it was applied");
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * @return false if another runner applied the migration meanwhile.
+     */
+    private boolean apply(Connection connection, Migration migration) throws SQLException {
+        long start = System.currentTimeMillis();
+        connection.setAutoCommit(false);
+        PreparedStatement record = null;
+        Statement statement = null;
+        String current = null;
+        try {
+            record = connection.prepareStatement(
+                    "INSERT INTO iowniwant.schema_version (version, description, checksum) VALUES (?, ?, ?)");
+            record.setInt(1, migration.getVersion());
+            record.setString(2, migration.getDescription());
+            record.setInt(3, migration.getChecksum());
+            try {
+                // waits for a concurrent runner holding the same version
+                record.executeUpdate();
+            } catch (SQLException e) {
+                connection.rollback();
+                if (applied(connection).containsKey(migration.getVersion())) {
+                    log.info("migration V{} applied by another runner", migration.getVersion());
+                    return false;
+                }
+                throw e;
+            }
+            statement = connection.createStatement();
+            for (String sql : split(migration.getScript())) {
+                current = sql;
+                statement.execute(sql);
+            }
+            current = null;
+            statement.execute("UPDATE iowniwant.schema_version SET execution_ms = "
+                    + (System.currentTimeMillis() - start) + " WHERE version = " + migration.getVersion());
+            connection.commit();
+            log.info("applied migration V{} {} in {}ms", migration.getVersion(), migration.getDescription(),
+                    System.currentTimeMillis() - start);
+            return true;
+        } catch (SQLException e) {
+            try { connection.rollback(); } catch (SQLException ignored) {}
+            throw new SQLException("Migration V" + migration.getVersion() + " failed"
+                    + (current == null ? "" : " at: " + current), e.getSQLState(), e);
+        } finally {
+            if (record != null) try { record.close(); } catch (SQLException ignored) {}
+            if (statement != null) try { statement.close(); } catch (SQLException ignored) {}
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Cuts a script into its statements at the semicolons outside of quotes,
+     * dollar-quoted bodies and comments. Comments outside of the bodies are
+     * dropped.
+     * @param script SQL script.
+     * @return statements without their semicolon, blank ones left out.
+     */
+    static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        int length = script.length();
+        while (i < length) {
+            char c = script.charAt(i);
+            char next = i + 1 < length ? script.charAt(i + 1) : 0;
+            int end = i + 1;
+            if (c == '-' && next == '-') {
+                end = script.indexOf('\n', i);
+                i = end < 0 ? length : end;
+                continue;
+            }
+            if (c == '/' && next == '*') {
+                end = script.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                current.append(' ');
+                continue;
+            }
+            if (c == '\'' || c == '"') {
+                end = closingQuote(script, i);
+            } else if (c == '$') {
+                Matcher tag = DOLLAR_TAG.matcher(script).region(i, length);
+                if (tag.lookingAt()) {
+                    end = script.indexOf(tag.group(), tag.end());
+                    end = end < 0 ? length : end + tag.group().length();
+                }
+            } else if (c == ';') {
+                addStatement(statements, current);
+                current.setLength(0);
+                i++;
+                continue;
+            }
+            current.append(script, i, end);
+            i = end;
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static int closingQuote(String script, int open) {
+        char quote = script.charAt(open);
+        int i = open + 1;
+        while (i < script.length()) {
+            if (script.charAt(i) == quote) {
+                // a doubled quote stands for itself
+                if (i + 1 < script.length() && script.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return script.length();
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String sql = current.toString().trim();
+        if (!sql.isEmpty())
+            statements.add(sql);
+    }
+
+    /**
+     * @return names of the files in the directory or jar entry of the URL.
+     */
+    private static List<String> list(URL url, String location) throws IOException {
+        List<String> names = new ArrayList<>();
+        if ("file".equals(url.getProtocol())) {
+            String[] files = new File(URLDecoder.decode(url.getPath(), "UTF-8")).list();
+            if (files != null)
+                Collections.addAll(names, files);
+        } else if ("jar".equals(url.getProtocol())) {
+            JarURLConnection connection = (JarURLConnection) url.openConnection();
+            connection.setUseCaches(false);
+            JarFile jar = connection.getJarFile();
+            try {
+                String prefix = location + "/";
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (name.startsWith(prefix) && name.indexOf('/', prefix.length()) < 0)
+                        names.add(name.substring(prefix.length()));
+                }
+            } finally {
+                jar.close();
+            }
+        } else {
+            log.warn("cannot list migrations at {}", url);
+        }
+        return names;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the scripts, ordered by version.
+     */
+    public List<Migration> getMigrations() {
+        return migrations;
+    }
+
+    /**
+     * Migrates from the command line: with a JDBC url, user and password the
+     * DataBase they denote, otherwise the DataBases of database.properties.
+     * @param args JDBC url, user and password, or nothing.
+     * @throws SQLException if a script failed.
+     */
+    public static void main(String[] args) throws SQLException {
+        MigrationRunner runner = fromClasspath(LOCATION);
+        int applied;
+        if (args.length >= 3) {
+            applied = runner.migrate(DriverManager.getConnection(args[0], args[1], args[2]));
+        } else if (args.length == 0) {
+            applied = runner.migrateAll(DataBaseManager.getInstance());
+        } else {
+            System.err.println("usage: MigrationRunner [jdbc-url user password]");
+            return;
+        }
+        System.out.println(applied + " migrations applied");
+    }
+
+    /**
+     * One versioned script.
+     */
+    public static class Migration {
+        private final int version;
+        private final String description;
+        private final String script;
+        private final int checksum;
+
+        /**
+         * @param version version the script brings the schema to.
+         * @param description what the script does.
+         * @param script SQL statements separated by semicolons.
+         */
+        public Migration(int version, String description, String script) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            CRC32 crc = new CRC32();
+            // line endings depend on the checkout, not on the script
+            crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+            this.checksum = (int) crc.getValue();
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public String getScript() {
+            return script;
+        }
+
+        public int getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public String toString() {
+            return "V" + version + "__" + description.replace(' ', '_');
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.iowniwant.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable set of the named SQL statements of queries.properties,
+ * built once so that looking a query up is a plain map read.
+ */
+public final class QueryRegistry {
+    private final Map<String, String> queries;
+
+    /**
+     * @param properties query names mapped to their SQL.
+     */
+    public QueryRegistry(Properties properties) {
+        Map<String, String> copy = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            copy.put(name, properties.getProperty(name).trim());
+        }
+        this.queries = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @param name query name from the queries.properties.
+     * @return SQL of the query or null if there is no such query.
+     */
+    public String get(String name) {
+        return queries.get(name);
+    }
+
+    /**
+     * @return names of all registered queries.
+     */
+    public Set<String> names() {
+        return queries.keySet();
+    }
+
+    public int size() {
+        return queries.size();
+    }
+}
@@ -0,0 +1,137 @@
+package com.iowniwant.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads read-only connections over the replicas of the DataBase. A
+ * replica is picked either in turn or as the one with the fewest
+ * connections currently open through this router; if it cannot hand out
+ * a connection the next one is tried.
+ */
+public class ReplicaRouter {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    /**
+     * How the replica serving a read is picked.
+     */
+    public enum Selection {
+        ROUND_ROBIN, LEAST_LOADED;
+
+        /**
+         * @param name <code>round-robin</code> or <code>least-loaded</code>, case insensitive.
+         * @return selection of the given name.
+         * @throws IllegalArgumentException if there is no such selection.
+         */
+        public static Selection of(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final List<DataSource> replicas;
+    private final AtomicInteger[] open;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Selection selection;
+
+    /**
+     * @param replicas DataSources of the replicas, may be empty.
+     * @param selection how the replica serving a read is picked.
+     */
+    public ReplicaRouter(List<DataSource> replicas, Selection selection) {
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.selection = selection;
+        this.open = new AtomicInteger[replicas.size()];
+        for (int i = 0; i < open.length; i++) {
+            open[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * @return true if there are no replicas to route to.
+     */
+    public boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    public int size() {
+        return replicas.size();
+    }
+
+    /**
+     * @return connection to one of the replicas, counted as open until it is closed.
+     * @throws SQLException if no replica could hand out a connection, or there is none.
+     */
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty())
+            throw new SQLException("No replica configured");
+        int first = pick();
+        SQLException failure = null;
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (first + i) % replicas.size();
+            try {
+                Connection connection = replicas.get(index).getConnection();
+                open[index].incrementAndGet();
+                return counted(connection, index);
+            } catch (SQLException e) {
+                log.warn("replica {} unavailable: {}", index, e.getMessage());
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * @param index position of the replica.
+     * @return number of connections to the replica currently open through this router.
+     */
+    public int getOpenCount(int index) {
+        return open[index].get();
+    }
+
+    private int pick() {
+        if (selection == Selection.ROUND_ROBIN)
+            return (next.getAndIncrement() & Integer.MAX_VALUE) % replicas.size();
+        int best = 0;
+        for (int i = 1; i < open.length; i++) {
+            if (open[i].get() < open[best].get())
+                best = i;
+        }
+        return best;
+    }
+
+    private Connection counted(final Connection connection, final int index) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    private boolean closed;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("close")) {
+                            synchronized (this) {
+                                if (!closed)
+                                    open[index].decrementAndGet();
+                                closed = true;
+                            }
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+}
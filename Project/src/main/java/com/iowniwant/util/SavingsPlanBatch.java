@@ -0,0 +1,271 @@
+package com.iowniwant.util;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.CloseableIterator;
+import com.iowniwant.dao.implementation.GoalDao;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.SavingsPlan;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plans the savings of every user with goals and writes the plans to
+ * <code>iowniwant.savings_plan</code>, one row per goal.
+ * <p>
+ * The goals are streamed through one cursor, grouped by user as the goal
+ * listing comes ordered by user, and cut into chunks of users. Each chunk
+ * is planned on a @see ForkJoinPool while the next one is read, so the
+ * cores plan while the DataBase streams; the plans of a chunk replace the
+ * previous ones of its users in one transaction per shard. Users without
+ * goals have no rows, their rows went with their goals.
+ * <p>
+ * Every node of the application schedules the batch. On PostgreSQL a run
+ * first takes an advisory lock on the primary, held by a connection of its
+ * own until the run ends, and is skipped while another node holds it.
+ */
+public class SavingsPlanBatch {
+    private static final Logger log = LoggerFactory.getLogger(SavingsPlanBatch.class);
+    private static final int DEFAULT_CHUNK_USERS = 1000;
+    private static final int DEFAULT_THRESHOLD = 64;
+    // not queries.properties entries, only PostgreSQL knows advisory locks
+    static final String LOCK_SQL = "SELECT pg_try_advisory_lock(?)";
+    static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(?)";
+    static final long LOCK_KEY = "iowniwant.savings_plan".hashCode();
+
+    private final DataBaseManager dbManager;
+    private final AbstractGoalDAO goalDao;
+    private final SavingsPlanner planner;
+    private final Comparator<Goal> order;
+    private final int parallelism;
+    private final int chunkUsers;
+    private final int threshold;
+
+    /**
+     * @param dbManager provides the connections the plans are written through.
+     * @param goalDao streams the goals, ordered by user.
+     * @param planner plans the goals of one user.
+     * @param order order the goals are paid in.
+     * @param parallelism number of threads planning.
+     * @param chunkUsers number of users planned and written together.
+     * @param threshold number of users a thread plans without splitting them further.
+     */
+    public SavingsPlanBatch(DataBaseManager dbManager, AbstractGoalDAO goalDao, SavingsPlanner planner,
+                            Comparator<Goal> order, int parallelism, int chunkUsers, int threshold) {
+        this.dbManager = dbManager;
+        this.goalDao = goalDao;
+        this.planner = planner;
+        this.order = order;
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkUsers = Math.max(1, chunkUsers);
+        this.threshold = Math.max(1, threshold);
+    }
+
+    /**
+     * @return batch over the DataBase goals, configured by the
+     * <code>planner.*</code> settings; the parallelism defaults to the
+     * number of processors.
+     */
+    public static SavingsPlanBatch configured() {
+        DataBaseManager dbManager = DataBaseManager.getInstance();
+        return new SavingsPlanBatch(dbManager, GoalDao.getInstance(), SavingsPlanner.configured(),
+                SavingsPlanner.order(dbManager.getSetting("planner.batch.order", SavingsPlanner.ORDER_BY_COST)),
+                dbManager.getIntSetting("planner.batch.parallelism", Runtime.getRuntime().availableProcessors()),
+                dbManager.getIntSetting("planner.batch.chunk.users", DEFAULT_CHUNK_USERS),
+                dbManager.getIntSetting("planner.batch.threshold", DEFAULT_THRESHOLD));
+    }
+
+    /**
+     * Plans every user with goals, unless another node is doing so.
+     * @return number of users planned, 0 if the run was skipped.
+     * @throws IllegalStateException if the goals could not be read or the plans written.
+     */
+    public int run() {
+        Connection connection = dbManager.getConnection();
+        if (connection == null)
+            throw new IllegalStateException("No connection to lock the savings plan batch");
+        try {
+            if (!lock(connection, LOCK_SQL)) {
+                log.info("savings plan batch is running on another node, skipped");
+                return 0;
+            }
+            try {
+                return plan();
+            } finally {
+                lock(connection, UNLOCK_SQL);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not lock the savings plan batch", e);
+        } finally {
+            try { connection.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Takes or releases the advisory lock of the batch on PostgreSQL; the
+     * other DataBases, single nodes and tests, need none.
+     * @return whether the lock was taken or released.
+     */
+    private static boolean lock(Connection connection, String sql) throws SQLException {
+        if (!connection.isWrapperFor(PGConnection.class))
+            return true;
+        PreparedStatement prepStatement = connection.prepareStatement(sql);
+        ResultSet resultSet = null;
+        try {
+            prepStatement.setLong(1, LOCK_KEY);
+            resultSet = prepStatement.executeQuery();
+            return resultSet.next() && resultSet.getBoolean(1);
+        } finally {
+            if (resultSet != null) try { resultSet.close(); } catch (SQLException ignored) {}
+            try { prepStatement.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    private int plan() {
+        long start = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        CloseableIterator<Goal> goals = goalDao.iterateAll();
+        int planned = 0;
+        try {
+            PlanTask pending = null;
+            List<List<Goal>> chunk = new ArrayList<>(chunkUsers);
+            List<Goal> current = null;
+            while (goals.hasNext()) {
+                Goal goal = goals.next();
+                if (current == null || current.get(0).getUser().getId() != goal.getUser().getId()) {
+                    if (chunk.size() == chunkUsers) {
+                        planned += write(pending);
+                        pending = submit(pool, chunk);
+                        chunk = new ArrayList<>(chunkUsers);
+                    }
+                    current = new ArrayList<>();
+                    chunk.add(current);
+                }
+                current.add(goal);
+            }
+            planned += write(pending);
+            if (!chunk.isEmpty())
+                planned += write(submit(pool, chunk));
+            log.info("planned savings of {} users in {}ms", planned, System.currentTimeMillis() - start);
+            return planned;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not write savings plans", e);
+        } finally {
+            goals.close();
+            pool.shutdownNow();
+        }
+    }
+
+    private PlanTask submit(ForkJoinPool pool, List<List<Goal>> users) {
+        PlanTask task = new PlanTask(users, new SavingsPlan[users.size()], 0, users.size());
+        pool.execute(task);
+        return task;
+    }
+
+    private int write(PlanTask task) throws SQLException {
+        if (task == null)
+            return 0;
+        task.join();
+        Map<Integer, List<SavingsPlan>> plansByShard = new TreeMap<>();
+        for (SavingsPlan plan : task.plans) {
+            Integer shard = dbManager.isSharded() ? dbManager.getShardOf(plan.getUserId()) : 0;
+            List<SavingsPlan> plans = plansByShard.get(shard);
+            if (plans == null) {
+                plans = new ArrayList<>();
+                plansByShard.put(shard, plans);
+            }
+            plans.add(plan);
+        }
+        for (List<SavingsPlan> plans : plansByShard.values()) {
+            write(plans);
+        }
+        return task.plans.length;
+    }
+
+    private void write(List<SavingsPlan> plans) throws SQLException {
+        Connection connection = dbManager.getConnectionFor(plans.get(0).getUserId());
+        if (connection == null)
+            throw new SQLException("No connection to write savings plans");
+        PreparedStatement delete = null;
+        PreparedStatement insert = null;
+        try {
+            connection.setAutoCommit(false);
+            delete = connection.prepareStatement(dbManager.getQuery("delete.savings.plan.by.user.ids"));
+            insert = connection.prepareStatement(dbManager.getQuery("batch.create.savings.plan"));
+            Integer[] userIds = new Integer[plans.size()];
+            for (int i = 0; i < userIds.length; i++) {
+                SavingsPlan plan = plans.get(i);
+                userIds[i] = plan.getUserId();
+                List<SavingsPlan.Funding> fundings = plan.getGoals();
+                for (int position = 0; position < fundings.size(); position++) {
+                    SavingsPlan.Funding funding = fundings.get(position);
+                    insert.setInt(1, plan.getUserId());
+                    insert.setInt(2, funding.getGoalId());
+                    insert.setInt(3, position + 1);
+                    insert.setObject(4, funding.getStartMonth(), Types.INTEGER);
+                    insert.setObject(5, funding.getFundedMonth(), Types.INTEGER);
+                    insert.addBatch();
+                }
+            }
+            Array array = connection.createArrayOf("integer", userIds);
+            delete.setArray(1, array);
+            delete.executeUpdate();
+            insert.executeBatch();
+            connection.commit();
+            log.debug("wrote savings plans of {} users", plans.size());
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            if (delete != null) try { delete.close(); } catch (SQLException ignored) {}
+            if (insert != null) try { insert.close(); } catch (SQLException ignored) {}
+            try { connection.setAutoCommit(true); } catch (SQLException ignored) {}
+            try { connection.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /**
+     * Plans a range of the users of a chunk, splitting it in halves until
+     * a range is small enough to plan on one thread.
+     */
+    private class PlanTask extends RecursiveAction {
+        private final List<List<Goal>> users;
+        private final SavingsPlan[] plans;
+        private final int from;
+        private final int to;
+
+        PlanTask(List<List<Goal>> users, SavingsPlan[] plans, int from, int to) {
+            this.users = users;
+            this.plans = plans;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    List<Goal> goals = users.get(i);
+                    plans[i] = planner.plan(goals.get(0).getUser(), goals, order);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PlanTask(users, plans, from, middle), new PlanTask(users, plans, middle, to));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.iowniwant.util;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.SavingsPlan;
+import com.iowniwant.model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Simulates a user saving his whole month salary and paying his goals one
+ * after the other, in the order of a goal comparator. The money left in a
+ * month once a goal is paid goes to the next goal in the same month.
+ * <p>
+ * Amounts are counted in cents, so that a plan never drifts from the costs
+ * over hundreds of months. The work is proportional to the number of goals
+ * plus the number of months, which the horizon bounds. Instances hold no
+ * state besides the horizon and can be shared between threads.
+ */
+public class SavingsPlanner {
+    public static final String ORDER_BY_COST = "cost";
+    public static final String ORDER_BY_DATE = "date";
+    private static final int DEFAULT_MAX_MONTHS = 600;
+
+    private final int maxMonths;
+
+    /**
+     * @param maxMonths horizon of the plans, goals not paid by then stay unpaid.
+     */
+    public SavingsPlanner(int maxMonths) {
+        this.maxMonths = maxMonths;
+    }
+
+    /**
+     * @return planner with the horizon of the <code>planner.max.months</code> setting.
+     */
+    public static SavingsPlanner configured() {
+        return new SavingsPlanner(DataBaseManager.getInstance()
+                .getIntSetting("planner.max.months", DEFAULT_MAX_MONTHS));
+    }
+
+    /**
+     * Maps the name of an order to its goal comparator: the cheapest goals
+     * first by @see Goal.howMuchCost, or the oldest first by
+     * @see Goal.whenPublished, goals without a date last.
+     * @param name {@link #ORDER_BY_COST} or {@link #ORDER_BY_DATE}, null for the first.
+     * @return comparator of the goals, ties broken by goal identifier.
+     * @throws IllegalArgumentException if there is no order of that name.
+     */
+    public static Comparator<Goal> order(String name) {
+        final Comparator<Goal> order;
+        if (name == null || ORDER_BY_COST.equals(name)) {
+            order = new Goal.howMuchCost();
+        } else if (ORDER_BY_DATE.equals(name)) {
+            final Goal.whenPublished byDate = new Goal.whenPublished();
+            order = new Comparator<Goal>() {
+                @Override
+                public int compare(Goal v, Goal w) {
+                    if (v.getPubdate() == null || w.getPubdate() == null)
+                        return v.getPubdate() == null ? (w.getPubdate() == null ? 0 : 1) : -1;
+                    return byDate.compare(v, w);
+                }
+            };
+        } else {
+            throw new IllegalArgumentException("Unknown goal order: " + name);
+        }
+        return new Comparator<Goal>() {
+            @Override
+            public int compare(Goal v, Goal w) {
+                int comp = order.compare(v, w);
+                return comp != 0 ? comp : Integer.compare(v.getId(), w.getId());
+            }
+        };
+    }
+
+    /**
+     * @param user user saving his month salary.
+     * @param goals goals of the user, left untouched.
+     * @param order order the goals are paid in.
+     * @return month by month plan of the goals.
+     */
+    public SavingsPlan plan(User user, List<Goal> goals, Comparator<Goal> order) {
+        List<Goal> sorted = new ArrayList<>(goals);
+        Collections.sort(sorted, order);
+
+        long salary = Math.max(0, cents(user.getMonthSalary()));
+        List<SavingsPlan.Funding> fundings = new ArrayList<>(sorted.size());
+        List<SavingsPlan.Installment> schedule = new ArrayList<>();
+        int month = 1;
+        // money of the current month not spent yet
+        long left = salary;
+        int lastFunded = 1;
+        // goals are paid in order, none after the first one left unpaid
+        boolean reachable = true;
+        for (Goal goal : sorted) {
+            long remaining = Math.max(0, cents(goal.getCost()));
+            Integer start = null;
+            while (reachable && remaining > 0 && salary > 0 && month <= maxMonths) {
+                long amount = Math.min(left, remaining);
+                if (start == null)
+                    start = month;
+                schedule.add(new SavingsPlan.Installment(month, goal.getId(), amount / 100.0));
+                remaining -= amount;
+                left -= amount;
+                lastFunded = month;
+                if (left == 0) {
+                    month++;
+                    left = salary;
+                }
+            }
+            Integer funded = null;
+            if (reachable && remaining == 0) {
+                funded = lastFunded;
+                if (start == null)
+                    start = funded;
+            } else {
+                reachable = false;
+            }
+            fundings.add(new SavingsPlan.Funding(goal.getId(), goal.getTitle(), goal.getCost(), start, funded));
+        }
+        return new SavingsPlan(user.getId(), user.getMonthSalary(), fundings, schedule);
+    }
+
+    private static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+}
@@ -0,0 +1,74 @@
+package com.iowniwant.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring mapping user ids to shards. Every shard owns a
+ * number of virtual nodes spread over the ring; a key belongs to the
+ * first node at or after its hash. Adding a shard only moves the keys
+ * that the new shard's nodes take over, every other key stays where it is;
+ * the rows of the moved keys have to be copied to the new shard beforehand.
+ */
+public class ShardRing {
+    private final TreeMap<Integer, Integer> nodes = new TreeMap<>();
+    private final int shards;
+
+    /**
+     * @param shards number of shards, identified by their position 0..shards-1.
+     * @param virtualNodes number of nodes every shard owns on the ring.
+     */
+    public ShardRing(int shards, int virtualNodes) {
+        if (shards < 1 || virtualNodes < 1)
+            throw new IllegalArgumentException("Invalid ring: " + shards + " shards, " + virtualNodes + " nodes");
+        this.shards = shards;
+        MessageDigest md5 = md5();
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                byte[] digest = md5.digest(("shard-" + shard + "-node-" + node).getBytes(StandardCharsets.UTF_8));
+                // a colliding node keeps its first owner, so the ring does not depend on insertion order
+                Integer point = (digest[0] & 0xff) << 24 | (digest[1] & 0xff) << 16
+                        | (digest[2] & 0xff) << 8 | (digest[3] & 0xff);
+                if (!nodes.containsKey(point))
+                    nodes.put(point, shard);
+            }
+        }
+    }
+
+    /**
+     * @param key user identifier.
+     * @return position of the shard owning the key.
+     */
+    public int getShard(int key) {
+        Map.Entry<Integer, Integer> node = nodes.ceilingEntry(hash(key));
+        return node == null ? nodes.firstEntry().getValue() : node.getValue();
+    }
+
+    public int size() {
+        return shards;
+    }
+
+    /**
+     * Spreads consecutive ids over the whole ring, see MurmurHash3's finalizer.
+     */
+    static int hash(int key) {
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
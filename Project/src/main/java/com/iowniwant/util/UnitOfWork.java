@@ -0,0 +1,321 @@
+package com.iowniwant.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds one connection and transaction to the current thread. While a
+ * unit of work is active, @see DataBaseManager#getConnection() hands out
+ * that connection to every DAO call, so a request borrows at most one
+ * connection and its writes commit or roll back together.
+ * <p>
+ * The connection is only borrowed on first use. DAOs see a view of it on
+ * which close, commit and setAutoCommit do nothing and rollback marks the
+ * whole unit rollback-only; the unit itself ends the transaction.
+ * Beginning a unit while one is active joins it, only the outermost
+ * scope commits and releases the connection.
+ * <p>
+ * Work spanning several shards borrows one connection per shard. They
+ * commit one after the other, there is no two-phase commit: a failure
+ * between two commits rolls back only the shards not committed yet.
+ * <pre>
+ * try (UnitOfWork work = UnitOfWork.begin()) {
+ *     ...
+ *     work.commit();
+ * }
+ * </pre>
+ */
+public final class UnitOfWork implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(UnitOfWork.class);
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final List<Runnable> completionActions = new ArrayList<>();
+    private final List<Runnable> commitActions = new ArrayList<>();
+    private final Map<DataSource, Borrowed> borrowed = new LinkedHashMap<>();
+    private int depth = 1;
+    private boolean rollbackOnly;
+    private boolean completed;
+
+    private UnitOfWork() {}
+
+    /**
+     * Starts a unit of work on the current thread or joins the active one.
+     * @return the active unit of work, to be closed by the caller.
+     */
+    public static UnitOfWork begin() {
+        UnitOfWork work = CURRENT.get();
+        if (work != null) {
+            work.depth++;
+            return work;
+        }
+        work = new UnitOfWork();
+        CURRENT.set(work);
+        return work;
+    }
+
+    /**
+     * @return the unit of work active on the current thread or null.
+     */
+    public static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Detaches the active unit of work from the current thread, for work
+     * that ends its own transactions, e.g. a bulk import committing chunk
+     * by chunk. DAO calls made meanwhile use connections of their own.
+     * @return the detached unit of work or null, to be given to @see #resume(UnitOfWork).
+     */
+    public static UnitOfWork suspend() {
+        UnitOfWork work = CURRENT.get();
+        CURRENT.remove();
+        return work;
+    }
+
+    /**
+     * Binds a unit of work detached by @see #suspend() to the current thread again.
+     * @param work the detached unit of work or null.
+     */
+    public static void resume(UnitOfWork work) {
+        if (work == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(work);
+    }
+
+    /**
+     * Runs the action once the active unit of work committed or rolled
+     * back, or right away if there is none. Used to drop cached state
+     * that must not outlive an uncommitted write.
+     * @param action action to be run.
+     */
+    public static void afterCompletion(Runnable action) {
+        UnitOfWork work = CURRENT.get();
+        if (work == null || work.completed)
+            action.run();
+        else
+            work.completionActions.add(action);
+    }
+
+    /**
+     * Runs the action once the active unit of work committed, or right
+     * away if there is none. Nothing is run if it rolls back. Used to
+     * publish state derived from a write only once the write is durable.
+     * @param action action to be run.
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork work = CURRENT.get();
+        if (work == null || work.completed)
+            action.run();
+        else
+            work.commitActions.add(action);
+    }
+
+    /**
+     * Caches must not pick up rows a still open transaction has written,
+     * other threads could see them before the commit or after a rollback.
+     * @return whether the active unit of work registered an after-completion action.
+     */
+    public static boolean isDirty() {
+        UnitOfWork work = CURRENT.get();
+        return work != null && !work.completed && !work.completionActions.isEmpty();
+    }
+
+    /**
+     * @return connection to the primary DataSource shared by every DAO call within this unit.
+     * @throws SQLException if no connection could be borrowed.
+     */
+    Connection getConnection() throws SQLException {
+        return getConnection(DataBaseManager.getInstance().getDataSource());
+    }
+
+    /**
+     * @param dataSource DataSource, e.g. of a shard, the connection is borrowed from.
+     * @return connection to the DataSource shared by every DAO call within this unit.
+     * @throws SQLException if no connection could be borrowed.
+     */
+    Connection getConnection(DataSource dataSource) throws SQLException {
+        if (completed)
+            throw new SQLException("Unit of work has already completed");
+        Borrowed connection = borrowed.get(dataSource);
+        if (connection == null) {
+            Connection physical = dataSource.getConnection();
+            physical.setAutoCommit(false);
+            connection = new Borrowed(physical);
+            borrowed.put(dataSource, connection);
+            log.debug("unit of work borrowed a connection");
+        }
+        return connection.shared;
+    }
+
+    /**
+     * @return whether this unit borrowed a connection and has not completed yet.
+     */
+    boolean hasConnection() {
+        return !borrowed.isEmpty() && !completed;
+    }
+
+    /**
+     * Makes the transaction roll back whatever happens later.
+     */
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * Commits the transaction. Does nothing in a joined scope, the
+     * outermost one decides.
+     * @throws SQLException if the commit failed or the unit was marked
+     * rollback-only, the transaction is rolled back then.
+     */
+    public void commit() throws SQLException {
+        if (depth > 1 || completed)
+            return;
+        if (rollbackOnly) {
+            complete(false);
+            throw new SQLException("Unit of work was marked rollback-only and has been rolled back");
+        }
+        complete(true);
+    }
+
+    /**
+     * Rolls the transaction back; in a joined scope marks it rollback-only.
+     */
+    public void rollback() {
+        if (depth > 1) {
+            rollbackOnly = true;
+            return;
+        }
+        if (completed)
+            return;
+        try {
+            complete(false);
+        } catch (SQLException e) {
+            log.error("{}: {}", e.getClass().getCanonicalName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Leaves the scope. The outermost scope rolls back an uncommitted
+     * transaction and gives the connection back.
+     */
+    @Override
+    public void close() {
+        if (--depth > 0)
+            return;
+        CURRENT.remove();
+        rollback();
+        for (Borrowed connection : borrowed.values()) {
+            try { connection.physical.setAutoCommit(true); } catch (SQLException ignored) {}
+            try { connection.physical.close(); } catch (SQLException ignored) {}
+        }
+        borrowed.clear();
+    }
+
+    private void complete(boolean commit) throws SQLException {
+        completed = true;
+        List<Borrowed> pending = new ArrayList<>(borrowed.values());
+        try {
+            while (!pending.isEmpty()) {
+                if (commit)
+                    pending.get(0).physical.commit();
+                else
+                    try { pending.get(0).physical.rollback(); } catch (SQLException ignored) {}
+                pending.remove(0);
+            }
+            if (!borrowed.isEmpty())
+                log.debug("unit of work {}", commit ? "committed" : "rolled back");
+            if (commit) {
+                for (Runnable action : commitActions) {
+                    action.run();
+                }
+            }
+        } catch (SQLException e) {
+            for (Borrowed connection : pending)
+                try { connection.physical.rollback(); } catch (SQLException ignored) {}
+            throw e;
+        } finally {
+            for (Runnable action : completionActions) {
+                action.run();
+            }
+            completionActions.clear();
+            commitActions.clear();
+        }
+    }
+
+    /**
+     * Physical connection of the unit and the view of it handed to DAOs.
+     */
+    private class Borrowed {
+        private final Connection physical;
+        private final Connection shared;
+
+        Borrowed(Connection physical) {
+            this.physical = physical;
+            this.shared = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new SharedConnection(physical));
+        }
+    }
+
+    /**
+     * View of the physical connection handed to DAOs: they may not end the
+     * transaction or release the connection on their own.
+     */
+    private class SharedConnection implements InvocationHandler {
+        private final Connection physical;
+
+        SharedConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "setAutoCommit":
+                    return null;
+                case "getAutoCommit":
+                    return false;
+                case "isClosed":
+                    return completed || physical.isClosed();
+                case "rollback":
+                    if (args == null) {
+                        rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "UnitOfWork" + physical;
+            }
+            if (completed)
+                throw new SQLException("Unit of work has already completed");
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
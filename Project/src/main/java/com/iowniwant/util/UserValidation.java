@@ -1,13 +1,14 @@
 package com.iowniwant.util;
 
-import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.DaoFactory;
 import com.iowniwant.model.User;
 
 /**
  * Validates the user persistence in the DataBase.
  */
 public class UserValidation {
-    private static UserDao userDao = UserDao.getInstance();
+    private static AbstractUserDAO userDao = DaoFactory.getInstance().getUserDao();
 
     /**
      * /**
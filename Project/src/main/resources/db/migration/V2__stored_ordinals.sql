@@ -0,0 +1,95 @@
+-- Replaces the v_goal / v_task row_number() views with stored ordinals.
+-- Existing rows are numbered the way the views numbered them (by id within
+-- the parent) and the parent counters are seeded from the row counts.
+ALTER TABLE iowniwant.user ADD COLUMN goal_count INT NOT NULL DEFAULT 0;
+ALTER TABLE iowniwant.goal ADD COLUMN v_goal_id INT,
+                           ADD COLUMN task_count INT NOT NULL DEFAULT 0;
+ALTER TABLE iowniwant.task ADD COLUMN v_task_id INT;
+
+UPDATE iowniwant.goal g SET v_goal_id = r.ordinal
+  FROM (SELECT goal_id, row_number() OVER (PARTITION BY user_id ORDER BY goal_id) AS ordinal
+          FROM iowniwant.goal) r
+ WHERE g.goal_id = r.goal_id;
+UPDATE iowniwant.task t SET v_task_id = r.ordinal
+  FROM (SELECT task_id, row_number() OVER (PARTITION BY goal_id ORDER BY task_id) AS ordinal
+          FROM iowniwant.task) r
+ WHERE t.task_id = r.task_id;
+UPDATE iowniwant.user u SET goal_count = c.total
+  FROM (SELECT user_id, count(*) AS total FROM iowniwant.goal GROUP BY user_id) c
+ WHERE u.user_id = c.user_id;
+UPDATE iowniwant.goal g SET task_count = c.total
+  FROM (SELECT goal_id, count(*) AS total FROM iowniwant.task GROUP BY goal_id) c
+ WHERE g.goal_id = c.goal_id;
+
+ALTER TABLE iowniwant.goal ALTER COLUMN v_goal_id SET NOT NULL,
+  ADD CONSTRAINT goal_ordinal_uq UNIQUE (user_id, v_goal_id) DEFERRABLE INITIALLY DEFERRED;
+ALTER TABLE iowniwant.task ALTER COLUMN v_task_id SET NOT NULL,
+  ADD CONSTRAINT task_ordinal_uq UNIQUE (goal_id, v_task_id) DEFERRABLE INITIALLY DEFERRED;
+
+-- Per-parent ordinals: v_goal_id numbers a user's goals 1..n and v_task_id
+-- numbers a goal's tasks 1..n, both in insertion order. They are assigned
+-- from the parent's counter on insert and closed up again on delete.
+CREATE OR REPLACE FUNCTION iowniwant.assign_goal_ordinal() RETURNS trigger AS $$
+BEGIN
+  UPDATE iowniwant.user SET goal_count = goal_count + 1
+   WHERE user_id = NEW.user_id
+  RETURNING goal_count INTO NEW.v_goal_id;
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION iowniwant.compact_goal_ordinals() RETURNS trigger AS $$
+BEGIN
+  UPDATE iowniwant.goal g SET v_goal_id = r.ordinal
+    FROM (SELECT o.goal_id,
+                 d.first_gap - 1 + row_number() OVER (PARTITION BY o.user_id ORDER BY o.v_goal_id) AS ordinal
+            FROM iowniwant.goal o
+            JOIN (SELECT user_id, min(v_goal_id) AS first_gap FROM deleted_goals GROUP BY user_id) d
+              ON d.user_id = o.user_id AND o.v_goal_id > d.first_gap) r
+   WHERE g.goal_id = r.goal_id;
+  UPDATE iowniwant.user u SET goal_count = u.goal_count - d.deleted
+    FROM (SELECT user_id, count(*) AS deleted FROM deleted_goals GROUP BY user_id) d
+   WHERE u.user_id = d.user_id;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER goal_assign_ordinal BEFORE INSERT ON iowniwant.goal
+  FOR EACH ROW EXECUTE PROCEDURE iowniwant.assign_goal_ordinal();
+CREATE TRIGGER goal_compact_ordinals AFTER DELETE ON iowniwant.goal
+  REFERENCING OLD TABLE AS deleted_goals
+  FOR EACH STATEMENT EXECUTE PROCEDURE iowniwant.compact_goal_ordinals();
+
+CREATE OR REPLACE FUNCTION iowniwant.assign_task_ordinal() RETURNS trigger AS $$
+BEGIN
+  UPDATE iowniwant.goal SET task_count = task_count + 1
+   WHERE goal_id = NEW.goal_id
+  RETURNING task_count INTO NEW.v_task_id;
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION iowniwant.compact_task_ordinals() RETURNS trigger AS $$
+BEGIN
+  UPDATE iowniwant.task t SET v_task_id = r.ordinal
+    FROM (SELECT o.task_id,
+                 d.first_gap - 1 + row_number() OVER (PARTITION BY o.goal_id ORDER BY o.v_task_id) AS ordinal
+            FROM iowniwant.task o
+            JOIN (SELECT goal_id, min(v_task_id) AS first_gap FROM deleted_tasks GROUP BY goal_id) d
+              ON d.goal_id = o.goal_id AND o.v_task_id > d.first_gap) r
+   WHERE t.task_id = r.task_id;
+  UPDATE iowniwant.goal g SET task_count = g.task_count - d.deleted
+    FROM (SELECT goal_id, count(*) AS deleted FROM deleted_tasks GROUP BY goal_id) d
+   WHERE g.goal_id = d.goal_id;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER task_assign_ordinal BEFORE INSERT ON iowniwant.task
+  FOR EACH ROW EXECUTE PROCEDURE iowniwant.assign_task_ordinal();
+CREATE TRIGGER task_compact_ordinals AFTER DELETE ON iowniwant.task
+  REFERENCING OLD TABLE AS deleted_tasks
+  FOR EACH STATEMENT EXECUTE PROCEDURE iowniwant.compact_task_ordinals();
+
+DROP VIEW IF EXISTS iowniwant.v_goal;
+DROP VIEW IF EXISTS iowniwant.v_task;
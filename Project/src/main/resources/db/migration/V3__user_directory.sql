@@ -0,0 +1,16 @@
+-- Directory of the users for sharding by user_id: hands out the ids of new
+-- users and resolves nicknames to ids, so a user is found without asking
+-- every shard. Seeded with the existing users; the sequence continues after
+-- the highest id in use.
+CREATE TABLE iowniwant.user_directory (
+  user_id         BIGSERIAL NOT NULL,
+  nick_name       VARCHAR(60) NOT NULL UNIQUE,
+  CONSTRAINT user_directory_pk PRIMARY KEY (user_id)
+);
+
+INSERT INTO iowniwant.user_directory (user_id, nick_name)
+SELECT user_id, nick_name FROM iowniwant.user;
+
+SELECT setval(pg_get_serial_sequence('iowniwant.user_directory', 'user_id'),
+              COALESCE(MAX(user_id), 0) + 1, false)
+  FROM iowniwant.user_directory;
@@ -0,0 +1,64 @@
+-- Per-user goal totals for the affordability summary, maintained by
+-- triggers on iowniwant.goal and seeded from the existing goals. Goals are
+-- locked against writes until the triggers are in place.
+LOCK TABLE iowniwant.goal IN SHARE ROW EXCLUSIVE MODE;
+
+CREATE TABLE iowniwant.goal_summary (
+  user_id       INT NOT NULL,
+  goal_count    INT NOT NULL DEFAULT 0,
+  total_cost    DOUBLE PRECISION NOT NULL DEFAULT 0,
+  max_cost      REAL NOT NULL DEFAULT 0,
+  CONSTRAINT goal_summary_pk PRIMARY KEY (user_id),
+  CONSTRAINT goal_summary_fk FOREIGN KEY (user_id)
+  REFERENCES iowniwant.user(user_id)
+  ON DELETE CASCADE
+);
+
+CREATE INDEX goal_user_cost_idx ON iowniwant.goal (user_id, cost);
+
+CREATE OR REPLACE FUNCTION iowniwant.summarize_goal() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP = 'INSERT' THEN
+    IF NEW.user_id IS NOT NULL THEN
+      INSERT INTO iowniwant.goal_summary AS s (user_id, goal_count, total_cost, max_cost)
+      VALUES (NEW.user_id, 1, COALESCE(NEW.cost, 0), COALESCE(NEW.cost, 0))
+      ON CONFLICT (user_id) DO UPDATE
+         SET goal_count = s.goal_count + 1,
+             total_cost = s.total_cost + EXCLUDED.total_cost,
+             max_cost = GREATEST(s.max_cost, EXCLUDED.max_cost);
+    END IF;
+    RETURN NULL;
+  END IF;
+
+  IF TG_OP = 'DELETE' THEN
+    UPDATE iowniwant.goal_summary s
+       SET goal_count = s.goal_count - 1,
+           total_cost = s.total_cost - COALESCE(OLD.cost, 0)
+     WHERE s.user_id = OLD.user_id;
+  ELSE
+    UPDATE iowniwant.goal_summary s
+       SET total_cost = s.total_cost - COALESCE(OLD.cost, 0) + COALESCE(NEW.cost, 0),
+           max_cost = GREATEST(s.max_cost, COALESCE(NEW.cost, 0))
+     WHERE s.user_id = OLD.user_id;
+  END IF;
+  UPDATE iowniwant.goal_summary s
+     SET max_cost = COALESCE((SELECT max(g.cost) FROM iowniwant.goal g WHERE g.user_id = OLD.user_id), 0)
+   WHERE s.user_id = OLD.user_id
+     AND COALESCE(OLD.cost, 0) >= s.max_cost
+     AND (TG_OP = 'DELETE' OR COALESCE(NEW.cost, 0) < COALESCE(OLD.cost, 0));
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER goal_summarize_insert AFTER INSERT ON iowniwant.goal
+  FOR EACH ROW EXECUTE PROCEDURE iowniwant.summarize_goal();
+CREATE TRIGGER goal_summarize_update AFTER UPDATE OF cost ON iowniwant.goal
+  FOR EACH ROW WHEN (OLD.cost IS DISTINCT FROM NEW.cost) EXECUTE PROCEDURE iowniwant.summarize_goal();
+CREATE TRIGGER goal_summarize_delete AFTER DELETE ON iowniwant.goal
+  FOR EACH ROW EXECUTE PROCEDURE iowniwant.summarize_goal();
+
+INSERT INTO iowniwant.goal_summary (user_id, goal_count, total_cost, max_cost)
+SELECT user_id, count(*), COALESCE(sum(cost), 0), COALESCE(max(cost), 0)
+  FROM iowniwant.goal
+ WHERE user_id IS NOT NULL
+ GROUP BY user_id;
@@ -0,0 +1,13 @@
+-- Savings plans written by the nightly planner batch, one row per goal.
+CREATE TABLE iowniwant.savings_plan (
+  user_id       INT NOT NULL,
+  goal_id       INT NOT NULL,
+  position      INT NOT NULL,
+  start_month   INT,
+  funded_month  INT,
+  planned_at    TIMESTAMP NOT NULL DEFAULT now(),
+  CONSTRAINT savings_plan_pk PRIMARY KEY (user_id, goal_id),
+  CONSTRAINT savings_plan_fk FOREIGN KEY (goal_id)
+  REFERENCES iowniwant.goal(goal_id)
+  ON DELETE CASCADE
+);
@@ -0,0 +1,11 @@
+-- Composite indexes behind the sorted and filtered goal listings, one per
+-- sort order, ending with goal_id for keyset paging. The (user_id, cost)
+-- index of the goal summary is widened, and goals without cost count as
+-- free so that a cost sort never has to place NULLs.
+UPDATE iowniwant.goal SET cost = 0 WHERE cost IS NULL;
+ALTER TABLE iowniwant.goal ALTER COLUMN cost SET NOT NULL;
+
+DROP INDEX iowniwant.goal_user_cost_idx;
+CREATE INDEX goal_user_cost_idx ON iowniwant.goal (user_id, cost, goal_id);
+CREATE INDEX goal_user_pubdate_idx ON iowniwant.goal (user_id, pubdate, goal_id);
+CREATE INDEX goal_user_title_idx ON iowniwant.goal (user_id, title, goal_id);
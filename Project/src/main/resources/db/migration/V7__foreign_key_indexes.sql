@@ -0,0 +1,5 @@
+-- Deleting a goal cascades to its savings plan row, which was found by a
+-- scan: the primary key of savings_plan leads with user_id. goal(user_id)
+-- and task(goal_id) need no index of their own, the ordinal constraints
+-- and the goal listing indexes lead with them.
+CREATE INDEX savings_plan_goal_idx ON iowniwant.savings_plan (goal_id);
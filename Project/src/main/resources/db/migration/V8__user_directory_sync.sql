@@ -0,0 +1,47 @@
+-- Keeps the user directory of V3 in step with the users while the data is
+-- not sharded, so that sharding can be turned on later: new users take
+-- their id from the directory's sequence, and a trigger follows every
+-- insert, nickname change and delete. The primary of sharded data holds
+-- no users, there UserDao writes the directory itself.
+
+-- Users changed or deleted since V3 seeded the directory. Skipped on the
+-- primary of sharded data, whose directory is the only record of its users.
+DELETE FROM iowniwant.user_directory d
+ WHERE EXISTS (SELECT 1 FROM iowniwant.user)
+   AND NOT EXISTS (SELECT 1 FROM iowniwant.user u
+                    WHERE u.user_id = d.user_id AND u.nick_name = d.nick_name);
+
+INSERT INTO iowniwant.user_directory (user_id, nick_name)
+SELECT u.user_id, u.nick_name FROM iowniwant.user u
+ WHERE NOT EXISTS (SELECT 1 FROM iowniwant.user_directory d WHERE d.user_id = u.user_id);
+
+-- never moves the sequence back below an id it handed out already
+SELECT setval('iowniwant.user_directory_user_id_seq',
+              GREATEST(nextval('iowniwant.user_directory_user_id_seq'),
+                       (SELECT COALESCE(MAX(user_id), 0) + 1 FROM iowniwant.user_directory),
+                       (SELECT COALESCE(MAX(user_id), 0) + 1 FROM iowniwant.user)), false);
+
+ALTER TABLE iowniwant.user ALTER COLUMN user_id
+  SET DEFAULT nextval('iowniwant.user_directory_user_id_seq');
+
+CREATE OR REPLACE FUNCTION iowniwant.sync_user_directory() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP = 'INSERT' THEN
+    INSERT INTO iowniwant.user_directory (user_id, nick_name) VALUES (NEW.user_id, NEW.nick_name)
+    ON CONFLICT (user_id) DO UPDATE SET nick_name = EXCLUDED.nick_name;
+  ELSIF TG_OP = 'UPDATE' THEN
+    UPDATE iowniwant.user_directory SET nick_name = NEW.nick_name WHERE user_id = OLD.user_id;
+  ELSE
+    DELETE FROM iowniwant.user_directory WHERE user_id = OLD.user_id;
+  END IF;
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER user_directory_insert AFTER INSERT ON iowniwant.user
+  FOR EACH ROW EXECUTE PROCEDURE iowniwant.sync_user_directory();
+CREATE TRIGGER user_directory_update AFTER UPDATE OF nick_name ON iowniwant.user
+  FOR EACH ROW WHEN (OLD.nick_name IS DISTINCT FROM NEW.nick_name)
+  EXECUTE PROCEDURE iowniwant.sync_user_directory();
+CREATE TRIGGER user_directory_delete AFTER DELETE ON iowniwant.user
+  FOR EACH ROW EXECUTE PROCEDURE iowniwant.sync_user_directory();
@@ -51,6 +51,7 @@
   <form name="frm" action="updateAccountServlet" method="post" novalidate>
     <fieldset>
       <legend><span class="number">1</span>Profile info</legend>
+      <div class="summary">Goals: ${goals_count}, total cost: ${goals_cost}, most expensive: ${goals_max_cost}, months of salary: ${empty months_to_afford ? '-' : months_to_afford}</div>
       <div>
         <label for="firstName">First Name:</label>
         <input type="text" name="firstName" id="firstName" ng-model="ctrl.user.firstName" />
@@ -22,7 +22,8 @@
         </div>
         <div>
           <label for="title">Title:</label>
-          <input type="text" id="title" name="title" ng-model="ctrl.goal.title" required/>
+          <input type="text" id="title" name="title" ng-model="ctrl.goal.title" list="title-suggestions" autocomplete="off" required/>
+          <datalist id="title-suggestions"></datalist>
           <span ng-show="frm.title.$dirty && frm.title.$error.required">Title is required.</span>
         </div>
         <div>
@@ -74,6 +75,9 @@
       </div>
     </c:forEach>
   </div>
+  <c:if test="${not empty next_cursor}">
+    <button class="more" data-cursor="${next_cursor}">more Goals</button>
+  </c:if>
   <div class="push"></div>
 </div>
 <jsp:include page="footer.jsp"/>
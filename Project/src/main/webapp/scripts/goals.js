@@ -21,6 +21,35 @@ $(function () {
     });
 });
 
+// suggest titles while typing a new Goal, once typing pauses for 50ms
+var suggestTimer = null;
+$(document).on('input', '#title', function () {
+    var input = $(this);
+    clearTimeout(suggestTimer);
+    suggestTimer = setTimeout(function () {
+        var prefix = input.val();
+        if ($.trim(prefix) === '') {
+            $('#title-suggestions').empty();
+            return;
+        }
+        $.ajax({
+            url: 'suggestTitlesServlet',
+            type: 'get',
+            dataType: 'json',
+            data: {prefix: prefix},
+            success : function(titles) {
+                // an answer to an older prefix is of no use any more
+                if (input.val() !== prefix)
+                    return;
+                var list = $('#title-suggestions').empty();
+                $.each(titles, function (i, title) {
+                    list.append($('<option>').attr('value', title));
+                });
+            }
+        });
+    }, 50);
+});
+
 // add Goal => persist it in DataBase
 $(document).on("click", "#confirm", function() {
 
@@ -77,6 +106,51 @@ $(document).on("click", "#confirm", function() {
     });
 });
 
+// load the next page of goals [.more = more Goals button]
+$(document).on('click', '.more', function () {
+    var button = $(this);
+    button.prop('disabled', true);
+
+    $.ajax({
+        url: 'goalsPageServlet',
+        type: 'get',
+        dataType: 'json',
+        data: {cursor: button.data('cursor')},
+        success : function(page) {
+            $.each(page.items, function (i, goal) {
+                var article = $('<div class="article">' +
+                    '<div class="item">' +
+                    '<div class="row"><p class="title"><span class="hideME"></span> </p></div>' +
+                    '<div class="item"><p class="source"></p></div>' +
+                    '<div class="item"><p class="pubdate"></p></div>' +
+                    '<div class="buttonContainer"><button class="close">✗</button>' +
+                    '<button class="edit">✍</button></div>' +
+                    '</div>' +
+                    '<div class="description"><div class="">&nbsp;</div>' +
+                    '<h1></h1><div class="">&nbsp;</div></div>' +
+                    '</div>');
+
+                article.find('.hideME').text(goal.id);
+                article.find('.title').append(document.createTextNode('#' + goal.v_id + ' ' + goal.title));
+                article.find('.source').text(goal.description);
+                article.find('.pubdate').text(goal.pubdate);
+                article.find('h1').text(goal.notes);
+                $(".articles").append(article);
+            });
+
+            if (page.nextCursor) {
+                button.data('cursor', page.nextCursor);
+                button.prop('disabled', false);
+            } else {
+                button.remove();
+            }
+        },
+        error : function() {
+            button.prop('disabled', false);
+        }
+    });
+});
+
 // close goal => remove it from DataBase.
 $(document).on('click', '.close', function () {
 
@@ -0,0 +1,102 @@
+package com.iowniwant.controller.filter;
+
+import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.util.InitialContextFactoryMock;
+import com.iowniwant.util.UnitOfWork;
+import org.junit.*;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UnitOfWorkFilterTest extends Mockito {
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private FilterChain filterChain;
+
+    private UnitOfWorkFilter unitOfWorkFilter = new UnitOfWorkFilter();
+
+    @Before
+    public void setUp() throws SQLException {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    }
+
+    @After
+    public void tearDown() {
+        assertNull(UnitOfWork.current());
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void daoCallsShareOneTransactionTest() throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                UserDao.getInstance().getByNick("nick");
+                UserDao.getInstance().delete(99);
+                return null;
+            }
+        }).when(filterChain).doFilter(request, response);
+
+        unitOfWorkFilter.doFilter(request, response, filterChain);
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).commit();
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    public void rollsBackWhenChainFailsTest() throws Exception {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws ServletException {
+                UserDao.getInstance().delete(99);
+                throw new ServletException("failed");
+            }
+        }).when(filterChain).doFilter(request, response);
+
+        try {
+            unitOfWorkFilter.doFilter(request, response, filterChain);
+            fail("exception of the chain was swallowed");
+        } catch (ServletException expected) {
+            verify(connection, never()).commit();
+            verify(connection, times(1)).rollback();
+            verify(connection, times(1)).close();
+        }
+    }
+}
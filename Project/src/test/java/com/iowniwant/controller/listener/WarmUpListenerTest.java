@@ -0,0 +1,106 @@
+package com.iowniwant.controller.listener;
+
+import com.iowniwant.util.InitialContextFactoryMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.sql.DataSource;
+import java.sql.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WarmUpListenerTest extends Mockito {
+    private static final long HOUR = 3600000;
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Statement statement;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ParameterMetaData parameters;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private ServletContext context;
+
+    private WarmUpListener listener = new WarmUpListener();
+
+    @Before
+    public void setUp() throws SQLException {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.getParameterMetaData()).thenReturn(parameters);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    }
+
+    @After
+    public void tearDown() {
+        listener.contextDestroyed(new ServletContextEvent(context));
+        new MigrationListener().contextDestroyed(new ServletContextEvent(context));
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void failedWarmUpIsRetriedByTheReadinessCheckTest() throws SQLException {
+        // the DataBase is down while the application is deployed
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        listener.contextInitialized(new ServletContextEvent(context));
+        verify(context, times(2)).setAttribute(WarmUpListener.READY_ATTRIBUTE, Boolean.FALSE);
+        when(context.getAttribute(WarmUpListener.READY_ATTRIBUTE)).thenReturn(Boolean.FALSE);
+
+        reset(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        long now = System.currentTimeMillis();
+        assertFalse(WarmUpListener.isReady(context, now));
+        verifyZeroInteractions(dataSource);
+
+        assertTrue(WarmUpListener.isReady(context, now + HOUR));
+        verify(context).setAttribute(WarmUpListener.READY_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    @Test
+    public void failedMigrationKeepsTheApplicationUnreadyTest() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(statement.execute(anyString())).thenThrow(new SQLException("permission denied"));
+        listener.contextInitialized(new ServletContextEvent(context));
+        verify(context, times(2)).setAttribute(WarmUpListener.READY_ATTRIBUTE, Boolean.FALSE);
+        verify(connection, never()).prepareStatement(anyString());
+        when(context.getAttribute(WarmUpListener.READY_ATTRIBUTE)).thenReturn(Boolean.FALSE);
+
+        // the migration is tried again with the warm-up
+        reset(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        assertTrue(WarmUpListener.isReady(context, System.currentTimeMillis() + HOUR));
+        verify(context).setAttribute(WarmUpListener.READY_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    @Test
+    public void readyApplicationIsNotWarmedUpAgainTest() {
+        when(context.getAttribute(WarmUpListener.READY_ATTRIBUTE)).thenReturn(Boolean.TRUE);
+
+        assertTrue(WarmUpListener.isReady(context, System.currentTimeMillis() + HOUR));
+
+        verifyZeroInteractions(dataSource);
+        verify(context, never()).setAttribute(anyString(), any());
+    }
+}
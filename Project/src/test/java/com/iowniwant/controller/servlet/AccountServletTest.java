@@ -71,7 +71,7 @@ public class AccountServletTest extends Mockito{
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
         doNothing().when(preparedStatement).setInt(eq(1), anyInt());
         when(preparedStatement.executeQuery()).thenReturn(resultSet);
-        when(resultSet.next()).thenReturn(Boolean.TRUE);
+        when(resultSet.next()).thenReturn(Boolean.TRUE, Boolean.FALSE);
 
         when(request.getServletContext()).thenReturn(servletContext);
         when(response.getWriter()).thenReturn(printWriter);
@@ -90,14 +90,16 @@ public class AccountServletTest extends Mockito{
 
         accountServlet.doPost(request,response);
 
-        InOrder inOrder = inOrder(request,response);
+        InOrder inOrder = inOrder(request, requestDispatcher);
 
         inOrder.verify(request).getServletContext();
         inOrder.verify(request).setAttribute(eq("user"), any());
-        inOrder.verify(response).setContentType("application/json");
-        inOrder.verify(response).setCharacterEncoding("UTF-8");
+        inOrder.verify(request).setAttribute(eq("goals_count"), any());
+        inOrder.verify(request).setAttribute(eq("goals_cost"), any());
+        inOrder.verify(requestDispatcher).forward(request, response);
 
-        verify(requestDispatcher, atLeastOnce()).forward(request,response);
+        // the page renders the user, nothing is written ahead of the forward
+        verify(response, never()).getWriter();
     }
 
     @Test
@@ -56,7 +56,7 @@ public class AddGoalsServletTest extends Mockito{
         doReturn(preparedStatement).when(connection).prepareStatement(anyString(), anyInt());
         doReturn(preparedStatement).when(connection).prepareStatement(anyString());
         doNothing().when(preparedStatement).setInt(eq(1), anyInt());
-        doNothing().when(writer).print(anyString());
+        doNothing().when(writer).write(anyString());
         doReturn(resultSet).when(preparedStatement).executeQuery();
         doReturn(resultSet).when(preparedStatement).getGeneratedKeys();
     }
@@ -78,6 +78,6 @@ public class AddGoalsServletTest extends Mockito{
 
         verify(response).setContentType("text/plain");
         verify(response).setCharacterEncoding("UTF-8");
-        verify(writer).print(anyString());
+        verify(writer).write(anyString());
     }
 }
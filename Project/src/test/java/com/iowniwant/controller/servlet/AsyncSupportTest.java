@@ -0,0 +1,169 @@
+package com.iowniwant.controller.servlet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncSupportTest extends Mockito {
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private AsyncContext asyncContext;
+    @Mock
+    private ServletOutputStream out;
+    @Mock
+    private AsyncSupport.Action action;
+
+    private Executor sameThread = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        when(request.isAsyncSupported()).thenReturn(Boolean.TRUE);
+        when(request.startAsync(request, response)).thenReturn(asyncContext);
+        when(response.getOutputStream()).thenReturn(out);
+    }
+
+    @Test
+    public void writesBodyThroughWriteListenerTest() throws Exception {
+        when(action.perform()).thenReturn(AsyncSupport.Outcome.body("text/plain", "42"));
+        when(out.isReady()).thenReturn(Boolean.TRUE);
+
+        AsyncSupport.execute(request, response, action, sameThread);
+
+        ArgumentCaptor<WriteListener> listener = ArgumentCaptor.forClass(WriteListener.class);
+        verify(out).setWriteListener(listener.capture());
+        verify(asyncContext, never()).complete();
+
+        listener.getValue().onWritePossible();
+
+        byte[] body = "42".getBytes(StandardCharsets.UTF_8);
+        verify(response).setContentType("text/plain");
+        verify(response).setContentLength(body.length);
+        verify(out).write(body, 0, body.length);
+        verify(asyncContext, times(1)).complete();
+        verify(response, never()).getWriter();
+    }
+
+    @Test
+    public void waitsWhileOutputIsNotReadyTest() throws Exception {
+        when(action.perform()).thenReturn(AsyncSupport.Outcome.body("text/plain", "42"));
+        when(out.isReady()).thenReturn(Boolean.FALSE);
+
+        AsyncSupport.execute(request, response, action, sameThread);
+        ArgumentCaptor<WriteListener> listener = ArgumentCaptor.forClass(WriteListener.class);
+        verify(out).setWriteListener(listener.capture());
+        listener.getValue().onWritePossible();
+
+        verify(out, never()).write(any(byte[].class), anyInt(), anyInt());
+        verify(asyncContext, never()).complete();
+    }
+
+    @Test
+    public void rejectsWithServiceUnavailableWhenSaturatedTest() throws Exception {
+        Executor saturated = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("queue full");
+            }
+        };
+
+        AsyncSupport.execute(request, response, action, saturated);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+        verify(asyncContext, times(1)).complete();
+        verify(action, never()).perform();
+    }
+
+    @Test
+    public void failingActionAnswersServerErrorTest() throws Exception {
+        when(action.perform()).thenThrow(new IllegalStateException("database is down"));
+
+        AsyncSupport.execute(request, response, action, sameThread);
+
+        verify(response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        verify(asyncContext, times(1)).complete();
+    }
+
+    @Test
+    public void forwardDispatchesAsyncContextTest() throws Exception {
+        when(action.perform()).thenReturn(AsyncSupport.Outcome.forward("/goals-page.jsp"));
+
+        AsyncSupport.execute(request, response, action, sameThread);
+
+        verify(asyncContext).dispatch("/goals-page.jsp");
+        verify(asyncContext, never()).complete();
+        verify(request, never()).getRequestDispatcher(anyString());
+    }
+
+    @Test
+    public void runsOnCallingThreadWithoutAsyncSupportTest() throws Exception {
+        when(request.isAsyncSupported()).thenReturn(Boolean.FALSE);
+        when(action.perform()).thenReturn(AsyncSupport.Outcome.redirect("front-page.jsp"));
+
+        AsyncSupport.execute(request, response, action, sameThread);
+
+        verify(request, never()).startAsync(request, response);
+        verify(response).sendRedirect("front-page.jsp");
+    }
+
+    @Test
+    public void timedOutRequestDropsTheLateAnswerTest() throws Exception {
+        when(action.perform()).thenReturn(AsyncSupport.Outcome.forward("/goals-page.jsp"));
+        final List<Runnable> queued = new ArrayList<>();
+        Executor later = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        };
+
+        AsyncSupport.execute(request, response, action, later);
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        listener.getValue().onTimeout(new AsyncEvent(asyncContext, request, response));
+        queued.get(0).run();
+
+        verify(response).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), anyString());
+        verify(asyncContext, times(1)).complete();
+        verify(asyncContext, never()).dispatch(anyString());
+    }
+
+    @Test
+    public void failingAnswerCompletesOnceTest() throws Exception {
+        when(action.perform()).thenReturn(AsyncSupport.Outcome.redirect("front-page.jsp"));
+        // the container timed the request out meanwhile, without a listener noticing
+        doThrow(new IllegalStateException("not async")).when(asyncContext).complete();
+
+        AsyncSupport.execute(request, response, action, sameThread);
+
+        verify(response).sendRedirect("front-page.jsp");
+        verify(asyncContext, times(1)).complete();
+    }
+}
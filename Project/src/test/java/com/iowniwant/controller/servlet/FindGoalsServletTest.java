@@ -0,0 +1,99 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.util.InitialContextFactoryMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FindGoalsServletTest extends Mockito {
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private ServletContext servletContext;
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private PrintWriter writer;
+
+    private FindGoalsServlet findGoalsServlet = new FindGoalsServlet();
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(Boolean.TRUE, Boolean.FALSE);
+        when(resultSet.getString("title")).thenReturn("title");
+
+        when(request.getServletContext()).thenReturn(servletContext);
+        when(servletContext.getAttribute("user_id")).thenReturn(99);
+        when(response.getWriter()).thenReturn(writer);
+    }
+
+    @After
+    public void tearDown() {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void findGoalsServletSuccessTest() throws Exception {
+        when(request.getParameter("sort")).thenReturn("cost");
+        when(request.getParameter("maxCost")).thenReturn("100");
+
+        findGoalsServlet.doGet(request, response);
+
+        verify(preparedStatement).setObject(2, 100f);
+        verify(response).setContentType("application/json");
+        verify(writer).write(contains("\"title\":\"title\""));
+    }
+
+    @Test
+    public void findGoalsServletBadSortTest() throws Exception {
+        when(request.getParameter("sort")).thenReturn("color");
+
+        findGoalsServlet.doGet(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void findGoalsServletBadDateTest() throws Exception {
+        when(request.getParameter("sort")).thenReturn("pubdate");
+        when(request.getParameter("from")).thenReturn("01.03.2016");
+
+        findGoalsServlet.doGet(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(connection, never()).prepareStatement(anyString());
+    }
+}
@@ -0,0 +1,81 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.util.InitialContextFactoryMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GoalSummaryServletTest extends Mockito {
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private ServletContext servletContext;
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private PrintWriter writer;
+
+    private GoalSummaryServlet goalSummaryServlet = new GoalSummaryServlet();
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(Boolean.TRUE, Boolean.FALSE);
+        when(resultSet.getInt("user_id")).thenReturn(99);
+        when(resultSet.getInt("goal_count")).thenReturn(2);
+        when(resultSet.getDouble("total_cost")).thenReturn(250.0);
+        when(resultSet.getDouble("max_cost")).thenReturn(200.0);
+        when(resultSet.getDouble("month_salary")).thenReturn(100.0);
+
+        when(request.getServletContext()).thenReturn(servletContext);
+        when(servletContext.getAttribute("user_id")).thenReturn(99);
+        when(response.getWriter()).thenReturn(writer);
+    }
+
+    @After
+    public void tearDown() {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void goalSummaryServletSuccessTest() throws Exception {
+        goalSummaryServlet.doGet(request, response);
+
+        verify(preparedStatement).setInt(1, 99);
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(response).setContentType("application/json");
+        verify(writer).write(contains("\"goalCount\":2"));
+        verify(writer).write(contains("\"monthsToAfford\":3"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.iowniwant.controller.servlet;
+
+import com.iowniwant.util.InitialContextFactoryMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ImportGoalsServletTest extends Mockito {
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ResultSet resultSet;
+    @Mock
+    private ServletContext servletContext;
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private PrintWriter writer;
+
+    private ImportGoalsServlet importGoalsServlet;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+
+        when(request.getServletContext()).thenReturn(servletContext);
+        when(servletContext.getAttribute("user_id")).thenReturn(99);
+        when(response.getWriter()).thenReturn(writer);
+        importGoalsServlet = new ImportGoalsServlet();
+    }
+
+    @After
+    public void tearDown() {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void importGoalsServletSuccessTest() throws Exception {
+        when(request.getContentType()).thenReturn("application/x-ndjson");
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader(
+                "{\"title\": \"bike\", \"cost\": 100}\n{\"title\": \"car\"}\n{\"title\": \"boat\", \"cost\": 5}\n")));
+
+        importGoalsServlet.doPost(request, response);
+
+        verify(request).setCharacterEncoding("UTF-8");
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement, times(2)).setInt(6, 99);
+        verify(connection).commit();
+        verify(response).setContentType("application/json");
+        verify(response, never()).setStatus(anyInt());
+        verify(writer).write(contains("\"imported\":2"));
+        verify(writer).write(contains("\"rejected\":1"));
+    }
+
+    @Test
+    public void importGoalsServletBadHeaderTest() throws Exception {
+        when(request.getContentType()).thenReturn("text/csv");
+        when(request.getReader()).thenReturn(new BufferedReader(new StringReader("name,price\nbike,1\n")));
+
+        importGoalsServlet.doPost(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    public void importGoalsServletBadTypeTest() throws Exception {
+        when(request.getContentType()).thenReturn("text/plain");
+
+        importGoalsServlet.doPost(request, response);
+
+        verify(response).sendError(eq(HttpServletResponse.SC_BAD_REQUEST), anyString());
+        verify(request, never()).getReader();
+    }
+}
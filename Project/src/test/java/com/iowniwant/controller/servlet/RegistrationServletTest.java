@@ -59,7 +59,7 @@ public class RegistrationServletTest extends Mockito {
         doNothing().when(preparedStatement).setDouble(anyInt(), anyDouble());
         doNothing().when(preparedStatement).setInt(anyInt(), anyInt());
 
-        when(servletContext.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
+        when(request.getRequestDispatcher(anyString())).thenReturn(requestDispatcher);
         when(request.getServletContext()).thenReturn(servletContext);
     }
 
@@ -76,7 +76,7 @@ public class RegistrationServletTest extends Mockito {
         verify(request, times(5)).getParameter(anyString());
         verify(request, atLeastOnce()).setAttribute(eq("userName"), request.getParameter("userName"));
         verify(request, atLeastOnce()).setAttribute(eq("password"), request.getParameter("password"));
-        verify(servletContext.getRequestDispatcher("/loginServlet"), atLeastOnce())
+        verify(request.getRequestDispatcher("/loginServlet"), atLeastOnce())
                 .forward(request, response);
     }
 }
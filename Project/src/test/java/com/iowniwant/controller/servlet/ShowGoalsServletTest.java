@@ -71,11 +71,14 @@ public class ShowGoalsServletTest extends Mockito {
     @Test
     public void showGoalsServletSuccessTest() throws Exception {
         when(servletContext.getAttribute("user_id")).thenReturn(99);
+        // the single row returned by the joined query
+        list.add(new Goal());
 
         showGoalsServlet.doGet(request, response);
 
         verify(servletContext, atLeastOnce()).getAttribute("user_id");
         verify(request, atLeastOnce()).setAttribute("goals_list", list);
+        verify(request, atLeastOnce()).setAttribute("next_cursor", null);
         verify(request.getRequestDispatcher("/goal.jsp"), atLeastOnce())
                 .forward(request, response);
     }
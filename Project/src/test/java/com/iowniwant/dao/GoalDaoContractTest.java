@@ -0,0 +1,227 @@
+package com.iowniwant.dao;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalQuery;
+import com.iowniwant.model.Page;
+import com.iowniwant.model.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Behaviour every @see AbstractGoalDAO engine shares. Subclasses provide
+ * DAOs over the same empty storage.
+ */
+public abstract class GoalDaoContractTest {
+    private User user;
+
+    protected abstract AbstractUserDAO userDao();
+
+    protected abstract AbstractGoalDAO goalDao();
+
+    @Before
+    public void createUser() {
+        user = userDao().create(UserDaoContractTest.user("nick"));
+    }
+
+    @Test
+    public void createAndGetByIdTest() {
+        Goal created = goalDao().create(goal("car"));
+
+        Goal found = goalDao().getById(created.getId());
+        assertEquals("car", found.getTitle());
+        assertEquals(100, found.getCost(), 0.0);
+        assertEquals(1, found.getV_id());
+        assertEquals("nick", found.getUser().getUserName());
+    }
+
+    @Test
+    public void createRequiresUserTest() {
+        User stranger = UserDaoContractTest.user("stranger");
+        stranger.setId(user.getId() + 1000);
+
+        assertNull(goalDao().create(new Goal("car", 100, null, null, null, stranger)));
+        assertNull(goalDao().create(new Goal("car", 100, null, null, null, null)));
+        assertTrue(goalDao().getAll().isEmpty());
+    }
+
+    @Test
+    public void goalsByUserAreNumberedTest() {
+        goalDao().createAll(Arrays.asList(goal("a"), goal("b"), goal("c")));
+        User other = userDao().create(UserDaoContractTest.user("other"));
+        goalDao().create(new Goal("d", 1, null, null, null, other));
+
+        List<Goal> goals = goalDao().getGoalsByUserId(user.getId());
+
+        assertEquals(3, goals.size());
+        for (int i = 0; i < goals.size(); i++) {
+            assertEquals(i + 1, goals.get(i).getV_id());
+            assertEquals(user.getId(), goals.get(i).getUser().getId());
+        }
+        assertEquals("a", goals.get(0).getTitle());
+        assertTrue(goalDao().getGoalsByUserId(user.getId() + 1000).isEmpty());
+    }
+
+    @Test
+    public void deleteRenumbersFollowingGoalsTest() {
+        List<Integer> ids = goalDao().createAll(Arrays.asList(goal("a"), goal("b"), goal("c")));
+
+        goalDao().delete(ids.get(0));
+
+        List<Goal> goals = goalDao().getGoalsByUserId(user.getId());
+        assertEquals(2, goals.size());
+        assertEquals("b", goals.get(0).getTitle());
+        assertEquals(1, goals.get(0).getV_id());
+        assertEquals(2, goals.get(1).getV_id());
+    }
+
+    @Test
+    public void updateKeepsUserTest() {
+        Goal goal = goalDao().create(goal("car"));
+        goal.setTitle("bike");
+        goal.setCost(50);
+
+        assertNotNull(goalDao().update(goal));
+
+        Goal found = goalDao().getById(goal.getId());
+        assertEquals("bike", found.getTitle());
+        assertEquals(50, found.getCost(), 0.0);
+        assertEquals(user.getId(), found.getUser().getId());
+    }
+
+    @Test
+    public void pagesCoverAllGoalsTest() {
+        List<Goal> goals = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            goals.add(goal("goal" + i));
+        }
+        goalDao().createAll(goals);
+
+        List<String> titles = new ArrayList<>();
+        Page<Goal> page = goalDao().getGoalsPage(user.getId(), null, 2);
+        int pages = 1;
+        titles.addAll(titlesOf(page));
+        while (page.hasNext()) {
+            page = goalDao().getGoalsPage(user.getId(), page.getNextCursor(), 2);
+            titles.addAll(titlesOf(page));
+            pages++;
+        }
+
+        assertEquals(3, pages);
+        assertEquals(Arrays.asList("goal0", "goal1", "goal2", "goal3", "goal4"), titles);
+    }
+
+    @Test
+    public void deleteUserWithGoalsIsRefusedTest() {
+        goalDao().create(goal("car"));
+
+        userDao().delete(user.getId());
+
+        assertNotNull(userDao().getById(user.getId()));
+    }
+
+    @Test
+    public void cheapestFirstPagesTest() {
+        goalDao().createAll(Arrays.asList(goal("a", 30, null), goal("b", 10, null), goal("c", 20, null),
+                goal("d", 10, null), goal("e", 50, null)));
+        GoalQuery query = new GoalQuery();
+        query.setLimit(2);
+
+        assertEquals(Arrays.asList("b", "d", "c", "a", "e"), findAll(query));
+    }
+
+    @Test
+    public void costRangeDescendingTest() {
+        goalDao().createAll(Arrays.asList(goal("a", 30, null), goal("b", 10, null), goal("c", 20, null),
+                goal("d", 40.5, null)));
+        GoalQuery query = new GoalQuery();
+        query.setMinCost(15.0);
+        query.setMaxCost(40.0);
+        query.setDescending(true);
+
+        assertEquals(Arrays.asList("a", "c"), findAll(query));
+    }
+
+    @Test
+    public void goalsWithoutPubdateComeLastTest() {
+        goalDao().createAll(Arrays.asList(goal("a", 1, "2016-03-01"), goal("b", 1, null),
+                goal("c", 1, "2016-01-15"), goal("d", 1, null)));
+        GoalQuery query = new GoalQuery();
+        query.setSort(GoalQuery.Sort.PUBDATE);
+        query.setLimit(1);
+
+        assertEquals(Arrays.asList("c", "a", "b", "d"), findAll(query));
+        query.setDescending(true);
+        assertEquals(Arrays.asList("d", "b", "a", "c"), findAll(query));
+    }
+
+    @Test
+    public void pubdateRangeTest() {
+        goalDao().createAll(Arrays.asList(goal("a", 1, "2016-03-31"), goal("b", 1, null),
+                goal("c", 1, "2016-03-01"), goal("d", 1, "2016-04-01"), goal("e", 1, "2016-02-29")));
+        GoalQuery query = new GoalQuery();
+        query.setSort(GoalQuery.Sort.PUBDATE);
+        query.setFrom(Date.valueOf("2016-03-01"));
+        query.setTo(Date.valueOf("2016-04-01"));
+
+        assertEquals(Arrays.asList("c", "a"), findAll(query));
+    }
+
+    @Test
+    public void titlePagesTest() {
+        goalDao().createAll(Arrays.asList(goal("car", 1, null), goal("bike", 1, null), goal("car", 2, null),
+                goal("apple", 1, null)));
+        GoalQuery query = new GoalQuery();
+        query.setSort(GoalQuery.Sort.TITLE);
+        query.setLimit(1);
+
+        assertEquals(Arrays.asList("apple", "bike", "car", "car"), findAll(query));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cursorOfOtherSortIsRefusedTest() {
+        goalDao().createAll(Arrays.asList(goal("a"), goal("b")));
+        GoalQuery query = new GoalQuery();
+        query.setLimit(1);
+        Page<Goal> page = goalDao().findGoals(user.getId(), query);
+
+        query.setSort(GoalQuery.Sort.TITLE);
+        query.setCursor(page.getNextCursor());
+        goalDao().findGoals(user.getId(), query);
+    }
+
+    private List<String> findAll(GoalQuery query) {
+        List<String> titles = new ArrayList<>();
+        query.setCursor(null);
+        Page<Goal> page = goalDao().findGoals(user.getId(), query);
+        titles.addAll(titlesOf(page));
+        while (page.hasNext()) {
+            query.setCursor(page.getNextCursor());
+            page = goalDao().findGoals(user.getId(), query);
+            titles.addAll(titlesOf(page));
+        }
+        return titles;
+    }
+
+    private Goal goal(String title, double cost, String pubdate) {
+        return new Goal(title, cost, "description", pubdate == null ? null : Date.valueOf(pubdate), "notes", user);
+    }
+
+    private Goal goal(String title) {
+        return new Goal(title, 100, "description", null, "notes", user);
+    }
+
+    private static List<String> titlesOf(Page<Goal> page) {
+        List<String> titles = new ArrayList<>();
+        for (Goal goal : page.getItems()) {
+            titles.add(goal.getTitle());
+        }
+        return titles;
+    }
+}
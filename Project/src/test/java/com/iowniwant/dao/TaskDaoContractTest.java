@@ -0,0 +1,86 @@
+package com.iowniwant.dao;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.Task;
+import com.iowniwant.model.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Behaviour every @see AbstractTaskDAO engine shares. Subclasses provide
+ * DAOs over the same empty storage.
+ */
+public abstract class TaskDaoContractTest {
+    private Goal goal;
+
+    protected abstract AbstractUserDAO userDao();
+
+    protected abstract AbstractGoalDAO goalDao();
+
+    protected abstract AbstractTaskDAO taskDao();
+
+    @Before
+    public void createGoal() {
+        User user = userDao().create(UserDaoContractTest.user("nick"));
+        goal = goalDao().create(new Goal("car", 100, null, null, null, user));
+    }
+
+    @Test
+    public void createAndGetByIdTest() {
+        Task created = taskDao().create(new Task("save", goal));
+
+        Task found = taskDao().getById(created.getId());
+        assertEquals("save", found.getDescription());
+        assertEquals(1, found.getV_id());
+        assertEquals(goal.getId(), found.getGoal().getId());
+        assertEquals("nick", found.getGoal().getUser().getUserName());
+    }
+
+    @Test
+    public void createRequiresGoalTest() {
+        Goal missing = new Goal();
+        missing.setId(goal.getId() + 1000);
+
+        assertNull(taskDao().create(new Task("save", missing)));
+        assertTrue(taskDao().getAll().isEmpty());
+    }
+
+    @Test
+    public void tasksByGoalAreNumberedTest() {
+        List<Integer> ids = taskDao().createAll(Arrays.asList(
+                new Task("a", goal), new Task("b", goal), new Task("c", goal)));
+
+        taskDao().delete(ids.get(1));
+
+        List<Task> tasks = taskDao().getTasksByGoalId(goal.getId());
+        assertEquals(2, tasks.size());
+        assertEquals("a", tasks.get(0).getDescription());
+        assertEquals("c", tasks.get(1).getDescription());
+        assertEquals(2, tasks.get(1).getV_id());
+        assertTrue(taskDao().getTasksByGoalId(goal.getId() + 1000).isEmpty());
+    }
+
+    @Test
+    public void updateTest() {
+        Task task = taskDao().create(new Task("save", goal));
+        task.setDescription("spend");
+
+        assertNotNull(taskDao().update(task));
+        assertEquals("spend", taskDao().getById(task.getId()).getDescription());
+    }
+
+    @Test
+    public void deleteGoalWithTasksIsRefusedTest() {
+        taskDao().create(new Task("save", goal));
+
+        goalDao().delete(goal.getId());
+        assertFalse(goalDao().deleteAll(Arrays.asList(goal.getId())));
+
+        assertNotNull(goalDao().getById(goal.getId()));
+    }
+}
@@ -0,0 +1,164 @@
+package com.iowniwant.dao;
+
+import com.iowniwant.model.User;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Behaviour every @see AbstractUserDAO engine shares. Subclasses provide
+ * a DAO over empty storage.
+ */
+public abstract class UserDaoContractTest {
+
+    protected abstract AbstractUserDAO userDao();
+
+    @Test
+    public void createAndGetByIdTest() {
+        User created = userDao().create(user("nick"));
+
+        assertNotNull(created);
+        assertTrue(created.getId() > 0);
+        User found = userDao().getById(created.getId());
+        assertEquals("nick", found.getUserName());
+        assertEquals("first", found.getFirstName());
+        assertEquals("nick@mail.com", found.getEmail());
+        assertNull(userDao().getById(created.getId() + 1));
+    }
+
+    @Test
+    public void getByNickTest() {
+        User created = userDao().create(user("nick"));
+
+        assertEquals(created.getId(), userDao().getByNick("nick").getId());
+        assertNull(userDao().getByNick("nobody"));
+    }
+
+    @Test
+    public void duplicateNickIsRejectedTest() {
+        userDao().create(user("nick"));
+
+        assertNull(userDao().create(user("nick")));
+        assertEquals(1, userDao().getAll().size());
+    }
+
+    @Test
+    public void updateTest() {
+        User user = userDao().create(user("nick"));
+        user.setFirstName("changed");
+        user.setUserName("renamed");
+
+        assertNotNull(userDao().update(user));
+        assertEquals("changed", userDao().getById(user.getId()).getFirstName());
+        assertEquals(user.getId(), userDao().getByNick("renamed").getId());
+        assertNull(userDao().getByNick("nick"));
+    }
+
+    @Test
+    public void updateToTakenNickIsRejectedTest() {
+        userDao().create(user("taken"));
+        User user = userDao().create(user("nick"));
+        user.setUserName("taken");
+
+        assertNull(userDao().update(user));
+        assertEquals("nick", userDao().getById(user.getId()).getUserName());
+    }
+
+    @Test
+    public void returnedUsersAreCopiesTest() {
+        User user = userDao().create(user("nick"));
+        userDao().getById(user.getId()).setFirstName("changed");
+
+        assertEquals("first", userDao().getById(user.getId()).getFirstName());
+    }
+
+    @Test
+    public void deleteTest() {
+        User user = userDao().create(user("nick"));
+
+        userDao().delete(user.getId());
+
+        assertNull(userDao().getById(user.getId()));
+        assertNull(userDao().getByNick("nick"));
+        assertNotNull(userDao().create(user("nick")));
+    }
+
+    @Test
+    public void getAllAndIterateAllTest() {
+        List<Integer> ids = userDao().createAll(Arrays.asList(user("a"), user("b"), user("c")));
+
+        List<Integer> listed = new ArrayList<>();
+        for (User user : userDao().getAll()) {
+            listed.add(user.getId());
+        }
+        List<Integer> iterated = new ArrayList<>();
+        try (CloseableIterator<User> iterator = userDao().iterateAll()) {
+            while (iterator.hasNext()) {
+                iterated.add(iterator.next().getId());
+            }
+        }
+        final List<Integer> handled = new ArrayList<>();
+        userDao().getAll(new EntityHandler<User>() {
+            @Override
+            public void handle(User user) {
+                handled.add(user.getId());
+            }
+        });
+
+        assertTrue(listed.containsAll(ids) && listed.size() == 3);
+        assertTrue(iterated.containsAll(ids) && iterated.size() == 3);
+        assertTrue(handled.containsAll(ids) && handled.size() == 3);
+    }
+
+    @Test
+    public void createAllReturnsIdsInOrderTest() {
+        List<Integer> ids = userDao().createAll(Arrays.asList(user("a"), user("b"), user("c")));
+
+        assertEquals(3, ids.size());
+        assertEquals("a", userDao().getById(ids.get(0)).getUserName());
+        assertEquals("b", userDao().getById(ids.get(1)).getUserName());
+        assertEquals("c", userDao().getById(ids.get(2)).getUserName());
+    }
+
+    @Test
+    public void createAllIsAllOrNothingTest() {
+        assertNull(userDao().createAll(Arrays.asList(user("a"), user("b"), user("a"))));
+
+        assertTrue(userDao().getAll().isEmpty());
+        assertNull(userDao().getByNick("b"));
+    }
+
+    @Test
+    public void updateAllTest() {
+        List<Integer> ids = userDao().createAll(Arrays.asList(user("a"), user("b")));
+        List<User> users = new ArrayList<>();
+        for (Integer id : ids) {
+            User user = userDao().getById(id);
+            user.setLastName("updated");
+            users.add(user);
+        }
+
+        assertTrue(userDao().updateAll(users));
+        for (Integer id : ids) {
+            assertEquals("updated", userDao().getById(id).getLastName());
+        }
+    }
+
+    @Test
+    public void deleteAllTest() {
+        List<Integer> ids = userDao().createAll(Arrays.asList(user("a"), user("b"), user("c")));
+
+        assertTrue(userDao().deleteAll(ids.subList(0, 2)));
+
+        assertEquals(1, userDao().getAll().size());
+        assertNotNull(userDao().getById(ids.get(2)));
+    }
+
+    protected static User user(String nick) {
+        return new User("first", "last", nick, "secret", nick + "@mail.com");
+    }
+}
@@ -0,0 +1,150 @@
+package com.iowniwant.dao.implementation;
+
+import com.iowniwant.dao.AbstractDAO;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncDaoImplTest extends Mockito {
+
+    @Mock
+    private AbstractDAO<User> userDao;
+    @Mock
+    private AbstractDAO<Goal> goalDao;
+
+    @Test
+    public void runsCallsOnExecutorTest() throws Exception {
+        final List<Runnable> queued = new ArrayList<>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        };
+        User user = new User();
+        when(userDao.getById(1)).thenReturn(user);
+
+        CompletableFuture<User> future = new AsyncDaoImpl<>(userDao, executor).getById(1);
+
+        assertFalse(future.isDone());
+        verify(userDao, never()).getById(1);
+        queued.get(0).run();
+        assertSame(user, future.get());
+    }
+
+    @Test
+    public void fetchesConcurrentlyTest() throws Exception {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final List<Goal> goals = Collections.singletonList(new Goal());
+        when(userDao.getById(1)).thenAnswer(new Answer<User>() {
+            @Override
+            public User answer(InvocationOnMock invocation) throws Throwable {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                return new User();
+            }
+        });
+        when(goalDao.getAll()).thenAnswer(new Answer<List<Goal>>() {
+            @Override
+            public List<Goal> answer(InvocationOnMock invocation) throws Throwable {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                return goals;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // each call waits for the other, so they only complete if they run at the same time
+            CompletableFuture<User> user = new AsyncDaoImpl<>(userDao, executor).getById(1);
+            CompletableFuture<List<Goal>> userGoals = new AsyncDaoImpl<>(goalDao, executor).getAll();
+
+            assertNotNull(user.get(5, TimeUnit.SECONDS));
+            assertSame(goals, userGoals.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void callsRunWithQueryTimeoutTest() throws Exception {
+        Executor sameThread = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        when(userDao.getById(1)).thenAnswer(new Answer<User>() {
+            @Override
+            public User answer(InvocationOnMock invocation) throws Throwable {
+                assertEquals(5, (int) AbstractDaoImpl.QUERY_TIMEOUT.get());
+                return new User();
+            }
+        });
+
+        assertNotNull(new AsyncDaoImpl<>(userDao, sameThread).getById(1).get());
+        assertEquals(0, (int) AbstractDaoImpl.QUERY_TIMEOUT.get());
+    }
+
+    @Test
+    public void rejectedCallFailsFutureTest() throws Exception {
+        Executor saturated = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("saturated");
+            }
+        };
+
+        CompletableFuture<List<User>> future = new AsyncDaoImpl<>(userDao, saturated).getAll();
+
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        verify(userDao, never()).getAll();
+    }
+
+    @Test
+    public void failedCallFailsFutureTest() throws Exception {
+        Executor sameThread = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        };
+        doThrow(new IllegalStateException("broken")).when(userDao).delete(1);
+
+        CompletableFuture<Void> future = new AsyncDaoImpl<>(userDao, sameThread).delete(1);
+
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
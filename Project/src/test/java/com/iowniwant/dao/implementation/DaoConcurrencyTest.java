@@ -0,0 +1,133 @@
+package com.iowniwant.dao.implementation;
+
+import com.iowniwant.model.User;
+import com.iowniwant.util.H2DataSources;
+import com.iowniwant.util.InitialContextFactoryMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the shared DAO singletons from many threads at once against an
+ * in-memory DataBase and checks that no call sees another call's data.
+ */
+public class DaoConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 200;
+
+    private DataSource dataSource;
+    private ExecutorService executor;
+    private Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = H2DataSources.inMemory("concurrency");
+
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS iowniwant");
+            statement.execute("CREATE TABLE iowniwant.user (" +
+                    "user_id BIGSERIAL NOT NULL, first_name VARCHAR(60) NOT NULL, " +
+                    "last_name VARCHAR(60) NOT NULL, nick_name VARCHAR(60) NOT NULL UNIQUE, " +
+                    "user_password VARCHAR(60) NOT NULL, email VARCHAR(60), " +
+                    "month_salary REAL DEFAULT 0, CONSTRAINT user_id_pk PRIMARY KEY (user_id))");
+        }
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        executor.shutdownNow();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void singletonsAreSharedAcrossThreadsTest() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(new Callable<Object[]>() {
+                @Override
+                public Object[] call() throws Exception {
+                    start.await();
+                    return new Object[]{UserDao.getInstance(), GoalDao.getInstance(), TaskDao.getInstance()};
+                }
+            }));
+        }
+        start.countDown();
+
+        for (Future<Object[]> result : results) {
+            Object[] instances = result.get(10, TimeUnit.SECONDS);
+            assertSame(UserDao.getInstance(), instances[0]);
+            assertSame(GoalDao.getInstance(), instances[1]);
+            assertSame(TaskDao.getInstance(), instances[2]);
+        }
+    }
+
+    @Test
+    public void concurrentCreateGetDeleteTest() throws Exception {
+        final UserDao userDao = UserDao.getInstance();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            workers.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        String nick = "user-" + thread + "-" + i;
+                        User created = userDao.create(new User("first", "last", nick, "secret", nick + "@mail"));
+                        if (created == null || !nick.equals(created.getUserName())) {
+                            failures.add("create " + nick + " returned " + created);
+                            continue;
+                        }
+                        User fetched = userDao.getById(created.getId());
+                        if (fetched == null || !nick.equals(fetched.getUserName()))
+                            failures.add("getById " + created.getId() + " returned " + fetched);
+
+                        userDao.delete(created.getId());
+                        if (userDao.getById(created.getId()) != null)
+                            failures.add("delete " + created.getId() + " left the row behind");
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertTrue(userDao.getAll().isEmpty());
+    }
+}
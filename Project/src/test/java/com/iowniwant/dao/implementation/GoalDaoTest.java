@@ -1,7 +1,11 @@
 package com.iowniwant.dao.implementation;
 
 import com.iowniwant.model.Goal;
+import com.iowniwant.model.Page;
 import com.iowniwant.model.User;
+import com.iowniwant.search.GoalSearchIndex;
+import com.iowniwant.search.IndexingGoalDao;
+import com.iowniwant.util.Cursors;
 import com.iowniwant.util.InitialContextFactoryMock;
 import org.junit.After;
 import org.junit.Before;
@@ -72,24 +76,163 @@ public class GoalDaoTest extends Mockito {
 
         goalDao.getGoalsByUserId(id);
 
-        verify(connection, times(2)).prepareStatement(anyString());
-        verify(preparedStatement, times(2)).setInt(eq(1), anyInt());
-        verify(preparedStatement, times(2)).setInt(eq(1), anyInt());
+        // the owner is joined in the same statement, no separate user lookup
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(preparedStatement, times(1)).setInt(eq(1), anyInt());
+        verify(preparedStatement, times(1)).executeQuery();
+    }
+
+    @Test
+    public void GoalsOfSameUserShareUserInstanceTest() throws Exception {
+        when(resultSet.getInt("user_id")).thenReturn(id);
+        when(resultSet.getInt("goal_id")).thenReturn(1, 2);
+
+        List<Goal> goals = goalDao.getGoalsByUserId(id);
+
+        assertEquals(2, goals.size());
+        assertSame(goals.get(0).getUser(), goals.get(1).getUser());
+        assertEquals(id, goals.get(0).getUser().getId());
+    }
+
+    @Test
+    public void GetGoalsPageTest() throws Exception {
+        when(resultSet.getInt("goal_id")).thenReturn(5, 8);
+
+        Page<Goal> page = goalDao.getGoalsPage(id, Cursors.encode(3), 1);
+
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(preparedStatement).setInt(1, id);
+        verify(preparedStatement).setInt(2, 3);
+        verify(preparedStatement).setInt(3, 2);
+        assertEquals(1, page.getItems().size());
+        assertEquals(5, page.getItems().get(0).getId());
+        assertEquals(5, Cursors.decode(page.getNextCursor()));
+    }
+
+    @Test
+    public void GetLastGoalsPageTest() throws Exception {
+        Page<Goal> page = goalDao.getGoalsPage(id, null, GoalDao.DEFAULT_PAGE_SIZE);
+
+        // without cached goals the first page is read on its own, not the whole list
+        verify(preparedStatement).setInt(1, id);
+        verify(preparedStatement).setInt(2, 0);
+        verify(preparedStatement).setInt(3, GoalDao.DEFAULT_PAGE_SIZE + 1);
+        assertEquals(2, page.getItems().size());
+        assertFalse(page.hasNext());
+        assertNull(goalDao.getCache().peek(id));
+    }
+
+    @Test
+    public void GoalsPagesServedFromCacheTest() throws Exception {
+        when(resultSet.next()).thenReturn(Boolean.TRUE, Boolean.TRUE, Boolean.TRUE, Boolean.FALSE);
+        when(resultSet.getInt("goal_id")).thenReturn(1, 4, 9);
+
+        List<Goal> all = goalDao.getGoalsByUserId(id);
+        Page<Goal> first = goalDao.getGoalsPage(id, null, 2);
+        Page<Goal> second = goalDao.getGoalsPage(id, first.getNextCursor(), 2);
+
+        verify(dataSource, times(1)).getConnection();
+        assertEquals(4, first.getItems().get(1).getId());
+        assertEquals(1, second.getItems().size());
+        assertEquals(9, second.getItems().get(0).getId());
+        assertFalse(second.hasNext());
+        assertEquals(3, all.size());
+    }
+
+    @Test
+    public void CreateAppendsToCachedGoalsTest() throws Exception {
+        when(resultSet.getInt("user_id")).thenReturn(id);
+        when(resultSet.getInt("goal_id")).thenReturn(1, 2, 3);
+        when(resultSet.next()).thenReturn(Boolean.TRUE, Boolean.TRUE, Boolean.FALSE, Boolean.TRUE);
+
+        goalDao.getGoalsByUserId(id);
+        goalDao.create(goal);
+        List<Goal> goals = goalDao.getGoalsByUserId(id);
+
+        verify(dataSource, times(2)).getConnection();
+        assertEquals(3, goals.size());
+        assertEquals(3, goals.get(2).getId());
+    }
+
+    @Test
+    public void CreateKeepsCachedGoalsInIdOrderTest() throws Exception {
+        when(resultSet.getInt("user_id")).thenReturn(id);
+        // goal 2 of a concurrent create commits after goal 3 was cached
+        when(resultSet.getInt("goal_id")).thenReturn(1, 3, 2);
+        when(resultSet.next()).thenReturn(Boolean.TRUE, Boolean.TRUE, Boolean.FALSE, Boolean.TRUE);
+
+        goalDao.getGoalsByUserId(id);
+        goalDao.create(goal);
+        Page<Goal> page = goalDao.getGoalsPage(id, Cursors.encode(1), 1);
+
+        assertEquals(2, page.getItems().get(0).getId());
+        assertEquals(3, goalDao.getGoalsByUserId(id).get(2).getId());
+    }
+
+    @Test
+    public void CallersGetCopiesOfCachedGoalsTest() throws Exception {
+        when(resultSet.getInt("user_id")).thenReturn(id);
+        when(resultSet.getString("title")).thenReturn("bike");
+        when(resultSet.getInt("goal_id")).thenReturn(1, 2);
+
+        List<Goal> first = goalDao.getGoalsByUserId(id);
+        first.get(0).setTitle("changed by caller");
+        first.get(0).getUser().setUserName("changed by caller");
+        List<Goal> second = goalDao.getGoalsByUserId(id);
+
+        verify(dataSource, times(1)).getConnection();
+        assertEquals("bike", second.get(0).getTitle());
+        assertNull(second.get(0).getUser().getUserName());
+        assertSame(second.get(0).getUser(), second.get(1).getUser());
+    }
+
+    @Test
+    public void UpdateInvalidatesOnlyTheOwnersGoalsTest() throws Exception {
+        when(resultSet.getInt("user_id")).thenReturn(id, id, 100, 100);
+        when(resultSet.getInt("goal_id")).thenReturn(1, 2, 3, 4);
+        when(resultSet.next()).thenReturn(Boolean.TRUE, Boolean.TRUE, Boolean.FALSE,
+                Boolean.TRUE, Boolean.TRUE, Boolean.FALSE);
+        when(goal.getId()).thenReturn(2);
+
+        goalDao.getGoalsByUserId(id);
+        goalDao.getGoalsByUserId(100);
+        goalDao.update(goal);
+
+        assertNull(goalDao.getCache().peek(id));
+        assertNotNull(goalDao.getCache().peek(100));
+    }
+
+    @Test
+    public void DeleteInvalidatesCachedGoalsTest() throws Exception {
+        when(resultSet.getInt("goal_id")).thenReturn(7);
+
+        goalDao.getGoalsByUserId(id);
+        goalDao.delete(7);
+        goalDao.getGoalsByUserId(id);
+
+        verify(dataSource, times(3)).getConnection();
         verify(preparedStatement, times(2)).executeQuery();
     }
 
     @Test
     public void GoalDaoCreateTest() throws SQLException {
 
-        goalDao.create(goal);
+        when(resultSet.getInt("v_goal_id")).thenReturn(3);
+
+        Goal created = goalDao.create(goal);
 
-        verify(connection, atLeastOnce()).prepareStatement(anyString(), anyInt());
-        verify(preparedStatement, atLeastOnce()).executeUpdate();
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, never()).prepareStatement(anyString(), anyInt());
+        verify(preparedStatement, never()).executeUpdate();
+        assertEquals(3, created.getV_id());
+        assertNotNull(created.getUser());
 
         InOrder inOrder = inOrder(connection, preparedStatement);
         inOrder.verify(connection).prepareStatement(anyString());
         inOrder.verify(preparedStatement).setInt(anyInt(), anyInt());
         inOrder.verify(preparedStatement).executeQuery();
+        inOrder.verify(connection).close();
     }
 
     @Test
@@ -121,6 +264,21 @@ public class GoalDaoTest extends Mockito {
         verifyNoMoreInteractions(connection);
     }
 
+    @Test
+    public void UpdateOfUnknownGoalIsNotIndexedTest() throws SQLException {
+        GoalSearchIndex index = GoalSearchIndex.getInstance();
+        index.clear();
+        User user = new User();
+        user.setId(id);
+        Goal unknown = new Goal("Phantom", 10, null, null, null, user);
+        unknown.setId(12345);
+        when(preparedStatement.executeUpdate()).thenReturn(0);
+
+        assertNull(new IndexingGoalDao(goalDao, index).update(unknown));
+
+        assertTrue(index.search(id, "phantom", 10).isEmpty());
+    }
+
     @Test
     public void GoalDaoDeleteTest() throws SQLException {
 
@@ -139,12 +297,12 @@ public class GoalDaoTest extends Mockito {
 
         goalDao.getAll();
 
-        verify(dataSource, times(2)).getConnection();
-        verify(connection, times(2)).prepareStatement(anyString());
-        verify(preparedStatement, atLeastOnce()).executeQuery();
-        verify(preparedStatement, times(1)).setInt(eq(1), anyInt());
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(preparedStatement, times(1)).executeQuery();
+        verify(preparedStatement, never()).setInt(anyInt(), anyInt());
         verify(resultSet, times(3)).next();
-        verify(connection, times(2)).close();
+        verify(connection, times(1)).close();
         verifyNoMoreInteractions(connection);
     }
 }
@@ -0,0 +1,182 @@
+package com.iowniwant.dao.implementation;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalQuery;
+import com.iowniwant.model.Page;
+import com.iowniwant.util.H2DataSources;
+import com.iowniwant.util.InitialContextFactoryMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the listings of @see GoalDao.findGoals are read through the
+ * composite index of their sort order, and page through the goals in that
+ * order, on H2 with the indexes of the V6 migration.
+ */
+public class GoalQueryPlanTest {
+    private static final int USERS = 20;
+    private static final int GOALS = 50;
+
+    private DataSource dataSource;
+    private GoalDao goalDao = GoalDao.getInstance();
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = H2DataSources.inMemory("goal-query-plan");
+        execute("CREATE SCHEMA IF NOT EXISTS iowniwant",
+                "CREATE TABLE iowniwant.user (user_id INT PRIMARY KEY, first_name VARCHAR(60), " +
+                        "last_name VARCHAR(60), nick_name VARCHAR(60), user_password VARCHAR(60), " +
+                        "email VARCHAR(60), month_salary REAL DEFAULT 0)",
+                "CREATE TABLE iowniwant.goal (goal_id INT PRIMARY KEY, title VARCHAR(60) NOT NULL, " +
+                        "cost REAL NOT NULL DEFAULT 0, description VARCHAR(60), pubdate DATE, notes VARCHAR(60), " +
+                        "user_id INT, v_goal_id INT)",
+                "CREATE INDEX goal_user_cost_idx ON iowniwant.goal (user_id, cost, goal_id)",
+                "CREATE INDEX goal_user_pubdate_idx ON iowniwant.goal (user_id, pubdate, goal_id)",
+                "CREATE INDEX goal_user_title_idx ON iowniwant.goal (user_id, title, goal_id)");
+        for (int user = 1; user <= USERS; user++) {
+            execute("INSERT INTO iowniwant.user VALUES (" + user + ", 'f', 'l', 'n" + user + "', 'p', 'e', 100)");
+            for (int goal = 1; goal <= GOALS; goal++) {
+                // costs and dates repeat, pubdate is missing on every tenth goal
+                String pubdate = goal % 10 == 0 ? "NULL" : "DATE '2016-0" + (goal % 3 + 1) + "-" + (10 + goal % 7) + "'";
+                execute("INSERT INTO iowniwant.goal VALUES (" + (user * 1000 + goal) + ", 'goal" + (goal % 13)
+                        + "', " + (goal % 17) * 10 + ", 'd', " + pubdate + ", 'n', " + user + ", " + goal + ")");
+            }
+        }
+        execute("ANALYZE");
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void cheapestFirstUsesCostIndexTest() throws SQLException {
+        GoalQuery query = new GoalQuery();
+        query.setMaxCost(100.0);
+
+        assertTrue(explain(query), explain(query).contains("GOAL_USER_COST_IDX"));
+        List<Goal> goals = findAll(query);
+        assertEquals(count("SELECT count(*) FROM iowniwant.goal WHERE user_id = 7 AND cost <= 100"), goals.size());
+        for (int i = 1; i < goals.size(); i++) {
+            Goal v = goals.get(i - 1);
+            Goal w = goals.get(i);
+            assertTrue(v.getCost() < w.getCost() || v.getCost() == w.getCost() && v.getId() < w.getId());
+        }
+    }
+
+    @Test
+    public void monthUsesPubdateIndexTest() throws SQLException {
+        GoalQuery query = new GoalQuery();
+        query.setSort(GoalQuery.Sort.PUBDATE);
+        query.setFrom(Date.valueOf("2016-02-01"));
+        query.setTo(Date.valueOf("2016-03-01"));
+
+        assertTrue(explain(query), explain(query).contains("GOAL_USER_PUBDATE_IDX"));
+        List<Goal> goals = findAll(query);
+        assertEquals(count("SELECT count(*) FROM iowniwant.goal WHERE user_id = 7 " +
+                "AND pubdate >= DATE '2016-02-01' AND pubdate < DATE '2016-03-01'"), goals.size());
+        for (Goal goal : goals) {
+            assertEquals("2016-02", goal.getPubdate().toString().substring(0, 7));
+        }
+    }
+
+    @Test
+    public void pubdatePagesReachGoalsWithoutDateTest() throws SQLException {
+        GoalQuery query = new GoalQuery();
+        query.setSort(GoalQuery.Sort.PUBDATE);
+        query.setDescending(true);
+        // the first page ends on a goal with date, the next ones are read from the index
+        query.setLimit(8);
+
+        assertTrue(explain(query), explain(query).contains("GOAL_USER_PUBDATE_IDX"));
+        List<Goal> goals = findAll(query);
+        assertEquals(GOALS, goals.size());
+        assertNull(goals.get(0).getPubdate());
+        assertNotNull(goals.get(GOALS - 1).getPubdate());
+    }
+
+    @Test
+    public void titleUsesTitleIndexTest() throws SQLException {
+        GoalQuery query = new GoalQuery();
+        query.setSort(GoalQuery.Sort.TITLE);
+
+        assertTrue(explain(query), explain(query).contains("GOAL_USER_TITLE_IDX"));
+        List<Goal> goals = findAll(query);
+        assertEquals(GOALS, goals.size());
+        assertEquals("goal0", goals.get(0).getTitle());
+    }
+
+    /**
+     * @return plan of the first page of the query for user 7, past its first page when there is one.
+     */
+    private String explain(GoalQuery query) throws SQLException {
+        query.setCursor(null);
+        query.setCursor(goalDao.findGoals(7, query).getNextCursor());
+        List<Object> params = new ArrayList<>();
+        String sql = goalDao.findQuery(7, query, params);
+        params.add(query.getLimit() + 1);
+        query.setCursor(null);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        }
+    }
+
+    private List<Goal> findAll(GoalQuery query) {
+        List<Goal> goals = new ArrayList<>();
+        query.setCursor(null);
+        Page<Goal> page = goalDao.findGoals(7, query);
+        goals.addAll(page.getItems());
+        while (page.hasNext()) {
+            query.setCursor(page.getNextCursor());
+            page = goalDao.findGoals(7, query);
+            goals.addAll(page.getItems());
+        }
+        return goals;
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
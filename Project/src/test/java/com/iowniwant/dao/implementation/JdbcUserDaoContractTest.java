@@ -0,0 +1,59 @@
+package com.iowniwant.dao.implementation;
+
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.UserDaoContractTest;
+import com.iowniwant.util.H2DataSources;
+import com.iowniwant.util.InitialContextFactoryMock;
+import org.junit.After;
+import org.junit.Before;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Runs the contract against UserDao on an in-memory DataBase. The goal and
+ * task contracts depend on the plpgsql triggers numbering them, which the
+ * in-memory DataBase lacks.
+ */
+public class JdbcUserDaoContractTest extends UserDaoContractTest {
+    private DataSource dataSource;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = H2DataSources.inMemory("user-contract");
+        execute("CREATE SCHEMA IF NOT EXISTS iowniwant",
+                "CREATE TABLE iowniwant.user (" +
+                        "user_id BIGSERIAL NOT NULL, first_name VARCHAR(60) NOT NULL, " +
+                        "last_name VARCHAR(60) NOT NULL, nick_name VARCHAR(60) NOT NULL UNIQUE, " +
+                        "user_password VARCHAR(60) NOT NULL, email VARCHAR(60), " +
+                        "month_salary REAL DEFAULT 0, CONSTRAINT user_id_pk PRIMARY KEY (user_id))");
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Override
+    protected AbstractUserDAO userDao() {
+        return UserDao.getInstance();
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package com.iowniwant.dao.implementation;
 
+import com.iowniwant.dao.CloseableIterator;
+import com.iowniwant.dao.EntityHandler;
 import com.iowniwant.model.User;
 import com.iowniwant.util.InitialContextFactoryMock;
+import com.iowniwant.util.UnitOfWork;
 import org.junit.*;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 import javax.naming.Context;
 import javax.naming.spi.InitialContextFactory;
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -60,20 +69,18 @@ public class UserDaoTest extends Mockito {
 
     @Test
     public void userDaoCreateTest() throws SQLException {
-        userDao.create(user);
+        assertNotNull(userDao.create(user));
 
-        verify(dataSource, times(2)).getConnection();
-        verify(connection, times(1)).prepareStatement(anyString(), anyInt());
+        // INSERT ... RETURNING: one connection, one statement, no re-read
+        verify(dataSource, times(1)).getConnection();
         verify(connection, times(1)).prepareStatement(anyString());
         verify(preparedStatement, times(5)).setString(anyInt(), anyString());
         verify(preparedStatement, times(1)).setDouble(anyInt(), anyDouble());
-        verify(preparedStatement, times(1)).setInt(anyInt(), anyInt());
-        verify(preparedStatement, times(1)).executeUpdate();
+        verify(preparedStatement, never()).setInt(anyInt(), anyInt());
         verify(preparedStatement, times(1)).executeQuery();
-        verify(preparedStatement, times(1)).getGeneratedKeys();
-        verify(resultSet, times(1)).getInt(1);
-        verify(resultSet, times(2)).next();
-        verify(connection, times(2)).close();
+        verify(preparedStatement, never()).getGeneratedKeys();
+        verify(resultSet, times(1)).next();
+        verify(connection, times(1)).close();
         verifyNoMoreInteractions(connection);
     }
 
@@ -126,6 +133,101 @@ public class UserDaoTest extends Mockito {
         verifyNoMoreInteractions(connection);
     }
 
+    @Test
+    public void userDaoCreateAllTest() throws SQLException {
+        when(resultSet.getInt(1)).thenReturn(7, 8);
+
+        List<Integer> ids = userDao.createAll(Arrays.asList(new User(), new User()));
+
+        assertEquals(Arrays.asList(7, 8), ids);
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS));
+        verify(preparedStatement, times(2)).addBatch();
+        verify(preparedStatement, times(1)).executeBatch();
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(connection).commit();
+        inOrder.verify(connection).setAutoCommit(true);
+        inOrder.verify(connection).close();
+    }
+
+    @Test
+    public void userDaoUpdateAllChunksTest() throws SQLException {
+        UserDao chunked = spy(userDao);
+        doReturn(2).when(chunked).getChunkSize();
+
+        assertTrue(chunked.updateAll(Arrays.asList(new User(), new User(), new User())));
+
+        verify(connection, times(1)).prepareStatement(anyString());
+        verify(preparedStatement, times(3)).addBatch();
+        verify(preparedStatement, times(2)).executeBatch();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void userDaoDeleteAllTest() throws SQLException {
+        Array array = mock(Array.class);
+        when(preparedStatement.getConnection()).thenReturn(connection);
+        when(connection.createArrayOf(eq("integer"), any(Object[].class))).thenReturn(array);
+
+        assertTrue(userDao.deleteAll(Arrays.asList(1, 2, 3)));
+
+        verify(preparedStatement, times(1)).setArray(1, array);
+        verify(preparedStatement, times(1)).executeBatch();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void userDaoBatchRollbackTest() throws SQLException {
+        when(preparedStatement.executeBatch()).thenThrow(new BatchUpdateException());
+
+        assertNull(userDao.createAll(Arrays.asList(new User(), new User())));
+
+        verify(connection, times(1)).rollback();
+        verify(connection, never()).commit();
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    public void userDaoStreamAllTest() throws SQLException {
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(preparedStatement);
+        final List<User> streamed = new ArrayList<>();
+
+        userDao.getAll(new EntityHandler<User>() {
+            @Override
+            public void handle(User entity) {
+                streamed.add(entity);
+            }
+        });
+
+        assertEquals(2, streamed.size());
+        InOrder inOrder = inOrder(connection, preparedStatement);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(connection).prepareStatement(anyString(),
+                eq(ResultSet.TYPE_FORWARD_ONLY), eq(ResultSet.CONCUR_READ_ONLY));
+        inOrder.verify(preparedStatement).setFetchSize(500);
+        inOrder.verify(preparedStatement).executeQuery();
+        inOrder.verify(connection).commit();
+        inOrder.verify(connection).setAutoCommit(true);
+        inOrder.verify(connection).close();
+        verifyNoMoreInteractions(connection);
+    }
+
+    @Test
+    public void userDaoIterateAllCloseEarlyTest() throws SQLException {
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(preparedStatement);
+
+        CloseableIterator<User> iterator = userDao.iterateAll();
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        iterator.close();
+
+        verify(resultSet, times(1)).next();
+        verify(resultSet, times(1)).close();
+        verify(connection, times(1)).close();
+        assertFalse(iterator.hasNext());
+    }
+
     @Test
     public void userDaoGetByNickTest() throws SQLException {
         userDao.getByNick("test");
@@ -135,4 +237,78 @@ public class UserDaoTest extends Mockito {
         verify(connection, times(1)).close();
         verifyNoMoreInteractions(connection);
     }
+
+    @Test
+    public void userDaoGetByIdServedFromCacheTest() throws SQLException {
+        when(resultSet.getInt("user_id")).thenReturn(id);
+        when(resultSet.getString("nick_name")).thenReturn("nick");
+        long hits = userDao.getCache().getHitCount();
+
+        User first = userDao.getById(id);
+        first.setUserName("changed by caller");
+        User second = userDao.getById(id);
+        User byNick = userDao.getByNick("nick");
+
+        verify(dataSource, times(1)).getConnection();
+        assertNotSame(first, second);
+        assertEquals("nick", second.getUserName());
+        assertEquals(id, byNick.getId());
+        assertEquals(hits + 2, userDao.getCache().getHitCount());
+    }
+
+    @Test
+    public void userDaoUpdateInvalidatesCacheTest() throws SQLException {
+        when(resultSet.getInt("user_id")).thenReturn(id);
+        when(resultSet.next()).thenReturn(Boolean.TRUE);
+        user.setId(id);
+
+        userDao.getById(id);
+        userDao.update(user);
+        userDao.getById(id);
+        userDao.delete(id);
+        userDao.getById(id);
+
+        verify(dataSource, times(5)).getConnection();
+        verify(preparedStatement, times(3)).executeQuery();
+    }
+
+    @Test
+    public void userDaoGetByIdRacingUpdateIsNotCachedTest() throws SQLException {
+        userDao.clearCache();
+        when(resultSet.getInt("user_id")).thenReturn(id);
+        when(resultSet.next()).thenReturn(Boolean.TRUE);
+        // an update of the user commits while the old row is being read
+        when(preparedStatement.executeQuery()).thenAnswer(new Answer<ResultSet>() {
+            @Override
+            public ResultSet answer(InvocationOnMock invocation) {
+                userDao.getCache().invalidate(id);
+                return resultSet;
+            }
+        });
+
+        userDao.getById(id);
+        userDao.getById(id);
+
+        verify(preparedStatement, times(2)).executeQuery();
+    }
+
+    @Test
+    public void userDaoFailedStatementRollsBackUnitOfWorkTest() throws SQLException {
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("duplicate key"));
+
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            assertNull(userDao.update(user));
+            assertTrue(work.isRollbackOnly());
+            try {
+                work.commit();
+                fail("a unit with a failed statement must not commit");
+            } catch (SQLException expected) {
+                // rolled back instead
+            }
+        }
+
+        verify(connection, never()).commit();
+        verify(connection, times(1)).rollback();
+        verify(connection, times(1)).close();
+    }
 }
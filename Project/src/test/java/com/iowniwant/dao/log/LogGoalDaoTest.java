@@ -0,0 +1,33 @@
+package com.iowniwant.dao.log;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.GoalDaoContractTest;
+import com.iowniwant.dao.memory.MemoryGoalDao;
+import com.iowniwant.dao.memory.MemoryUserDao;
+import org.junit.After;
+
+import java.io.File;
+
+public class LogGoalDaoTest extends GoalDaoContractTest {
+    private final File directory = LogStores.newDirectory();
+    private final LogStore store = LogStores.open(directory);
+    private final MemoryUserDao userDao = new MemoryUserDao(store);
+    private final MemoryGoalDao goalDao = new MemoryGoalDao(store);
+
+    @After
+    public void tearDown() {
+        store.close();
+        LogStores.delete(directory);
+    }
+
+    @Override
+    protected AbstractUserDAO userDao() {
+        return userDao;
+    }
+
+    @Override
+    protected AbstractGoalDAO goalDao() {
+        return goalDao;
+    }
+}
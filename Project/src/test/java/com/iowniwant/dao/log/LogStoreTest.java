@@ -0,0 +1,189 @@
+package com.iowniwant.dao.log;
+
+import com.iowniwant.dao.memory.MemoryGoalDao;
+import com.iowniwant.dao.memory.MemoryGoalSummaryDao;
+import com.iowniwant.dao.memory.MemoryTaskDao;
+import com.iowniwant.dao.memory.MemoryUserDao;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalSummary;
+import com.iowniwant.model.Task;
+import com.iowniwant.model.User;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LogStoreTest {
+    private final File directory = LogStores.newDirectory();
+    private LogStore store = LogStores.open(directory);
+
+    @After
+    public void tearDown() {
+        store.close();
+        LogStores.delete(directory);
+    }
+
+    @Test
+    public void reopenRecoversEntitiesTest() {
+        User user = users().create(user("nick"));
+        List<Integer> goals = goals().createAll(Arrays.asList(goal("a", user), goal("b", user), goal("c", user)));
+        Goal goal = goals().getById(goals.get(2));
+        tasks().create(new Task("save", goal));
+        goals().delete(goals.get(0));
+        user.setFirstName("changed");
+        users().update(user);
+
+        reopen();
+
+        assertEquals("changed", users().getByNick("nick").getFirstName());
+        List<Goal> recovered = goals().getGoalsByUserId(user.getId());
+        assertEquals(2, recovered.size());
+        assertEquals("b", recovered.get(0).getTitle());
+        assertEquals(2, recovered.get(1).getV_id());
+        List<Task> tasks = tasks().getTasksByGoalId(goal.getId());
+        assertEquals(1, tasks.size());
+        assertEquals("c", tasks.get(0).getGoal().getTitle());
+    }
+
+    @Test
+    public void reopenRebuildsGoalTotalsTest() {
+        User user = users().create(user("nick"));
+        List<Integer> goals = goals().createAll(Arrays.asList(goal("a", user), goal("b", user)));
+        goals().delete(goals.get(0));
+
+        reopen();
+
+        GoalSummary summary = new MemoryGoalSummaryDao(store).getByUserId(user.getId());
+        assertEquals(1, summary.getGoalCount());
+        assertEquals(100, summary.getTotalCost(), 0.0);
+    }
+
+    @Test
+    public void tornRecordIsDiscardedTest() throws IOException {
+        users().create(user("a"));
+        users().create(user("b"));
+        store.close();
+        File segment = lastSegment();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // a record whose body never made it to the disk
+            file.seek(end(file));
+            file.writeInt(40);
+            file.writeInt(12345);
+        }
+
+        store = LogStores.open(directory);
+        assertEquals(2, users().getAll().size());
+        users().create(user("c"));
+
+        reopen();
+        assertEquals(3, users().getAll().size());
+        assertNotNull(users().getByNick("c"));
+    }
+
+    @Test
+    public void compactionReclaimsSegmentsTest() {
+        User kept = users().create(user("kept"));
+        User deleted = users().create(user("deleted"));
+        for (int i = 0; i < 300; i++) {
+            kept.setLastName("last" + i);
+            users().update(kept);
+        }
+        users().delete(deleted.getId());
+        int before = segmentCount();
+
+        assertTrue(store.compact() > 0);
+
+        assertTrue(segmentCount() < before);
+        assertEquals("last299", users().getById(kept.getId()).getLastName());
+        reopen();
+        assertEquals("last299", users().getById(kept.getId()).getLastName());
+        assertNull(users().getById(deleted.getId()));
+        assertEquals(1, users().getAll().size());
+    }
+
+    @Test
+    public void compactionKeepsDeletesOfOlderSegmentsTest() {
+        User deleted = users().create(user("deleted"));
+        for (int i = 0; segmentCount() == 1; i++) {
+            users().create(user("filler" + i));
+        }
+        deleted.setFirstName("changed");
+        users().update(deleted);
+        users().delete(deleted.getId());
+        User churned = users().create(user("churned"));
+        for (int i = 0; segmentCount() == 2; i++) {
+            churned.setLastName("last" + i);
+            users().update(churned);
+        }
+
+        // the second segment goes, the first one still holds the created user
+        assertEquals(1, store.compact());
+
+        reopen();
+        assertNull(users().getById(deleted.getId()));
+        assertNull(users().getByNick("deleted"));
+    }
+
+    @Test
+    public void deletedIdsAreNotHandedOutAgainTest() {
+        users().create(user("a"));
+        User last = users().create(user("b"));
+        users().delete(last.getId());
+
+        reopen();
+
+        assertEquals(last.getId() + 1, users().create(user("c")).getId());
+    }
+
+    private void reopen() {
+        store.close();
+        store = LogStores.open(directory);
+    }
+
+    private MemoryUserDao users() {
+        return new MemoryUserDao(store);
+    }
+
+    private MemoryGoalDao goals() {
+        return new MemoryGoalDao(store);
+    }
+
+    private MemoryTaskDao tasks() {
+        return new MemoryTaskDao(store);
+    }
+
+    private int segmentCount() {
+        return directory.listFiles().length;
+    }
+
+    private File lastSegment() {
+        File[] files = directory.listFiles();
+        Arrays.sort(files);
+        return files[files.length - 1];
+    }
+
+    private static long end(RandomAccessFile file) throws IOException {
+        long offset = 0;
+        file.seek(0);
+        int length;
+        while ((length = file.readInt()) > 0) {
+            offset += 8 + length;
+            file.seek(offset);
+        }
+        return offset;
+    }
+
+    private static User user(String nick) {
+        return new User("first", "last", nick, "secret", nick + "@mail.com");
+    }
+
+    private static Goal goal(String title, User user) {
+        return new Goal(title, 100, null, null, null, user);
+    }
+}
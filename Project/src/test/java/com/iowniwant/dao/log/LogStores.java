@@ -0,0 +1,38 @@
+package com.iowniwant.dao.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Opens LogStores in temporary directories for the tests.
+ */
+class LogStores {
+    static final int SEGMENT_BYTES = 4096;
+
+    private LogStores() {}
+
+    static File newDirectory() {
+        try {
+            return Files.createTempDirectory("iowniwant-log").toFile();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static LogStore open(File directory) {
+        try {
+            return LogStore.open(directory, SEGMENT_BYTES, 0.5, false);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static void delete(File directory) {
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            file.delete();
+        }
+        directory.delete();
+    }
+}
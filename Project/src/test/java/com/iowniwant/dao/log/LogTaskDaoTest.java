@@ -0,0 +1,41 @@
+package com.iowniwant.dao.log;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.AbstractTaskDAO;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.TaskDaoContractTest;
+import com.iowniwant.dao.memory.MemoryGoalDao;
+import com.iowniwant.dao.memory.MemoryTaskDao;
+import com.iowniwant.dao.memory.MemoryUserDao;
+import org.junit.After;
+
+import java.io.File;
+
+public class LogTaskDaoTest extends TaskDaoContractTest {
+    private final File directory = LogStores.newDirectory();
+    private final LogStore store = LogStores.open(directory);
+    private final MemoryUserDao userDao = new MemoryUserDao(store);
+    private final MemoryGoalDao goalDao = new MemoryGoalDao(store);
+    private final MemoryTaskDao taskDao = new MemoryTaskDao(store);
+
+    @After
+    public void tearDown() {
+        store.close();
+        LogStores.delete(directory);
+    }
+
+    @Override
+    protected AbstractUserDAO userDao() {
+        return userDao;
+    }
+
+    @Override
+    protected AbstractGoalDAO goalDao() {
+        return goalDao;
+    }
+
+    @Override
+    protected AbstractTaskDAO taskDao() {
+        return taskDao;
+    }
+}
@@ -0,0 +1,28 @@
+package com.iowniwant.dao.log;
+
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.UserDaoContractTest;
+import com.iowniwant.dao.memory.MemoryUserDao;
+import org.junit.After;
+
+import java.io.File;
+
+/**
+ * Runs the contract against the in-memory DAOs over a log in small segments.
+ */
+public class LogUserDaoTest extends UserDaoContractTest {
+    private final File directory = LogStores.newDirectory();
+    private final LogStore store = LogStores.open(directory);
+    private final MemoryUserDao userDao = new MemoryUserDao(store);
+
+    @After
+    public void tearDown() {
+        store.close();
+        LogStores.delete(directory);
+    }
+
+    @Override
+    protected AbstractUserDAO userDao() {
+        return userDao;
+    }
+}
@@ -0,0 +1,65 @@
+package com.iowniwant.dao.memory;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntObjectMapTest {
+
+    @Test
+    public void behavesLikeHashMapTest() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -1000; key < 1000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.keys().length);
+    }
+
+    @Test
+    public void removeKeepsCollidingKeysReachableTest() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        for (int key = 1; key <= 12; key++) {
+            map.put(key, "v" + key);
+        }
+        for (int key = 1; key <= 12; key += 2) {
+            map.remove(key);
+        }
+        for (int key = 2; key <= 12; key += 2) {
+            assertEquals("v" + key, map.get(key));
+        }
+        assertNull(map.get(1));
+        assertEquals(6, map.size());
+    }
+
+    @Test
+    public void intListStaysSortedTest() {
+        IntList list = new IntList();
+        for (int value : new int[]{5, 1, 9, 3, 7, 9}) {
+            list.add(value);
+        }
+
+        assertEquals(5, list.size());
+        assertEquals(1, list.get(0));
+        assertEquals(9, list.get(4));
+        assertEquals(2, list.indexAfter(3));
+        assertEquals(3, list.indexAfter(6));
+        assertTrue(list.remove(5));
+        assertFalse(list.remove(5));
+        assertEquals(-3, list.indexOf(5));
+    }
+}
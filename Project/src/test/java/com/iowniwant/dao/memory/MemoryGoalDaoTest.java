@@ -0,0 +1,28 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.GoalDaoContractTest;
+
+/**
+ * Runs the contract against the in-memory engine.
+ */
+public class MemoryGoalDaoTest extends GoalDaoContractTest {
+    private final MemoryStore store = MemoryStore.getInstance();
+    private final MemoryUserDao userDao = new MemoryUserDao(store);
+    private final MemoryGoalDao goalDao = new MemoryGoalDao(store);
+
+    public MemoryGoalDaoTest() {
+        store.clear();
+    }
+
+    @Override
+    protected AbstractUserDAO userDao() {
+        return userDao;
+    }
+
+    @Override
+    protected AbstractGoalDAO goalDao() {
+        return goalDao;
+    }
+}
@@ -0,0 +1,75 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.GoalSummary;
+import com.iowniwant.model.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MemoryGoalSummaryDaoTest {
+    private final MemoryStore store = new MemoryStore();
+    private final MemoryUserDao userDao = new MemoryUserDao(store);
+    private final MemoryGoalDao goalDao = new MemoryGoalDao(store);
+    private final MemoryGoalSummaryDao summaryDao = new MemoryGoalSummaryDao(store);
+    private User user;
+
+    @Before
+    public void setUp() {
+        User created = new User("first", "last", "nick", "secret", "nick@mail.com");
+        created.setMonthSalary(100);
+        user = userDao.create(created);
+    }
+
+    @Test
+    public void summaryFollowsGoalWritesTest() {
+        List<Integer> ids = goalDao.createAll(Arrays.asList(goal(150), goal(300), goal(50)));
+
+        assertSummary(3, 500, 300, 5);
+
+        goalDao.delete(ids.get(1));
+        assertSummary(2, 200, 150, 2);
+
+        Goal cheaper = goalDao.getById(ids.get(0));
+        cheaper.setCost(20);
+        goalDao.update(cheaper);
+        assertSummary(2, 70, 50, 1);
+
+        goalDao.deleteAll(Arrays.asList(ids.get(0), ids.get(2)));
+        assertSummary(0, 0, 0, 0);
+    }
+
+    @Test
+    public void salaryChangeIsReflectedTest() {
+        goalDao.create(goal(450));
+
+        user.setMonthSalary(0);
+        userDao.update(user);
+        assertNull(summaryDao.getByUserId(user.getId()).getMonthsToAfford());
+
+        user.setMonthSalary(200);
+        userDao.update(user);
+        assertEquals(Integer.valueOf(3), summaryDao.getByUserId(user.getId()).getMonthsToAfford());
+    }
+
+    @Test
+    public void unknownUserHasNoSummaryTest() {
+        assertNull(summaryDao.getByUserId(user.getId() + 1));
+    }
+
+    private void assertSummary(int count, double total, double max, int months) {
+        GoalSummary summary = summaryDao.getByUserId(user.getId());
+        assertEquals(count, summary.getGoalCount());
+        assertEquals(total, summary.getTotalCost(), 0.001);
+        assertEquals(max, summary.getMaxCost(), 0.0);
+        assertEquals(Integer.valueOf(months), summary.getMonthsToAfford());
+    }
+
+    private Goal goal(double cost) {
+        return new Goal("goal", cost, null, null, null, user);
+    }
+}
@@ -0,0 +1,35 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.AbstractTaskDAO;
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.TaskDaoContractTest;
+
+/**
+ * Runs the contract against the in-memory engine.
+ */
+public class MemoryTaskDaoTest extends TaskDaoContractTest {
+    private final MemoryStore store = MemoryStore.getInstance();
+    private final MemoryUserDao userDao = new MemoryUserDao(store);
+    private final MemoryGoalDao goalDao = new MemoryGoalDao(store);
+    private final MemoryTaskDao taskDao = new MemoryTaskDao(store);
+
+    public MemoryTaskDaoTest() {
+        store.clear();
+    }
+
+    @Override
+    protected AbstractUserDAO userDao() {
+        return userDao;
+    }
+
+    @Override
+    protected AbstractGoalDAO goalDao() {
+        return goalDao;
+    }
+
+    @Override
+    protected AbstractTaskDAO taskDao() {
+        return taskDao;
+    }
+}
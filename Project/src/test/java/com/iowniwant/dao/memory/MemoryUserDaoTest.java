@@ -0,0 +1,22 @@
+package com.iowniwant.dao.memory;
+
+import com.iowniwant.dao.AbstractUserDAO;
+import com.iowniwant.dao.UserDaoContractTest;
+
+/**
+ * Runs the contract against the in-memory engine.
+ */
+public class MemoryUserDaoTest extends UserDaoContractTest {
+    private final MemoryStore store = MemoryStore.getInstance();
+    private final MemoryUserDao userDao = new MemoryUserDao(store);
+
+    public MemoryUserDaoTest() {
+        // a new instance runs every test, before the set-up of the contract
+        store.clear();
+    }
+
+    @Override
+    protected AbstractUserDAO userDao() {
+        return userDao;
+    }
+}
@@ -0,0 +1,132 @@
+package com.iowniwant.search;
+
+import com.iowniwant.dao.memory.MemoryGoalDao;
+import com.iowniwant.dao.memory.MemoryStore;
+import com.iowniwant.dao.memory.MemoryUserDao;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.User;
+import com.iowniwant.util.UnitOfWork;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GoalSearchIndexTest {
+    private final GoalSearchIndex index = new GoalSearchIndex();
+    private final User user = user(1);
+
+    @Test
+    public void titleMatchesRankFirstTest() {
+        index.put(1, goal(user, "Bike", "road bike for the summer", "ask about a used car"));
+        index.put(2, goal(user, "New car", "electric", null));
+        index.put(3, goal(user, "Holidays", "by car to the sea", null));
+
+        assertEquals(ids(2, 3, 1), idsOf(index.search(1, "CAR", 10)));
+        assertEquals(ids(2), idsOf(index.search(1, "car", 1)));
+        assertEquals(ids(1, 2), idsOf(index.search(1, "electric bike", 10)));
+        assertTrue(index.search(1, "boat", 10).isEmpty());
+        assertTrue(index.search(1, " ,. ", 10).isEmpty());
+    }
+
+    @Test
+    public void usersOnlyFindTheirGoalsTest() {
+        index.put(1, goal(user, "Guitar", null, null));
+        index.put(2, goal(user(2), "Guitar", null, null));
+
+        assertEquals(ids(1), idsOf(index.search(1, "guitar", 10)));
+        assertEquals(ids(2), idsOf(index.search(2, "guitar", 10)));
+        assertTrue(index.search(3, "guitar", 10).isEmpty());
+    }
+
+    @Test
+    public void updateReplacesTermsAndRemoveDropsGoalTest() {
+        index.put(1, goal(user, "Guitar", "acoustic", null));
+        // an update without user keeps the indexed one
+        index.put(1, goal(null, "Guitar", "electric", null));
+
+        assertTrue(index.search(1, "acoustic", 10).isEmpty());
+        assertEquals(ids(1), idsOf(index.search(1, "electric", 10)));
+
+        index.remove(1);
+        assertTrue(index.search(1, "guitar", 10).isEmpty());
+    }
+
+    @Test
+    public void rolledBackWritesAreNotIndexedTest() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            index.put(1, goal(user, "Guitar", null, null));
+            assertTrue(index.search(1, "guitar", 10).isEmpty());
+            work.rollback();
+        }
+        assertTrue(index.search(1, "guitar", 10).isEmpty());
+
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            index.put(1, goal(user, "Guitar", null, null));
+            work.commit();
+        }
+        assertEquals(ids(1), idsOf(index.search(1, "guitar", 10)));
+    }
+
+    @Test
+    public void rebuildIndexesAllGoalsTest() {
+        MemoryStore store = new MemoryStore();
+        User stored = new MemoryUserDao(store).create(user(0));
+        MemoryGoalDao goalDao = new MemoryGoalDao(store);
+        index.put(99, goal(stored, "stale", null, null));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(goalDao.create(goal(stored, "goal " + i, i % 2 == 0 ? "even" : "odd", null)).getId());
+        }
+
+        assertEquals(50, index.rebuild(goalDao));
+
+        assertTrue(index.search(stored.getId(), "stale", 10).isEmpty());
+        assertEquals(25, index.search(stored.getId(), "even", 100).size());
+        assertEquals(ids.subList(7, 8), idsOf(index.search(stored.getId(), "7", 10)));
+    }
+
+    @Test
+    public void ownTitlesCompleteBeforePopularOnesTest() {
+        index.put(1, goal(user, "Guitar lessons", null, null));
+        for (int id = 2; id <= 4; id++) {
+            index.put(id, goal(user(id), "Guitar", null, null));
+        }
+        index.put(5, goal(user(5), "Gym", null, null));
+
+        assertEquals(Arrays.asList("Guitar lessons", "Guitar"), index.completeTitle(1, "gu", 10, 3));
+        assertEquals(Collections.singletonList("Guitar lessons"), index.completeTitle(1, "g", 10, 0));
+        assertEquals(Arrays.asList("Gym", "Guitar"), index.completeTitle(5, "g", 10, 3));
+        assertTrue(index.completeTitle(1, " ", 10, 3).isEmpty());
+
+        index.remove(4);
+        assertEquals(Collections.singletonList("Guitar lessons"), index.completeTitle(1, "gu", 10, 3));
+        assertEquals(Arrays.asList("Guitar lessons", "Guitar"), index.completeTitle(1, "gu", 10, 2));
+    }
+
+    private static List<Integer> idsOf(List<Goal> goals) {
+        List<Integer> ids = new ArrayList<>();
+        for (Goal goal : goals) {
+            ids.add(goal.getId());
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(Integer... ids) {
+        return Arrays.asList(ids);
+    }
+
+    private static User user(int id) {
+        User user = new User("first", "last", "nick" + id, "secret", "nick@mail.com");
+        user.setId(id);
+        return user;
+    }
+
+    private static Goal goal(User user, String title, String description, String notes) {
+        return new Goal(title, 100, description, null, notes, user);
+    }
+}
@@ -0,0 +1,76 @@
+package com.iowniwant.search;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.memory.MemoryGoalDao;
+import com.iowniwant.dao.memory.MemoryStore;
+import com.iowniwant.dao.memory.MemoryTaskDao;
+import com.iowniwant.dao.memory.MemoryUserDao;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.Task;
+import com.iowniwant.model.User;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class IndexingGoalDaoTest {
+    private final MemoryStore store = new MemoryStore();
+    private final GoalSearchIndex index = new GoalSearchIndex();
+    private final IndexingGoalDao goalDao = new IndexingGoalDao(new MemoryGoalDao(store), index);
+    private final User user = new MemoryUserDao(store).create(
+            new User("first", "last", "nick", "secret", "nick@mail.com"));
+
+    @Test
+    public void writesReachTheIndexTest() {
+        Goal created = goalDao.create(goal("Guitar"));
+        List<Integer> ids = goalDao.createAll(Arrays.asList(goal("Piano"), goal("Drums")));
+        assertEquals(created.getId(), search("guitar"));
+        assertEquals(ids.get(1).intValue(), search("drums"));
+
+        created.setTitle("Violin");
+        goalDao.update(created);
+        assertEquals(-1, search("guitar"));
+        assertEquals(created.getId(), search("violin"));
+
+        goalDao.delete(created.getId());
+        goalDao.deleteAll(ids);
+        assertEquals(-1, search("violin"));
+        assertEquals(-1, search("piano"));
+    }
+
+    @Test
+    public void goalKeptByItsTasksStaysIndexedTest() {
+        Goal created = goalDao.create(goal("Guitar"));
+        new MemoryTaskDao(store).create(new Task("buy strings", created));
+
+        goalDao.delete(created.getId());
+
+        assertEquals(created.getId(), search("guitar"));
+    }
+
+    @Test
+    public void deleteDoesNotReadTheGoalBackTest() {
+        Goal created = goalDao.create(goal("Guitar"));
+        AbstractGoalDAO wrapped = mock(AbstractGoalDAO.class);
+        when(wrapped.deleteAll(Collections.singletonList(created.getId()))).thenReturn(true);
+
+        new IndexingGoalDao(wrapped, index).delete(created.getId());
+
+        verify(wrapped, never()).getById(anyInt());
+        assertEquals(-1, search("guitar"));
+    }
+
+    private int search(String query) {
+        List<Goal> goals = index.search(user.getId(), query, 10);
+        return goals.isEmpty() ? -1 : goals.get(0).getId();
+    }
+
+    private Goal goal(String title) {
+        return new Goal(title, 100, null, null, null, user);
+    }
+}
@@ -0,0 +1,53 @@
+package com.iowniwant.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TitleTrieTest {
+    private final TitleTrie trie = new TitleTrie();
+
+    @Test
+    public void completesMostUsedTitlesFirstTest() {
+        add("New car");
+        add("New bike");
+        add("new  BIKE ");
+        add("Newspaper");
+        add("Sea trip");
+
+        assertEquals(Arrays.asList("New bike", "New car", "Newspaper"), trie.complete("new", 10, 1));
+        assertEquals(Arrays.asList("New bike", "New car"), trie.complete(" NEW ", 2, 1));
+        assertEquals(Collections.singletonList("New car"), trie.complete("new c", 10, 1));
+        assertEquals(Collections.singletonList("New bike"), trie.complete("n", 10, 2));
+        assertTrue(trie.complete("newt", 10, 1).isEmpty());
+        assertTrue(trie.complete("x", 10, 1).isEmpty());
+    }
+
+    @Test
+    public void removedTitlesAreNotCompletedTest() {
+        add("New car");
+        add("New car");
+        add("New cart");
+        add("New");
+
+        assertEquals(1, trie.remove(TitleTrie.keyOf("New car")));
+        assertEquals(0, trie.remove(TitleTrie.keyOf("New")));
+        assertEquals(-1, trie.remove(TitleTrie.keyOf("New")));
+        assertEquals(-1, trie.remove(TitleTrie.keyOf("New ca")));
+        assertEquals(Arrays.asList("New car", "New cart"), trie.complete("ne", 10, 1));
+
+        assertEquals(0, trie.remove(TitleTrie.keyOf("New car")));
+        assertEquals(0, trie.remove(TitleTrie.keyOf("New cart")));
+        assertTrue(trie.complete("n", 10, 1).isEmpty());
+
+        add("New cab");
+        assertEquals(Collections.singletonList("New cab"), trie.complete("new", 10, 1));
+    }
+
+    private void add(String title) {
+        trie.add(TitleTrie.keyOf(title), title);
+    }
+}
@@ -0,0 +1,131 @@
+package com.iowniwant.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConnectionPoolTest extends Mockito {
+    private List<Connection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    private ConnectionPool newPool(int min, int max, long idleTimeout) {
+        Properties properties = new Properties();
+        properties.setProperty("pool.min.size", String.valueOf(min));
+        properties.setProperty("pool.max.size", String.valueOf(max));
+        properties.setProperty("pool.acquire.timeout.ms", "50");
+        properties.setProperty("pool.idle.timeout.ms", String.valueOf(idleTimeout));
+        return new ConnectionPool(properties) {
+            @Override
+            protected Connection openConnection() throws SQLException {
+                Connection connection = mock(Connection.class);
+                when(connection.isValid(anyInt())).thenReturn(Boolean.TRUE);
+                when(connection.getAutoCommit()).thenReturn(Boolean.TRUE);
+                opened.add(connection);
+                return connection;
+            }
+        };
+    }
+
+    @Before
+    public void setUp() {
+        pool = newPool(1, 2, 60000);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void reusesConnectionAfterCloseTest() throws SQLException {
+        Connection first = pool.getConnection();
+        first.close();
+        Connection second = pool.getConnection();
+        second.prepareStatement("SELECT 1");
+
+        assertEquals(1, opened.size());
+        verify(opened.get(0), never()).close();
+        verify(opened.get(0), times(1)).prepareStatement("SELECT 1");
+        assertTrue(first.isClosed());
+        assertEquals(1, pool.getActiveCount());
+    }
+
+    @Test(expected = SQLException.class)
+    public void closedProxyRejectsCallsTest() throws SQLException {
+        Connection connection = pool.getConnection();
+        connection.close();
+        connection.createStatement();
+    }
+
+    @Test
+    public void acquireTimesOutWhenExhaustedTest() throws SQLException {
+        pool.getConnection();
+        pool.getConnection();
+        try {
+            pool.getConnection();
+            fail("pool of two handed out a third connection");
+        } catch (SQLException expected) {
+            assertEquals(2, opened.size());
+        }
+    }
+
+    @Test
+    public void discardsInvalidConnectionOnBorrowTest() throws SQLException {
+        pool.getConnection().close();
+        when(opened.get(0).isValid(anyInt())).thenReturn(Boolean.FALSE);
+
+        pool.getConnection();
+
+        assertEquals(2, opened.size());
+        verify(opened.get(0), times(1)).close();
+        assertEquals(1, pool.getTotalCount());
+    }
+
+    @Test
+    public void rollsBackOpenTransactionOnReturnTest() throws SQLException {
+        Connection connection = pool.getConnection();
+        when(opened.get(0).getAutoCommit()).thenReturn(Boolean.FALSE);
+        connection.close();
+
+        verify(opened.get(0), times(1)).rollback();
+        verify(opened.get(0), times(1)).setAutoCommit(true);
+    }
+
+    @Test
+    public void evictsIdleConnectionsDownToMinimumTest() throws SQLException {
+        pool.close();
+        pool = newPool(1, 3, 0);
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        a.close();
+        b.close();
+        c.close();
+
+        pool.evictIdle();
+
+        assertEquals(1, pool.getTotalCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void fillOpensMinimumSizeTest() throws SQLException {
+        pool.fill();
+
+        assertEquals(1, opened.size());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+}
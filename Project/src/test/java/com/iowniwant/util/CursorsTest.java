@@ -0,0 +1,55 @@
+package com.iowniwant.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CursorsTest {
+
+    @Test
+    public void roundTripTest() {
+        assertEquals(4711, Cursors.decode(Cursors.encode(4711)));
+    }
+
+    @Test
+    public void firstPageTest() {
+        assertEquals(0, Cursors.decode(null));
+        assertEquals(0, Cursors.decode(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedCursorTest() {
+        Cursors.decode("42");
+    }
+
+    @Test
+    public void keysetRoundTripTest() {
+        Cursors.Keyset keyset = Cursors.decode(Cursors.encode("TITLE", "a:b", 42), "TITLE");
+        assertEquals("a:b", keyset.getValue());
+        assertEquals(42, keyset.getLastId());
+
+        keyset = Cursors.decode(Cursors.encode("PUBDATE", null, 7), "PUBDATE");
+        assertNull(keyset.getValue());
+        assertEquals(7, keyset.getLastId());
+        assertNull(Cursors.decode(null, "COST"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void keysetOfOtherSortTest() {
+        Cursors.decode(Cursors.encode("COST", "1.0", 42), "TITLE");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void idCursorIsNoKeysetTest() {
+        Cursors.decode(Cursors.encode(42), "COST");
+    }
+
+    @Test
+    public void cursorsAreUrlSafeTest() {
+        for (String value : new String[]{"???", "a???", "ab???", ">>>~~~", "\u00ff\u00fe"}) {
+            String cursor = Cursors.encode("TITLE", value, 42);
+            assertTrue(cursor, cursor.matches("[A-Za-z0-9_-]+"));
+            assertEquals(value, Cursors.decode(cursor, "TITLE").getValue());
+        }
+    }
+}
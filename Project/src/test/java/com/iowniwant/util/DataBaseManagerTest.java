@@ -11,6 +11,9 @@ import javax.naming.InitialContext;
 import javax.naming.spi.InitialContextFactory;
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DataBaseManagerTest extends Mockito {
@@ -46,4 +49,35 @@ public class DataBaseManagerTest extends Mockito {
         verify(dataSource, times(1)).getConnection();
         verifyNoMoreInteractions(dataSource);
     }
+
+    @Test
+    public void testDataSourceResolvedOnce() throws Exception {
+        DataBaseManager dbManager = DataBaseManager.getInstance();
+        DataSource resolved = dbManager.getDataSource();
+
+        // rebinding behind the manager's back must not be noticed
+        DataSource other = mock(DataSource.class);
+        new InitialContext().bind("java:/jbdc/data-postgres", other);
+        dbManager.getConnection();
+        dbManager.getConnection();
+
+        Assert.assertSame(dataSource, resolved);
+        verify(dataSource, times(2)).getConnection();
+        verifyZeroInteractions(other);
+    }
+
+    @Test
+    public void testSettingsFromEnvironment() {
+        Properties settings = new Properties();
+        settings.setProperty("pool.url", "jdbc:postgresql://localhost/postgres");
+        Map<String, String> environment = new HashMap<>();
+        environment.put("IOWNIWANT_POOL_PASSWORD", "secret");
+        environment.put("PATH", "/bin");
+
+        DataBaseManager.overrideFromEnvironment(settings, environment);
+
+        Assert.assertEquals("secret", settings.getProperty("pool.password"));
+        Assert.assertEquals("jdbc:postgresql://localhost/postgres", settings.getProperty("pool.url"));
+        Assert.assertEquals(2, settings.size());
+    }
 }
@@ -0,0 +1,110 @@
+package com.iowniwant.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DataBaseWarmUpTest extends Mockito {
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement preparedStatement;
+    @Mock
+    private ParameterMetaData parameters;
+    @Mock
+    private ResultSet resultSet;
+
+    private DataBaseManager dbManager = DataBaseManager.getInstance();
+    private int readOnlyQueries;
+
+    @Before
+    public void setUp() throws SQLException {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.getParameterMetaData()).thenReturn(parameters);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(parameters.getParameterCount()).thenReturn(1);
+        when(parameters.getParameterType(1)).thenReturn(Types.INTEGER);
+
+        for (String name : dbManager.getQueries().names()) {
+            if (name.startsWith("get."))
+                readOnlyQueries++;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void runsReadOnlyQueriesWithNullParametersTest() throws SQLException {
+        assertTrue(new DataBaseWarmUp(dbManager, 3).run());
+
+        verify(preparedStatement, times(3 * readOnlyQueries)).executeQuery();
+        verify(preparedStatement, times(3 * readOnlyQueries)).setNull(1, Types.INTEGER);
+        verify(preparedStatement, never()).executeUpdate();
+        verify(preparedStatement, never()).execute();
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    public void queriesWithoutParametersAreNotRunTest() throws SQLException {
+        PreparedStatement readAll = mock(PreparedStatement.class);
+        ParameterMetaData none = mock(ParameterMetaData.class);
+        when(readAll.getParameterMetaData()).thenReturn(none);
+        for (String name : dbManager.getQueries().names()) {
+            if (name.startsWith("get.all."))
+                when(connection.prepareStatement(dbManager.getQuery(name))).thenReturn(readAll);
+        }
+
+        assertTrue(new DataBaseWarmUp(dbManager, 3).run());
+
+        verify(readAll, atLeastOnce()).getParameterMetaData();
+        verify(readAll, never()).executeQuery();
+        verify(preparedStatement, atLeastOnce()).executeQuery();
+    }
+
+    @Test
+    public void reportsQueriesRejectedByTheDataBaseTest() throws SQLException {
+        when(connection.prepareStatement(dbManager.getQuery("update.goal")))
+                .thenThrow(new SQLException("column does not exist"));
+
+        DataBaseWarmUp warmUp = new DataBaseWarmUp(dbManager, 3);
+
+        assertEquals(Collections.singletonList("update.goal"), warmUp.validate());
+        assertFalse(warmUp.run());
+        verify(preparedStatement, never()).executeQuery();
+    }
+
+    @Test
+    public void queryRegistryIsImmutableTest() {
+        assertNotNull(dbManager.getQuery("get.user.by.id"));
+        try {
+            dbManager.getQueries().names().clear();
+            fail("registry could be modified");
+        } catch (UnsupportedOperationException expected) {
+            assertNotNull(dbManager.getQuery("get.user.by.id"));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.iowniwant.util;
+
+import com.iowniwant.dao.implementation.GoalDao;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.ImportReport;
+import com.iowniwant.model.User;
+import com.iowniwant.search.GoalSearchIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GoalImporterTest {
+    private DataSource dataSource;
+    private GoalImporter importer;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = H2DataSources.inMemory("goal-import");
+        execute("CREATE SCHEMA IF NOT EXISTS iowniwant",
+                "CREATE TABLE iowniwant.goal (goal_id INT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(20), " +
+                        "cost REAL NOT NULL, description VARCHAR(60), pubdate DATE, notes VARCHAR(60), " +
+                        "user_id INT, v_goal_id INT)");
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+        // H2 has no COPY, the goals are inserted in batches of two
+        importer = new GoalImporter(DataBaseManager.getInstance(), GoalDao.getInstance(),
+                GoalSearchIndex.getInstance(), true, 2, 10);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        GoalSearchIndex.getInstance().clear();
+        execute("DROP ALL OBJECTS");
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void validRowsAreInsertedTest() throws SQLException {
+        ImportReport report = load("title,cost,pubdate\nbike,100,2016-01-01\ncar,x,\nboat,5,\nhouse,7,\n");
+
+        assertEquals(3, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertNull(report.getFailure());
+        assertEquals(3, count("SELECT count(*) FROM iowniwant.goal WHERE user_id = 3"));
+        assertEquals(112, count("SELECT sum(cost) FROM iowniwant.goal"));
+    }
+
+    @Test
+    public void failingChunkKeepsEarlierChunksTest() throws SQLException {
+        // the DataBase refuses the title of the fourth goal, longer than its column
+        ImportReport report = load("title,cost\nbike,1\ncar,2\nboat,3\na very long goal title,4\nhouse,5\n");
+
+        assertEquals(2, report.getImported());
+        assertNotNull(report.getFailure());
+        assertEquals(2, count("SELECT count(*) FROM iowniwant.goal"));
+    }
+
+    @Test
+    public void joinedUnitOfWorkIsLeftAloneTest() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            load("title,cost\nbike,1\n");
+
+            assertSame(work, UnitOfWork.current());
+            work.rollback();
+        }
+        assertEquals(1, count("SELECT count(*) FROM iowniwant.goal"));
+    }
+
+    @Test
+    public void onlyImportedGoalsAreIndexedTest() throws SQLException {
+        execute("CREATE TABLE iowniwant.user (user_id INT PRIMARY KEY, first_name VARCHAR(20), " +
+                        "last_name VARCHAR(20), nick_name VARCHAR(20), user_password VARCHAR(20), " +
+                        "email VARCHAR(40), month_salary REAL)",
+                "INSERT INTO iowniwant.user (user_id, nick_name) VALUES (3, 'nick')",
+                "INSERT INTO iowniwant.goal (title, cost, user_id) VALUES ('old bike', 1, 3)");
+
+        load("title,cost\nnew bike,2\nboat,3\nhouse,4\n");
+
+        List<Goal> found = GoalSearchIndex.getInstance().search(3, "bike", 10);
+        assertEquals(1, found.size());
+        assertEquals("new bike", found.get(0).getTitle());
+        assertEquals(1, GoalSearchIndex.getInstance().search(3, "house", 10).size());
+    }
+
+    private ImportReport load(String body) {
+        User user = new User();
+        user.setId(3);
+        return importer.load(3, new GoalRowReader(new StringReader(body), GoalRowReader.Format.CSV, user,
+                importer.newReport()));
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.iowniwant.util;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.ImportReport;
+import com.iowniwant.model.User;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GoalRowReaderTest {
+    private final ImportReport report = new ImportReport(10);
+
+    @Test
+    public void csvQuotedFieldsTest() throws IOException {
+        List<Goal> goals = read(GoalRowReader.Format.CSV,
+                "Cost,Title,Notes\r\n" +
+                "100,\"bike, red\",\"says \"\"fast\"\"\"\r\n" +
+                "\n" +
+                "2.5,\"two\nlines\",\n");
+
+        assertEquals(2, goals.size());
+        assertEquals("bike, red", goals.get(0).getTitle());
+        assertEquals("says \"fast\"", goals.get(0).getNotes());
+        assertEquals(100, goals.get(0).getCost(), 0);
+        assertEquals("two\nlines", goals.get(1).getTitle());
+        assertNull(goals.get(1).getNotes());
+        assertEquals(7, goals.get(1).getUser().getId());
+        assertEquals(0, report.getRejected());
+    }
+
+    @Test
+    public void csvRowsAreRejectedByLineTest() throws IOException {
+        List<Goal> goals = read(GoalRowReader.Format.CSV,
+                "title,cost,pubdate\n" +
+                "\"multi\nline\",-1,\n" +
+                "car,abc,\n" +
+                "boat,5\n" +
+                "house,5,2016-13-45\n" +
+                ",5,\n" +
+                "plane,5,2016-02-29\n");
+
+        assertEquals(1, goals.size());
+        assertEquals("plane", goals.get(0).getTitle());
+        assertEquals("2016-02-29", goals.get(0).getPubdate().toString());
+        assertEquals(5, report.getRejected());
+        List<ImportReport.RowError> errors = report.getErrors();
+        assertEquals(2, errors.get(0).getRow());
+        assertEquals(4, errors.get(1).getRow());
+        assertEquals(5, errors.get(2).getRow());
+        assertEquals(6, errors.get(3).getRow());
+        assertEquals(7, errors.get(4).getRow());
+    }
+
+    @Test
+    public void jsonLinesTest() throws IOException {
+        List<Goal> goals = read(GoalRowReader.Format.JSON_LINES,
+                "{\"title\": \"bike\", \"cost\": 100, \"description\": null}\n" +
+                "\n" +
+                "{\"title\": \"car\", \"cost\": \"1e3\", \"color\": \"red\"}\n" +
+                "[1, 2]\n" +
+                "{\"title\": \"boat\"\n" +
+                "{\"title\": \"plane\", \"cost\": 1e39}\n" +
+                "{\"title\": \"house\", \"cost\": \"5\", \"pubdate\": \"2016-01-01\"}");
+
+        assertEquals(2, goals.size());
+        assertEquals("bike", goals.get(0).getTitle());
+        assertNull(goals.get(0).getDescription());
+        assertEquals("house", goals.get(1).getTitle());
+        assertEquals(4, report.getRejected());
+        assertEquals(3, report.getErrors().get(0).getRow());
+        assertTrue(report.getErrors().get(0).getMessage().contains("color"));
+        assertEquals(6, report.getErrors().get(3).getRow());
+    }
+
+    @Test
+    public void overlongRowsAreRejectedTest() throws IOException {
+        StringBuilder line = new StringBuilder("{\"title\": \"");
+        StringBuilder record = new StringBuilder("bike,1");
+        for (int i = 0; i < 100000; i++) {
+            line.append('x');
+            record.append(",1");
+        }
+        List<Goal> goals = read(GoalRowReader.Format.JSON_LINES,
+                line + "\"}\n{\"title\": \"boat\", \"cost\": 2}\n");
+        List<Goal> csv = read(GoalRowReader.Format.CSV, "title,cost\n" + record + "\ncar,3\n");
+
+        assertEquals(1, goals.size());
+        assertEquals("boat", goals.get(0).getTitle());
+        assertEquals(1, csv.size());
+        assertEquals("car", csv.get(0).getTitle());
+        assertEquals(2, report.getRejected());
+        assertTrue(report.getErrors().get(0).getMessage().contains("longer than"));
+        assertEquals("expected 2 fields, found 100002", report.getErrors().get(1).getMessage());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCsvColumnTest() throws IOException {
+        read(GoalRowReader.Format.CSV, "title,cost,price\nbike,1,2\n");
+    }
+
+    @Test
+    public void formatOfContentTypeTest() {
+        assertEquals(GoalRowReader.Format.CSV, GoalRowReader.Format.of("text/csv; charset=UTF-8"));
+        assertEquals(GoalRowReader.Format.JSON_LINES, GoalRowReader.Format.of("application/x-ndjson"));
+        try {
+            GoalRowReader.Format.of("text/plain");
+            fail("plain text accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private List<Goal> read(GoalRowReader.Format format, String body) throws IOException {
+        User user = new User();
+        user.setId(7);
+        GoalRowReader rows = new GoalRowReader(new StringReader(body), format, user, report);
+        List<Goal> goals = new ArrayList<>();
+        for (Goal goal = rows.next(); goal != null; goal = rows.next()) {
+            goals.add(goal);
+        }
+        return goals;
+    }
+}
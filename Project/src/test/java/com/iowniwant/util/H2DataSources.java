@@ -0,0 +1,67 @@
+package com.iowniwant.util;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Creates in-memory H2 DataSources that understand the PostgreSQL statements
+ * of queries.properties. H2 has no <code>INSERT ... RETURNING</code>, so such
+ * statements are rewritten to the equivalent <code>FINAL TABLE</code> select.
+ */
+public class H2DataSources {
+    private static final Pattern RETURNING = Pattern.compile("(?is)^\\s*(INSERT .*?)\\s+RETURNING\\s+(.*?);?\\s*$");
+
+    private H2DataSources() {}
+
+    /**
+     * @param name name of the in-memory DataBase, kept until the JVM exits.
+     * @return DataSource of the named in-memory DataBase.
+     */
+    public static DataSource inMemory(String name) {
+        final JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;ANALYZE_AUTO=0");
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object result = call(h2, method, args);
+                        return result instanceof Connection ? rewriting((Connection) result) : result;
+                    }
+                });
+    }
+
+    static String rewrite(String sql) {
+        Matcher matcher = RETURNING.matcher(sql);
+        return matcher.matches()
+                ? "SELECT " + matcher.group(2) + " FROM FINAL TABLE (" + matcher.group(1) + ")"
+                : sql;
+    }
+
+    private static Connection rewriting(final Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String)
+                            args[0] = rewrite((String) args[0]);
+                        return call(connection, method, args);
+                    }
+                });
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.iowniwant.util;
 
+import com.iowniwant.dao.implementation.GoalDao;
+import com.iowniwant.dao.implementation.UserDao;
+
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -36,9 +39,16 @@ public class InitialContextFactoryMock implements InitialContextFactory {
         return context;
     }
 
+    /**
+     * Binds the object, makes DataBaseManager look its DataSource up again
+     * and drops cached rows read from the previous one.
+     */
     public static void bind(String name, Object obj) {
         try {
             context.bind(name, obj);
+            DataBaseManager.getInstance().resetDataSource();
+            UserDao.getInstance().clearCache();
+            GoalDao.getInstance().clearCache();
         } catch (NamingException ex) {
             throw new RuntimeException(ex);
         }
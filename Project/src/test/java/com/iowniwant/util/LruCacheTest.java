@@ -0,0 +1,89 @@
+package com.iowniwant.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LruCacheTest {
+    private long now;
+    private LruCache<Integer, String> cache;
+
+    @Before
+    public void setUp() {
+        cache = new LruCache<Integer, String>(2, 1000) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedTest() {
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+        cache.put(3, "three");
+
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("three", cache.get(3));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void expiresAfterTimeToLiveTest() {
+        cache.put(1, "one");
+        now = 999;
+        assertEquals("one", cache.get(1));
+        now = 1000;
+        assertNull(cache.get(1));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void invalidateDropsEntryTest() {
+        cache.put(1, "one");
+        cache.invalidate(1);
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void loadRacingInvalidationIsNotCachedTest() {
+        long generation = cache.generation();
+        // the entry is invalidated while the loader reads the old value
+        cache.invalidate(1);
+
+        assertFalse(cache.putIfCurrent(1, "stale", generation));
+        assertNull(cache.get(1));
+        assertTrue(cache.putIfCurrent(1, "fresh", cache.generation()));
+        assertEquals("fresh", cache.get(1));
+    }
+
+    @Test
+    public void evictsByWeightTest() {
+        LruCache<Integer, String> weighted = new LruCache<Integer, String>(5, 1000) {
+            @Override
+            protected int weigh(String value) {
+                return value.length();
+            }
+        };
+        weighted.put(1, "ab");
+        weighted.put(2, "cd");
+        weighted.put(3, "efg");
+        weighted.put(4, "too long");
+
+        assertNull(weighted.get(1));
+        assertNull(weighted.get(4));
+        assertEquals("efg", weighted.get(3));
+        assertEquals(5, weighted.getWeight());
+    }
+}
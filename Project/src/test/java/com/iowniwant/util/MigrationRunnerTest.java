@@ -0,0 +1,156 @@
+package com.iowniwant.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+public class MigrationRunnerTest {
+    private static final MigrationRunner.Migration CREATE = new MigrationRunner.Migration(1, "create",
+            "CREATE TABLE iowniwant.wish (id INT PRIMARY KEY, title VARCHAR(60));");
+    private static final MigrationRunner.Migration FILL = new MigrationRunner.Migration(2, "fill",
+            "-- two wishes\nINSERT INTO iowniwant.wish VALUES (1, 'car; red');\nINSERT INTO iowniwant.wish VALUES (2, 'bike')");
+
+    private DataSource dataSource;
+
+    @Before
+    public void setUp() {
+        dataSource = H2DataSources.inMemory("migrations");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void appliesPendingMigrationsOnceTest() throws SQLException {
+        MigrationRunner runner = new MigrationRunner(Arrays.asList(FILL, CREATE));
+
+        assertEquals(2, runner.migrate(dataSource.getConnection()));
+        assertEquals(0, runner.migrate(dataSource.getConnection()));
+
+        assertEquals(2, count("SELECT count(*) FROM iowniwant.wish"));
+        assertEquals(2, count("SELECT max(version) FROM iowniwant.schema_version"));
+        assertEquals(FILL.getChecksum(), count("SELECT checksum FROM iowniwant.schema_version WHERE version = 2"));
+    }
+
+    @Test
+    public void failedMigrationIsRolledBackTest() throws SQLException {
+        MigrationRunner.Migration broken = new MigrationRunner.Migration(3, "broken",
+                "INSERT INTO iowniwant.wish VALUES (3, 'boat');\nINSERT INTO iowniwant.nothing VALUES (1);");
+        new MigrationRunner(Arrays.asList(CREATE, FILL)).migrate(dataSource.getConnection());
+
+        try {
+            new MigrationRunner(Arrays.asList(CREATE, FILL, broken)).migrate(dataSource.getConnection());
+            fail("broken migration applied");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("V3"));
+        }
+
+        assertEquals(2, count("SELECT count(*) FROM iowniwant.wish"));
+        assertEquals(2, count("SELECT count(*) FROM iowniwant.schema_version"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void changedMigrationIsRefusedTest() throws SQLException {
+        new MigrationRunner(Arrays.asList(CREATE, FILL)).migrate(dataSource.getConnection());
+        MigrationRunner.Migration changed = new MigrationRunner.Migration(2, "fill",
+                "INSERT INTO iowniwant.wish VALUES (3, 'boat')");
+
+        new MigrationRunner(Arrays.asList(CREATE, changed)).migrate(dataSource.getConnection());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void migrationOlderThanAppliedIsRefusedTest() throws SQLException {
+        new MigrationRunner(Arrays.asList(CREATE, FILL)).migrate(dataSource.getConnection());
+        execute("DELETE FROM iowniwant.schema_version WHERE version = 1");
+
+        new MigrationRunner(Arrays.asList(CREATE, FILL)).migrate(dataSource.getConnection());
+    }
+
+    @Test
+    public void existingSchemaIsRecordedAsBaselineTest() throws SQLException {
+        // a DataBase set up by the former schema script, before the versions were recorded
+        execute("CREATE SCHEMA iowniwant", "CREATE TABLE iowniwant.user (user_id INT PRIMARY KEY)",
+                "CREATE TABLE iowniwant.wish (id INT PRIMARY KEY, title VARCHAR(60))");
+        MigrationRunner.Migration initial = new MigrationRunner.Migration(1, "initial schema",
+                "CREATE TABLE iowniwant.user (user_id INT PRIMARY KEY);");
+
+        assertEquals(1, new MigrationRunner(Arrays.asList(initial, FILL)).migrate(dataSource.getConnection()));
+
+        assertEquals(2, count("SELECT count(*) FROM iowniwant.wish"));
+        assertEquals(2, count("SELECT count(*) FROM iowniwant.schema_version"));
+        assertEquals(1, count("SELECT count(*) FROM iowniwant.schema_version WHERE version = 1 AND checksum IS NULL"));
+    }
+
+    @Test
+    public void splitKeepsQuotedSemicolonsTest() {
+        List<String> statements = MigrationRunner.split(
+                "-- header; not a statement\n" +
+                "CREATE FUNCTION f() RETURNS trigger AS $$\nBEGIN\n  RETURN NULL; -- done\nEND;\n$$ LANGUAGE plpgsql;\n" +
+                "INSERT INTO t VALUES ('a;''b', \"c;d\"); /* x; y */\n;\n" +
+                "SELECT $tag$;$tag$");
+
+        assertEquals(3, statements.size());
+        assertTrue(statements.get(0).endsWith("END;\n$$ LANGUAGE plpgsql"));
+        assertEquals("INSERT INTO t VALUES ('a;''b', \"c;d\")", statements.get(1));
+        assertEquals("SELECT $tag$;$tag$", statements.get(2));
+    }
+
+    @Test
+    public void shippedMigrationsAreConsecutiveTest() throws Exception {
+        List<MigrationRunner.Migration> migrations =
+                MigrationRunner.fromClasspath(MigrationRunner.LOCATION).getMigrations();
+
+        assertFalse(migrations.isEmpty());
+        for (int i = 0; i < migrations.size(); i++) {
+            assertEquals(i + 1, migrations.get(i).getVersion());
+            assertFalse(migrations.get(i).getScript().matches("(?ism).*^\\s*(BEGIN|COMMIT)\\s*;.*"));
+        }
+    }
+
+    @Test
+    public void initialDataHoldsNoSchemaTest() throws Exception {
+        InputStream in = getClass().getResourceAsStream("/initial-data.sql");
+        try {
+            String initialData = new Scanner(in, "UTF-8").useDelimiter("\\A").next();
+            // the migrations are the only copy of the schema
+            for (String statement : MigrationRunner.split(initialData)) {
+                assertTrue(statement, statement.toUpperCase(Locale.ROOT).startsWith("INSERT"));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.iowniwant.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Explains every statement of queries.properties on a PostgreSQL DataBase
+ * migrated by @see MigrationRunner and fails when one of them reads a
+ * whole table. Only the statements reading whole tables on purpose may.
+ * Sequential scans are disabled while explaining, so the planner falls
+ * back to reading a whole index instead: every scan of a table must
+ * therefore look its rows up by an index condition, a scan merely
+ * filtering the rows it reads means that no index serves the statement.
+ * <p>
+ * Needs a scratch PostgreSQL 10 or newer DataBase, given by the system
+ * properties <code>iowniwant.test.db.url</code>, <code>.user</code> and
+ * <code>.password</code>; skipped without them. The plans are only checked
+ * on PostgreSQL 12 or newer, which can plan for any parameter values.
+ */
+public class QueryPlanRegressionTest {
+    private static final String FULL_READ_PREFIX = "get.all.";
+
+    private Connection connection;
+    private boolean genericPlans;
+
+    @Before
+    public void setUp() throws SQLException {
+        String url = System.getProperty("iowniwant.test.db.url");
+        Assume.assumeTrue("no test DataBase configured", url != null && url.startsWith("jdbc:postgresql:"));
+        MigrationRunner.fromClasspath(MigrationRunner.LOCATION).migrate(DriverManager.getConnection(url,
+                System.getProperty("iowniwant.test.db.user"), System.getProperty("iowniwant.test.db.password")));
+        connection = DriverManager.getConnection(url,
+                System.getProperty("iowniwant.test.db.user"), System.getProperty("iowniwant.test.db.password"));
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL enable_seqscan = off");
+            try (ResultSet resultSet = statement.executeQuery("SHOW server_version_num")) {
+                genericPlans = resultSet.next() && Integer.parseInt(resultSet.getString(1)) >= 120000;
+            }
+            // plans for any parameter values, not for the NULLs they are explained with
+            if (genericPlans)
+                statement.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.rollback();
+            connection.close();
+        }
+    }
+
+    @Test
+    public void hotQueriesUseIndexesTest() throws Exception {
+        // older servers plan for the NULLs, which match no rows and need no scan
+        Assume.assumeTrue("generic plans need PostgreSQL 12", genericPlans);
+        Properties queries = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("/queries.properties")) {
+            queries.load(in);
+        }
+        List<String> scanning = new ArrayList<>();
+        for (String name : new TreeSet<>(queries.stringPropertyNames())) {
+            String sql = queries.getProperty(name).trim();
+            if (name.startsWith(FULL_READ_PREFIX) || isPlainInsert(sql))
+                continue;
+            JsonObject plan = explain(sql);
+            List<String> scans = new ArrayList<>();
+            collectFullScans(plan, scans);
+            if (!scans.isEmpty())
+                scanning.add(name + ": " + scans);
+        }
+        assertTrue("queries scanning a table:\n" + scanning, scanning.isEmpty());
+    }
+
+    @Test
+    public void foreignKeysAreIndexedTest() throws SQLException {
+        // a delete of the referenced row looks the referencing rows up by these columns
+        List<String> unindexed = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT c.conname FROM pg_constraint c " +
+                     "WHERE c.contype = 'f' AND c.connamespace = 'iowniwant'::regnamespace " +
+                     "AND NOT EXISTS (SELECT 1 FROM pg_index i WHERE i.indrelid = c.conrelid " +
+                     "AND (i.indkey::int2[])[0:cardinality(c.conkey) - 1] = c.conkey)")) {
+            while (resultSet.next()) {
+                unindexed.add(resultSet.getString(1));
+            }
+        }
+        assertTrue("foreign keys without index: " + unindexed, unindexed.isEmpty());
+    }
+
+    /**
+     * Collects the scans of a table in the plan that read it whole: a
+     * sequential scan, or an index scan without index condition, whether or
+     * not it filters the rows it reads. A bitmap heap scan is fed by the
+     * index conditions of its bitmap index scans.
+     */
+    private static void collectFullScans(JsonObject node, List<String> scans) {
+        String type = node.get("Node Type").getAsString();
+        if (node.has("Relation Name") && type.endsWith("Scan") && (type.equals("Seq Scan")
+                || !node.has("Index Cond") && !node.has("Recheck Cond")))
+            scans.add(type + " on " + node.get("Relation Name").getAsString()
+                    + (node.has("Filter") ? " filtering " + node.get("Filter").getAsString() : ""));
+        if (node.has("Plans")) {
+            for (JsonElement child : node.getAsJsonArray("Plans")) {
+                collectFullScans(child.getAsJsonObject(), scans);
+            }
+        }
+    }
+
+    private static boolean isPlainInsert(String sql) {
+        String upper = sql.toUpperCase(Locale.ROOT);
+        return upper.startsWith("INSERT") && !upper.contains("SELECT");
+    }
+
+    /**
+     * @return root node of the generic plan of the statement, its parameters numbered the PostgreSQL way.
+     */
+    private JsonObject explain(String sql) throws SQLException {
+        if (sql.endsWith(";"))
+            sql = sql.substring(0, sql.length() - 1);
+        StringBuilder numbered = new StringBuilder();
+        List<String> nulls = new ArrayList<>();
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                nulls.add("NULL");
+                numbered.append('$').append(nulls.size());
+            } else {
+                numbered.append(c);
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PREPARE explained AS " + numbered);
+            String arguments = nulls.isEmpty() ? "" : "(" + String.join(", ", nulls) + ")";
+            try (ResultSet resultSet = statement.executeQuery("EXPLAIN (FORMAT JSON) EXECUTE explained" + arguments)) {
+                assertTrue(resultSet.next());
+                return new JsonParser().parse(resultSet.getString(1)).getAsJsonArray()
+                        .get(0).getAsJsonObject().getAsJsonObject("Plan");
+            } finally {
+                statement.execute("DEALLOCATE explained");
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.iowniwant.util;
+
+import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.model.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Routes the DAO reads between an in-memory primary and replica, which
+ * hold different rows for the same user so the reads tell where they went.
+ */
+public class ReplicaRoutingTest {
+    private static final String PRIMARY = "java:/jbdc/data-postgres";
+    private static final String REPLICA = "java:/jbdc/data-postgres-replica-1";
+
+    private DataSource primary;
+    private DataSource replica;
+    private UserDao userDao = UserDao.getInstance();
+
+    @Before
+    public void setUp() throws SQLException {
+        primary = H2DataSources.inMemory("routing-primary");
+        replica = H2DataSources.inMemory("routing-replica");
+        createUser(primary, "primary");
+        createUser(replica, "replica");
+
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind(REPLICA, replica);
+        InitialContextFactoryMock.bind(PRIMARY, primary);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        InitialContextFactoryMock.bind(REPLICA, null);
+        for (DataSource dataSource : Arrays.asList(primary, replica)) {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+            }
+        }
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void readsGoToReplicaTest() {
+        assertEquals(1, DataBaseManager.getInstance().getReplicaRouter().size());
+        assertEquals("replica", userDao.getAll().get(0).getFirstName());
+        assertEquals("replica", firstNameOfUser(DataBaseManager.getInstance().getReadConnectionFor(1)));
+    }
+
+    @Test
+    public void cacheFillingReadsGoToPrimaryTest() {
+        assertEquals("primary", userDao.getById(1).getFirstName());
+        assertEquals("primary", userDao.getByNick("nick").getFirstName());
+    }
+
+    @Test
+    public void readsInWriteTransactionGoToPrimaryTest() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            // nothing written yet, the replica is as good as the primary
+            assertEquals("replica", userDao.getAll().get(0).getFirstName());
+
+            User user = userDao.getById(1);
+            user.setFirstName("changed");
+            userDao.update(user);
+
+            assertEquals("changed", userDao.getAll().get(0).getFirstName());
+            work.commit();
+        }
+        // read after write: the replica has not caught up, the user reads the primary
+        assertEquals("changed", userDao.getById(1).getFirstName());
+        assertEquals("changed", firstNameOfUser(DataBaseManager.getInstance().getReadConnectionFor(1)));
+        assertEquals("replica", userDao.getAll().get(0).getFirstName());
+    }
+
+    @Test
+    public void rolledBackWriteDoesNotPinTest() {
+        try (UnitOfWork ignored = UnitOfWork.begin()) {
+            User user = userDao.getById(1);
+            user.setFirstName("changed");
+            userDao.update(user);
+        }
+        assertEquals("primary", userDao.getById(1).getFirstName());
+        assertEquals("replica", firstNameOfUser(DataBaseManager.getInstance().getReadConnectionFor(1)));
+    }
+
+    @Test
+    public void unreachableReplicaFallsBackToPrimaryTest() throws SQLException {
+        DataSource down = mock(DataSource.class);
+        when(down.getConnection()).thenThrow(new SQLException("replica down"));
+        InitialContextFactoryMock.bind(REPLICA, down);
+
+        assertEquals("primary", userDao.getAll().get(0).getFirstName());
+    }
+
+    @Test
+    public void roundRobinAlternatesTest() throws SQLException {
+        ReplicaRouter router = new ReplicaRouter(Arrays.asList(primary, replica),
+                ReplicaRouter.Selection.ROUND_ROBIN);
+
+        assertEquals("primary", firstNameVia(router));
+        assertEquals("replica", firstNameVia(router));
+        assertEquals("primary", firstNameVia(router));
+    }
+
+    @Test
+    public void leastLoadedAvoidsBusyReplicaTest() throws SQLException {
+        ReplicaRouter router = new ReplicaRouter(Arrays.asList(primary, replica),
+                ReplicaRouter.Selection.LEAST_LOADED);
+
+        try (Connection busy = router.getConnection()) {
+            assertEquals(1, router.getOpenCount(0));
+            assertEquals("replica", firstNameVia(router));
+        }
+        assertEquals(0, router.getOpenCount(0));
+        assertEquals(0, router.getOpenCount(1));
+        assertEquals("primary", firstNameVia(router));
+    }
+
+    private static String firstNameVia(ReplicaRouter router) throws SQLException {
+        try (Connection connection = router.getConnection();
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(
+                    "SELECT first_name FROM iowniwant.user WHERE user_id = 1");
+            assertTrue(resultSet.next());
+            return resultSet.getString(1);
+        }
+    }
+
+    private static String firstNameOfUser(Connection connection) {
+        try (Connection open = connection;
+             Statement statement = open.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(
+                    "SELECT first_name FROM iowniwant.user WHERE user_id = 1");
+            assertTrue(resultSet.next());
+            return resultSet.getString(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void createUser(DataSource dataSource, String firstName) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS iowniwant");
+            statement.execute("CREATE TABLE iowniwant.user (" +
+                    "user_id BIGSERIAL NOT NULL, first_name VARCHAR(60) NOT NULL, " +
+                    "last_name VARCHAR(60) NOT NULL, nick_name VARCHAR(60) NOT NULL UNIQUE, " +
+                    "user_password VARCHAR(60) NOT NULL, email VARCHAR(60), " +
+                    "month_salary REAL DEFAULT 0, CONSTRAINT user_id_pk PRIMARY KEY (user_id))");
+            statement.execute("INSERT INTO iowniwant.user(first_name, last_name, nick_name, user_password, email) " +
+                    "VALUES ('" + firstName + "', 'last', 'nick', 'secret', 'nick@mail.com')");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.iowniwant.util;
+
+import com.iowniwant.dao.AbstractGoalDAO;
+import com.iowniwant.dao.implementation.GoalDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.postgresql.PGConnection;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SavingsPlanBatchTest {
+    private DataSource dataSource;
+
+    @Before
+    public void setUp() throws SQLException {
+        dataSource = H2DataSources.inMemory("savings-plan");
+        execute("CREATE SCHEMA IF NOT EXISTS iowniwant",
+                "CREATE TABLE iowniwant.user (user_id INT PRIMARY KEY, first_name VARCHAR(60), " +
+                        "last_name VARCHAR(60), nick_name VARCHAR(60), user_password VARCHAR(60), " +
+                        "email VARCHAR(60), month_salary REAL DEFAULT 0)",
+                "CREATE TABLE iowniwant.goal (goal_id INT PRIMARY KEY, title VARCHAR(60), cost REAL, " +
+                        "description VARCHAR(60), pubdate DATE, notes VARCHAR(60), user_id INT, v_goal_id INT)",
+                "CREATE TABLE iowniwant.savings_plan (user_id INT NOT NULL, goal_id INT NOT NULL, " +
+                        "position INT NOT NULL, start_month INT, funded_month INT, " +
+                        "planned_at TIMESTAMP DEFAULT now(), PRIMARY KEY (user_id, goal_id))");
+        for (int user = 1; user <= 7; user++) {
+            execute("INSERT INTO iowniwant.user VALUES (" + user + ", 'f', 'l', 'n" + user + "', 'p', 'e', 100)");
+            for (int goal = 1; goal <= user; goal++) {
+                execute("INSERT INTO iowniwant.goal VALUES (" + (user * 10 + goal) + ", 't', " + (goal * 50)
+                        + ", 'd', DATE '2016-01-01', 'n', " + user + ", " + goal + ")");
+            }
+        }
+        // a plan of a previous night, replaced by the batch
+        execute("INSERT INTO iowniwant.savings_plan (user_id, goal_id, position) VALUES (1, 99, 1)");
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void everyUserIsPlannedTest() throws SQLException {
+        SavingsPlanBatch batch = new SavingsPlanBatch(DataBaseManager.getInstance(), GoalDao.getInstance(),
+                new SavingsPlanner(600), SavingsPlanner.order(SavingsPlanner.ORDER_BY_COST), 3, 3, 1);
+
+        assertEquals(7, batch.run());
+
+        assertEquals(28, count("SELECT count(*) FROM iowniwant.savings_plan"));
+        assertEquals(0, count("SELECT count(*) FROM iowniwant.savings_plan WHERE goal_id = 99"));
+        // 50 + 100 + ... + 350 for the 7 goals of the last user
+        assertEquals(14, count("SELECT funded_month FROM iowniwant.savings_plan WHERE goal_id = 77"));
+        assertEquals(7, count("SELECT position FROM iowniwant.savings_plan WHERE goal_id = 77"));
+    }
+
+    @Test
+    public void runLockedByAnotherNodeIsSkippedTest() throws SQLException {
+        DataBaseManager dbManager = mock(DataBaseManager.class);
+        AbstractGoalDAO goalDao = mock(AbstractGoalDAO.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement lock = mock(PreparedStatement.class);
+        ResultSet taken = mock(ResultSet.class);
+        when(dbManager.getConnection()).thenReturn(connection);
+        when(connection.isWrapperFor(PGConnection.class)).thenReturn(true);
+        when(connection.prepareStatement(SavingsPlanBatch.LOCK_SQL)).thenReturn(lock);
+        when(lock.executeQuery()).thenReturn(taken);
+        when(taken.next()).thenReturn(true);
+        when(taken.getBoolean(1)).thenReturn(false);
+        SavingsPlanBatch batch = new SavingsPlanBatch(dbManager, goalDao,
+                new SavingsPlanner(600), SavingsPlanner.order(SavingsPlanner.ORDER_BY_COST), 3, 3, 1);
+
+        assertEquals(0, batch.run());
+
+        verify(lock).setLong(1, SavingsPlanBatch.LOCK_KEY);
+        verify(goalDao, never()).iterateAll();
+        verify(connection, never()).prepareStatement(SavingsPlanBatch.UNLOCK_SQL);
+        verify(connection).close();
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.iowniwant.util;
+
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.SavingsPlan;
+import com.iowniwant.model.User;
+import org.junit.Test;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SavingsPlannerTest {
+    private final SavingsPlanner planner = new SavingsPlanner(12);
+    private final User user = user(100);
+
+    @Test
+    public void cheapestGoalsArePaidFirstTest() {
+        List<Goal> goals = Arrays.asList(goal(1, 250, "2016-01-01"), goal(2, 30, "2016-02-01"),
+                goal(3, 120, "2016-03-01"));
+
+        SavingsPlan plan = planner.plan(user, goals, SavingsPlanner.order(SavingsPlanner.ORDER_BY_COST));
+
+        assertFunding(plan.getGoals().get(0), 2, 1, 1);
+        // the 70 left in the first month go to the next goal
+        assertFunding(plan.getGoals().get(1), 3, 1, 2);
+        assertFunding(plan.getGoals().get(2), 1, 2, 4);
+        assertTrue(plan.isComplete());
+        assertEquals(70, plan.getSchedule().get(1).getAmount(), 0.0);
+        double paid = 0;
+        for (SavingsPlan.Installment installment : plan.getSchedule()) {
+            paid += installment.getAmount();
+        }
+        assertEquals(400, paid, 0.001);
+    }
+
+    @Test
+    public void oldestGoalsArePaidFirstTest() {
+        List<Goal> goals = Arrays.asList(goal(1, 250, "2016-01-01"), goal(2, 30, null),
+                goal(3, 120, "2015-03-01"));
+
+        SavingsPlan plan = planner.plan(user, goals, SavingsPlanner.order(SavingsPlanner.ORDER_BY_DATE));
+
+        assertEquals(3, plan.getGoals().get(0).getGoalId());
+        assertEquals(1, plan.getGoals().get(1).getGoalId());
+        assertEquals(2, plan.getGoals().get(2).getGoalId());
+    }
+
+    @Test
+    public void goalsPastTheHorizonStayUnpaidTest() {
+        List<Goal> goals = Arrays.asList(goal(1, 1150, null), goal(2, 100, null), goal(3, 0, null));
+
+        SavingsPlan plan = planner.plan(user, goals, SavingsPlanner.order(null));
+
+        assertFunding(plan.getGoals().get(0), 3, 1, 1);
+        assertFunding(plan.getGoals().get(1), 2, 1, 1);
+        assertFunding(plan.getGoals().get(2), 1, 2, null);
+        assertFalse(plan.isComplete());
+        assertEquals(12, plan.getSchedule().size());
+    }
+
+    @Test
+    public void nothingIsPaidWithoutSalaryTest() {
+        SavingsPlan plan = planner.plan(user(0), Collections.singletonList(goal(1, 10, null)),
+                SavingsPlanner.order(null));
+
+        assertNull(plan.getGoals().get(0).getFundedMonth());
+        assertTrue(plan.getSchedule().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOrderIsRejectedTest() {
+        SavingsPlanner.order("title");
+    }
+
+    private static void assertFunding(SavingsPlan.Funding funding, int goalId, Integer start, Integer funded) {
+        assertEquals(goalId, funding.getGoalId());
+        assertEquals(start, funding.getStartMonth());
+        assertEquals(funded, funding.getFundedMonth());
+    }
+
+    private static User user(double salary) {
+        User user = new User("first", "last", "nick", "secret", "nick@mail.com");
+        user.setId(1);
+        user.setMonthSalary(salary);
+        return user;
+    }
+
+    private Goal goal(int id, double cost, String pubdate) {
+        Goal goal = new Goal("goal " + id, cost, null, pubdate == null ? null : Date.valueOf(pubdate), null, user);
+        goal.setId(id);
+        return goal;
+    }
+}
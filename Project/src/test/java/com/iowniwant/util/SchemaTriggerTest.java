@@ -0,0 +1,178 @@
+package com.iowniwant.util;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the triggers of the migrations on a PostgreSQL DataBase migrated
+ * by @see MigrationRunner: the stored goal and task ordinals of V2, the
+ * goal summaries of V4 and the user directory kept in step by V8. Every test runs in a transaction rolled back at the
+ * end, the deferred ordinal constraints are checked before.
+ * <p>
+ * Needs a scratch PostgreSQL 10 or newer DataBase, given by the system properties
+ * <code>iowniwant.test.db.url</code>, <code>.user</code> and
+ * <code>.password</code>; skipped without them.
+ */
+public class SchemaTriggerTest {
+    private Connection connection;
+    private int userId;
+
+    @Before
+    public void setUp() throws SQLException {
+        String url = System.getProperty("iowniwant.test.db.url");
+        Assume.assumeTrue("no test DataBase configured", url != null && url.startsWith("jdbc:postgresql:"));
+        MigrationRunner.fromClasspath(MigrationRunner.LOCATION).migrate(DriverManager.getConnection(url,
+                System.getProperty("iowniwant.test.db.user"), System.getProperty("iowniwant.test.db.password")));
+        connection = DriverManager.getConnection(url,
+                System.getProperty("iowniwant.test.db.user"), System.getProperty("iowniwant.test.db.password"));
+        connection.setAutoCommit(false);
+        userId = queryInt("INSERT INTO iowniwant.user (first_name, last_name, nick_name, user_password) " +
+                "VALUES ('f', 'l', 'trigger-test', 'p') RETURNING user_id");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.rollback();
+            connection.close();
+        }
+    }
+
+    @Test
+    public void goalOrdinalsAreAssignedAndCompactedTest() throws SQLException {
+        int first = insertGoal("a", 10);
+        int second = insertGoal("b", 20);
+        int third = insertGoal("c", 30);
+        assertEquals("[1, 2, 3]", ordinals("SELECT v_goal_id FROM iowniwant.goal WHERE user_id = " + userId
+                + " ORDER BY goal_id").toString());
+
+        execute("DELETE FROM iowniwant.goal WHERE goal_id = " + second);
+        int fourth = insertGoal("d", 40);
+
+        assertEquals(1, queryInt("SELECT v_goal_id FROM iowniwant.goal WHERE goal_id = " + first));
+        assertEquals(2, queryInt("SELECT v_goal_id FROM iowniwant.goal WHERE goal_id = " + third));
+        assertEquals(3, queryInt("SELECT v_goal_id FROM iowniwant.goal WHERE goal_id = " + fourth));
+        assertEquals(3, queryInt("SELECT goal_count FROM iowniwant.user WHERE user_id = " + userId));
+        execute("SET CONSTRAINTS ALL IMMEDIATE");
+    }
+
+    @Test
+    public void deletingSeveralGoalsCompactsOnceTest() throws SQLException {
+        for (int i = 0; i < 6; i++) {
+            insertGoal("g" + i, i);
+        }
+
+        execute("DELETE FROM iowniwant.goal WHERE user_id = " + userId + " AND v_goal_id IN (2, 4)");
+
+        assertEquals("[1, 2, 3, 4]", ordinals("SELECT v_goal_id FROM iowniwant.goal WHERE user_id = " + userId
+                + " ORDER BY goal_id").toString());
+        assertEquals(4, queryInt("SELECT goal_count FROM iowniwant.user WHERE user_id = " + userId));
+        execute("SET CONSTRAINTS ALL IMMEDIATE");
+    }
+
+    @Test
+    public void taskOrdinalsAreAssignedAndCompactedTest() throws SQLException {
+        int goalId = insertGoal("a", 10);
+        int first = insertTask(goalId);
+        int second = insertTask(goalId);
+        int third = insertTask(goalId);
+
+        execute("DELETE FROM iowniwant.task WHERE task_id = " + first);
+
+        assertEquals(1, queryInt("SELECT v_task_id FROM iowniwant.task WHERE task_id = " + second));
+        assertEquals(2, queryInt("SELECT v_task_id FROM iowniwant.task WHERE task_id = " + third));
+        assertEquals(2, queryInt("SELECT task_count FROM iowniwant.goal WHERE goal_id = " + goalId));
+        execute("SET CONSTRAINTS ALL IMMEDIATE");
+    }
+
+    @Test
+    public void goalSummaryFollowsTheGoalsTest() throws SQLException {
+        insertGoal("a", 10);
+        int middle = insertGoal("b", 20);
+        int highest = insertGoal("c", 30);
+        assertSummary(3, 60, 30);
+
+        execute("UPDATE iowniwant.goal SET cost = 5 WHERE goal_id = " + highest);
+        assertSummary(3, 35, 20);
+
+        execute("DELETE FROM iowniwant.goal WHERE goal_id = " + middle);
+        assertSummary(2, 15, 10);
+    }
+
+    @Test
+    public void userDirectoryFollowsTheUsersTest() throws SQLException {
+        String directory = "SELECT nick_name FROM iowniwant.user_directory WHERE user_id = " + userId;
+        assertEquals("trigger-test", queryString(directory));
+        // the next user takes the next id of the directory's sequence
+        int next = queryInt("SELECT nextval('iowniwant.user_directory_user_id_seq')::int");
+        assertTrue(next > userId);
+
+        execute("UPDATE iowniwant.user SET nick_name = 'renamed' WHERE user_id = " + userId);
+        assertEquals("renamed", queryString(directory));
+
+        execute("DELETE FROM iowniwant.user WHERE user_id = " + userId);
+        assertEquals(0, queryInt("SELECT count(*)::int FROM iowniwant.user_directory WHERE user_id = " + userId));
+    }
+
+    private void assertSummary(int goalCount, int totalCost, int maxCost) throws SQLException {
+        String where = " FROM iowniwant.goal_summary WHERE user_id = " + userId;
+        assertEquals(goalCount, queryInt("SELECT goal_count" + where));
+        assertEquals(totalCost, queryInt("SELECT total_cost::int" + where));
+        assertEquals(maxCost, queryInt("SELECT max_cost::int" + where));
+    }
+
+    private int insertGoal(String title, int cost) throws SQLException {
+        return queryInt("INSERT INTO iowniwant.goal (title, cost, user_id) VALUES ('" + title + "', " + cost
+                + ", " + userId + ") RETURNING goal_id");
+    }
+
+    private int insertTask(int goalId) throws SQLException {
+        return queryInt("INSERT INTO iowniwant.task (description, goal_id) VALUES ('t', " + goalId
+                + ") RETURNING task_id");
+    }
+
+    private List<Integer> ordinals(String sql) throws SQLException {
+        List<Integer> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                values.add(resultSet.getInt(1));
+            }
+        }
+        return values;
+    }
+
+    private int queryInt(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            assertTrue(sql, resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+
+    private String queryString(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            assertTrue(sql, resultSet.next());
+            return resultSet.getString(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.iowniwant.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ShardRingTest {
+    private static final int KEYS = 30000;
+
+    @Test
+    public void spreadsKeysEvenlyTest() {
+        ShardRing ring = new ShardRing(3, 128);
+        int[] counts = new int[3];
+        for (int key = 1; key <= KEYS; key++) {
+            counts[ring.getShard(key)]++;
+        }
+        for (int count : counts) {
+            assertTrue("unbalanced: " + count, Math.abs(count - KEYS / 3) < KEYS / 3 / 5);
+        }
+    }
+
+    @Test
+    public void sameKeySameShardTest() {
+        ShardRing ring = new ShardRing(4, 64);
+        ShardRing other = new ShardRing(4, 64);
+        for (int key = 1; key <= 1000; key++) {
+            assertEquals(ring.getShard(key), other.getShard(key));
+        }
+    }
+
+    @Test
+    public void addingShardOnlyMovesKeysToItTest() {
+        ShardRing before = new ShardRing(3, 128);
+        ShardRing after = new ShardRing(4, 128);
+        int moved = 0;
+        for (int key = 1; key <= KEYS; key++) {
+            int from = before.getShard(key);
+            int to = after.getShard(key);
+            if (from != to) {
+                assertEquals(3, to);
+                moved++;
+            }
+        }
+        // roughly the quarter the new shard takes over, not a reshuffle
+        assertTrue("moved " + moved, moved > KEYS / 8 && moved < KEYS / 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyRingTest() {
+        new ShardRing(0, 128);
+    }
+}
@@ -0,0 +1,174 @@
+package com.iowniwant.util;
+
+import com.iowniwant.dao.implementation.GoalDao;
+import com.iowniwant.dao.implementation.UserDao;
+import com.iowniwant.model.Goal;
+import com.iowniwant.model.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Spreads users over two in-memory shards, with the user directory on an
+ * in-memory primary.
+ */
+public class ShardingTest {
+    private static final String PRIMARY = "java:/jbdc/data-postgres";
+    private static final String[] SHARDS = {"java:/jbdc/data-postgres-shard-1", "java:/jbdc/data-postgres-shard-2"};
+    private static final int USERS = 20;
+
+    private DataSource primary;
+    private DataSource[] shards;
+    private DataBaseManager dbManager = DataBaseManager.getInstance();
+    private UserDao userDao = UserDao.getInstance();
+
+    @Before
+    public void setUp() throws SQLException {
+        primary = H2DataSources.inMemory("sharding-primary");
+        shards = new DataSource[]{H2DataSources.inMemory("sharding-1"), H2DataSources.inMemory("sharding-2")};
+        execute(primary, "CREATE SCHEMA IF NOT EXISTS iowniwant",
+                "CREATE TABLE iowniwant.user_directory (user_id BIGSERIAL NOT NULL, " +
+                        "nick_name VARCHAR(60) NOT NULL UNIQUE, CONSTRAINT user_directory_pk PRIMARY KEY (user_id))");
+        for (DataSource shard : shards) {
+            execute(shard, "CREATE SCHEMA IF NOT EXISTS iowniwant",
+                    "CREATE TABLE iowniwant.user (" +
+                            "user_id BIGSERIAL NOT NULL, first_name VARCHAR(60) NOT NULL, " +
+                            "last_name VARCHAR(60) NOT NULL, nick_name VARCHAR(60) NOT NULL UNIQUE, " +
+                            "user_password VARCHAR(60) NOT NULL, email VARCHAR(60), " +
+                            "month_salary REAL DEFAULT 0, CONSTRAINT user_id_pk PRIMARY KEY (user_id))",
+                    "CREATE TABLE iowniwant.goal (goal_id BIGSERIAL NOT NULL, title VARCHAR(60), " +
+                            "cost REAL, description VARCHAR(255), pubdate DATE, notes VARCHAR(255), " +
+                            "user_id BIGINT NOT NULL, v_goal_id INT NOT NULL, " +
+                            "CONSTRAINT goal_id_pk PRIMARY KEY (goal_id))");
+        }
+
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        dbManager.overrideSetting("shard.data.sources", SHARDS[0] + "," + SHARDS[1]);
+        InitialContextFactoryMock.bind(SHARDS[0], shards[0]);
+        InitialContextFactoryMock.bind(SHARDS[1], shards[1]);
+        InitialContextFactoryMock.bind(PRIMARY, primary);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        dbManager.overrideSetting("shard.data.sources", "");
+        InitialContextFactoryMock.bind(SHARDS[0], null);
+        InitialContextFactoryMock.bind(SHARDS[1], null);
+        for (DataSource dataSource : Arrays.asList(primary, shards[0], shards[1])) {
+            execute(dataSource, "DROP ALL OBJECTS");
+        }
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void usersLiveOnTheirShardTest() throws SQLException {
+        assertTrue(dbManager.isSharded());
+        List<User> created = createUsers();
+
+        for (User user : created) {
+            int home = dbManager.getShardOf(user.getId());
+            assertEquals(1, count(shards[home], "SELECT count(*) FROM iowniwant.user WHERE user_id = " + user.getId()));
+            assertEquals(0, count(shards[1 - home], "SELECT count(*) FROM iowniwant.user WHERE user_id = " + user.getId()));
+        }
+        assertTrue(count(shards[0], "SELECT count(*) FROM iowniwant.user") > 0);
+        assertTrue(count(shards[1], "SELECT count(*) FROM iowniwant.user") > 0);
+        assertEquals(USERS, count(primary, "SELECT count(*) FROM iowniwant.user_directory"));
+    }
+
+    @Test
+    public void lookupsFindTheShardTest() {
+        List<User> created = createUsers();
+        userDao.clearCache();
+
+        for (User user : created) {
+            assertEquals(user.getUserName(), userDao.getById(user.getId()).getUserName());
+            assertEquals(user.getId(), userDao.getByNick(user.getUserName()).getId());
+        }
+        assertNull(userDao.getByNick("nobody"));
+    }
+
+    @Test
+    public void getAllGathersEveryShardTest() {
+        createUsers();
+
+        assertEquals(USERS, userDao.getAll().size());
+    }
+
+    @Test
+    public void goalsAreReadFromTheUsersShardTest() throws SQLException {
+        User user = createUsers().get(0);
+        execute(shards[dbManager.getShardOf(user.getId())],
+                "INSERT INTO iowniwant.goal (title, cost, user_id, v_goal_id) VALUES ('car', 100, " + user.getId() + ", 1)");
+
+        List<Goal> goals = GoalDao.getInstance().getGoalsByUserId(user.getId());
+
+        assertEquals(1, goals.size());
+        assertEquals("car", goals.get(0).getTitle());
+        assertEquals(user.getUserName(), goals.get(0).getUser().getUserName());
+    }
+
+    @Test
+    public void deleteRemovesUserAndDirectoryEntryTest() throws SQLException {
+        User user = createUsers().get(0);
+
+        userDao.delete(user.getId());
+
+        assertNull(userDao.getByNick(user.getUserName()));
+        assertEquals(USERS - 1, count(primary, "SELECT count(*) FROM iowniwant.user_directory"));
+        assertEquals(USERS - 1, userDao.getAll().size());
+    }
+
+    @Test
+    public void unitOfWorkRollsBackEveryShardTest() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            createUsers();
+        }
+
+        assertEquals(0, count(primary, "SELECT count(*) FROM iowniwant.user_directory"));
+        assertEquals(0, count(shards[0], "SELECT count(*) FROM iowniwant.user"));
+        assertEquals(0, count(shards[1], "SELECT count(*) FROM iowniwant.user"));
+    }
+
+    private List<User> createUsers() {
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = userDao.create(new User("first", "last", "nick" + i, "secret", "nick" + i + "@mail.com"));
+            assertNotNull(user);
+            created.add(user);
+        }
+        return created;
+    }
+
+    private static int count(DataSource dataSource, String query) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static void execute(DataSource dataSource, String... statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
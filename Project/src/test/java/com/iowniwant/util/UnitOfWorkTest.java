@@ -0,0 +1,141 @@
+package com.iowniwant.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UnitOfWorkTest extends Mockito {
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Runnable action;
+
+    private DataBaseManager dbManager = DataBaseManager.getInstance();
+
+    @Before
+    public void setUp() throws SQLException {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactoryMock.class.getName());
+        InitialContextFactoryMock.bind("java:/jbdc/data-postgres", dataSource);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+    }
+
+    @After
+    public void tearDown() {
+        assertNull(UnitOfWork.current());
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY,
+                InitialContextFactory.class.getName());
+    }
+
+    @Test
+    public void sharesOneConnectionAndCommitsTest() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            Connection first = dbManager.getConnection();
+            first.prepareStatement("SELECT 1");
+            first.close();
+            first.commit();
+            Connection second = dbManager.getConnection();
+            UnitOfWork.afterCompletion(action);
+
+            assertSame(first, second);
+            verify(connection, never()).close();
+            verify(connection, never()).commit();
+            verifyZeroInteractions(action);
+            work.commit();
+        }
+
+        verify(dataSource, times(1)).getConnection();
+        verify(connection).setAutoCommit(false);
+        verify(connection).prepareStatement("SELECT 1");
+        verify(connection, times(1)).commit();
+        verify(connection, never()).rollback();
+        verify(connection, times(1)).close();
+        verify(action, times(1)).run();
+    }
+
+    @Test
+    public void afterCommitActionsSkipRollbackTest() throws SQLException {
+        try (UnitOfWork ignored = UnitOfWork.begin()) {
+            dbManager.getConnection();
+            UnitOfWork.afterCommit(action);
+        }
+        verifyZeroInteractions(action);
+
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            dbManager.getConnection();
+            UnitOfWork.afterCommit(action);
+            verifyZeroInteractions(action);
+            work.commit();
+        }
+        verify(action, times(1)).run();
+    }
+
+    @Test
+    public void borrowsNothingWhenUnusedTest() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            work.commit();
+        }
+
+        verifyZeroInteractions(dataSource);
+    }
+
+    @Test
+    public void rollsBackWhenNotCommittedTest() throws SQLException {
+        try (UnitOfWork ignored = UnitOfWork.begin()) {
+            dbManager.getConnection();
+        }
+
+        verify(connection, times(1)).rollback();
+        verify(connection, never()).commit();
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    public void rollbackByDaoMarksUnitRollbackOnlyTest() throws SQLException {
+        try (UnitOfWork work = UnitOfWork.begin()) {
+            dbManager.getConnection().rollback();
+            assertTrue(work.isRollbackOnly());
+            try {
+                work.commit();
+                fail("rollback-only unit committed");
+            } catch (SQLException expected) {
+                verify(connection, times(1)).rollback();
+            }
+        }
+
+        verify(connection, never()).commit();
+    }
+
+    @Test
+    public void joinedScopeLeavesCommitToOutermostTest() throws SQLException {
+        try (UnitOfWork outer = UnitOfWork.begin()) {
+            try (UnitOfWork inner = UnitOfWork.begin()) {
+                assertSame(outer, inner);
+                dbManager.getConnection();
+                inner.commit();
+            }
+            verify(connection, never()).commit();
+            assertSame(outer, UnitOfWork.current());
+            outer.commit();
+        }
+
+        verify(connection, times(1)).commit();
+        verify(connection, times(1)).close();
+    }
+}